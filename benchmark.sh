@@ -0,0 +1,44 @@
+#!/bin/sh
+#
+# Runs the JMH benchmarks and stores the result in the "benchmarks" folder,
+# named by date and commit. The result is compared with the previous one and
+# benchmarks that have become more than 10% slower are reported. Arguments
+# are passed on to Maven, for instance:
+#
+#   ./benchmark.sh -Djmh.includes=ServiceBenchmark
+#
+set -e
+
+RESULTS=benchmarks
+PREVIOUS=$(ls $RESULTS/*.csv 2>/dev/null | tail -n 1)
+
+mvn -B -Pbenchmark verify -pl net.resheim.eclipse.timekeeper.benchmark -am "$@"
+
+mkdir -p $RESULTS
+CURRENT=$RESULTS/$(date +%Y%m%d-%H%M)-$(git rev-parse --short HEAD).csv
+cp net.resheim.eclipse.timekeeper.benchmark/target/jmh-result.csv $CURRENT
+echo Results written to $CURRENT
+
+if [ -z "$PREVIOUS" ]; then
+	exit 0
+fi
+
+echo Compared with $PREVIOUS
+# the benchmark name and parameter values identify a result
+awk -F, '
+	{ gsub(/"/, "") }
+	FNR == 1 { next }
+	{
+		key = $1
+		for (i = 8; i <= NF; i++) if ($i != "") key = key " " $i
+	}
+	NR == FNR { previous[key] = $5; next }
+	key in previous && previous[key] > 0 {
+		change = ($5 - previous[key]) / previous[key] * 100
+		# a positive change is a slowdown, where a higher throughput is better and a
+		# shorter time is better for all other modes
+		if ($2 == "thrpt") change = -change
+		flag = change > 10 ? "  REGRESSION" : ""
+		printf "%-80s %12.3f %12.3f %-8s %+7.1f%%%s\n", key, previous[key], $5, $7, change, flag
+	}
+' $PREVIOUS $CURRENT
@@ -0,0 +1,115 @@
+/*******************************************************************************
+ * Copyright © 2026 Torkild U. Resheim
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Torkild U. Resheim - initial API and implementation
+ *******************************************************************************/
+package net.resheim.eclipse.timekeeper.benchmark;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.resheim.eclipse.timekeeper.db.model.Activity;
+import net.resheim.eclipse.timekeeper.db.model.Task;
+
+/**
+ * Compares calculating the time spent on each task every day of a week using
+ * the {@link Duration} arithmetic previously found in
+ * <code>Activity#getDuration(LocalDate, LocalDate)</code>, to using seconds
+ * and the activity index of the task.
+ *
+ * @author Torkild U. Resheim
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ActivityBenchmark {
+
+	private LocalDate[] dates;
+
+	private Task[] tasks;
+
+	@Setup
+	public void setUp(History history) {
+		LocalDate week = history.getMiddleWeek();
+		dates = new LocalDate[8];
+		for (int i = 0; i < dates.length; i++) {
+			dates[i] = week.plusDays(i);
+		}
+		tasks = history.tasks.toArray(new Task[0]);
+	}
+
+	@Benchmark
+	public long durations() {
+		long seconds = 0;
+		for (Task task : tasks) {
+			for (int i = 0; i < dates.length - 1; i++) {
+				Duration sum = Duration.ZERO;
+				for (Activity activity : task.getActivities()) {
+					sum = sum.plus(getDuration(activity, dates[i], dates[i + 1]));
+				}
+				seconds += sum.getSeconds();
+			}
+		}
+		return seconds;
+	}
+
+	@Benchmark
+	public long seconds() {
+		long now = Activity.now();
+		long seconds = 0;
+		for (Task task : tasks) {
+			for (int i = 0; i < dates.length - 1; i++) {
+				seconds += task.getSeconds(Activity.toSeconds(dates[i]), Activity.toSeconds(dates[i + 1]), now);
+			}
+		}
+		return seconds;
+	}
+
+	/**
+	 * The duration of the activity between the given dates, as formerly
+	 * calculated.
+	 */
+	private static Duration getDuration(Activity activity, LocalDate start, LocalDate end) {
+		LocalDateTime min = LocalDateTime.of(start, LocalTime.MIN);
+		LocalDateTime max = LocalDateTime.of(end, LocalTime.MIN);
+		LocalDateTime s = activity.getStart();
+		LocalDateTime e = activity.getEnd();
+		if (e == null) {
+			e = LocalDateTime.now();
+		}
+		if (s.isAfter(max) || e.isBefore(min)) {
+			return Duration.ZERO;
+		}
+		Duration d = Duration.between(s, e);
+		if (s.isBefore(min)) {
+			d = d.minus(Duration.between(s, min));
+		}
+		if (e.isAfter(max)) {
+			d = d.minus(Duration.between(max, e));
+		}
+		return d;
+	}
+
+}
@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright © 2026 Torkild U. Resheim
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Torkild U. Resheim - initial API and implementation
+ *******************************************************************************/
+package net.resheim.eclipse.timekeeper.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.resheim.eclipse.timekeeper.db.TimekeeperService;
+
+/**
+ * Measures exporting the entire history to an archive, and importing the
+ * archive into an empty database. Each operation takes long enough for a new
+ * database to be created before every import without affecting the result.
+ *
+ * @author Torkild U. Resheim
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ArchiveBenchmark {
+
+	private Path directory;
+
+	/** An archive of the entire history */
+	private Path archive;
+
+	/** The database the archive is imported into */
+	private TimekeeperService target;
+
+	@Setup
+	public void setUp(History history) throws IOException {
+		directory = Files.createTempDirectory("timekeeper-benchmark"); //$NON-NLS-1$
+		archive = directory.resolve("history.zip"); //$NON-NLS-1$
+		history.service.exportTo(archive);
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(archive);
+		Files.deleteIfExists(directory.resolve("export.zip")); //$NON-NLS-1$
+		Files.deleteIfExists(directory);
+	}
+
+	@Setup(Level.Invocation)
+	public void createTarget() {
+		target = History.createService();
+	}
+
+	@TearDown(Level.Invocation)
+	public void closeTarget() {
+		target.closePersistence();
+	}
+
+	@Benchmark
+	public int exportTo(History history) throws IOException {
+		return history.service.exportTo(directory.resolve("export.zip")); //$NON-NLS-1$
+	}
+
+	@Benchmark
+	public int importFrom() throws IOException {
+		return target.importFrom(archive);
+	}
+
+}
@@ -0,0 +1,140 @@
+/*******************************************************************************
+ * Copyright © 2026 Torkild U. Resheim
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Torkild U. Resheim - initial API and implementation
+ *******************************************************************************/
+package net.resheim.eclipse.timekeeper.benchmark;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.mylyn.internal.tasks.core.AbstractTask;
+import org.eclipse.mylyn.internal.tasks.core.LocalTask;
+import org.eclipse.mylyn.internal.tasks.core.TaskCategory;
+import org.eclipse.mylyn.internal.tasks.core.TaskList;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import net.resheim.eclipse.timekeeper.db.TimekeeperService;
+import net.resheim.eclipse.timekeeper.db.model.Activity;
+import net.resheim.eclipse.timekeeper.db.model.Task;
+
+/**
+ * An in-memory database holding a synthetic history of several years of work.
+ * Every working day a number of activities are recorded on tasks picked at
+ * random from a fixed set of projects. The history always ends on the same
+ * date and is generated from the same seed, so that results can be compared
+ * between runs. Activities recorded by the benchmarks themselves are placed at
+ * the current time, well after the history.
+ *
+ * @author Torkild U. Resheim
+ */
+@SuppressWarnings("restriction")
+@State(Scope.Benchmark)
+public class History {
+
+	/** The first day after the history, a Monday */
+	public static final LocalDate END = LocalDate.of(2025, 1, 6);
+
+	private static final int PROJECTS = 6;
+
+	private static final int TASKS = 60;
+
+	private static final int ACTIVITIES_PER_DAY = 6;
+
+	private static final AtomicInteger DATABASES = new AtomicInteger();
+
+	/** The number of years of history */
+	@Param({ "1", "5" })
+	public int years;
+
+	/** The first day of the history, a Monday */
+	public LocalDate start;
+
+	public TimekeeperService service;
+
+	/** The Mylyn tasks, in the same order as {@link #tasks} */
+	public final List<AbstractTask> mylynTasks = new ArrayList<>();
+
+	public final List<Task> tasks = new ArrayList<>();
+
+	/** The first day of every week in the history */
+	public final List<LocalDate> weeks = new ArrayList<>();
+
+	@Setup
+	public void setUp() {
+		service = createService();
+		start = END.minusYears(years).with(DayOfWeek.MONDAY);
+		Random random = new Random(1969);
+		TaskList taskList = new TaskList();
+		TaskCategory[] projects = new TaskCategory[PROJECTS];
+		for (int i = 0; i < PROJECTS; i++) {
+			projects[i] = new TaskCategory("project-" + i, "Project " + i);
+			taskList.addCategory(projects[i]);
+		}
+		for (int i = 0; i < TASKS; i++) {
+			AbstractTask mylynTask = new LocalTask(String.valueOf(i), "Task #" + i);
+			taskList.addTask(mylynTask, projects[i % PROJECTS]);
+			mylynTask.setRepositoryUrl("benchmark");
+			mylynTasks.add(mylynTask);
+			tasks.add(service.createTask(mylynTask));
+		}
+		for (LocalDate date = start; date.isBefore(END); date = date.plusDays(1)) {
+			if (date.getDayOfWeek() == DayOfWeek.MONDAY) {
+				weeks.add(date);
+			}
+			if (date.getDayOfWeek() == DayOfWeek.SATURDAY || date.getDayOfWeek() == DayOfWeek.SUNDAY) {
+				continue;
+			}
+			LocalDateTime time = date.atTime(8, random.nextInt(30));
+			for (int i = 0; i < ACTIVITIES_PER_DAY; i++) {
+				Task task = tasks.get(random.nextInt(TASKS));
+				Activity activity = new Activity();
+				activity.setSummary("Activity " + i);
+				task.addActivity(activity);
+				activity.setStart(time);
+				time = time.plusMinutes(15 + random.nextInt(60));
+				activity.setEnd(time);
+				time = time.plusMinutes(random.nextInt(15));
+			}
+		}
+		for (Task task : tasks) {
+			service.persistTask(task);
+		}
+		service.flush();
+	}
+
+	@TearDown
+	public void tearDown() {
+		service.flush();
+		service.closePersistence();
+	}
+
+	/**
+	 * @return a service connected to a new and empty in-memory database
+	 */
+	public static TimekeeperService createService() {
+		return new TimekeeperService("jdbc:h2:mem:benchmark_" + DATABASES.incrementAndGet(), false); //$NON-NLS-1$
+	}
+
+	/**
+	 * @return the first day of a week in the middle of the history
+	 */
+	public LocalDate getMiddleWeek() {
+		return weeks.get(weeks.size() / 2);
+	}
+
+}
@@ -0,0 +1,265 @@
+/*******************************************************************************
+ * Copyright © 2026 Torkild U. Resheim
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Torkild U. Resheim - initial API and implementation
+ *******************************************************************************/
+package net.resheim.eclipse.timekeeper.benchmark;
+
+import java.sql.SQLException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.mylyn.internal.tasks.core.AbstractTask;
+import org.h2.tools.Server;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.resheim.eclipse.timekeeper.db.TimekeeperService;
+import net.resheim.eclipse.timekeeper.db.report.model.DailyTotals;
+
+/**
+ * Simulates a number of IDE clients sharing one database. Each client has its
+ * own {@link TimekeeperService} and repeatedly starts a task, loads a week as
+ * when the week view is shown, and stops the task again. Changes are written
+ * immediately rather than by the write-behind timer, so that every start and
+ * stop results in a database round trip. When done the latency percentiles of
+ * each operation and the throughput are reported.
+ * <p>
+ * Unless a database URL is given, an H2 TCP server is started with an
+ * in-memory database that is filled using the {@link WorkloadGenerator}.
+ * Settings are given as <code>name=value</code> arguments:
+ * </p>
+ * <ul>
+ * <li><code>clients</code> – the number of concurrent clients (8)</li>
+ * <li><code>seconds</code> – the duration of the measurement (60)</li>
+ * <li><code>warmup</code> – seconds to run before measuring (10)</li>
+ * <li><code>think</code> – milliseconds each client waits between cycles
+ * (0)</li>
+ * <li><code>projects</code>, <code>tasks</code> and <code>activities</code> –
+ * the amount of data to generate (20, 500 and 100000)</li>
+ * <li><code>seed</code> – the seed of the generated data (1969)</li>
+ * <li><code>port</code> – the port of the H2 TCP server (9092)</li>
+ * <li><code>url</code> – the JDBC URL of an existing database to use
+ * instead, this is filled with data unless <code>generate=false</code></li>
+ * </ul>
+ *
+ * @author Torkild U. Resheim
+ */
+@SuppressWarnings("restriction")
+public class LoadTest {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(LoadTest.class);
+
+	/** The operations that are measured */
+	private enum Operation {
+		START, WEEK, STOP
+	}
+
+	/** Latencies in nanoseconds recorded by a single client */
+	private static class Latencies {
+
+		private final long[][] samples = new long[Operation.values().length][1024];
+
+		private final int[] counts = new int[Operation.values().length];
+
+		void add(Operation operation, long nanos) {
+			int i = operation.ordinal();
+			if (counts[i] == samples[i].length) {
+				samples[i] = Arrays.copyOf(samples[i], counts[i] * 2);
+			}
+			samples[i][counts[i]++] = nanos;
+		}
+
+		long[] get(Operation operation) {
+			return Arrays.copyOf(samples[operation.ordinal()], counts[operation.ordinal()]);
+		}
+	}
+
+	private final Map<String, String> settings;
+
+	private final AtomicLong cycles = new AtomicLong();
+
+	private final AtomicLong errors = new AtomicLong();
+
+	private volatile boolean measuring;
+
+	private volatile boolean running = true;
+
+	public LoadTest(Map<String, String> settings) {
+		this.settings = settings;
+	}
+
+	public static void main(String[] args) throws Exception {
+		Map<String, String> settings = new HashMap<>();
+		for (String arg : args) {
+			int i = arg.indexOf('=');
+			if (i < 0) {
+				throw new IllegalArgumentException("Expected name=value, got '" + arg + "'"); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+			settings.put(arg.substring(0, i), arg.substring(i + 1));
+		}
+		new LoadTest(settings).run();
+	}
+
+	private int getInt(String name, int defaultValue) {
+		return Integer.parseInt(settings.getOrDefault(name, String.valueOf(defaultValue)));
+	}
+
+	public void run() throws InterruptedException, SQLException {
+		Server server = null;
+		String url = settings.get("url"); //$NON-NLS-1$
+		if (url == null) {
+			server = Server.createTcpServer("-tcpPort", String.valueOf(getInt("port", 9092)), "-ifNotExists") //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+					.start();
+			url = "jdbc:h2:tcp://localhost:" + server.getPort() + "/mem:timekeeper_load;DB_CLOSE_DELAY=-1"; //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		try {
+			run(url);
+		} finally {
+			if (server != null) {
+				server.stop();
+			}
+		}
+	}
+
+	private void run(String url) throws InterruptedException {
+		int clientCount = getInt("clients", 8); //$NON-NLS-1$
+		int projectCount = getInt("projects", 20); //$NON-NLS-1$
+		int taskCount = getInt("tasks", 500); //$NON-NLS-1$
+		TimekeeperService seeder = new TimekeeperService(url, false);
+		List<AbstractTask> tasks;
+		try {
+			WorkloadGenerator generator = new WorkloadGenerator(seeder, getInt("seed", 1969)); //$NON-NLS-1$
+			if (Boolean.parseBoolean(settings.getOrDefault("generate", "true"))) { //$NON-NLS-1$ //$NON-NLS-2$
+				tasks = generator.generate(projectCount, taskCount, getInt("activities", 100_000)); //$NON-NLS-1$
+			} else {
+				// reuse the tasks generated by an earlier run
+				tasks = generator.createMylynTasks(projectCount, taskCount);
+			}
+		} finally {
+			seeder.closePersistence();
+		}
+
+		List<Latencies> latencies = new ArrayList<>();
+		List<Thread> threads = new ArrayList<>();
+		CountDownLatch connected = new CountDownLatch(clientCount);
+		for (int i = 0; i < clientCount; i++) {
+			// each client works on it's own tasks, as is the case for local tasks
+			List<AbstractTask> clientTasks = new ArrayList<>();
+			for (int t = i; t < tasks.size(); t += clientCount) {
+				clientTasks.add(tasks.get(t));
+			}
+			Latencies clientLatencies = new Latencies();
+			latencies.add(clientLatencies);
+			long seed = i;
+			Thread thread = new Thread(() -> runClient(url, clientTasks, clientLatencies, new Random(seed), connected),
+					"Load test client " + i); //$NON-NLS-1$
+			threads.add(thread);
+			thread.start();
+		}
+		connected.await();
+		TimeUnit.SECONDS.sleep(getInt("warmup", 10)); //$NON-NLS-1$
+		measuring = true;
+		long start = System.nanoTime();
+		TimeUnit.SECONDS.sleep(getInt("seconds", 60)); //$NON-NLS-1$
+		measuring = false;
+		long elapsed = System.nanoTime() - start;
+		running = false;
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		report(latencies, clientCount, elapsed);
+	}
+
+	private void runClient(String url, List<AbstractTask> tasks, Latencies latencies, Random random,
+			CountDownLatch connected) {
+		TimekeeperService service;
+		try {
+			service = new TimekeeperService(url, false);
+		} finally {
+			connected.countDown();
+		}
+		int think = getInt("think", 0); //$NON-NLS-1$
+		LocalDate thisWeek = LocalDate.now().with(DayOfWeek.MONDAY);
+		try {
+			while (running && !tasks.isEmpty()) {
+				AbstractTask task = tasks.get(random.nextInt(tasks.size()));
+				// mostly the current week, sometimes one of the previous
+				LocalDate week = random.nextInt(4) == 0 ? thisWeek.minusWeeks(1 + random.nextInt(52)) : thisWeek;
+				try {
+					long time = System.nanoTime();
+					service.startMylynTask(task);
+					service.flush();
+					long started = System.nanoTime();
+					long count = service.findTasksForWeek(week).count();
+					DailyTotals totals = service.getDailyTotals(week, week.plusDays(7));
+					long loaded = System.nanoTime();
+					service.endMylynTask(task);
+					service.flush();
+					long stopped = System.nanoTime();
+					if (measuring) {
+						latencies.add(Operation.START, started - time);
+						latencies.add(Operation.WEEK, loaded - started);
+						latencies.add(Operation.STOP, stopped - loaded);
+						cycles.incrementAndGet();
+					}
+					LOGGER.trace("Loaded {} tasks and {} seconds", count, totals.getSeconds(week));
+				} catch (RuntimeException e) {
+					LOGGER.error("Load test cycle failed", e);
+					errors.incrementAndGet();
+				}
+				if (think > 0) {
+					TimeUnit.MILLISECONDS.sleep(think);
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			service.closePersistence();
+		}
+	}
+
+	private void report(List<Latencies> latencies, int clientCount, long elapsed) {
+		System.out.println(String.format(Locale.ENGLISH, "%-8s %10s %10s %10s %10s %10s %10s %10s", //$NON-NLS-1$
+				"ms", "count", "mean", "p50", "p90", "p99", "p99.9", "max")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$ //$NON-NLS-7$ //$NON-NLS-8$
+		for (Operation operation : Operation.values()) {
+			long[] samples = latencies.stream().map(l -> l.get(operation)).flatMapToLong(Arrays::stream).sorted()
+					.toArray();
+			if (samples.length == 0) {
+				continue;
+			}
+			System.out.println(String.format(Locale.ENGLISH, "%-8s %10d %10.2f %10.2f %10.2f %10.2f %10.2f %10.2f", //$NON-NLS-1$
+					operation.name().toLowerCase(Locale.ENGLISH), samples.length,
+					Arrays.stream(samples).average().orElse(0) / 1e6, percentile(samples, 50) / 1e6,
+					percentile(samples, 90) / 1e6, percentile(samples, 99) / 1e6, percentile(samples, 99.9) / 1e6,
+					samples[samples.length - 1] / 1e6));
+		}
+		System.out.println(String.format(Locale.ENGLISH, "%d clients completed %d cycles, %.1f cycles/s, %d errors", //$NON-NLS-1$
+				clientCount, cycles.get(), cycles.get() / (elapsed / 1e9), errors.get()));
+	}
+
+	/**
+	 * Returns the value below which the given percentage of the sorted samples
+	 * fall, using the nearest rank.
+	 */
+	private static long percentile(long[] sorted, double percentage) {
+		int rank = (int) Math.ceil(percentage / 100 * sorted.length);
+		return sorted[Math.max(0, Math.min(sorted.length, rank) - 1)];
+	}
+
+}
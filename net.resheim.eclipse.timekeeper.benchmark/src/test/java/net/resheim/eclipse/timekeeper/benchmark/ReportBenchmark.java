@@ -0,0 +1,131 @@
+/*******************************************************************************
+ * Copyright © 2026 Torkild U. Resheim
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Torkild U. Resheim - initial API and implementation
+ *******************************************************************************/
+package net.resheim.eclipse.timekeeper.benchmark;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.temporal.IsoFields;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.resheim.eclipse.timekeeper.db.model.Project;
+import net.resheim.eclipse.timekeeper.db.model.Task;
+import net.resheim.eclipse.timekeeper.db.report.ReportTemplate;
+import net.resheim.eclipse.timekeeper.db.report.TemplateExporter;
+import net.resheim.eclipse.timekeeper.db.report.model.DailyTotals;
+import net.resheim.eclipse.timekeeper.db.report.model.WorkWeek;
+
+/**
+ * Measures creating the work weeks of a report along with reading all the
+ * sums shown in a report, and rendering the default report template for a
+ * week, a month and a quarter in the middle of the history.
+ *
+ * @author Torkild U. Resheim
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReportBenchmark {
+
+	/** The template shipped with the database bundle */
+	private static final String TEMPLATE = "../net.resheim.eclipse.timekeeper.db/templates/Default HTML.html"; //$NON-NLS-1$
+
+	@Param({ "WEEK", "MONTH", "QUARTER" })
+	public String period;
+
+	private LocalDate startDate;
+
+	private LocalDate endDate;
+
+	private List<Task> tasks;
+
+	private DailyTotals totals;
+
+	private TemplateExporter exporter;
+
+	@Setup
+	public void setUp(History history) throws IOException {
+		LocalDate week = history.getMiddleWeek();
+		switch (period) {
+		case "MONTH":
+			startDate = week.withDayOfMonth(1);
+			endDate = startDate.plusMonths(1);
+			break;
+		case "QUARTER":
+			startDate = week.with(IsoFields.DAY_OF_QUARTER, 1);
+			endDate = startDate.plusMonths(3);
+			break;
+		default:
+			startDate = week;
+			endDate = week.plusDays(7);
+			break;
+		}
+		tasks = history.service.findTasks(startDate, endDate).collect(Collectors.toList());
+		totals = history.service.getDailyTotals(startDate, endDate);
+		String code = new String(Files.readAllBytes(Paths.get(TEMPLATE)), StandardCharsets.UTF_8);
+		exporter = new TemplateExporter(new ReportTemplate("benchmark", ReportTemplate.Type.HTML, code), //$NON-NLS-1$
+				history.service);
+	}
+
+	/**
+	 * Creates the work weeks and reads every sum, as done when rendering a
+	 * report.
+	 */
+	@Benchmark
+	public long workWeekSums() {
+		long seconds = 0;
+		for (WorkWeek week : WorkWeek.of(startDate, endDate, tasks, totals)) {
+			for (Map.Entry<Project, List<Task>> entry : week.getProjects().entrySet()) {
+				for (Task task : entry.getValue()) {
+					for (LocalDate date : week.getDates()) {
+						seconds += week.getSum(task, date).getSeconds();
+					}
+					seconds += week.getSum(task).getSeconds();
+				}
+				for (LocalDate date : week.getDates()) {
+					seconds += week.getSum(entry.getKey(), date).getSeconds();
+				}
+				seconds += week.getSum(entry.getKey()).getSeconds();
+			}
+			for (LocalDate date : week.getDates()) {
+				seconds += week.getSum(date).getSeconds();
+			}
+			seconds += week.getSum().getSeconds();
+		}
+		return seconds;
+	}
+
+	@Benchmark
+	public String getData() {
+		return exporter.getData(startDate, endDate);
+	}
+
+}
@@ -0,0 +1,74 @@
+/*******************************************************************************
+ * Copyright © 2026 Torkild U. Resheim
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Torkild U. Resheim - initial API and implementation
+ *******************************************************************************/
+package net.resheim.eclipse.timekeeper.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.mylyn.tasks.core.ITask;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.resheim.eclipse.timekeeper.db.model.GlobalTaskId;
+import net.resheim.eclipse.timekeeper.db.model.Task;
+
+/**
+ * Measures the service methods used when the week view is populated and when
+ * tasks are activated and deactivated in Mylyn.
+ *
+ * @author Torkild U. Resheim
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ServiceBenchmark {
+
+	/** Used to go through the weeks and tasks of the history */
+	private int counter;
+
+	@Benchmark
+	public long findTasksForWeek(History history) {
+		return history.service.findTasksForWeek(history.weeks.get(counter++ % history.weeks.size())).count();
+	}
+
+	@Benchmark
+	public Task getTaskByMylynTask(History history) {
+		return history.service.getTask(history.mylynTasks.get(counter++ % history.mylynTasks.size()));
+	}
+
+	@Benchmark
+	public Task getTaskById(History history) {
+		Task task = history.tasks.get(counter++ % history.tasks.size());
+		return history.service.getTask(new GlobalTaskId(task.getRepositoryUrl(), task.getTaskId()));
+	}
+
+	/**
+	 * Starts and ends an activity, and writes it to the database as would
+	 * eventually be done by the write-behind queue.
+	 */
+	@Benchmark
+	public int startEndMylynTask(History history) {
+		ITask task = history.mylynTasks.get(counter++ % history.mylynTasks.size());
+		history.service.startMylynTask(task);
+		history.service.endMylynTask(task);
+		return history.service.flush();
+	}
+
+}
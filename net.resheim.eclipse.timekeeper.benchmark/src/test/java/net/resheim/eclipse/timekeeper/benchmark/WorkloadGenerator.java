@@ -0,0 +1,268 @@
+/*******************************************************************************
+ * Copyright © 2026 Torkild U. Resheim
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Torkild U. Resheim - initial API and implementation
+ *******************************************************************************/
+package net.resheim.eclipse.timekeeper.benchmark;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import org.eclipse.mylyn.internal.tasks.core.AbstractTask;
+import org.eclipse.mylyn.internal.tasks.core.LocalTask;
+import org.eclipse.mylyn.internal.tasks.core.TaskCategory;
+import org.eclipse.mylyn.internal.tasks.core.TaskList;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.resheim.eclipse.timekeeper.db.TimekeeperService;
+import net.resheim.eclipse.timekeeper.db.model.Activity;
+import net.resheim.eclipse.timekeeper.db.model.ActivityLabel;
+import net.resheim.eclipse.timekeeper.db.model.Task;
+
+/**
+ * Fills a database with synthetic projects, tasks and activities using the
+ * public {@link TimekeeperService} API. The data is generated from a seed, so
+ * the same arguments will always produce the same content, and attempts to
+ * resemble actual use:
+ * <ul>
+ * <li>Some projects and tasks are worked on far more than others.</li>
+ * <li>Work is done in bursts, where a few recently used tasks are switched
+ * between before moving on to another task.</li>
+ * <li>Activities are recorded during working hours on working days, with
+ * durations ranging from a minute to a full day. A few activities last until
+ * the next day.</li>
+ * <li>Some activities are labelled.</li>
+ * <li>A few tasks have an activity that was started today and has not yet
+ * ended.</li>
+ * </ul>
+ * The history ends the day before the generator is run.
+ *
+ * @author Torkild U. Resheim
+ */
+@SuppressWarnings("restriction")
+public class WorkloadGenerator {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(WorkloadGenerator.class);
+
+	/** The repository URL of all generated tasks */
+	public static final String REPOSITORY_URL = "workload"; //$NON-NLS-1$
+
+	private static final String[] LABEL_COLORS = { "#e6194b", "#3cb44b", "#4363d8", "#f58231", "#911eb4" }; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+
+	/** The average number of activities recorded each working day */
+	private static final int ACTIVITIES_PER_DAY = 12;
+
+	/** The probability of switching to another task after each activity */
+	private static final double SWITCH_PROBABILITY = 0.35;
+
+	/** The probability of switching to a recently used task */
+	private static final double RECENT_PROBABILITY = 0.7;
+
+	/** The number of tasks considered to be recently used */
+	private static final int RECENT_TASKS = 5;
+
+	private static final double LABEL_PROBABILITY = 0.2;
+
+	private static final double MULTI_DAY_PROBABILITY = 0.005;
+
+	/** The fraction of tasks with an activity that has not ended */
+	private static final double OPEN_PROBABILITY = 0.02;
+
+	private final TimekeeperService service;
+
+	private final Random random;
+
+	/**
+	 * @param service the service used to store the generated data
+	 * @param seed    the seed of the random generator
+	 */
+	public WorkloadGenerator(TimekeeperService service, long seed) {
+		this.service = service;
+		this.random = new Random(seed);
+	}
+
+	/**
+	 * Creates the projects, tasks and activities.
+	 *
+	 * @param projectCount  the number of projects
+	 * @param taskCount     the number of tasks, spread over the projects
+	 * @param activityCount the number of activities, spread over the tasks
+	 * @return the Mylyn tasks the generated tasks are associated with
+	 */
+	public List<AbstractTask> generate(int projectCount, int taskCount, int activityCount) {
+		long time = System.currentTimeMillis();
+		List<AbstractTask> mylynTasks = createMylynTasks(projectCount, taskCount);
+		List<Task> tasks = new ArrayList<>();
+		for (AbstractTask mylynTask : mylynTasks) {
+			tasks.add(service.createTask(mylynTask));
+		}
+		List<ActivityLabel> labels = createLabels();
+
+		int open = Math.min(activityCount, (int) Math.round(taskCount * OPEN_PROBABILITY));
+		recordHistory(tasks, labels, activityCount - open);
+		recordOpenActivities(tasks, open);
+
+		for (Task task : tasks) {
+			service.persistTask(task);
+		}
+		service.flush();
+		LOGGER.info("Generated {} projects, {} tasks and {} activities in {}ms", projectCount, taskCount,
+				activityCount, System.currentTimeMillis() - time);
+		return mylynTasks;
+	}
+
+	/**
+	 * Creates the Mylyn tasks and the categories holding these, without adding
+	 * anything to the database. Using the same seed, these are identical to
+	 * those returned by {@link #generate(int, int, int)}.
+	 *
+	 * @param projectCount the number of projects
+	 * @param taskCount    the number of tasks, spread over the projects
+	 * @return the Mylyn tasks
+	 */
+	public List<AbstractTask> createMylynTasks(int projectCount, int taskCount) {
+		TaskList taskList = new TaskList();
+		TaskCategory[] projects = new TaskCategory[projectCount];
+		for (int i = 0; i < projectCount; i++) {
+			projects[i] = new TaskCategory("workload-project-" + i, "Project " + i); //$NON-NLS-1$ //$NON-NLS-2$
+			taskList.addCategory(projects[i]);
+		}
+		List<AbstractTask> mylynTasks = new ArrayList<>();
+		for (int i = 0; i < taskCount; i++) {
+			AbstractTask mylynTask = new LocalTask(String.valueOf(i), "Task #" + i); //$NON-NLS-1$
+			taskList.addTask(mylynTask, projects[skewed(projectCount)]);
+			mylynTask.setRepositoryUrl(REPOSITORY_URL);
+			mylynTasks.add(mylynTask);
+		}
+		return mylynTasks;
+	}
+
+	private List<ActivityLabel> createLabels() {
+		for (int i = 0; i < LABEL_COLORS.length; i++) {
+			service.setLabel(new ActivityLabel("Label " + i, LABEL_COLORS[i])); //$NON-NLS-1$
+		}
+		return service.getLabels().collect(Collectors.toList());
+	}
+
+	/**
+	 * Records the activities on a single timeline, so that these never overlap,
+	 * ending the day before today.
+	 */
+	private void recordHistory(List<Task> tasks, List<ActivityLabel> labels, int count) {
+		LocalDate date = LocalDate.now();
+		for (int days = (count + ACTIVITIES_PER_DAY - 1) / ACTIVITIES_PER_DAY; days > 0;) {
+			date = date.minusDays(1);
+			if (isWorkingDay(date)) {
+				days--;
+			}
+		}
+		Deque<Task> recent = new ArrayDeque<>();
+		Task task = tasks.get(skewed(tasks.size()));
+		LocalDateTime time = startOfDay(date);
+		for (int i = 0; i < count; i++) {
+			// continue on the next working day when done or past midnight
+			if (time.getHour() >= 17 || time.getHour() < 7 || !isWorkingDay(time.toLocalDate())) {
+				date = time.getHour() < 7 ? time.toLocalDate() : time.toLocalDate().plusDays(1);
+				while (!isWorkingDay(date)) {
+					date = date.plusDays(1);
+				}
+				time = startOfDay(date);
+			}
+			if (random.nextDouble() < SWITCH_PROBABILITY) {
+				recent.remove(task);
+				recent.addFirst(task);
+				if (recent.size() > RECENT_TASKS) {
+					recent.removeLast();
+				}
+				task = nextTask(tasks, recent);
+			}
+			Activity activity = new Activity();
+			activity.setSummary("Activity " + i); //$NON-NLS-1$
+			task.addActivity(activity);
+			activity.setStart(time);
+			if (random.nextDouble() < MULTI_DAY_PROBABILITY) {
+				// lasts until some time next morning
+				time = startOfDay(time.toLocalDate().plusDays(1));
+			} else {
+				time = time.plusMinutes(duration());
+			}
+			activity.setEnd(time);
+			if (random.nextDouble() < LABEL_PROBABILITY) {
+				activity.toggleLabel(labels.get(skewed(labels.size())));
+			}
+			// a short break before the next activity
+			time = time.plusMinutes((long) (-5 * Math.log(1 - random.nextDouble())));
+		}
+	}
+
+	/**
+	 * Starts an activity on a number of tasks earlier today.
+	 */
+	private void recordOpenActivities(List<Task> tasks, int count) {
+		List<Task> shuffled = new ArrayList<>(tasks);
+		Collections.shuffle(shuffled, random);
+		for (Task task : shuffled.subList(0, Math.min(count, shuffled.size()))) {
+			Activity activity = new Activity();
+			activity.setSummary("Open activity"); //$NON-NLS-1$
+			task.addActivity(activity);
+			activity.setStart(LocalDateTime.now().minusMinutes(1 + random.nextInt(240)));
+		}
+	}
+
+	/**
+	 * Returns one of the recently used tasks, or any task with a preference for
+	 * those with a low index.
+	 */
+	private Task nextTask(List<Task> tasks, Deque<Task> recent) {
+		if (!recent.isEmpty() && random.nextDouble() < RECENT_PROBABILITY) {
+			int index = random.nextInt(recent.size());
+			for (Task task : recent) {
+				if (index-- == 0) {
+					return task;
+				}
+			}
+		}
+		return tasks.get(skewed(tasks.size()));
+	}
+
+	/**
+	 * Returns a number of minutes with a log-normal distribution, with half of
+	 * the activities lasting less than about 25 minutes.
+	 */
+	private long duration() {
+		double minutes = Math.exp(Math.log(25) + random.nextGaussian());
+		return Math.max(1, Math.min(480, Math.round(minutes)));
+	}
+
+	/**
+	 * Returns an index in the range [0, size) where low values are far more
+	 * likely than high values.
+	 */
+	private int skewed(int size) {
+		double value = random.nextDouble();
+		return (int) (size * value * value * value);
+	}
+
+	private LocalDateTime startOfDay(LocalDate date) {
+		return date.atTime(7, 30).plusMinutes(random.nextInt(90));
+	}
+
+	private static boolean isWorkingDay(LocalDate date) {
+		return date.getDayOfWeek() != DayOfWeek.SATURDAY && date.getDayOfWeek() != DayOfWeek.SUNDAY;
+	}
+
+}
@@ -0,0 +1,121 @@
+-- The schema of the entity model as it was generated by EclipseLink before
+-- migrations were introduced. All statements are conditional so that the
+-- script can also be applied to such a database.
+
+-- Project types, loosely connected to the Mylyn repository type
+CREATE TABLE IF NOT EXISTS PROJECT_TYPE (
+		ID VARCHAR(255) NOT NULL,
+		PRIMARY KEY (ID)
+	);
+
+-- Projects
+CREATE TABLE IF NOT EXISTS PROJECT (
+		NAME VARCHAR(255) NOT NULL,
+		TASKS_URL VARCHAR(255),
+		PROJECT_URL VARCHAR(255),
+		REPOSITORY_URL VARCHAR(255),
+		TYPE VARCHAR(255),
+		EXTERNAL_ID VARCHAR(255),
+		PRIMARY KEY (NAME)
+	);
+
+-- Tracked tasks
+CREATE TABLE IF NOT EXISTS TASK (
+		REPOSITORY_URL VARCHAR(255) NOT NULL,
+		TASK_ID VARCHAR(255) NOT NULL,
+		TASK_PROJECT VARCHAR(255),
+		TASK_URL VARCHAR(255),
+		TASK_SUMMARY VARCHAR(255),
+		CURRENTACTIVITY_ID VARCHAR(255),
+		PRIMARY KEY (REPOSITORY_URL, TASK_ID)
+	);
+
+-- Activities
+CREATE TABLE IF NOT EXISTS ACTIVITY (
+		ID VARCHAR(255) NOT NULL,
+		START_TIME TIMESTAMP,
+		END_TIME TIMESTAMP,
+		ADJUSTED BOOLEAN,
+		TASK_ID VARCHAR(255),
+		REPOSITORY_URL VARCHAR(255),
+		PROJECT VARCHAR(255),
+		SUMMARY VARCHAR(255),
+		PRIMARY KEY (ID)
+	);
+
+-- Labels that can be assigned to activities
+CREATE TABLE IF NOT EXISTS ACTIVITYLABEL (
+		ID VARCHAR(255) NOT NULL,
+		NAME VARCHAR(255),
+		COLOR VARCHAR(255),
+		PRIMARY KEY (ID)
+	);
+
+-- Relation table between tasks and activities
+CREATE TABLE IF NOT EXISTS TASK_ACTIVITY (
+		TASK_REPOSITORY_URL VARCHAR(255) NOT NULL,
+		TASK_TASK_ID VARCHAR(255) NOT NULL,
+		ACTIVITIES_ID VARCHAR(255) NOT NULL,
+		PRIMARY KEY (TASK_REPOSITORY_URL, TASK_TASK_ID, ACTIVITIES_ID)
+	);
+
+-- Relation table between projects and activities
+CREATE TABLE IF NOT EXISTS PROJECT_ACTIVITY (
+		PROJECT_NAME VARCHAR(255) NOT NULL,
+		CHILDREN_ID VARCHAR(255) NOT NULL,
+		PRIMARY KEY (PROJECT_NAME, CHILDREN_ID)
+	);
+
+-- Relation table between projects and tasks
+CREATE TABLE IF NOT EXISTS PROJECT_TASK (
+		PROJECT_NAME VARCHAR(255) NOT NULL,
+		TASKS_REPOSITORY_URL VARCHAR(255) NOT NULL,
+		TASKS_TASK_ID VARCHAR(255) NOT NULL,
+		PRIMARY KEY (PROJECT_NAME, TASKS_REPOSITORY_URL, TASKS_TASK_ID)
+	);
+
+-- Relation table between activities and labels
+CREATE TABLE IF NOT EXISTS ACTIVITY_ACTIVITYLABEL (
+		ACTIVITY_ID VARCHAR(255) NOT NULL,
+		LABELS_ID VARCHAR(255) NOT NULL,
+		PRIMARY KEY (ACTIVITY_ID, LABELS_ID)
+	);
+
+ALTER TABLE PROJECT ADD CONSTRAINT IF NOT EXISTS FK_PROJECT_TYPE FOREIGN KEY (TYPE)
+	REFERENCES PROJECT_TYPE (ID);
+
+ALTER TABLE TASK ADD CONSTRAINT IF NOT EXISTS FK_TASK_TASK_PROJECT FOREIGN KEY (TASK_PROJECT)
+	REFERENCES PROJECT (NAME);
+
+ALTER TABLE TASK ADD CONSTRAINT IF NOT EXISTS FK_TASK_CURRENTACTIVITY_ID FOREIGN KEY (CURRENTACTIVITY_ID)
+	REFERENCES ACTIVITY (ID);
+
+ALTER TABLE ACTIVITY ADD CONSTRAINT IF NOT EXISTS FK_ACTIVITY_TASK_ID FOREIGN KEY (REPOSITORY_URL, TASK_ID)
+	REFERENCES TASK (REPOSITORY_URL, TASK_ID);
+
+ALTER TABLE ACTIVITY ADD CONSTRAINT IF NOT EXISTS FK_ACTIVITY_PROJECT FOREIGN KEY (PROJECT)
+	REFERENCES PROJECT (NAME);
+
+ALTER TABLE TASK_ACTIVITY ADD CONSTRAINT IF NOT EXISTS FK_TASK_ACTIVITY_ACTIVITIES_ID FOREIGN KEY (ACTIVITIES_ID)
+	REFERENCES ACTIVITY (ID);
+
+ALTER TABLE TASK_ACTIVITY ADD CONSTRAINT IF NOT EXISTS FK_TASK_ACTIVITY_TASK_REPOSITORY_URL FOREIGN KEY (TASK_REPOSITORY_URL, TASK_TASK_ID)
+	REFERENCES TASK (REPOSITORY_URL, TASK_ID);
+
+ALTER TABLE PROJECT_ACTIVITY ADD CONSTRAINT IF NOT EXISTS FK_PROJECT_ACTIVITY_CHILDREN_ID FOREIGN KEY (CHILDREN_ID)
+	REFERENCES ACTIVITY (ID);
+
+ALTER TABLE PROJECT_ACTIVITY ADD CONSTRAINT IF NOT EXISTS FK_PROJECT_ACTIVITY_PROJECT_NAME FOREIGN KEY (PROJECT_NAME)
+	REFERENCES PROJECT (NAME);
+
+ALTER TABLE PROJECT_TASK ADD CONSTRAINT IF NOT EXISTS FK_PROJECT_TASK_PROJECT_NAME FOREIGN KEY (PROJECT_NAME)
+	REFERENCES PROJECT (NAME);
+
+ALTER TABLE PROJECT_TASK ADD CONSTRAINT IF NOT EXISTS FK_PROJECT_TASK_TASKS_REPOSITORY_URL FOREIGN KEY (TASKS_REPOSITORY_URL, TASKS_TASK_ID)
+	REFERENCES TASK (REPOSITORY_URL, TASK_ID);
+
+ALTER TABLE ACTIVITY_ACTIVITYLABEL ADD CONSTRAINT IF NOT EXISTS FK_ACTIVITY_ACTIVITYLABEL_ACTIVITY_ID FOREIGN KEY (ACTIVITY_ID)
+	REFERENCES ACTIVITY (ID);
+
+ALTER TABLE ACTIVITY_ACTIVITYLABEL ADD CONSTRAINT IF NOT EXISTS FK_ACTIVITY_ACTIVITYLABEL_LABELS_ID FOREIGN KEY (LABELS_ID)
+	REFERENCES ACTIVITYLABEL (ID);
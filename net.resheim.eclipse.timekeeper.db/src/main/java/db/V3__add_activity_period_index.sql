@@ -0,0 +1,2 @@
+-- Speeds up looking up activities overlapping a period of time
+CREATE INDEX IF NOT EXISTS IDX_ACTIVITY_PERIOD ON ACTIVITY (START_TIME ASC, END_TIME ASC);
@@ -0,0 +1,20 @@
+-- Time spent per task and date, for activities that have ended
+CREATE TABLE IF NOT EXISTS TASK_DAILY_TOTAL (
+		REPOSITORY_URL VARCHAR(255) NOT NULL,
+		TASK_ID VARCHAR(255) NOT NULL,
+		WORK_DATE DATE NOT NULL,
+		PROJECT VARCHAR(255),
+		SECONDS BIGINT,
+		PRIMARY KEY (REPOSITORY_URL, TASK_ID, WORK_DATE)
+	);
+
+-- Time spent per activity label and date, for activities that have ended
+CREATE TABLE IF NOT EXISTS LABEL_DAILY_TOTAL (
+		LABEL_ID VARCHAR(255) NOT NULL,
+		WORK_DATE DATE NOT NULL,
+		SECONDS BIGINT,
+		PRIMARY KEY (LABEL_ID, WORK_DATE)
+	);
+
+CREATE INDEX IF NOT EXISTS IDX_TASK_DAILY_TOTAL_DATE ON TASK_DAILY_TOTAL (WORK_DATE ASC);
+CREATE INDEX IF NOT EXISTS IDX_LABEL_DAILY_TOTAL_DATE ON LABEL_DAILY_TOTAL (WORK_DATE ASC);
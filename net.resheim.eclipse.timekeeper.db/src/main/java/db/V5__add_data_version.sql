@@ -0,0 +1,9 @@
+-- Incremented by every transaction modifying the data, so that instances
+-- sharing the database can tell when their caches are stale
+CREATE TABLE IF NOT EXISTS DATA_VERSION (
+		ID INT NOT NULL,
+		VERSION BIGINT NOT NULL,
+		PRIMARY KEY (ID)
+	);
+
+MERGE INTO DATA_VERSION KEY (ID) VALUES (1, 0);
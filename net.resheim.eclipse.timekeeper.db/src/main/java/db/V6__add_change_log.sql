@@ -0,0 +1,16 @@
+-- Entities modified by each transaction, keyed by the data version of the
+-- transaction, so that instances sharing the database can tell what changed
+CREATE TABLE IF NOT EXISTS CHANGE_LOG (
+		ID VARCHAR(255) NOT NULL,
+		VERSION BIGINT NOT NULL,
+		ORIGIN VARCHAR(255),
+		CHANGED_ON TIMESTAMP,
+		ENTITY_TYPE VARCHAR(32),
+		CHANGE_TYPE VARCHAR(32),
+		ENTITY_ID VARCHAR(255),
+		REPOSITORY_URL VARCHAR(255),
+		TASK_ID VARCHAR(255),
+		PRIMARY KEY (ID)
+	);
+
+CREATE INDEX IF NOT EXISTS IDX_CHANGE_LOG_VERSION ON CHANGE_LOG (VERSION ASC);
@@ -0,0 +1,248 @@
+/*******************************************************************************
+ * Copyright © 2026 Torkild U. Resheim
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Torkild U. Resheim - initial API and implementation
+ *******************************************************************************/
+package net.resheim.eclipse.timekeeper.db;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Calendar;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.mylyn.tasks.core.ITask;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.resheim.eclipse.timekeeper.db.model.Activity;
+import net.resheim.eclipse.timekeeper.db.model.ActivityLabel;
+import net.resheim.eclipse.timekeeper.db.model.GlobalTaskId;
+import net.resheim.eclipse.timekeeper.db.model.Task;
+import net.resheim.eclipse.timekeeper.db.report.model.DailyTotals;
+
+/**
+ * Non-blocking variant of the {@link TimekeeperService} API. All calls are
+ * executed in order on a dedicated database thread, so that the caller, which
+ * is typically the display thread, is never blocked by the database. Results
+ * are delivered through {@link CompletableFuture}s and failures, other than
+ * cancellation, are logged.
+ * Note that dependent stages will by default run on the database thread, UI
+ * updates must be passed on to the display thread.
+ *
+ * @author Torkild U. Resheim
+ */
+public class AsyncTimekeeperService {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(AsyncTimekeeperService.class);
+
+	/** The number of seconds to wait for queued work when shutting down */
+	private static final int SHUTDOWN_TIMEOUT = 10;
+
+	/** The number of seconds to wait for the database connection */
+	private static final int CONNECT_TIMEOUT = 60;
+
+	private final TimekeeperService service;
+
+	private final ExecutorService executor;
+
+	/**
+	 * Creates a new asynchronous facade for the given service.
+	 *
+	 * @param service the service to delegate to
+	 */
+	public AsyncTimekeeperService(TimekeeperService service) {
+		this.service = service;
+		this.executor = Executors.newSingleThreadExecutor(r -> {
+			Thread thread = new Thread(r, "Timekeeper database"); //$NON-NLS-1$
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Executes the given function on the database thread. Failures are logged, as
+	 * most callers do not wait for the result, while cancelled operations are not.
+	 *
+	 * @param supplier the function to execute
+	 * @return a future holding the result of the function
+	 */
+	public <T> CompletableFuture<T> submit(Supplier<T> supplier) {
+		return CompletableFuture.supplyAsync(() -> {
+			awaitConnection();
+			return supplier.get();
+		}, executor).whenComplete((r, e) -> {
+			if (e != null && !isCancellation(e)) {
+				LOGGER.error("Could not complete database operation", e);
+			}
+		});
+	}
+
+	private static boolean isCancellation(Throwable e) {
+		Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+		return cause instanceof CancellationException || cause instanceof OperationCanceledException;
+	}
+
+	/**
+	 * The database is typically connected in the background when the plug-in is
+	 * started, so operations submitted early on must wait for this.
+	 */
+	private void awaitConnection() {
+		try {
+			if (!service.awaitConnection(CONNECT_TIMEOUT, TimeUnit.SECONDS)) {
+				throw new IllegalStateException("The Timekeeper database has not been connected");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for the Timekeeper database", e);
+		}
+	}
+
+	/**
+	 * Executes the given function on the database thread.
+	 *
+	 * @param runnable the function to execute
+	 * @return a future completing when the function has been executed
+	 */
+	public CompletableFuture<Void> run(Runnable runnable) {
+		return submit(() -> {
+			runnable.run();
+			return null;
+		});
+	}
+
+	/**
+	 * @see TimekeeperService#getTask(ITask)
+	 */
+	public CompletableFuture<Task> getTask(ITask mylynTask) {
+		return submit(() -> service.getTask(mylynTask));
+	}
+
+	/**
+	 * @see TimekeeperService#getTask(GlobalTaskId)
+	 */
+	public CompletableFuture<Task> getTask(GlobalTaskId id) {
+		return submit(() -> service.getTask(id));
+	}
+
+	/**
+	 * @see TimekeeperService#startMylynTask(ITask)
+	 */
+	public CompletableFuture<Void> startMylynTask(ITask task) {
+		return run(() -> service.startMylynTask(task));
+	}
+
+	/**
+	 * @see TimekeeperService#endMylynTask(ITask)
+	 */
+	public CompletableFuture<Void> endMylynTask(ITask task) {
+		return run(() -> service.endMylynTask(task));
+	}
+
+	/**
+	 * @see TimekeeperService#endTaskActivity(ITask, LocalDateTime, boolean)
+	 */
+	public CompletableFuture<Task> endTaskActivity(ITask mylynTask, LocalDateTime endTime, boolean reactivate) {
+		return submit(() -> service.endTaskActivity(mylynTask, endTime, reactivate));
+	}
+
+	/**
+	 * @see TimekeeperService#findTasksForWeek(LocalDate)
+	 */
+	public CompletableFuture<List<Task>> findTasksForWeek(LocalDate startDate) {
+		return submit(() -> service.findTasksForWeek(startDate).collect(Collectors.toList()));
+	}
+
+	/**
+	 * @see TimekeeperService#findTasks(LocalDate, LocalDate)
+	 */
+	public CompletableFuture<List<Task>> findTasks(LocalDate startDate, LocalDate endDate) {
+		return submit(() -> service.findTasks(startDate, endDate).collect(Collectors.toList()));
+	}
+
+	/**
+	 * @see TimekeeperService#findAllTasks()
+	 */
+	public CompletableFuture<List<Task>> findAllTasks() {
+		return submit(() -> service.findAllTasks().collect(Collectors.toList()));
+	}
+
+	/**
+	 * @see TimekeeperService#getDailyTotals(LocalDate, LocalDate)
+	 */
+	public CompletableFuture<DailyTotals> getDailyTotals(LocalDate startDate, LocalDate endDate) {
+		return submit(() -> service.getDailyTotals(startDate, endDate));
+	}
+
+	/**
+	 * @see TimekeeperService#persistTask(Task)
+	 */
+	public CompletableFuture<Task> persistTask(Task task) {
+		return submit(() -> service.persistTask(task));
+	}
+
+	/**
+	 * @see TimekeeperService#updateActivity(Activity)
+	 */
+	public CompletableFuture<Activity> updateActivity(Activity activity) {
+		return submit(() -> service.updateActivity(activity));
+	}
+
+	/**
+	 * @see TimekeeperService#removeActivity(Activity)
+	 */
+	public CompletableFuture<Void> removeActivity(Activity activity) {
+		return run(() -> service.removeActivity(activity));
+	}
+
+	/**
+	 * @see TimekeeperService#getLabels()
+	 */
+	public CompletableFuture<List<ActivityLabel>> getLabels() {
+		return submit(() -> service.getLabels().collect(Collectors.toList()));
+	}
+
+	/**
+	 * @see TimekeeperService#toggleLabel(Activity, ActivityLabel)
+	 */
+	public CompletableFuture<Void> toggleLabel(Activity activity, ActivityLabel label) {
+		return run(() -> service.toggleLabel(activity, label));
+	}
+
+	/**
+	 * @see TimekeeperService#cleanUpTask(Task, ITask, BiFunction)
+	 */
+	public CompletableFuture<Task> cleanUpTask(Task task, ITask mylynTask,
+			BiFunction<Calendar, Calendar, Long> elapsedTimeProvider) {
+		return submit(() -> service.cleanUpTask(task, mylynTask, elapsedTimeProvider));
+	}
+
+	/**
+	 * Stops accepting new work and waits for work already queued to complete.
+	 */
+	public void shutdown() {
+		executor.shutdown();
+		try {
+			if (!executor.awaitTermination(SHUTDOWN_TIMEOUT, TimeUnit.SECONDS)) {
+				LOGGER.warn("Database operations did not complete within {} seconds", SHUTDOWN_TIMEOUT);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+}
@@ -0,0 +1,143 @@
+/*******************************************************************************
+ * Copyright © 2026 Torkild U. Resheim
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Torkild U. Resheim - initial API and implementation
+ *******************************************************************************/
+package net.resheim.eclipse.timekeeper.db;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Periodically checks the database for changes made by other instances
+ * sharing it. The check itself is a single query unless something has
+ * changed, in which case the change log is read. The interval is specified by
+ * the {@link #PROP_POLL_INTERVAL} system property, an interval of zero will
+ * disable polling.
+ *
+ * @author Torkild U. Resheim
+ */
+public class ChangeFeed {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ChangeFeed.class);
+
+	/** System property used to specify the polling interval in milliseconds */
+	public static final String PROP_POLL_INTERVAL = "net.resheim.eclipse.timekeeper.db.changes.interval"; //$NON-NLS-1$
+
+	/** The default polling interval in milliseconds */
+	public static final long DEFAULT_POLL_INTERVAL = 2000;
+
+	private final Supplier<List<DatabaseChange>> poller;
+
+	private final long interval;
+
+	private ScheduledExecutorService executor;
+
+	private final AtomicLong pollCount = new AtomicLong();
+
+	private final AtomicLong changeCount = new AtomicLong();
+
+	/**
+	 * Creates a new feed with the interval specified by the
+	 * {@link #PROP_POLL_INTERVAL} system property, or
+	 * {@link #DEFAULT_POLL_INTERVAL} if not specified.
+	 *
+	 * @param poller the function reading and publishing new changes
+	 */
+	public ChangeFeed(Supplier<List<DatabaseChange>> poller) {
+		this(poller, Long.getLong(PROP_POLL_INTERVAL, DEFAULT_POLL_INTERVAL));
+	}
+
+	/**
+	 * Creates a new feed with the given interval.
+	 *
+	 * @param poller   the function reading and publishing new changes
+	 * @param interval the polling interval in milliseconds
+	 */
+	public ChangeFeed(Supplier<List<DatabaseChange>> poller, long interval) {
+		this.poller = poller;
+		this.interval = Math.max(0, interval);
+	}
+
+	/**
+	 * Starts polling, unless disabled.
+	 */
+	public synchronized void start() {
+		if (interval == 0 || executor != null) {
+			return;
+		}
+		executor = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread thread = new Thread(r, "Timekeeper change feed"); //$NON-NLS-1$
+			thread.setDaemon(true);
+			return thread;
+		});
+		executor.scheduleWithFixedDelay(this::poll, interval, interval, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Checks for new changes right away.
+	 *
+	 * @return the changes found
+	 */
+	public List<DatabaseChange> poll() {
+		try {
+			List<DatabaseChange> changes = poller.get();
+			pollCount.incrementAndGet();
+			changeCount.addAndGet(changes.size());
+			return changes;
+		} catch (RuntimeException e) {
+			LOGGER.error("Could not read changes from the database", e);
+			return List.of();
+		}
+	}
+
+	/**
+	 * Stops polling.
+	 */
+	public synchronized void close() {
+		if (executor != null) {
+			executor.shutdownNow();
+			executor = null;
+		}
+	}
+
+	/**
+	 * @return the polling interval in milliseconds
+	 */
+	public long getInterval() {
+		return interval;
+	}
+
+	/**
+	 * @return the number of times the database has been checked
+	 */
+	public long getPollCount() {
+		return pollCount.get();
+	}
+
+	/**
+	 * @return the number of changes made by other instances that have been found
+	 */
+	public long getChangeCount() {
+		return changeCount.get();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("ChangeFeed [interval=%dms, polls=%d, changes=%d]", interval, getPollCount(),
+				getChangeCount());
+	}
+
+}
@@ -0,0 +1,825 @@
+/*******************************************************************************
+ * Copyright © 2026 Torkild U. Resheim
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Torkild U. Resheim - initial API and implementation
+ *******************************************************************************/
+package net.resheim.eclipse.timekeeper.db;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.SubMonitor;
+import org.h2.tools.Csv;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.resheim.eclipse.timekeeper.db.model.GlobalTaskId;
+
+/**
+ * Writes the content of the Timekeeper database to a single zip archive with
+ * one CSV entry per table, and merges such an archive back into the database.
+ * Rows are streamed from the result sets straight into the archive, and read
+ * back one at a time and merged in batches that are committed separately. Hence
+ * neither the heap nor the time the tables are locked grows with the size of
+ * the history.
+ * <p>
+ * The first entry of the archive is a manifest listing the number of rows of
+ * each table, which is used to report progress when importing. The manifest
+ * also records the data version the archive was written at, which serves as
+ * the watermark for the next delta. A delta archive holds only the activities
+ * changed since a watermark, or those within a period, along with the tasks,
+ * projects and relations they depend on. Activities removed since the
+ * watermark are listed so that they can be removed when imported.
+ * </p>
+ *
+ * @author Torkild U. Resheim
+ */
+class DataArchive {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(DataArchive.class);
+
+	/** The content of an archive */
+	enum Mode {
+		/** All rows of all tables */
+		FULL,
+		/** Activities changed since a watermark */
+		CHANGES,
+		/** Activities within a period */
+		PERIOD
+	}
+
+	/**
+	 * System property used to specify the number of rows merged per transaction
+	 * when importing
+	 */
+	public static final String PROP_BATCH_SIZE = "net.resheim.eclipse.timekeeper.db.import.batch"; //$NON-NLS-1$
+
+	/** The default number of rows merged per transaction */
+	public static final int DEFAULT_BATCH_SIZE = 1000;
+
+	/** The name of the manifest entry */
+	static final String MANIFEST = "manifest.properties"; //$NON-NLS-1$
+
+	/** The name of the entry listing removed activities */
+	static final String REMOVED = "removed_activity.csv"; //$NON-NLS-1$
+
+	/** The version of the archive format, stored in the manifest */
+	static final String FORMAT = "1"; //$NON-NLS-1$
+
+	private static final String KEY_FORMAT = "format"; //$NON-NLS-1$
+
+	private static final String KEY_MODE = "mode"; //$NON-NLS-1$
+
+	private static final String KEY_WATERMARK = "watermark"; //$NON-NLS-1$
+
+	private static final String KEY_SINCE = "since"; //$NON-NLS-1$
+
+	private static final String KEY_FROM = "from"; //$NON-NLS-1$
+
+	private static final String KEY_TO = "to"; //$NON-NLS-1$
+
+	private static final String KEY_ROWS = "rows."; //$NON-NLS-1$
+
+	private static final String CSV = ".csv"; //$NON-NLS-1$
+
+	/**
+	 * The archived tables, in the order they are written and imported. Rows are
+	 * imported with the foreign keys enforced, so tables are listed after those
+	 * they refer to. The current activity of a task is the exception, see
+	 * {@link #restoreCurrentActivities()}.
+	 */
+	static final List<String> TABLES = List.of("PROJECT_TYPE", "PROJECT", "TASK", "ACTIVITY", "ACTIVITYLABEL", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+			"TASK_ACTIVITY", "PROJECT_ACTIVITY", "PROJECT_TASK", "ACTIVITY_ACTIVITYLABEL"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+
+	/**
+	 * Relation rows that are replaced rather than merged when a delta includes
+	 * the owning row, as those missing from the delta have been removed
+	 */
+	private static final Map<String, String[]> RELATIONS = Map.of(
+			"ACTIVITY", new String[] { //$NON-NLS-1$
+					"DELETE FROM TASK_ACTIVITY WHERE ACTIVITIES_ID = ?", //$NON-NLS-1$
+					"DELETE FROM PROJECT_ACTIVITY WHERE CHILDREN_ID = ?", //$NON-NLS-1$
+					"DELETE FROM ACTIVITY_ACTIVITYLABEL WHERE ACTIVITY_ID = ?" }, //$NON-NLS-1$
+			"TASK", new String[] { //$NON-NLS-1$
+					"DELETE FROM PROJECT_TASK WHERE TASKS_REPOSITORY_URL = ? AND TASKS_TASK_ID = ?" }); //$NON-NLS-1$
+
+	/** The column of the task referring to the current activity */
+	private static final String CURRENT_ACTIVITY = "CURRENTACTIVITY_ID"; //$NON-NLS-1$
+
+	/** The number of rows fetched from the database at a time when exporting */
+	private static final int FETCH_SIZE = 500;
+
+	private final Connection connection;
+
+	private final int batchSize;
+
+	/** The number of rows exported or imported per table */
+	private final Map<String, Long> rows = new LinkedHashMap<>();
+
+	private final Properties manifest = new Properties();
+
+	/** Tasks modified, or with activities modified, by importing a delta */
+	private final Set<GlobalTaskId> affectedTasks = new HashSet<>();
+
+	/** Names of projects merged by importing a delta */
+	private final Set<String> affectedProjects = new HashSet<>();
+
+	/** Identifiers of labels merged by importing a delta */
+	private final Set<String> affectedLabels = new HashSet<>();
+
+	/** Dates spanned by activities modified by importing a delta */
+	private final Set<LocalDate> affectedDates = new TreeSet<>();
+
+	/** Looks up activities as stored before being modified by a delta */
+	private PreparedStatement lookup;
+
+	/**
+	 * The repository URL, task identifier and current activity of imported tasks
+	 * with a current activity, set when the activities have been imported
+	 */
+	private final List<String[]> currentActivities = new ArrayList<>();
+
+	DataArchive(Connection connection) {
+		this(connection, Integer.getInteger(PROP_BATCH_SIZE, DEFAULT_BATCH_SIZE));
+	}
+
+	DataArchive(Connection connection, int batchSize) {
+		this.connection = connection;
+		this.batchSize = Math.max(1, batchSize);
+	}
+
+	/**
+	 * Writes all archived tables to the given file. The archive is first written
+	 * to a temporary file that replaces the given file when complete, so that a
+	 * failed or cancelled export does not leave a truncated archive behind. All
+	 * tables are read in the same transaction so that the archive is consistent.
+	 *
+	 * @param file    the archive file
+	 * @param monitor the progress monitor, may be <code>null</code>
+	 * @throws SQLException if the database could not be read
+	 * @throws IOException  if the archive could not be written
+	 */
+	void write(Path file, IProgressMonitor monitor) throws SQLException, IOException {
+		write(file, Mode.FULL, -1, null, null, monitor);
+	}
+
+	/**
+	 * Writes the activities modified since the given watermark, along with the
+	 * rows these depend on. If the change log no longer covers the watermark, or
+	 * holds changes that cannot be attributed to single activities, everything
+	 * is written instead.
+	 *
+	 * @param file      the archive file
+	 * @param watermark the data version of the previous export
+	 * @param monitor   the progress monitor, may be <code>null</code>
+	 * @throws SQLException if the database could not be read
+	 * @throws IOException  if the archive could not be written
+	 * @see #getWatermark()
+	 */
+	void writeChanges(Path file, long watermark, IProgressMonitor monitor) throws SQLException, IOException {
+		write(file, Mode.CHANGES, watermark, null, null, monitor);
+	}
+
+	/**
+	 * Writes the activities overlapping the given period, along with the rows
+	 * these depend on.
+	 *
+	 * @param file    the archive file
+	 * @param from    the first day of the period
+	 * @param to      the day after the last day of the period
+	 * @param monitor the progress monitor, may be <code>null</code>
+	 * @throws SQLException if the database could not be read
+	 * @throws IOException  if the archive could not be written
+	 */
+	void writePeriod(Path file, LocalDate from, LocalDate to, IProgressMonitor monitor)
+			throws SQLException, IOException {
+		write(file, Mode.PERIOD, -1, from, to, monitor);
+	}
+
+	private void write(Path file, Mode mode, long since, LocalDate from, LocalDate to, IProgressMonitor monitor)
+			throws SQLException, IOException {
+		Path parent = file.toAbsolutePath().getParent();
+		Files.createDirectories(parent);
+		Path temporary = Files.createTempFile(parent, file.getFileName().toString(), ".tmp"); //$NON-NLS-1$
+		boolean autoCommit = connection.getAutoCommit();
+		connection.setAutoCommit(false);
+		connection.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+		try (ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)));
+				Writer writer = new BufferedWriter(new OutputStreamWriter(zip, StandardCharsets.UTF_8))) {
+			long watermark = queryLong("SELECT VERSION FROM DATA_VERSION"); //$NON-NLS-1$
+			if (mode == Mode.CHANGES && !isCovered(since, watermark)) {
+				LOGGER.info("The change log does not cover data version {}, exporting everything", since);
+				mode = Mode.FULL;
+			}
+			String activities = null;
+			String removed = null;
+			manifest.setProperty(KEY_FORMAT, FORMAT);
+			manifest.setProperty(KEY_MODE, mode.name());
+			manifest.setProperty(KEY_WATERMARK, Long.toString(watermark));
+			if (mode == Mode.CHANGES) {
+				manifest.setProperty(KEY_SINCE, Long.toString(since));
+				activities = "SELECT ENTITY_ID FROM CHANGE_LOG WHERE ENTITY_TYPE = 'ACTIVITY' AND VERSION > " + since; //$NON-NLS-1$
+				removed = "SELECT DISTINCT ENTITY_ID AS ID FROM CHANGE_LOG WHERE ENTITY_TYPE = 'ACTIVITY' " //$NON-NLS-1$
+						+ "AND CHANGE_TYPE = 'REMOVED' AND VERSION > " + since //$NON-NLS-1$
+						+ " AND ENTITY_ID NOT IN (SELECT ID FROM ACTIVITY)"; //$NON-NLS-1$
+			} else if (mode == Mode.PERIOD) {
+				manifest.setProperty(KEY_FROM, from.toString());
+				manifest.setProperty(KEY_TO, to.toString());
+				activities = "SELECT ID FROM ACTIVITY WHERE START_TIME < " + literal(to) //$NON-NLS-1$
+						+ " AND (END_TIME IS NULL OR END_TIME > " + literal(from) + ")"; //$NON-NLS-1$ //$NON-NLS-2$
+			}
+			Map<String, String> queries = new LinkedHashMap<>();
+			for (String table : TABLES) {
+				queries.put(table.toLowerCase() + CSV, select(table, mode, activities, since));
+			}
+			if (removed != null) {
+				queries.put(REMOVED, removed);
+			}
+			long total = 0;
+			for (Map.Entry<String, String> query : queries.entrySet()) {
+				long count = queryLong("SELECT COUNT(*) FROM (" + query.getValue() + ")"); //$NON-NLS-1$ //$NON-NLS-2$
+				manifest.setProperty(KEY_ROWS + entryTable(query.getKey()), Long.toString(count));
+				total += count;
+			}
+			SubMonitor progress = SubMonitor.convert(monitor, "Exporting Timekeeper database", work(total));
+			zip.putNextEntry(new ZipEntry(MANIFEST));
+			manifest.store(zip, null);
+			zip.closeEntry();
+			for (Map.Entry<String, String> query : queries.entrySet()) {
+				String table = entryTable(query.getKey());
+				progress.subTask(table);
+				zip.putNextEntry(new ZipEntry(query.getKey()));
+				rows.put(table, writeRows(query.getValue(), writer, progress));
+				writer.flush();
+				zip.closeEntry();
+			}
+		} catch (SQLException | IOException | RuntimeException e) {
+			Files.deleteIfExists(temporary);
+			throw e;
+		} finally {
+			connection.rollback();
+			connection.setAutoCommit(autoCommit);
+		}
+		Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+		LOGGER.info("Exported {} to '{}'", rows, file);
+	}
+
+	/**
+	 * Determines whether all changes made after the given data version can be
+	 * read from the change log. It is pruned by age, and imports are only
+	 * recorded as a change of everything.
+	 */
+	private boolean isCovered(long since, long watermark) throws SQLException {
+		if (since < 0) {
+			return false;
+		}
+		if (since >= watermark) {
+			return true;
+		}
+		long oldest = queryLong("SELECT COALESCE(MIN(VERSION), -1) FROM CHANGE_LOG"); //$NON-NLS-1$
+		long all = queryLong("SELECT COUNT(*) FROM CHANGE_LOG WHERE ENTITY_TYPE = 'ALL' AND VERSION > " + since); //$NON-NLS-1$
+		return oldest >= 0 && oldest <= since + 1 && all == 0;
+	}
+
+	/**
+	 * Returns the query selecting the rows of the given table that are part of
+	 * the archive. For a delta these are the selected activities, their tasks,
+	 * projects and the relations between them. The few labels are always
+	 * included.
+	 */
+	private static String select(String table, Mode mode, String activities, long since) {
+		String select = "SELECT * FROM " + table; //$NON-NLS-1$
+		if (mode == Mode.FULL) {
+			return select;
+		}
+		String tasks = "SELECT REPOSITORY_URL, TASK_ID FROM ACTIVITY WHERE ID IN (" + activities + ")"; //$NON-NLS-1$ //$NON-NLS-2$
+		if (mode == Mode.CHANGES) {
+			tasks += " UNION SELECT REPOSITORY_URL, TASK_ID FROM CHANGE_LOG WHERE ENTITY_TYPE = 'TASK' AND VERSION > " //$NON-NLS-1$
+					+ since;
+		}
+		String projects = "SELECT TASK_PROJECT FROM TASK WHERE (REPOSITORY_URL, TASK_ID) IN (" + tasks + ")" //$NON-NLS-1$ //$NON-NLS-2$
+				+ " UNION SELECT PROJECT FROM ACTIVITY WHERE ID IN (" + activities + ")"; //$NON-NLS-1$ //$NON-NLS-2$
+		switch (table) {
+		case "PROJECT_TYPE": //$NON-NLS-1$
+			return select + " WHERE ID IN (SELECT TYPE FROM PROJECT WHERE NAME IN (" + projects + "))"; //$NON-NLS-1$ //$NON-NLS-2$
+		case "PROJECT": //$NON-NLS-1$
+			return select + " WHERE NAME IN (" + projects + ")"; //$NON-NLS-1$ //$NON-NLS-2$
+		case "TASK": //$NON-NLS-1$
+			return select + " WHERE (REPOSITORY_URL, TASK_ID) IN (" + tasks + ")"; //$NON-NLS-1$ //$NON-NLS-2$
+		case "ACTIVITY": //$NON-NLS-1$
+			return select + " WHERE ID IN (" + activities + ")"; //$NON-NLS-1$ //$NON-NLS-2$
+		case "TASK_ACTIVITY": //$NON-NLS-1$
+			return select + " WHERE ACTIVITIES_ID IN (" + activities + ")"; //$NON-NLS-1$ //$NON-NLS-2$
+		case "PROJECT_ACTIVITY": //$NON-NLS-1$
+			return select + " WHERE CHILDREN_ID IN (" + activities + ")"; //$NON-NLS-1$ //$NON-NLS-2$
+		case "PROJECT_TASK": //$NON-NLS-1$
+			return select + " WHERE (TASKS_REPOSITORY_URL, TASKS_TASK_ID) IN (" + tasks + ")"; //$NON-NLS-1$ //$NON-NLS-2$
+		case "ACTIVITY_ACTIVITYLABEL": //$NON-NLS-1$
+			return select + " WHERE ACTIVITY_ID IN (" + activities + ")"; //$NON-NLS-1$ //$NON-NLS-2$
+		default:
+			return select;
+		}
+	}
+
+	private static String literal(LocalDate date) {
+		return "TIMESTAMP '" + Timestamp.valueOf(date.atStartOfDay()) + "'"; //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	private static String entryTable(String entry) {
+		return entry.substring(0, entry.length() - CSV.length()).toUpperCase();
+	}
+
+	private long queryLong(String sql) throws SQLException {
+		try (Statement statement = connection.createStatement(); ResultSet rs = statement.executeQuery(sql)) {
+			return rs.next() ? rs.getLong(1) : 0;
+		}
+	}
+
+	private long writeRows(String sql, Writer writer, SubMonitor progress) throws SQLException, IOException {
+		long count = 0;
+		try (Statement statement = connection.createStatement()) {
+			statement.setFetchSize(FETCH_SIZE);
+			try (ResultSet rs = statement.executeQuery(sql)) {
+				ResultSetMetaData meta = rs.getMetaData();
+				String[] values = new String[meta.getColumnCount()];
+				for (int i = 0; i < values.length; i++) {
+					values[i] = meta.getColumnLabel(i + 1);
+				}
+				writeRow(writer, values);
+				while (rs.next()) {
+					for (int i = 0; i < values.length; i++) {
+						values[i] = rs.getString(i + 1);
+					}
+					writeRow(writer, values);
+					if (++count % batchSize == 0) {
+						// also checks whether the export has been cancelled
+						progress.split(batchSize);
+					}
+				}
+			}
+		}
+		progress.worked((int) (count % batchSize));
+		return count;
+	}
+
+	/**
+	 * Writes a row using the same format as the H2 <code>CSVWRITE</code>
+	 * function, where all values are quoted and <code>null</code> is written as
+	 * nothing at all.
+	 */
+	private static void writeRow(Writer writer, String[] values) throws IOException {
+		for (int i = 0; i < values.length; i++) {
+			if (i > 0) {
+				writer.write(',');
+			}
+			if (values[i] != null) {
+				writer.write('"');
+				writer.write(values[i].replace("\"", "\"\"")); //$NON-NLS-1$ //$NON-NLS-2$
+				writer.write('"');
+			}
+		}
+		writer.write('\n');
+	}
+
+	/**
+	 * Merges the rows of the given archive into the database. Rows are merged in
+	 * batches that are committed separately, so rows merged before a failure or
+	 * the import being cancelled are kept. Columns that are not found in the
+	 * database are ignored, as are unknown entries.
+	 * <p>
+	 * Tables are imported in the order they were written, which satisfies the
+	 * foreign keys except for the current activity of tasks. Tasks are therefore
+	 * merged without their current activity, which is set when all entries have
+	 * been read.
+	 * </p>
+	 * <p>
+	 * When importing a delta, the relations of merged tasks and activities are
+	 * replaced by those of the archive, and removed activities are deleted. The
+	 * tasks and dates affected are collected so that only the daily totals of
+	 * these have to be recalculated.
+	 * </p>
+	 *
+	 * @param file    the archive file
+	 * @param monitor the progress monitor, may be <code>null</code>
+	 * @throws SQLException if the rows could not be merged
+	 * @throws IOException  if the archive could not be read
+	 */
+	void read(Path file, IProgressMonitor monitor) throws SQLException, IOException {
+		boolean autoCommit = connection.getAutoCommit();
+		connection.setAutoCommit(false);
+		try (ZipInputStream zip = new ZipInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+			readManifest(zip, file);
+			long total = 0;
+			for (String key : manifest.stringPropertyNames()) {
+				if (key.startsWith(KEY_ROWS)) {
+					total += Long.parseLong(manifest.getProperty(key));
+				}
+			}
+			SubMonitor progress = SubMonitor.convert(monitor, "Importing Timekeeper database", work(total));
+			ZipEntry entry;
+			while ((entry = zip.getNextEntry()) != null) {
+				String name = entry.getName();
+				if (REMOVED.equals(name) && isDelta()) {
+					progress.subTask(entryTable(name));
+					rows.put(entryTable(name), remove(new NonClosingInputStream(zip), progress));
+					continue;
+				}
+				String table = name.endsWith(CSV) ? entryTable(name) : null;
+				if (table == null || !TABLES.contains(table)) {
+					LOGGER.warn("Ignoring unknown archive entry '{}'", name);
+					continue;
+				}
+				progress.subTask(table);
+				rows.put(table, merge(table, new NonClosingInputStream(zip), progress));
+			}
+		} finally {
+			try {
+				// also when failed or cancelled, as the tasks have been merged
+				restoreCurrentActivities();
+			} finally {
+				if (lookup != null) {
+					lookup.close();
+					lookup = null;
+				}
+				connection.rollback();
+				connection.setAutoCommit(autoCommit);
+			}
+		}
+		LOGGER.info("Imported {} from '{}'", rows, file);
+	}
+
+	private void readManifest(ZipInputStream zip, Path file) throws IOException {
+		ZipEntry entry = zip.getNextEntry();
+		if (entry == null || !MANIFEST.equals(entry.getName())) {
+			throw new IOException("'" + file.getFileName() + "' is not a Timekeeper archive.");
+		}
+		manifest.load(zip);
+		if (!FORMAT.equals(manifest.getProperty(KEY_FORMAT))) {
+			throw new IOException("Unsupported Timekeeper archive format '" + manifest.getProperty(KEY_FORMAT) + "'.");
+		}
+	}
+
+	/**
+	 * Reads the manifest of the given archive without importing it.
+	 *
+	 * @param file the archive file
+	 * @throws IOException if the archive could not be read
+	 */
+	void readManifest(Path file) throws IOException {
+		try (ZipInputStream zip = new ZipInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+			readManifest(zip, file);
+		}
+	}
+
+	private long merge(String table, InputStream in, SubMonitor progress) throws SQLException, IOException {
+		Set<String> existing = columns(table);
+		boolean delta = isDelta();
+		long count = 0;
+		try (ResultSet rs = new Csv().read(new InputStreamReader(in, StandardCharsets.UTF_8), null)) {
+			ResultSetMetaData meta = rs.getMetaData();
+			Map<String, Integer> indexes = new LinkedHashMap<>();
+			for (int i = 1; i <= meta.getColumnCount(); i++) {
+				String column = meta.getColumnLabel(i);
+				if (!existing.contains(column)) {
+					LOGGER.warn("Ignoring unknown column {}.{}", table, column);
+					continue;
+				}
+				indexes.put(column, i);
+			}
+			if (indexes.isEmpty()) {
+				return 0;
+			}
+			// rows are matched on the primary key
+			String sql = "MERGE INTO " + table + " (" + String.join(",", indexes.keySet()) + ") VALUES (" //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+					+ String.join(",", Collections.nCopies(indexes.size(), "?")) + ")"; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			List<PreparedStatement> replace = new ArrayList<>();
+			try (PreparedStatement statement = connection.prepareStatement(sql)) {
+				if (delta && RELATIONS.containsKey(table)) {
+					for (String delete : RELATIONS.get(table)) {
+						replace.add(connection.prepareStatement(delete));
+					}
+				}
+				while (rs.next()) {
+					int p = 1;
+					for (Map.Entry<String, Integer> index : indexes.entrySet()) {
+						String value = rs.getString(index.getValue());
+						if ("TASK".equals(table) && CURRENT_ACTIVITY.equals(index.getKey())) { //$NON-NLS-1$
+							// the activity may not have been imported yet
+							if (value != null && !value.isEmpty()) {
+								currentActivities.add(new String[] { rs.getString("REPOSITORY_URL"), //$NON-NLS-1$
+										rs.getString("TASK_ID"), value }); //$NON-NLS-1$
+							}
+							value = null;
+						}
+						statement.setString(p++, value);
+					}
+					statement.addBatch();
+					if (delta) {
+						replaceRelations(table, rs, replace);
+					}
+					if (++count % batchSize == 0) {
+						for (PreparedStatement r : replace) {
+							r.executeBatch();
+						}
+						statement.executeBatch();
+						connection.commit();
+						// also checks whether the import has been cancelled
+						progress.split(batchSize);
+					}
+				}
+				for (PreparedStatement r : replace) {
+					r.executeBatch();
+				}
+				statement.executeBatch();
+				connection.commit();
+			} finally {
+				for (PreparedStatement r : replace) {
+					r.close();
+				}
+			}
+		}
+		progress.worked((int) (count % batchSize));
+		return count;
+	}
+
+	/**
+	 * Sets the current activity of the imported tasks, unless the activity is
+	 * not found in the database.
+	 */
+	private void restoreCurrentActivities() throws SQLException {
+		if (currentActivities.isEmpty()) {
+			return;
+		}
+		try (PreparedStatement statement = connection.prepareStatement("UPDATE TASK SET " + CURRENT_ACTIVITY //$NON-NLS-1$
+				+ " = ? WHERE REPOSITORY_URL = ? AND TASK_ID = ? AND EXISTS (SELECT 1 FROM ACTIVITY WHERE ID = ?)")) { //$NON-NLS-1$
+			for (String[] current : currentActivities) {
+				statement.setString(1, current[2]);
+				statement.setString(2, current[0]);
+				statement.setString(3, current[1]);
+				statement.setString(4, current[2]);
+				statement.addBatch();
+			}
+			statement.executeBatch();
+			connection.commit();
+		}
+		currentActivities.clear();
+	}
+
+	/**
+	 * Adds the deletion of relations of the current row to the batches, and
+	 * records which tasks, dates, projects and labels are affected by the row
+	 * being merged.
+	 */
+	private void replaceRelations(String table, ResultSet rs, List<PreparedStatement> replace)
+			throws SQLException {
+		if ("ACTIVITY".equals(table)) { //$NON-NLS-1$
+			String id = rs.getString("ID"); //$NON-NLS-1$
+			affected(id);
+			addTask(rs.getString("REPOSITORY_URL"), rs.getString("TASK_ID")); //$NON-NLS-1$ //$NON-NLS-2$
+			addDates(parse(rs.getString("START_TIME")), parse(rs.getString("END_TIME"))); //$NON-NLS-1$ //$NON-NLS-2$
+			for (PreparedStatement r : replace) {
+				r.setString(1, id);
+				r.addBatch();
+			}
+		} else if ("TASK".equals(table)) { //$NON-NLS-1$
+			addTask(rs.getString("REPOSITORY_URL"), rs.getString("TASK_ID")); //$NON-NLS-1$ //$NON-NLS-2$
+			for (PreparedStatement r : replace) {
+				r.setString(1, rs.getString("REPOSITORY_URL")); //$NON-NLS-1$
+				r.setString(2, rs.getString("TASK_ID")); //$NON-NLS-1$
+				r.addBatch();
+			}
+		} else if ("PROJECT".equals(table)) { //$NON-NLS-1$
+			affectedProjects.add(rs.getString("NAME")); //$NON-NLS-1$
+		} else if ("ACTIVITYLABEL".equals(table)) { //$NON-NLS-1$
+			affectedLabels.add(rs.getString("ID")); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * Records the task and dates of the activity as currently stored.
+	 */
+	private void affected(String activity) throws SQLException {
+		if (lookup == null) {
+			lookup = connection.prepareStatement(
+					"SELECT REPOSITORY_URL, TASK_ID, START_TIME, END_TIME FROM ACTIVITY WHERE ID = ?"); //$NON-NLS-1$
+		}
+		lookup.setString(1, activity);
+		try (ResultSet rs = lookup.executeQuery()) {
+			if (rs.next()) {
+				addTask(rs.getString(1), rs.getString(2));
+				addDates(toLocalDateTime(rs.getTimestamp(3)), toLocalDateTime(rs.getTimestamp(4)));
+			}
+		}
+	}
+
+	private void addTask(String repositoryUrl, String taskId) {
+		if (repositoryUrl != null && taskId != null) {
+			affectedTasks.add(new GlobalTaskId(repositoryUrl, taskId));
+		}
+	}
+
+	/**
+	 * Deletes the activities listed in the entry, along with their relations.
+	 */
+	private long remove(InputStream in, SubMonitor progress) throws SQLException, IOException {
+		String[] deletes = { "UPDATE TASK SET CURRENTACTIVITY_ID = NULL WHERE CURRENTACTIVITY_ID = ?", //$NON-NLS-1$
+				"DELETE FROM TASK_ACTIVITY WHERE ACTIVITIES_ID = ?", //$NON-NLS-1$
+				"DELETE FROM PROJECT_ACTIVITY WHERE CHILDREN_ID = ?", //$NON-NLS-1$
+				"DELETE FROM ACTIVITY_ACTIVITYLABEL WHERE ACTIVITY_ID = ?", //$NON-NLS-1$
+				"DELETE FROM ACTIVITY WHERE ID = ?" }; //$NON-NLS-1$
+		List<PreparedStatement> statements = new ArrayList<>();
+		long count = 0;
+		try (ResultSet rs = new Csv().read(new InputStreamReader(in, StandardCharsets.UTF_8), null)) {
+			for (String delete : deletes) {
+				statements.add(connection.prepareStatement(delete));
+			}
+			while (rs.next()) {
+				String id = rs.getString("ID"); //$NON-NLS-1$
+				affected(id);
+				for (PreparedStatement statement : statements) {
+					statement.setString(1, id);
+					statement.addBatch();
+				}
+				if (++count % batchSize == 0) {
+					for (PreparedStatement statement : statements) {
+						statement.executeBatch();
+					}
+					connection.commit();
+					progress.split(batchSize);
+				}
+			}
+			for (PreparedStatement statement : statements) {
+				statement.executeBatch();
+			}
+			connection.commit();
+		} finally {
+			for (PreparedStatement statement : statements) {
+				statement.close();
+			}
+		}
+		progress.worked((int) (count % batchSize));
+		return count;
+	}
+
+	private void addDates(LocalDateTime start, LocalDateTime end) {
+		// running activities are not part of the daily totals
+		if (start == null || end == null) {
+			return;
+		}
+		for (LocalDate date = start.toLocalDate(); !date.isAfter(end.toLocalDate()); date = date.plusDays(1)) {
+			affectedDates.add(date);
+		}
+	}
+
+	private static LocalDateTime parse(String timestamp) {
+		return timestamp == null || timestamp.isEmpty() ? null : Timestamp.valueOf(timestamp).toLocalDateTime();
+	}
+
+	private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+		return timestamp == null ? null : timestamp.toLocalDateTime();
+	}
+
+	private Set<String> columns(String table) throws SQLException {
+		Set<String> columns = new HashSet<>();
+		try (Statement statement = connection.createStatement();
+				ResultSet rs = statement.executeQuery("SELECT * FROM " + table + " WHERE 1 = 0")) { //$NON-NLS-1$ //$NON-NLS-2$
+			ResultSetMetaData meta = rs.getMetaData();
+			for (int i = 1; i <= meta.getColumnCount(); i++) {
+				columns.add(meta.getColumnName(i));
+			}
+		}
+		return columns;
+	}
+
+	private static int work(long rows) {
+		return (int) Math.min(rows, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * @return the number of rows exported or imported per table
+	 */
+	Map<String, Long> getRows() {
+		return rows;
+	}
+
+	/**
+	 * @return the number of tasks and activities exported or imported
+	 */
+	int getRecordCount() {
+		return (int) (rows.getOrDefault("TASK", 0L) + rows.getOrDefault("ACTIVITY", 0L)); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	/**
+	 * @return the content of the archive written or read
+	 */
+	Mode getMode() {
+		return Mode.valueOf(manifest.getProperty(KEY_MODE, Mode.FULL.name()));
+	}
+
+	/**
+	 * @return <code>true</code> if the archive written or read holds a delta
+	 */
+	boolean isDelta() {
+		return getMode() != Mode.FULL;
+	}
+
+	/**
+	 * Returns the data version of the database the archive was written from.
+	 * Changes made after this are included in the next delta exported with this
+	 * watermark.
+	 *
+	 * @return the watermark, or -1 if unknown
+	 */
+	long getWatermark() {
+		return Long.parseLong(manifest.getProperty(KEY_WATERMARK, "-1")); //$NON-NLS-1$
+	}
+
+	/**
+	 * @return the tasks affected by importing a delta
+	 */
+	Set<GlobalTaskId> getAffectedTasks() {
+		return affectedTasks;
+	}
+
+	/**
+	 * @return the names of projects merged by importing a delta
+	 */
+	Set<String> getAffectedProjects() {
+		return affectedProjects;
+	}
+
+	/**
+	 * @return the identifiers of labels merged by importing a delta
+	 */
+	Set<String> getAffectedLabels() {
+		return affectedLabels;
+	}
+
+	/**
+	 * @return the number of rows merged or removed by importing
+	 */
+	long getRowCount() {
+		return rows.values().stream().mapToLong(Long::longValue).sum();
+	}
+
+	/**
+	 * @return the dates affected by importing a delta
+	 */
+	Set<LocalDate> getAffectedDates() {
+		return affectedDates;
+	}
+
+	/**
+	 * Keeps the CSV reader from closing the archive after the first entry.
+	 */
+	private static class NonClosingInputStream extends FilterInputStream {
+
+		NonClosingInputStream(InputStream in) {
+			super(in);
+		}
+
+		@Override
+		public void close() {
+			// the archive is closed when all entries have been read
+		}
+	}
+
+}
@@ -0,0 +1,153 @@
+/*******************************************************************************
+ * Copyright © 2026 Torkild U. Resheim
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Torkild U. Resheim - initial API and implementation
+ *******************************************************************************/
+package net.resheim.eclipse.timekeeper.db;
+
+import java.util.Objects;
+
+import net.resheim.eclipse.timekeeper.db.model.Activity;
+import net.resheim.eclipse.timekeeper.db.model.ActivityLabel;
+import net.resheim.eclipse.timekeeper.db.model.ChangeLogEntry;
+import net.resheim.eclipse.timekeeper.db.model.GlobalTaskId;
+import net.resheim.eclipse.timekeeper.db.model.Project;
+import net.resheim.eclipse.timekeeper.db.model.Task;
+
+/**
+ * Describes a modification of a single entity, made either by this instance
+ * or by another instance sharing the database.
+ *
+ * @author Torkild U. Resheim
+ * @see DatabaseChangeListener#databaseChanged(java.util.List)
+ */
+public class DatabaseChange {
+
+	/** The kind of entity that was modified */
+	public enum EntityType {
+		TASK, ACTIVITY, LABEL, PROJECT,
+		/** Any entity may have been modified, for instance after an import */
+		ALL
+	}
+
+	/** The kind of modification */
+	public enum ChangeType {
+		CREATED, UPDATED, REMOVED,
+		/** An activity has been started, it has a start time but no end time */
+		STARTED,
+		/** An activity that was running has been given an end time */
+		ENDED
+	}
+
+	private final EntityType entityType;
+
+	private final ChangeType changeType;
+
+	private final String entityId;
+
+	private final GlobalTaskId taskId;
+
+	private final boolean remote;
+
+	public DatabaseChange(EntityType entityType, ChangeType changeType, String entityId, GlobalTaskId taskId,
+			boolean remote) {
+		this.entityType = entityType;
+		this.changeType = changeType;
+		this.entityId = entityId;
+		this.taskId = taskId;
+		this.remote = remote;
+	}
+
+	/**
+	 * Creates a change read from the change log, hence made by another instance.
+	 */
+	static DatabaseChange of(ChangeLogEntry entry) {
+		return new DatabaseChange(EntityType.valueOf(entry.getEntityType()),
+				ChangeType.valueOf(entry.getChangeType()), entry.getEntityId(), entry.getTask(), true);
+	}
+
+	static DatabaseChange of(ChangeType changeType, Task task) {
+		GlobalTaskId id = new GlobalTaskId(task.getRepositoryUrl(), task.getTaskId());
+		return new DatabaseChange(EntityType.TASK, changeType, task.getTaskId(), id, false);
+	}
+
+	static DatabaseChange of(ChangeType changeType, Activity activity, Task task) {
+		GlobalTaskId id = task == null ? null : new GlobalTaskId(task.getRepositoryUrl(), task.getTaskId());
+		return new DatabaseChange(EntityType.ACTIVITY, changeType, activity.getId(), id, false);
+	}
+
+	static DatabaseChange of(ChangeType changeType, ActivityLabel label) {
+		return new DatabaseChange(EntityType.LABEL, changeType, label.getId(), null, false);
+	}
+
+	static DatabaseChange of(ChangeType changeType, Project project) {
+		return new DatabaseChange(EntityType.PROJECT, changeType, project.getName(), null, false);
+	}
+
+	static DatabaseChange all() {
+		return new DatabaseChange(EntityType.ALL, ChangeType.UPDATED, null, null, false);
+	}
+
+	/**
+	 * @return the kind of entity that was modified
+	 */
+	public EntityType getEntityType() {
+		return entityType;
+	}
+
+	/**
+	 * @return the kind of modification
+	 */
+	public ChangeType getChangeType() {
+		return changeType;
+	}
+
+	/**
+	 * @return the identifier of the entity, or the task identifier if a task
+	 */
+	public String getEntityId() {
+		return entityId;
+	}
+
+	/**
+	 * @return the identifier of the task the entity belongs to, or
+	 *         <code>null</code>
+	 */
+	public GlobalTaskId getTaskId() {
+		return taskId;
+	}
+
+	/**
+	 * @return <code>true</code> if the change was made by another instance
+	 */
+	public boolean isRemote() {
+		return remote;
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(entityType, changeType, entityId, taskId, remote);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (!(obj instanceof DatabaseChange)) {
+			return false;
+		}
+		DatabaseChange other = (DatabaseChange) obj;
+		return entityType == other.entityType && changeType == other.changeType
+				&& Objects.equals(entityId, other.entityId) && Objects.equals(taskId, other.taskId)
+				&& remote == other.remote;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("DatabaseChange [%s %s %s%s]", changeType, entityType, entityId, remote ? ", remote" : "");
+	}
+
+}
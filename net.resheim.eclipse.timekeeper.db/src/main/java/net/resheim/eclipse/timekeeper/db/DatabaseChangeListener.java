@@ -10,8 +10,25 @@
  *******************************************************************************/
 package net.resheim.eclipse.timekeeper.db;
 
+import java.util.List;
+
 public interface DatabaseChangeListener {
 
 	public void databaseStateChanged();
 
+	/**
+	 * Called when entities have been modified, either by a transaction of this
+	 * instance when it has been committed, or by another instance sharing the
+	 * database when this is detected. Each change carries the identifiers of the
+	 * modified entity and the task it belongs to, so that only the affected
+	 * elements have to be updated. The default implementation treats this as if
+	 * the entire database has changed.
+	 *
+	 * @param changes the modified entities
+	 * @see DatabaseChange#isRemote()
+	 */
+	public default void databaseChanged(List<DatabaseChange> changes) {
+		databaseStateChanged();
+	}
+
 }
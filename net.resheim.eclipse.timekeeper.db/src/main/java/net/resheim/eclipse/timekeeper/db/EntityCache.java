@@ -0,0 +1,224 @@
+/*******************************************************************************
+ * Copyright © 2026 Torkild U. Resheim
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Torkild U. Resheim - initial API and implementation
+ *******************************************************************************/
+package net.resheim.eclipse.timekeeper.db;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A cache of detached entities that is shared by all sessions. Entries are
+ * evicted when they have not been used for a while and the cache is full, or
+ * when they have been in the cache longer than the time to live. The size and
+ * time to live are specified by the {@link #PROP_CACHE_SIZE} and
+ * {@link #PROP_CACHE_TTL} system properties. A size of zero will disable the
+ * cache.
+ *
+ * @author Torkild U. Resheim
+ * @param <K> the type of the entity identifier
+ * @param <V> the type of the entity
+ */
+public class EntityCache<K, V> {
+
+	/** System property used to specify the maximum number of entries per cache */
+	public static final String PROP_CACHE_SIZE = "net.resheim.eclipse.timekeeper.db.cache.size"; //$NON-NLS-1$
+
+	/** System property used to specify the time to live in milliseconds */
+	public static final String PROP_CACHE_TTL = "net.resheim.eclipse.timekeeper.db.cache.ttl"; //$NON-NLS-1$
+
+	/** The default maximum number of entries per cache */
+	public static final int DEFAULT_CACHE_SIZE = 256;
+
+	/** The default time to live in milliseconds */
+	public static final long DEFAULT_CACHE_TTL = 60_000;
+
+	/** A cached entity and the time it expires */
+	private static class Entry<V> {
+
+		final V value;
+
+		final long expires;
+
+		Entry(V value, long expires) {
+			this.value = value;
+			this.expires = expires;
+		}
+	}
+
+	private final String name;
+
+	private final int maxSize;
+
+	private final long ttl;
+
+	private final Map<K, Entry<V>> entries;
+
+	private final AtomicLong hitCount = new AtomicLong();
+
+	private final AtomicLong missCount = new AtomicLong();
+
+	private final AtomicLong evictionCount = new AtomicLong();
+
+	/**
+	 * Creates a new cache with the size and time to live specified by the
+	 * {@link #PROP_CACHE_SIZE} and {@link #PROP_CACHE_TTL} system properties.
+	 *
+	 * @param name the name of the cache
+	 */
+	public EntityCache(String name) {
+		this(name, Integer.getInteger(PROP_CACHE_SIZE, DEFAULT_CACHE_SIZE),
+				Long.getLong(PROP_CACHE_TTL, DEFAULT_CACHE_TTL));
+	}
+
+	/**
+	 * Creates a new cache with the given size and time to live.
+	 *
+	 * @param name    the name of the cache
+	 * @param maxSize the maximum number of entries
+	 * @param ttl     the time to live in milliseconds
+	 */
+	public EntityCache(String name, int maxSize, long ttl) {
+		this.name = name;
+		this.maxSize = Math.max(0, maxSize);
+		this.ttl = TimeUnit.MILLISECONDS.toNanos(Math.max(0, ttl));
+		// access order, so that the least recently used entry is evicted first
+		this.entries = new LinkedHashMap<K, Entry<V>>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+				if (size() > EntityCache.this.maxSize) {
+					evictionCount.incrementAndGet();
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Returns the cached entity with the given identifier.
+	 *
+	 * @param key the entity identifier
+	 * @return the entity or <code>null</code> if not cached or expired
+	 */
+	public synchronized V get(K key) {
+		Entry<V> entry = entries.get(key);
+		if (entry != null && entry.expires - System.nanoTime() <= 0) {
+			entries.remove(key);
+			evictionCount.incrementAndGet();
+			entry = null;
+		}
+		if (entry == null) {
+			missCount.incrementAndGet();
+			return null;
+		}
+		hitCount.incrementAndGet();
+		return entry.value;
+	}
+
+	/**
+	 * Adds the entity to the cache, replacing any entity with the same
+	 * identifier.
+	 *
+	 * @param key   the entity identifier
+	 * @param value the entity
+	 */
+	public synchronized void put(K key, V value) {
+		if (maxSize == 0 || value == null) {
+			return;
+		}
+		entries.put(key, new Entry<>(value, System.nanoTime() + ttl));
+	}
+
+	/**
+	 * Removes the entity with the given identifier from the cache.
+	 *
+	 * @param key the entity identifier
+	 */
+	public synchronized void invalidate(K key) {
+		entries.remove(key);
+	}
+
+	/**
+	 * Removes all entities from the cache.
+	 */
+	public synchronized void invalidateAll() {
+		entries.clear();
+	}
+
+	/**
+	 * @return the name of the cache
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return the maximum number of entries
+	 */
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * @return the time to live in milliseconds
+	 */
+	public long getTimeToLive() {
+		return TimeUnit.NANOSECONDS.toMillis(ttl);
+	}
+
+	/**
+	 * @return the number of entries currently in the cache
+	 */
+	public synchronized int getSize() {
+		return entries.size();
+	}
+
+	/**
+	 * @return the number of lookups that found an entity
+	 */
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	/**
+	 * @return the number of lookups that did not find an entity
+	 */
+	public long getMissCount() {
+		return missCount.get();
+	}
+
+	/**
+	 * @return the number of entries removed due to size or age
+	 */
+	public long getEvictionCount() {
+		return evictionCount.get();
+	}
+
+	/**
+	 * @return the ratio of lookups that found an entity
+	 */
+	public double getHitRatio() {
+		long hits = getHitCount();
+		long total = hits + getMissCount();
+		return total == 0 ? 0 : (double) hits / total;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("EntityCache %s [size=%d, max=%d, hits=%d, misses=%d, evictions=%d]", name, getSize(),
+				maxSize, getHitCount(), getMissCount(), getEvictionCount());
+	}
+
+}
@@ -0,0 +1,112 @@
+/*******************************************************************************
+ * Copyright © 2026 Torkild U. Resheim
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Torkild U. Resheim - initial API and implementation
+ *******************************************************************************/
+package net.resheim.eclipse.timekeeper.db;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Accumulates the number of times an operation has been performed, how many
+ * of these failed, and the time spent. Times are reported in microseconds as
+ * most database operations complete within a millisecond.
+ *
+ * @author Torkild U. Resheim
+ */
+public class OperationTimer {
+
+	private final String name;
+
+	private final AtomicLong count = new AtomicLong();
+
+	private final AtomicLong failureCount = new AtomicLong();
+
+	private final AtomicLong totalTime = new AtomicLong();
+
+	private final AtomicLong maxTime = new AtomicLong();
+
+	public OperationTimer(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Records one execution of the operation.
+	 *
+	 * @param nanos  the time spent in nanoseconds
+	 * @param failed whether or not the operation failed
+	 */
+	public void record(long nanos, boolean failed) {
+		count.incrementAndGet();
+		if (failed) {
+			failureCount.incrementAndGet();
+		}
+		totalTime.addAndGet(nanos);
+		maxTime.accumulateAndGet(nanos, Math::max);
+	}
+
+	/**
+	 * Discards all recorded executions.
+	 */
+	public void reset() {
+		count.set(0);
+		failureCount.set(0);
+		totalTime.set(0);
+		maxTime.set(0);
+	}
+
+	/**
+	 * @return the name of the operation
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return the number of times the operation has been performed
+	 */
+	public long getCount() {
+		return count.get();
+	}
+
+	/**
+	 * @return the number of times the operation has failed
+	 */
+	public long getFailureCount() {
+		return failureCount.get();
+	}
+
+	/**
+	 * @return the accumulated time spent in microseconds
+	 */
+	public long getTotalTime() {
+		return totalTime.get() / 1_000;
+	}
+
+	/**
+	 * @return the average time spent in microseconds
+	 */
+	public long getMeanTime() {
+		long n = getCount();
+		return n == 0 ? 0 : totalTime.get() / n / 1_000;
+	}
+
+	/**
+	 * @return the longest time spent by a single execution in microseconds
+	 */
+	public long getMaxTime() {
+		return maxTime.get() / 1_000;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s [count=%d, failures=%d, mean=%dus, max=%dus]", name, getCount(), getFailureCount(),
+				getMeanTime(), getMaxTime());
+	}
+
+}
@@ -0,0 +1,77 @@
+/*******************************************************************************
+ * Copyright © 2026 Torkild U. Resheim
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Torkild U. Resheim - initial API and implementation
+ *******************************************************************************/
+package net.resheim.eclipse.timekeeper.db;
+
+import org.eclipse.persistence.internal.sessions.AbstractSession;
+import org.eclipse.persistence.queries.DatabaseQuery;
+import org.eclipse.persistence.sessions.Record;
+import org.eclipse.persistence.sessions.SessionProfiler;
+import org.eclipse.persistence.sessions.SessionProfilerAdapter;
+
+/**
+ * An EclipseLink profiler timing every query executed by the session. Named
+ * queries are recorded by name, other queries such as those issued when
+ * finding and merging entities are recorded by the type of query. Counters
+ * reported by EclipseLink, such as hits and misses in the shared cache, are
+ * recorded as well.
+ *
+ * @author Torkild U. Resheim
+ */
+@SuppressWarnings("restriction")
+class QueryProfiler extends SessionProfilerAdapter {
+
+	private static final String COUNTER_PREFIX = "Counter:"; //$NON-NLS-1$
+
+	private final ServiceMetrics metrics;
+
+	QueryProfiler(ServiceMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	@Override
+	public Object profileExecutionOfQuery(DatabaseQuery query, Record row, AbstractSession session) {
+		long start = System.nanoTime();
+		boolean failed = true;
+		try {
+			Object result = super.profileExecutionOfQuery(query, row, session);
+			failed = false;
+			return result;
+		} finally {
+			metrics.getQuery(getName(query)).record(System.nanoTime() - start, failed);
+		}
+	}
+
+	@Override
+	public void occurred(String operationName, AbstractSession session) {
+		count(operationName);
+	}
+
+	@Override
+	public void occurred(String operationName, DatabaseQuery query, AbstractSession session) {
+		count(operationName);
+	}
+
+	@Override
+	public int getProfileWeight() {
+		return SessionProfiler.NORMAL;
+	}
+
+	private void count(String operationName) {
+		metrics.increment(operationName.startsWith(COUNTER_PREFIX) ? operationName.substring(COUNTER_PREFIX.length())
+				: operationName);
+	}
+
+	private static String getName(DatabaseQuery query) {
+		String name = query.getName();
+		return name == null || name.isEmpty() ? query.getClass().getSimpleName() : name;
+	}
+
+}
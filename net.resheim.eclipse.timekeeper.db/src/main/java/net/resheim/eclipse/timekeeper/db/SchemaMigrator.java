@@ -0,0 +1,323 @@
+/*******************************************************************************
+ * Copyright © 2026 Torkild U. Resheim
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Torkild U. Resheim - initial API and implementation
+ *******************************************************************************/
+package net.resheim.eclipse.timekeeper.db;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Brings the database schema up to date by applying versioned SQL scripts in
+ * order. Scripts are named <code>V&lt;version&gt;__&lt;description&gt;.sql</code>
+ * and are loaded from the <code>db</code> folder on the class path. Each script
+ * that has been applied is recorded in the {@link #HISTORY_TABLE} so that it is
+ * only executed once. When the history is up to date, a migration is a single
+ * query and the schema is otherwise left alone.
+ * <p>
+ * A new migration is added by placing the script in the <code>db</code> folder
+ * and appending its name to {@link #SCRIPTS}. Scripts that have been released
+ * must never be modified, a warning is logged if the checksum of a script no
+ * longer matches the one recorded.
+ * </p>
+ * <p>
+ * The database may be shared by several instances that start at the same time.
+ * Migrations are therefore applied while holding a lock on the row in the
+ * {@link #LOCK_TABLE}, and the history is read once the lock is held. The lock
+ * is held by a separate connection, as the scripts commit the transaction of
+ * the connection running them.
+ * </p>
+ *
+ * @author Torkild U. Resheim
+ */
+public class SchemaMigrator {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(SchemaMigrator.class);
+
+	/** The name of the table holding the applied migrations */
+	public static final String HISTORY_TABLE = "SCHEMA_HISTORY"; //$NON-NLS-1$
+
+	/** The name of the table holding the row locked while migrating */
+	public static final String LOCK_TABLE = "SCHEMA_LOCK"; //$NON-NLS-1$
+
+	/** The number of milliseconds to wait for another instance to migrate */
+	private static final int LOCK_TIMEOUT = 60_000;
+
+	/** The SQL state of a unique constraint violation */
+	private static final String DUPLICATE_KEY = "23505"; //$NON-NLS-1$
+
+	/** The migration scripts found in the <code>db</code> folder */
+	static final String[] SCRIPTS = {
+			"V1__baseline.sql", //$NON-NLS-1$
+			"V3__add_activity_period_index.sql", //$NON-NLS-1$
+			"V4__add_daily_totals.sql", //$NON-NLS-1$
+			"V5__add_data_version.sql", //$NON-NLS-1$
+			"V6__add_change_log.sql" //$NON-NLS-1$
+	};
+
+	private static final Pattern SCRIPT_NAME = Pattern.compile("V(\\d+)__(\\w+)\\.sql"); //$NON-NLS-1$
+
+	/** A migration script and its version */
+	static class Migration {
+
+		final int version;
+
+		final String description;
+
+		final String script;
+
+		Migration(String script) {
+			Matcher m = SCRIPT_NAME.matcher(script);
+			if (!m.matches()) {
+				throw new IllegalArgumentException("Not a valid migration script name: " + script);
+			}
+			this.version = Integer.parseInt(m.group(1));
+			this.description = m.group(2).replace('_', ' ');
+			this.script = script;
+		}
+	}
+
+	private final List<Migration> migrations = new ArrayList<>();
+
+	private int appliedCount;
+
+	private int currentVersion;
+
+	/**
+	 * Creates a new migrator for the scripts listed in {@link #SCRIPTS}.
+	 */
+	public SchemaMigrator() {
+		this(SCRIPTS);
+	}
+
+	/**
+	 * Creates a new migrator for the given scripts.
+	 *
+	 * @param scripts the names of the migration scripts
+	 */
+	SchemaMigrator(String... scripts) {
+		for (String script : scripts) {
+			migrations.add(new Migration(script));
+		}
+		migrations.sort(Comparator.comparingInt(m -> m.version));
+	}
+
+	/**
+	 * Applies all migrations that have not already been applied to the database.
+	 * Other instances migrating the same database are waited for.
+	 *
+	 * @param connection the database connection
+	 * @param lock       a separate connection to the same database, used to hold
+	 *                   the migration lock
+	 * @return the number of migrations applied
+	 * @throws SQLException if the migration failed
+	 */
+	public int migrate(Connection connection, Connection lock) throws SQLException {
+		boolean autoCommit = connection.getAutoCommit();
+		boolean lockAutoCommit = lock.getAutoCommit();
+		connection.setAutoCommit(false);
+		lock.setAutoCommit(false);
+		try {
+			acquireLock(lock);
+			createHistoryTable(connection);
+			Map<Integer, Long> history = readHistory(connection);
+			appliedCount = 0;
+			for (Migration migration : migrations) {
+				String sql = readScript(migration.script);
+				long checksum = checksum(sql);
+				Long recorded = history.get(migration.version);
+				if (recorded != null) {
+					if (recorded != checksum) {
+						LOGGER.warn("Migration script {} has been modified after it was applied", migration.script);
+					}
+					continue;
+				}
+				apply(connection, migration, sql, checksum);
+				appliedCount++;
+			}
+			currentVersion = migrations.isEmpty() ? 0 : migrations.get(migrations.size() - 1).version;
+			if (appliedCount > 0) {
+				LOGGER.info("Applied {} migration(s), the database schema is now at version {}", appliedCount,
+						currentVersion);
+			} else {
+				LOGGER.info("The database schema is up to date at version {}", currentVersion);
+			}
+			return appliedCount;
+		} finally {
+			// releases the lock
+			lock.rollback();
+			lock.setAutoCommit(lockAutoCommit);
+			connection.setAutoCommit(autoCommit);
+		}
+	}
+
+	/**
+	 * Locks the row of the {@link #LOCK_TABLE}, creating it if required. The lock
+	 * is held until the transaction of the given connection ends.
+	 */
+	private void acquireLock(Connection lock) throws SQLException {
+		try (Statement statement = lock.createStatement()) {
+			statement.execute("CREATE TABLE IF NOT EXISTS " + LOCK_TABLE + " (ID INT NOT NULL PRIMARY KEY)"); //$NON-NLS-1$ //$NON-NLS-2$
+			try {
+				statement.execute("MERGE INTO " + LOCK_TABLE + " KEY (ID) VALUES (1)"); //$NON-NLS-1$ //$NON-NLS-2$
+				lock.commit();
+			} catch (SQLException e) {
+				// another instance added the row first
+				if (!DUPLICATE_KEY.equals(e.getSQLState())) {
+					throw e;
+				}
+				lock.rollback();
+			}
+			statement.execute("SET LOCK_TIMEOUT " + LOCK_TIMEOUT); //$NON-NLS-1$
+			statement.executeQuery("SELECT ID FROM " + LOCK_TABLE + " WHERE ID = 1 FOR UPDATE").close(); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+	}
+
+	private void createHistoryTable(Connection connection) throws SQLException {
+		DatabaseMetaData metaData = connection.getMetaData();
+		try (ResultSet rs = metaData.getTables(null, null, HISTORY_TABLE, new String[] { "TABLE" })) { //$NON-NLS-1$
+			if (rs.next()) {
+				return;
+			}
+		}
+		try (Statement statement = connection.createStatement()) {
+			statement.execute("CREATE TABLE IF NOT EXISTS " + HISTORY_TABLE + " (" //$NON-NLS-1$ //$NON-NLS-2$
+					+ "VERSION INT NOT NULL PRIMARY KEY, " //$NON-NLS-1$
+					+ "DESCRIPTION VARCHAR(255), " //$NON-NLS-1$
+					+ "SCRIPT VARCHAR(255) NOT NULL, " //$NON-NLS-1$
+					+ "CHECKSUM BIGINT, " //$NON-NLS-1$
+					+ "INSTALLED_ON TIMESTAMP, " //$NON-NLS-1$
+					+ "EXECUTION_TIME INT)"); //$NON-NLS-1$
+		}
+		connection.commit();
+	}
+
+	private Map<Integer, Long> readHistory(Connection connection) throws SQLException {
+		Map<Integer, Long> history = new HashMap<>();
+		try (Statement statement = connection.createStatement();
+				ResultSet rs = statement.executeQuery("SELECT VERSION, CHECKSUM FROM " + HISTORY_TABLE)) { //$NON-NLS-1$
+			while (rs.next()) {
+				history.put(rs.getInt(1), rs.getLong(2));
+			}
+		}
+		return history;
+	}
+
+	private void apply(Connection connection, Migration migration, String sql, long checksum) throws SQLException {
+		LOGGER.info("Migrating database schema to version {} - {}", migration.version, migration.description);
+		long start = System.currentTimeMillis();
+		try (Statement statement = connection.createStatement()) {
+			for (String s : split(sql)) {
+				statement.execute(s);
+			}
+			try (PreparedStatement insert = connection.prepareStatement("INSERT INTO " + HISTORY_TABLE //$NON-NLS-1$
+					+ " (VERSION, DESCRIPTION, SCRIPT, CHECKSUM, INSTALLED_ON, EXECUTION_TIME) VALUES (?, ?, ?, ?, ?, ?)")) { //$NON-NLS-1$
+				insert.setInt(1, migration.version);
+				insert.setString(2, migration.description);
+				insert.setString(3, migration.script);
+				insert.setLong(4, checksum);
+				insert.setTimestamp(5, new Timestamp(System.currentTimeMillis()));
+				insert.setInt(6, (int) (System.currentTimeMillis() - start));
+				insert.executeUpdate();
+			}
+			connection.commit();
+		} catch (SQLException e) {
+			connection.rollback();
+			throw new SQLException("Could not apply migration script " + migration.script, e);
+		}
+	}
+
+	private String readScript(String script) throws SQLException {
+		try (InputStream in = SchemaMigrator.class.getResourceAsStream("/db/" + script)) { //$NON-NLS-1$
+			if (in == null) {
+				throw new SQLException("Could not find migration script " + script);
+			}
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			in.transferTo(out);
+			return out.toString(StandardCharsets.UTF_8);
+		} catch (IOException e) {
+			throw new SQLException("Could not read migration script " + script, e);
+		}
+	}
+
+	/**
+	 * Splits the script into separate statements. Statements are terminated by a
+	 * semicolon at the end of a line, and lines starting with <code>--</code>
+	 * are treated as comments.
+	 *
+	 * @param sql the script
+	 * @return the statements of the script
+	 */
+	static List<String> split(String sql) {
+		List<String> statements = new ArrayList<>();
+		StringBuilder sb = new StringBuilder();
+		for (String line : sql.split("\\R")) { //$NON-NLS-1$
+			String trimmed = line.trim();
+			if (trimmed.isEmpty() || trimmed.startsWith("--")) { //$NON-NLS-1$
+				continue;
+			}
+			if (sb.length() > 0) {
+				sb.append('\n');
+			}
+			if (trimmed.endsWith(";")) { //$NON-NLS-1$
+				sb.append(trimmed, 0, trimmed.length() - 1);
+				statements.add(sb.toString());
+				sb.setLength(0);
+			} else {
+				sb.append(trimmed);
+			}
+		}
+		if (sb.length() > 0) {
+			statements.add(sb.toString());
+		}
+		return statements;
+	}
+
+	private static long checksum(String sql) {
+		CRC32 crc = new CRC32();
+		// line endings may differ depending on how the bundle was built
+		crc.update(sql.replaceAll("\\R", "\n").getBytes(StandardCharsets.UTF_8)); //$NON-NLS-1$ //$NON-NLS-2$
+		return crc.getValue();
+	}
+
+	/**
+	 * @return the number of migrations applied by the last migration
+	 */
+	public int getAppliedCount() {
+		return appliedCount;
+	}
+
+	/**
+	 * @return the schema version after the last migration
+	 */
+	public int getCurrentVersion() {
+		return currentVersion;
+	}
+
+}
@@ -0,0 +1,93 @@
+/*******************************************************************************
+ * Copyright © 2026 Torkild U. Resheim
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Torkild U. Resheim - initial API and implementation
+ *******************************************************************************/
+package net.resheim.eclipse.timekeeper.db;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Timers and counters for the work done by a {@link TimekeeperService}.
+ * Transactions are timed by the service, while queries and events such as
+ * hits in the shared EclipseLink cache are recorded by the {@link QueryProfiler}.
+ * Statistics of the caches, session pool and write-behind queue are kept by
+ * these, see {@link TimekeeperMetrics} for a combined view.
+ *
+ * @author Torkild U. Resheim
+ */
+public class ServiceMetrics {
+
+	private final OperationTimer transactions = new OperationTimer("Transaction"); //$NON-NLS-1$
+
+	/** Query timers keyed by query name */
+	private final Map<String, OperationTimer> queries = new ConcurrentHashMap<>();
+
+	/** Event counters keyed by event name */
+	private final Map<String, AtomicLong> counters = new ConcurrentHashMap<>();
+
+	/**
+	 * @return the timer of transactions, where failures are rollbacks
+	 */
+	public OperationTimer getTransactions() {
+		return transactions;
+	}
+
+	/**
+	 * Returns the timer of the named query, creating it if required.
+	 *
+	 * @param name the query name
+	 * @return the query timer
+	 */
+	public OperationTimer getQuery(String name) {
+		return queries.computeIfAbsent(name, OperationTimer::new);
+	}
+
+	/**
+	 * @return the timers of all queries executed, ordered by name
+	 */
+	public List<OperationTimer> getQueries() {
+		List<OperationTimer> list = new ArrayList<>(queries.values());
+		list.sort(Comparator.comparing(OperationTimer::getName));
+		return list;
+	}
+
+	/**
+	 * Increments the named counter.
+	 *
+	 * @param name the name of the event
+	 */
+	public void increment(String name) {
+		counters.computeIfAbsent(name, n -> new AtomicLong()).incrementAndGet();
+	}
+
+	/**
+	 * @return the value of each counter, ordered by name
+	 */
+	public Map<String, Long> getCounters() {
+		Map<String, Long> map = new TreeMap<>();
+		counters.forEach((name, value) -> map.put(name, value.get()));
+		return map;
+	}
+
+	/**
+	 * Discards all timers and counters.
+	 */
+	public void reset() {
+		transactions.reset();
+		queries.clear();
+		counters.clear();
+	}
+
+}
@@ -0,0 +1,276 @@
+/*******************************************************************************
+ * Copyright © 2026 Torkild U. Resheim
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Torkild U. Resheim - initial API and implementation
+ *******************************************************************************/
+package net.resheim.eclipse.timekeeper.db;
+
+import java.util.Deque;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import org.eclipse.persistence.internal.sessions.UnitOfWorkImpl;
+import org.eclipse.persistence.sessions.UnitOfWork;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A bounded pool of {@link EntityManager} instances. A session is leased for
+ * the duration of a unit of work and its persistence context is cleared when
+ * returned, so that entities are detached and the context does not grow over
+ * time. Nested leases on the same thread share the same session. At most
+ * {@link #getMaxSize()} sessions are active at any time, additional threads
+ * will wait for a session to become available.
+ *
+ * @author Torkild U. Resheim
+ */
+public class SessionPool {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(SessionPool.class);
+
+	/** System property used to specify the maximum number of sessions */
+	public static final String PROP_POOL_SIZE = "net.resheim.eclipse.timekeeper.db.pool.size"; //$NON-NLS-1$
+
+	/** The default maximum number of sessions */
+	public static final int DEFAULT_POOL_SIZE = 4;
+
+	/** A session leased by a thread */
+	private static class Lease {
+
+		final EntityManager entityManager;
+
+		int depth;
+
+		Lease(EntityManager entityManager) {
+			this.entityManager = entityManager;
+		}
+	}
+
+	private final EntityManagerFactory entityManagerFactory;
+
+	private final int maxSize;
+
+	private final Semaphore permits;
+
+	private final Deque<EntityManager> idle = new ConcurrentLinkedDeque<>();
+
+	private final ThreadLocal<Lease> leases = new ThreadLocal<>();
+
+	private final AtomicInteger active = new AtomicInteger();
+
+	private final AtomicLong leaseCount = new AtomicLong();
+
+	private final AtomicLong totalWaitTime = new AtomicLong();
+
+	private final AtomicLong maxWaitTime = new AtomicLong();
+
+	private final AtomicInteger lastContextSize = new AtomicInteger();
+
+	private final AtomicInteger maxContextSize = new AtomicInteger();
+
+	/**
+	 * Creates a new pool with the size specified by the {@link #PROP_POOL_SIZE}
+	 * system property, or {@link #DEFAULT_POOL_SIZE} if not specified.
+	 *
+	 * @param entityManagerFactory the factory to create sessions from
+	 */
+	public SessionPool(EntityManagerFactory entityManagerFactory) {
+		this(entityManagerFactory, Integer.getInteger(PROP_POOL_SIZE, DEFAULT_POOL_SIZE));
+	}
+
+	/**
+	 * Creates a new pool with the given maximum number of sessions.
+	 *
+	 * @param entityManagerFactory the factory to create sessions from
+	 * @param maxSize              the maximum number of active sessions
+	 */
+	public SessionPool(EntityManagerFactory entityManagerFactory, int maxSize) {
+		if (maxSize < 1) {
+			throw new IllegalArgumentException("The session pool size must be at least 1");
+		}
+		this.entityManagerFactory = entityManagerFactory;
+		this.maxSize = maxSize;
+		this.permits = new Semaphore(maxSize, true);
+	}
+
+	/**
+	 * Leases a session for the current thread. If the thread already holds a
+	 * session, the same session is returned. Otherwise this method will block
+	 * until a session becomes available. Each call must be paired with a call to
+	 * {@link #release(EntityManager)}.
+	 *
+	 * @return the session
+	 */
+	public EntityManager acquire() {
+		Lease lease = leases.get();
+		if (lease != null) {
+			lease.depth++;
+			return lease.entityManager;
+		}
+		long start = System.nanoTime();
+		permits.acquireUninterruptibly();
+		long wait = System.nanoTime() - start;
+		totalWaitTime.addAndGet(wait);
+		maxWaitTime.accumulateAndGet(wait, Math::max);
+		leaseCount.incrementAndGet();
+		EntityManager em = idle.pollFirst();
+		while (em != null && !em.isOpen()) {
+			em = idle.pollFirst();
+		}
+		if (em == null) {
+			LOGGER.debug("Creating new entity manager");
+			em = entityManagerFactory.createEntityManager();
+		}
+		lease = new Lease(em);
+		lease.depth = 1;
+		leases.set(lease);
+		active.incrementAndGet();
+		return em;
+	}
+
+	/**
+	 * Returns the session leased by the current thread. When the outermost lease
+	 * is released the persistence context is cleared and the session is made
+	 * available to other threads.
+	 *
+	 * @param em the session to release
+	 */
+	public void release(EntityManager em) {
+		Lease lease = leases.get();
+		if (lease == null || lease.entityManager != em) {
+			throw new IllegalStateException("The session is not leased by the current thread");
+		}
+		if (--lease.depth > 0) {
+			return;
+		}
+		leases.remove();
+		try {
+			recordContextSize(em);
+			// clearing outside of a transaction will also release the unit of work,
+			// so detached entities will lazy load from the shared session instead
+			if (em.isOpen()) {
+				em.clear();
+				idle.offerFirst(em);
+			}
+		} catch (RuntimeException e) {
+			LOGGER.warn("Could not return session to the pool", e);
+			if (em.isOpen()) {
+				em.close();
+			}
+		} finally {
+			active.decrementAndGet();
+			permits.release();
+		}
+	}
+
+	private void recordContextSize(EntityManager em) {
+		try {
+			UnitOfWork uow = em.unwrap(UnitOfWork.class);
+			if (uow instanceof UnitOfWorkImpl) {
+				int size = ((UnitOfWorkImpl) uow).getCloneMapping().size();
+				lastContextSize.set(size);
+				maxContextSize.accumulateAndGet(size, Math::max);
+			}
+		} catch (RuntimeException e) {
+			// the statistics are not vital
+			LOGGER.debug("Could not determine persistence context size", e);
+		}
+	}
+
+	/**
+	 * Closes all idle sessions. Sessions that are currently in use are left
+	 * alone.
+	 */
+	public void close() {
+		EntityManager em;
+		while ((em = idle.pollFirst()) != null) {
+			if (em.isOpen()) {
+				em.close();
+			}
+		}
+	}
+
+	/**
+	 * @return the maximum number of active sessions
+	 */
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * @return the number of sessions currently leased
+	 */
+	public int getActiveCount() {
+		return active.get();
+	}
+
+	/**
+	 * @return the number of sessions available for leasing without creating a
+	 *         new one
+	 */
+	public int getIdleCount() {
+		return idle.size();
+	}
+
+	/**
+	 * @return the number of threads waiting for a session
+	 */
+	public int getWaitingCount() {
+		return permits.getQueueLength();
+	}
+
+	/**
+	 * @return the total number of leases, not counting nested leases
+	 */
+	public long getLeaseCount() {
+		return leaseCount.get();
+	}
+
+	/**
+	 * @return the accumulated time spent waiting for a session in milliseconds
+	 */
+	public long getTotalWaitTime() {
+		return totalWaitTime.get() / 1_000_000;
+	}
+
+	/**
+	 * @return the longest time spent waiting for a session in milliseconds
+	 */
+	public long getMaxWaitTime() {
+		return maxWaitTime.get() / 1_000_000;
+	}
+
+	/**
+	 * @return the number of managed entities in the last persistence context
+	 *         before it was cleared
+	 */
+	public int getLastContextSize() {
+		return lastContextSize.get();
+	}
+
+	/**
+	 * @return the largest number of managed entities seen in a persistence
+	 *         context before it was cleared
+	 */
+	public int getMaxContextSize() {
+		return maxContextSize.get();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("SessionPool [active=%d, idle=%d, max=%d, waiting=%d, leases=%d, wait=%dms, context=%d]",
+				getActiveCount(), getIdleCount(), maxSize, getWaitingCount(), getLeaseCount(), getTotalWaitTime(),
+				getLastContextSize());
+	}
+
+}
@@ -0,0 +1,232 @@
+/*******************************************************************************
+ * Copyright © 2026 Torkild U. Resheim
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Torkild U. Resheim - initial API and implementation
+ *******************************************************************************/
+package net.resheim.eclipse.timekeeper.db;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.eclipse.persistence.jpa.JpaHelper;
+import org.eclipse.persistence.logging.AbstractSessionLog;
+import org.eclipse.persistence.logging.SessionLog;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.resheim.eclipse.timekeeper.db.report.TemplateRegistry;
+
+/**
+ * Combines the statistics of a {@link TimekeeperService}, its caches, session
+ * pool, write-behind queue and change feed, and the report template registry
+ * into one management bean. This is registered with the platform MBean server
+ * while the plug-in is running, so that the statistics can be inspected using
+ * tools such as JConsole, and used to present them in the user interface.
+ *
+ * @author Torkild U. Resheim
+ */
+public class TimekeeperMetrics implements TimekeeperMetricsMXBean {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(TimekeeperMetrics.class);
+
+	/** The name the bean is registered with */
+	public static final String OBJECT_NAME = "net.resheim.eclipse.timekeeper.db:type=Metrics"; //$NON-NLS-1$
+
+	private final TimekeeperService service;
+
+	public TimekeeperMetrics(TimekeeperService service) {
+		this.service = service;
+	}
+
+	/**
+	 * Registers the metrics of the service with the platform MBean server,
+	 * replacing any metrics already registered.
+	 *
+	 * @param service the service to register the metrics of
+	 */
+	public static void register(TimekeeperService service) {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName name = new ObjectName(OBJECT_NAME);
+			if (server.isRegistered(name)) {
+				server.unregisterMBean(name);
+			}
+			server.registerMBean(new TimekeeperMetrics(service), name);
+		} catch (JMException e) {
+			// the statistics are not vital
+			LOGGER.warn("Could not register metrics", e);
+		}
+	}
+
+	/**
+	 * Removes the metrics from the platform MBean server.
+	 */
+	public static void unregister() {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName name = new ObjectName(OBJECT_NAME);
+			if (server.isRegistered(name)) {
+				server.unregisterMBean(name);
+			}
+		} catch (JMException e) {
+			LOGGER.warn("Could not unregister metrics", e);
+		}
+	}
+
+	private static <T> Map<String, T> collect(Iterable<OperationTimer> timers, Function<OperationTimer, T> value) {
+		Map<String, T> map = new LinkedHashMap<>();
+		for (OperationTimer timer : timers) {
+			map.put(timer.getName(), value.apply(timer));
+		}
+		return map;
+	}
+
+	private static <T> long get(T component, ToLongFunction<T> value) {
+		return component == null ? 0 : value.applyAsLong(component);
+	}
+
+	@Override
+	public long getTransactionCount() {
+		return service.getMetrics().getTransactions().getCount();
+	}
+
+	@Override
+	public long getRollbackCount() {
+		return service.getMetrics().getTransactions().getFailureCount();
+	}
+
+	@Override
+	public long getMeanTransactionTime() {
+		return service.getMetrics().getTransactions().getMeanTime();
+	}
+
+	@Override
+	public long getMaxTransactionTime() {
+		return service.getMetrics().getTransactions().getMaxTime();
+	}
+
+	@Override
+	public Map<String, Long> getQueryCounts() {
+		return collect(service.getMetrics().getQueries(), OperationTimer::getCount);
+	}
+
+	@Override
+	public Map<String, Long> getMeanQueryTimes() {
+		return collect(service.getMetrics().getQueries(), OperationTimer::getMeanTime);
+	}
+
+	@Override
+	public Map<String, Long> getMaxQueryTimes() {
+		return collect(service.getMetrics().getQueries(), OperationTimer::getMaxTime);
+	}
+
+	@Override
+	public Map<String, Long> getPersistenceCounters() {
+		return service.getMetrics().getCounters();
+	}
+
+	@Override
+	public Map<String, Double> getCacheHitRatios() {
+		Map<String, Double> map = new LinkedHashMap<>();
+		service.getCaches().forEach(c -> map.put(c.getName(), c.getHitRatio()));
+		return map;
+	}
+
+	@Override
+	public Map<String, Integer> getCacheSizes() {
+		Map<String, Integer> map = new LinkedHashMap<>();
+		service.getCaches().forEach(c -> map.put(c.getName(), c.getSize()));
+		return map;
+	}
+
+	@Override
+	public int getActiveSessionCount() {
+		return (int) get(service.getSessionPool(), SessionPool::getActiveCount);
+	}
+
+	@Override
+	public long getSessionLeaseCount() {
+		return get(service.getSessionPool(), SessionPool::getLeaseCount);
+	}
+
+	@Override
+	public long getMaxSessionWaitTime() {
+		return get(service.getSessionPool(), SessionPool::getMaxWaitTime);
+	}
+
+	@Override
+	public int getLastPersistenceContextSize() {
+		return (int) get(service.getSessionPool(), SessionPool::getLastContextSize);
+	}
+
+	@Override
+	public int getMaxPersistenceContextSize() {
+		return (int) get(service.getSessionPool(), SessionPool::getMaxContextSize);
+	}
+
+	@Override
+	public int getPendingWriteCount() {
+		return (int) get(service.getWriteBehindQueue(), WriteBehindQueue::getPendingCount);
+	}
+
+	@Override
+	public long getFlushCount() {
+		return get(service.getWriteBehindQueue(), WriteBehindQueue::getFlushCount);
+	}
+
+	@Override
+	public long getMaxFlushLatency() {
+		return get(service.getWriteBehindQueue(), WriteBehindQueue::getMaxFlushLatency);
+	}
+
+	@Override
+	public long getChangeFeedPollCount() {
+		return get(service.getChangeFeed(), ChangeFeed::getPollCount);
+	}
+
+	@Override
+	public long getChangeFeedChangeCount() {
+		return get(service.getChangeFeed(), ChangeFeed::getChangeCount);
+	}
+
+	@Override
+	public long getTemplateCompileCount() {
+		return TemplateRegistry.getDefault().getCompileCount();
+	}
+
+	private SessionLog getSessionLog() {
+		if (!service.initialized()) {
+			throw new IllegalStateException("The Timekeeper database has not been connected");
+		}
+		return JpaHelper.getServerSession(service.getEntityManagerFactory()).getSessionLog();
+	}
+
+	@Override
+	public String getLoggingLevel() {
+		return AbstractSessionLog.translateLoggingLevelToString(getSessionLog().getLevel());
+	}
+
+	@Override
+	public void setLoggingLevel(String level) {
+		getSessionLog().setLevel(AbstractSessionLog.translateStringToLoggingLevel(level));
+		LOGGER.info("EclipseLink logging level set to '{}'", level);
+	}
+
+	@Override
+	public void reset() {
+		service.getMetrics().reset();
+	}
+
+}
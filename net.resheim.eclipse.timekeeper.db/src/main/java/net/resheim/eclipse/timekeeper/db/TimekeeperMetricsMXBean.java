@@ -0,0 +1,86 @@
+/*******************************************************************************
+ * Copyright © 2026 Torkild U. Resheim
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Torkild U. Resheim - initial API and implementation
+ *******************************************************************************/
+package net.resheim.eclipse.timekeeper.db;
+
+import java.util.Map;
+
+/**
+ * The management interface of {@link TimekeeperMetrics}. Times spent by
+ * transactions and queries are in microseconds, other times are in
+ * milliseconds.
+ *
+ * @author Torkild U. Resheim
+ */
+public interface TimekeeperMetricsMXBean {
+
+	long getTransactionCount();
+
+	long getRollbackCount();
+
+	long getMeanTransactionTime();
+
+	long getMaxTransactionTime();
+
+	/** @return the number of executions keyed by query name */
+	Map<String, Long> getQueryCounts();
+
+	/** @return the average time spent keyed by query name */
+	Map<String, Long> getMeanQueryTimes();
+
+	/** @return the longest time spent keyed by query name */
+	Map<String, Long> getMaxQueryTimes();
+
+	/** @return the counters reported by EclipseLink, such as cache hits */
+	Map<String, Long> getPersistenceCounters();
+
+	/** @return the hit ratio keyed by entity cache name */
+	Map<String, Double> getCacheHitRatios();
+
+	/** @return the number of entries keyed by entity cache name */
+	Map<String, Integer> getCacheSizes();
+
+	int getActiveSessionCount();
+
+	long getSessionLeaseCount();
+
+	long getMaxSessionWaitTime();
+
+	int getLastPersistenceContextSize();
+
+	int getMaxPersistenceContextSize();
+
+	int getPendingWriteCount();
+
+	long getFlushCount();
+
+	long getMaxFlushLatency();
+
+	long getChangeFeedPollCount();
+
+	long getChangeFeedChangeCount();
+
+	long getTemplateCompileCount();
+
+	/** @return the current EclipseLink logging level */
+	String getLoggingLevel();
+
+	/**
+	 * @param level the EclipseLink logging level, see
+	 *              {@link TimekeeperService#PROP_LOGGING_LEVEL}
+	 */
+	void setLoggingLevel(String level);
+
+	/**
+	 * Discards the recorded transaction and query times and the counters.
+	 */
+	void reset();
+
+}
@@ -15,6 +15,7 @@ import java.net.URISyntaxException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.List;
 
 import org.eclipse.core.resources.ISaveContext;
 import org.eclipse.core.resources.ISaveParticipant;
@@ -57,6 +58,8 @@ public class TimekeeperPlugin extends Plugin {
 
 	private TimekeeperService timekeeperService;
 
+	private AsyncTimekeeperService asyncTimekeeperService;
+
 	private static final ListenerList<DatabaseChangeListener> listeners = new ListenerList<>();
 
 	public void addListener(DatabaseChangeListener listener) {
@@ -85,6 +88,28 @@ public class TimekeeperPlugin extends Plugin {
 		}
 	}
 
+	/**
+	 * Passes on changes made to the database by this or other instances.
+	 *
+	 * @param changes the modified entities
+	 */
+	private void notifyListeners(List<DatabaseChange> changes) {
+		log.debug("Database modified {}", changes);
+		for (DatabaseChangeListener databaseChangeListener : listeners) {
+			SafeRunner.run(new ISafeRunnable() {
+				@Override
+				public void run() throws Exception {
+					databaseChangeListener.databaseChanged(changes);
+				}
+
+				@Override
+				public void handleException(Throwable exception) {
+					// ignore
+				}
+			});
+		}
+	}
+
 	public boolean isReady() {
 		return (timekeeperService != null && timekeeperService.initialized());
 	}
@@ -127,12 +152,25 @@ public class TimekeeperPlugin extends Plugin {
 		return timekeeperService;
 	}
 
+	/**
+	 * Returns the non-blocking variant of the service. This should be used from
+	 * the display thread, where database access must be avoided.
+	 *
+	 * @return the asynchronous service
+	 */
+	public AsyncTimekeeperService getAsyncTimekeeperService() {
+		return asyncTimekeeperService;
+	}
+
 	@Override
 	public void start(BundleContext context) throws Exception {
 		super.start(context);
 		log.info("Starting TimekeeperPlugin");
 		instance = this;
 		timekeeperService = new TimekeeperService(resolveJdbcUrl(), true);
+		timekeeperService.setChangeHandler(this::notifyListeners);
+		asyncTimekeeperService = new AsyncTimekeeperService(timekeeperService);
+		TimekeeperMetrics.register(timekeeperService);
 		ISaveParticipant saveParticipant = new WorkspaceSaveParticipant();
 		ResourcesPlugin.getWorkspace().addSaveParticipant(BUNDLE_ID, saveParticipant);
 		notifyListeners();
@@ -140,6 +178,11 @@ public class TimekeeperPlugin extends Plugin {
 
 	@Override
 	public void stop(BundleContext context) throws Exception {
+		TimekeeperMetrics.unregister();
+		// make sure queued operations and changes waiting in the write-behind queue
+		// are not lost
+		asyncTimekeeperService.shutdown();
+		timekeeperService.flush();
 		timekeeperService.closePersistence();
 		super.stop(context);
 	}
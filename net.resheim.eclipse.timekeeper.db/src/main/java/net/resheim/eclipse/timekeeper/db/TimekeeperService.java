@@ -5,134 +5,465 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.time.Duration;
+import java.sql.Connection;
+import java.sql.SQLException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Base64;
 import java.util.Calendar;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.function.BiFunction;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import javax.persistence.Cache;
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
 import javax.persistence.EntityTransaction;
-import javax.persistence.TypedQuery;
 
 import org.eclipse.core.resources.IWorkspace;
 import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.QualifiedName;
 import org.eclipse.core.runtime.preferences.InstanceScope;
 import org.eclipse.jface.preference.IPreferenceStore;
 import org.eclipse.mylyn.internal.tasks.core.AbstractTask;
 import org.eclipse.mylyn.internal.tasks.core.AbstractTaskContainer;
 import org.eclipse.mylyn.tasks.core.ITask;
+import org.eclipse.persistence.annotations.BatchFetchType;
 import org.eclipse.persistence.config.PersistenceUnitProperties;
+import org.eclipse.persistence.config.QueryHints;
+import org.eclipse.persistence.jpa.JpaHelper;
 import org.eclipse.persistence.jpa.PersistenceProvider;
 import org.eclipse.ui.preferences.ScopedPreferenceStore;
+import org.h2.Driver;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import net.resheim.eclipse.timekeeper.db.DatabaseChange.ChangeType;
 import net.resheim.eclipse.timekeeper.db.model.Activity;
 import net.resheim.eclipse.timekeeper.db.model.ActivityLabel;
+import net.resheim.eclipse.timekeeper.db.model.ChangeLogEntry;
 import net.resheim.eclipse.timekeeper.db.model.GlobalTaskId;
+import net.resheim.eclipse.timekeeper.db.model.LabelDailyTotal;
+import net.resheim.eclipse.timekeeper.db.model.LabelDailyTotalId;
 import net.resheim.eclipse.timekeeper.db.model.Project;
 import net.resheim.eclipse.timekeeper.db.model.ProjectType;
 import net.resheim.eclipse.timekeeper.db.model.Task;
+import net.resheim.eclipse.timekeeper.db.model.TaskDailyTotal;
+import net.resheim.eclipse.timekeeper.db.model.TaskDailyTotalId;
 import net.resheim.eclipse.timekeeper.db.report.ReportTemplate;
+import net.resheim.eclipse.timekeeper.db.report.model.DailyTotals;
 
 public class TimekeeperService {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(TimekeeperService.class);
 
+	private static final String LOCAL_REPO_ID = "local";
+
+	private static final String PLUGIN_ID = "net.resheim.eclipse.timekeeper"; //$NON-NLS-1$
+	private static final String KEY_UUID = "local-uuid"; //$NON-NLS-1$
+
+	/**
+	 * System property used to specify how often the data version is checked for
+	 * changes made by other instances, in milliseconds
+	 */
+	public static final String PROP_CACHE_VALIDATION = "net.resheim.eclipse.timekeeper.db.cache.validation"; //$NON-NLS-1$
+
+	/** The default interval between checking the data version in milliseconds */
+	public static final long DEFAULT_CACHE_VALIDATION = 500;
+
+	/**
+	 * System property used to specify the EclipseLink logging level, one of
+	 * "off", "severe", "warning", "info", "config", "fine", "finer", "finest" or
+	 * "all"
+	 */
+	public static final String PROP_LOGGING_LEVEL = "net.resheim.eclipse.timekeeper.db.logging.level"; //$NON-NLS-1$
+
+	/** The default EclipseLink logging level */
+	public static final String DEFAULT_LOGGING_LEVEL = "warning"; //$NON-NLS-1$
+
+	/** The number of days entries are kept in the change log */
+	private static final int CHANGE_LOG_RETENTION = 7;
+
+	/** The number of tasks loaded at a time when rebuilding the daily totals */
+	private static final int REBUILD_BATCH_SIZE = 200;
+
+	/** The SQL state of a unique constraint violation */
+	private static final String DUPLICATE_KEY = "23505"; //$NON-NLS-1$
+
+	/** The SQL state of a timeout waiting for a lock held by another session */
+	private static final String LOCK_TIMEOUT = "HYT00"; //$NON-NLS-1$
+
+	/** The key of the single entry in the label cache */
+	private static final String ALL_LABELS = "*"; //$NON-NLS-1$
+
+	private EntityManagerFactory entityManagerFactory;
+
+	private SessionPool sessionPool;
+
+	private WriteBehindQueue writeBehindQueue;
+
+	private final ServiceMetrics metrics = new ServiceMetrics();
+
+	private final EntityCache<GlobalTaskId, Task> taskCache = new EntityCache<>("Task"); //$NON-NLS-1$
+
 	/**
 	 * Some features connected to Mylyn has no knowledge of Timekeeper tasks and in
 	 * order to avoid excessive lookups in the database, we utilise a simple cache.
+	 * It holds tasks that have been synchronized with their Mylyn task, so that
+	 * this does not have to be repeated on every lookup. Entries are discarded
+	 * along with those of the {@link #taskCache}, and when the Mylyn task is
+	 * modified.
 	 */
-//	private static Map<ITask, Task> linkCache = new HashMap<>();
+	private final EntityCache<GlobalTaskId, Task> linkCache = new EntityCache<>("TaskLink"); //$NON-NLS-1$
 
-	private static final String LOCAL_REPO_ID = "local";
+	/** The workspace identifier used for local tasks, looked up once */
+	private volatile String workspaceUuid;
 
-	private static final String PLUGIN_ID = "net.resheim.eclipse.timekeeper"; //$NON-NLS-1$
-	private static final String KEY_UUID = "local-uuid"; //$NON-NLS-1$
+	private final EntityCache<String, Project> projectCache = new EntityCache<>("Project"); //$NON-NLS-1$
 
-	private ThreadLocal<EntityManager> entityManagers = new ThreadLocal<EntityManager>();
-	private EntityManagerFactory entityManagerFactory;
+	private final EntityCache<String, ProjectType> projectTypeCache = new EntityCache<>("ProjectType"); //$NON-NLS-1$
+
+	private final EntityCache<String, List<ActivityLabel>> labelCache = new EntityCache<>("ActivityLabel"); //$NON-NLS-1$
+
+	private final long cacheValidationInterval = Long.getLong(PROP_CACHE_VALIDATION, DEFAULT_CACHE_VALIDATION);
+
+	/** The last data version seen, cached entities are valid for this version */
+	private volatile long dataVersion = -1;
+
+	private volatile long lastValidation;
+
+	/** Identifies the changes made by this instance in the change log */
+	private final String origin = UUID.randomUUID().toString();
+
+	private volatile Consumer<List<DatabaseChange>> changeHandler;
+
+	private ChangeFeed changeFeed;
+
+	/** Changes recorded by the transaction of the current thread */
+	private final ThreadLocal<List<DatabaseChange>> transactionChanges = new ThreadLocal<>();
+
+	/** The location of the database */
+	private final String jdbcUrl;
+
+	/** Released when the attempt to connect to the database has completed */
+	private final CountDownLatch connected = new CountDownLatch(1);
 
 	public TimekeeperService(String jdbcUrl, boolean extraThread) {
+		this.jdbcUrl = jdbcUrl;
 		connectToDatabase(jdbcUrl, extraThread);
 	}
 
-	private EntityManager resolveEntityManager() {
-		EntityManager em = Optional.ofNullable(entityManagers.get()).orElseGet(() -> {
-			LOGGER.debug("Creating new enetity manager");
-			EntityManager entityManager = entityManagerFactory.createEntityManager();
-			entityManagers.set(entityManager);
-			return entityManager;
-		});
-		if (!em.isOpen()) {
-			System.out.println();
-		}
-		return em;
+	/**
+	 * Executes the function in a transaction using a session from the pool. If the
+	 * current thread is already in a transaction, that transaction is joined.
+	 * Entities returned will be detached once the outermost transaction has
+	 * completed, so any query results must be fully read within the function.
+	 * Pending changes are written before the function is executed.
+	 */
+	private <T> T executeInTransaction(Function<EntityManager, T> function) {
+		return executeInTransaction(function, true);
 	}
 
-	private <T> T executeInTransaction(Function<EntityManager, T> function) {
-		EntityManager em = resolveEntityManager();
-		EntityTransaction transaction = em.getTransaction();
-		boolean joinTx = transaction.isActive();
-		if (!joinTx) {
-			transaction.begin();
+	/**
+	 * Executes the function in a transaction using a session from the pool. If
+	 * <code>flushPending</code> is <code>false</code>, changes waiting in the
+	 * write-behind queue are left alone. This must only be used where the function
+	 * cannot observe these changes. Changes recorded by the transaction are
+	 * published when it has been committed. The time spent by the transaction is
+	 * recorded in the {@link #getMetrics() metrics}.
+	 */
+	private <T> T executeInTransaction(Function<EntityManager, T> function, boolean flushPending) {
+		if (sessionPool == null) {
+			throw new IllegalStateException("The Timekeeper database has not been connected");
 		}
-		T entity = null;
+		List<DatabaseChange> changes = null;
+		List<DatabaseChange> committed = null;
+		EntityManager em = sessionPool.acquire();
 		try {
-			entity = function.apply(em);
-		} catch (Exception e) {
-			transaction.setRollbackOnly();
-			throw new RuntimeException("Exception occured in TX", e);
-		} finally {
+			EntityTransaction transaction = em.getTransaction();
+			boolean joinTx = transaction.isActive();
+			if (!joinTx && flushPending && writeBehindQueue.hasPending()) {
+				flush();
+			}
+			long start = System.nanoTime();
 			if (!joinTx) {
-				if (transaction.getRollbackOnly()) {
-					transaction.rollback();
-				} else {
-					transaction.commit();
+				changes = new ArrayList<>();
+				transactionChanges.set(changes);
+				transaction.begin();
+			}
+			T entity = null;
+			try {
+				entity = function.apply(em);
+			} catch (Exception e) {
+				transaction.setRollbackOnly();
+				throw new RuntimeException("Exception occured in TX", e);
+			} finally {
+				if (!joinTx) {
+					transactionChanges.remove();
+					boolean rollback = transaction.getRollbackOnly();
+					try {
+						if (rollback) {
+							transaction.rollback();
+						} else {
+							transaction.commit();
+							committed = changes;
+						}
+					} finally {
+						metrics.getTransactions().record(System.nanoTime() - start, committed == null);
+					}
 				}
-//				em.close();
+			}
+			return entity;
+		} finally {
+			sessionPool.release(em);
+			if (committed != null && !committed.isEmpty()) {
+				publish(committed);
+			}
+		}
+	}
+
+	/**
+	 * Passes the changes on to the change handler.
+	 */
+	private void publish(List<DatabaseChange> changes) {
+		Consumer<List<DatabaseChange>> handler = changeHandler;
+		if (handler != null) {
+			try {
+				handler.accept(Collections.unmodifiableList(changes));
+			} catch (RuntimeException e) {
+				LOGGER.error("Could not publish database changes", e);
 			}
 		}
-		return entity;
 	}
 
 	boolean initialized() {
 		return (entityManagerFactory != null && entityManagerFactory.isOpen());
 	}
 
-	private <T> T saveEntityInTransaction(final T entity) {
+	/**
+	 * Waits for the attempt to connect to the database to complete, which may be
+	 * done in a separate thread.
+	 *
+	 * @param timeout the maximum time to wait
+	 * @param unit    the unit of the timeout
+	 * @return <code>true</code> if the database is connected
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	public boolean awaitConnection(long timeout, TimeUnit unit) throws InterruptedException {
+		connected.await(timeout, unit);
+		return initialized();
+	}
+
+	/**
+	 * Stores the state of the given entity. As entities are detached between
+	 * transactions they are merged rather than persisted. The entity instance
+	 * passed is returned so that callers keep working on the same instance.
+	 */
+	private <T> T saveEntityInTransaction(final T entity, DatabaseChange... changes) {
 		return executeInTransaction(em -> {
-			em.persist(entity);
+			em.merge(entity);
+			recordChange(em, changes);
 			return entity;
 		});
 
 	}
 
-	private <T> void deleteEntityInTransaction(T entity) {
+	private <T> void deleteEntityInTransaction(T entity, DatabaseChange... changes) {
 		executeInTransaction(em -> {
-			em.remove(entity);
+			em.remove(em.contains(entity) ? entity : em.merge(entity));
+			recordChange(em, changes);
 			return entity;
 		});
 	}
 
-	private <T> TypedQuery<T> createNamedQuery(String queryName, Class<T> entityType) {
+	/**
+	 * Increments the data version as part of the current transaction and adds the
+	 * given changes to the change log, so that other instances sharing the
+	 * database will learn what has been modified.
+	 */
+	private void recordChange(EntityManager em, DatabaseChange... changes) {
+		em.createNamedQuery("DataVersion.increment").executeUpdate();
+		long version = em.createNamedQuery("DataVersion.get", Long.class).getSingleResult();
+		for (DatabaseChange change : changes) {
+			em.persist(new ChangeLogEntry(version, origin, change.getEntityType().name(),
+					change.getChangeType().name(), change.getEntityId(), change.getTaskId()));
+		}
+		List<DatabaseChange> published = transactionChanges.get();
+		if (published != null) {
+			published.addAll(Arrays.asList(changes));
+		}
+		// this is our own change, unless another instance has written in between
+		if (version == dataVersion + 1) {
+			dataVersion = version;
+		}
+	}
+
+	/**
+	 * Reads the changes made by other instances if the data version has changed
+	 * since last seen. Cached entities affected by these changes are discarded
+	 * and the changes are passed on to the change handler. The data version is
+	 * only read if the validation interval has passed, unless <code>force</code>
+	 * is <code>true</code>.
+	 *
+	 * @return the changes made by other instances
+	 */
+	synchronized List<DatabaseChange> validateCaches(boolean force) {
+		long now = System.currentTimeMillis();
+		if (!force && now - lastValidation < cacheValidationInterval) {
+			return Collections.emptyList();
+		}
+		lastValidation = now;
+		long seen = dataVersion;
+		long version = executeInTransaction(
+				em -> em.createNamedQuery("DataVersion.get", Long.class).getSingleResult(), false);
+		if (version == seen) {
+			return Collections.emptyList();
+		}
+		dataVersion = version;
+		if (seen < 0) {
+			// nothing is known about the state of the caches
+			invalidateCaches();
+			return Collections.emptyList();
+		}
+		List<DatabaseChange> changes = executeInTransaction(em -> em
+				.createNamedQuery("ChangeLogEntry.findSince", ChangeLogEntry.class)
+				.setParameter("version", seen)
+				.setParameter("origin", origin)
+				.getResultStream()
+				.filter(e -> e.getVersion() <= version)
+				.map(DatabaseChange::of)
+				.collect(Collectors.toList()), false);
+		LOGGER.debug("Data version changed from {} to {} with {} changes from other instances", seen, version,
+				changes.size());
+		changes.forEach(this::invalidate);
+		if (!changes.isEmpty()) {
+			publish(changes);
+		}
+		return changes;
+	}
+
+	/**
+	 * Discards cached instances of the entity modified by another instance.
+	 */
+	private void invalidate(DatabaseChange change) {
+		Cache cache = entityManagerFactory.getCache();
+		if (change.getTaskId() != null) {
+			taskCache.invalidate(change.getTaskId());
+			linkCache.invalidate(change.getTaskId());
+			cache.evict(Task.class, change.getTaskId());
+		}
+		switch (change.getEntityType()) {
+		case ACTIVITY:
+			cache.evict(Activity.class, change.getEntityId());
+			break;
+		case LABEL:
+			labelCache.invalidateAll();
+			cache.evict(ActivityLabel.class, change.getEntityId());
+			break;
+		case PROJECT:
+			projectCache.invalidate(change.getEntityId());
+			cache.evict(Project.class, change.getEntityId());
+			break;
+		case ALL:
+			invalidateCaches();
+			break;
+		default:
+			break;
+		}
+	}
+
+	/**
+	 * Specifies the function to be notified about changes made to the database.
+	 * Changes made by this instance are passed on when committed, while changes
+	 * made by other instances sharing the database are passed on when detected.
+	 *
+	 * @param handler the change handler
+	 */
+	public void setChangeHandler(Consumer<List<DatabaseChange>> handler) {
+		this.changeHandler = handler;
+	}
+
+	/**
+	 * Returns the feed checking for changes made by other instances, which can be
+	 * used to obtain polling statistics.
+	 *
+	 * @return the change feed or <code>null</code> if not connected
+	 */
+	public ChangeFeed getChangeFeed() {
+		return changeFeed;
+	}
+
+	/**
+	 * Removes entries older than {@link #CHANGE_LOG_RETENTION} days from the change
+	 * log. Instances are expected to have read these long ago.
+	 */
+	private void pruneChangeLog() {
+		int removed = executeInTransaction(em -> em.createNamedQuery("ChangeLogEntry.deleteBefore")
+				.setParameter("time", LocalDateTime.now().minusDays(CHANGE_LOG_RETENTION))
+				.executeUpdate());
+		LOGGER.debug("Removed {} entries from the change log", removed);
+	}
+
+	private void invalidateCaches() {
+		getCaches().forEach(EntityCache::invalidateAll);
+		// the shared cache of EclipseLink is just as stale
+		entityManagerFactory.getCache().evictAll();
+	}
+
+	/**
+	 * Returns the caches of rarely changing entities, which can be used to obtain
+	 * hit and miss statistics.
+	 *
+	 * @return the entity caches
+	 */
+	public List<EntityCache<?, ?>> getCaches() {
+		return List.of(taskCache, linkCache, projectCache, projectTypeCache, labelCache);
+	}
+
+	/**
+	 * Returns the cache of tasks looked up by their identifier.
+	 *
+	 * @return the task cache
+	 */
+	public EntityCache<GlobalTaskId, Task> getTaskCache() {
+		return taskCache;
+	}
+
+	/**
+	 * Returns the cache of tasks that have been synchronized with their Mylyn task.
+	 *
+	 * @return the link cache
+	 */
+	public EntityCache<GlobalTaskId, Task> getLinkCache() {
+		return linkCache;
+	}
+
+	private <T> List<T> findAll(String queryName, Class<T> entityType) {
 		return executeInTransaction(em -> {
-			return em.createNamedQuery(queryName, entityType);
+			return em.createNamedQuery(queryName, entityType).getResultList();
 
 		});
 	}
@@ -141,22 +472,128 @@ public class TimekeeperService {
 		return executeInTransaction(em -> {
 			return em.find(entityType, pk);
 
-		});
+		}, false);
 	}
 
 	private void createEntityManager(Map<String, Object> props) {
 		try {
 			entityManagerFactory = new PersistenceProvider()
 					.createEntityManagerFactory("net.resheim.eclipse.timekeeper.db", props);
+			installProfiler();
+			sessionPool = new SessionPool(entityManagerFactory);
+			writeBehindQueue = new WriteBehindQueue(this::flush);
+			changeFeed = new ChangeFeed(() -> validateCaches(true));
+			LOGGER.info("Using a pool of at most {} database sessions", sessionPool.getMaxSize());
+			LOGGER.info("Writing changes to the database after {}ms", writeBehindQueue.getDelay());
+			LOGGER.info("Checking for changes made by other instances every {}ms", changeFeed.getInterval());
 		} catch (Exception e) {
 			LOGGER.error("Unable to create entity manager", e);
 		}
 	}
 
+	/**
+	 * Has the queries executed by EclipseLink timed and recorded in the metrics.
+	 */
+	private void installProfiler() {
+		try {
+			JpaHelper.getServerSession(entityManagerFactory).setProfiler(new QueryProfiler(metrics));
+		} catch (RuntimeException e) {
+			// the statistics are not vital
+			LOGGER.warn("Could not install query profiler", e);
+		}
+	}
+
+	/**
+	 * @return the timers and counters of the work done by the service
+	 */
+	public ServiceMetrics getMetrics() {
+		return metrics;
+	}
+
 	public void closePersistence() {
+		if (changeFeed != null) {
+			changeFeed.close();
+			LOGGER.info("Closing {}", changeFeed);
+		}
+		if (writeBehindQueue != null) {
+			writeBehindQueue.close();
+			LOGGER.info("Closing {}", writeBehindQueue);
+		}
+		getCaches().forEach(c -> LOGGER.info("Closing {}", c));
+		if (sessionPool != null) {
+			LOGGER.info("Closing {}", sessionPool);
+			sessionPool.close();
+		}
 		entityManagerFactory.close();
 	}
 
+	/**
+	 * Returns the pool of database sessions, which can be used to obtain usage
+	 * statistics.
+	 *
+	 * @return the session pool or <code>null</code> if not connected
+	 */
+	public SessionPool getSessionPool() {
+		return sessionPool;
+	}
+
+	/**
+	 * Returns the queue of changes waiting to be written, which can be used to
+	 * obtain flush statistics.
+	 *
+	 * @return the write-behind queue or <code>null</code> if not connected
+	 */
+	public WriteBehindQueue getWriteBehindQueue() {
+		return writeBehindQueue;
+	}
+
+	/**
+	 * Writes all changes waiting in the write-behind queue to the database in one
+	 * transaction. If this fails the changes are put back in the queue. Snapshots
+	 * of the tasks are written, as the tasks themselves may be modified while
+	 * this is going on.
+	 *
+	 * @return the number of tasks written
+	 */
+	public int flush() {
+		if (writeBehindQueue == null) {
+			return 0;
+		}
+		Map<Task, Task> batch = writeBehindQueue.drain();
+		if (batch.isEmpty()) {
+			return 0;
+		}
+		LOGGER.debug("Writing {} pending tasks", batch.size());
+		long start = System.nanoTime();
+		try {
+			executeInTransaction(em -> {
+				List<DatabaseChange> changes = new ArrayList<>();
+				batch.forEach((task, snapshot) -> changes.addAll(mergeTask(em, task, snapshot)));
+				recordChange(em, changes.toArray(new DatabaseChange[0]));
+				return batch.size();
+			}, false);
+		} catch (RuntimeException e) {
+			LOGGER.error("Could not write pending changes", e);
+			writeBehindQueue.requeue(batch.keySet());
+			return 0;
+		}
+		// only now have the periods that were written been accounted for
+		batch.forEach(Task::markPersisted);
+		writeBehindQueue.recordFlush(batch.size(), System.nanoTime() - start);
+		return batch.size();
+	}
+
+	/**
+	 * Adds the task to the write-behind queue so that it will be written along with
+	 * other changes made within the flush window.
+	 */
+	private void enqueue(Task task) {
+		if (writeBehindQueue == null) {
+			throw new IllegalStateException("The Timekeeper database has not been connected");
+		}
+		writeBehindQueue.add(task);
+	}
+
 	EntityManagerFactory getEntityManagerFactory() {
 		return entityManagerFactory;
 	}
@@ -172,41 +609,90 @@ public class TimekeeperService {
 	public Task getTask(ITask mylynTask) {
 		// the UI will typically attempt to get some task details before the database is
 		LOGGER.debug("Loading task for mylyn task [{}]", mylynTask);
-//		if (linkCache.containsKey(mylynTask)) {
-//			return linkCache.get(mylynTask);
-//		}
-		return executeInTransaction(em -> {
-			GlobalTaskId id = new GlobalTaskId(getRepositoryUrl(mylynTask), mylynTask.getTaskId());
-			Task task = findEntityByPk(id, Task.class);
-			// make sure there is a link between the two tasks, this would be the case if
-			// the tracked task was just
-			// loaded from the database
-
-//			linkCache.put(mylynTask, task);
-			Optional.ofNullable(task).ifPresent(t -> synchronizeTask(t, mylynTask));
-			return task;
-		});
+		GlobalTaskId id = getTaskId(mylynTask);
+		// the pending instance is more recent than what is in the database
+		if (writeBehindQueue == null || writeBehindQueue.get(id) == null) {
+			validateCaches(false);
+			Task linked = linkCache.get(id);
+			if (linked != null) {
+				return linked;
+			}
+		}
+		// make sure there is a link between the two tasks, this would be the case if
+		// the tracked task was just loaded from the database
+		Task task = getTask(id);
+		if (task != null) {
+			synchronizeTask(task, mylynTask);
+			linkCache.put(id, task);
+		}
+		return task;
+	}
+
+	/**
+	 * Discards the link between the given Mylyn task and its Timekeeper task,
+	 * typically because the Mylyn task has been modified. The two are
+	 * synchronized again the next time the task is requested.
+	 *
+	 * @param mylynTask the Mylyn task
+	 */
+	public void invalidateLink(ITask mylynTask) {
+		linkCache.invalidate(getTaskId(mylynTask));
+	}
+
+	private GlobalTaskId getTaskId(ITask mylynTask) {
+		return new GlobalTaskId(getRepositoryUrl(mylynTask), mylynTask.getTaskId());
+	}
+
+	/**
+	 * Returns the Timekeeper {@link Task} with the given identifier. Changes that
+	 * have not yet been written are included.
+	 *
+	 * @param id the task identifier
+	 * @return the task or <code>null</code> if not found
+	 */
+	public Task getTask(GlobalTaskId id) {
+		// the pending instance is more recent than what is in the database
+		Task pending = writeBehindQueue == null ? null : writeBehindQueue.get(id);
+		if (pending != null) {
+			return pending;
+		}
+		validateCaches(false);
+		Task task = taskCache.get(id);
+		if (task == null) {
+			task = executeInTransaction(em -> loadActivities(em.find(Task.class, id)), false);
+			taskCache.put(id, task);
+		}
+		return task;
+	}
+
+	/**
+	 * Loads the lazily fetched activities of the task while the session is still
+	 * open, so that this does not happen on the thread the task is handed to,
+	 * which is typically the display thread.
+	 */
+	private static Task loadActivities(Task task) {
+		if (task != null) {
+			task.getActivities().size();
+		}
+		return task;
 	}
 
 	private Task synchronizeTask(Task task, ITask mylynTask) {
-		if (!task.getTaskSummary().equals(mylynTask.getSummary())) {
+		// only write when the summary has actually changed
+		if (!Objects.equals(task.getTaskSummary(), mylynTask.getSummary())) {
 			task.setTaskSummary(mylynTask.getSummary());
-			saveEntityInTransaction(task);
+			enqueue(task);
 		}
-		saveEntityInTransaction(task);
 		return task;
 	}
 
 	public Task createTask(ITask task) {
 		// the UI will typically attempt to get some task details before the database is
 		LOGGER.debug("Creating task for mylyn task [{}]", task);
-		return executeInTransaction(em -> {
-			// no such tracked task exists, create one
-			Task tt = createTaskInternal(task);
-			saveEntityInTransaction(tt);
-//			linkCache.put(task, tt);
-			return tt;
-		});
+		// no such tracked task exists, create one
+		Task tt = createTaskInternal(task);
+		enqueue(tt);
+		return tt;
 	}
 
 	private Task createTaskInternal(ITask mylynTask) {
@@ -258,6 +744,14 @@ public class TimekeeperService {
 	}
 
 	private String getWorkspaceUuid() {
+		String uuid = workspaceUuid;
+		if (uuid == null) {
+			uuid = workspaceUuid = loadWorkspaceUuid();
+		}
+		return uuid == null ? "" : uuid;
+	}
+
+	private String loadWorkspaceUuid() {
 		IWorkspace workspace = ResourcesPlugin.getWorkspace();
 		QualifiedName qname = new QualifiedName(PLUGIN_ID, KEY_UUID);
 		try {
@@ -270,12 +764,456 @@ public class TimekeeperService {
 		} catch (CoreException e) {
 			LOGGER.error("Unable to set workspace UUID");
 		}
-		return "";
+		return null;
 	}
 
 	public Task persistTask(Task task) {
 		LOGGER.debug("Persisting task [{}]", task);
-		return saveEntityInTransaction(task);
+		Task snapshot = task.snapshot();
+		executeInTransaction(em -> {
+			recordChange(em, mergeTask(em, task, snapshot).toArray(new DatabaseChange[0]));
+			return task;
+		});
+		task.markPersisted(snapshot);
+		return task;
+	}
+
+	/**
+	 * Merges the state of the given snapshot of a task and it's activities, and
+	 * updates the daily totals for activities that have been modified. The task
+	 * itself is only used to update the caches.
+	 *
+	 * @return the changes made
+	 */
+	private List<DatabaseChange> mergeTask(EntityManager em, Task task, Task snapshot) {
+		List<DatabaseChange> changes = new ArrayList<>();
+		if (em.find(Task.class, new GlobalTaskId(snapshot.getRepositoryUrl(), snapshot.getTaskId())) == null) {
+			changes.add(DatabaseChange.of(ChangeType.CREATED, snapshot));
+		}
+		List<Activity> modified = new ArrayList<>();
+		for (Activity activity : snapshot.getActivities()) {
+			if (activity.isPeriodModified()) {
+				modified.add(activity);
+				changes.add(DatabaseChange.of(getChangeType(activity), activity, snapshot));
+			}
+		}
+		if (changes.isEmpty()) {
+			changes.add(DatabaseChange.of(ChangeType.UPDATED, snapshot));
+		}
+		em.merge(snapshot);
+		updateDailyTotals(em, snapshot, modified, Collections.emptySet());
+		GlobalTaskId id = new GlobalTaskId(task.getRepositoryUrl(), task.getTaskId());
+		taskCache.put(id, task);
+		// another instance may have been merged, have it synchronized again
+		linkCache.invalidate(id);
+		return changes;
+	}
+
+	/**
+	 * Determines how the period of the activity has been modified since it was
+	 * last written.
+	 */
+	private static ChangeType getChangeType(Activity activity) {
+		if (activity.getPersistedStart() == null) {
+			return activity.getEnd() == null ? ChangeType.STARTED : ChangeType.CREATED;
+		}
+		if (activity.getPersistedEnd() == null && activity.getEnd() != null) {
+			return ChangeType.ENDED;
+		}
+		return ChangeType.UPDATED;
+	}
+
+	/**
+	 * Removes the task from the cache, as the detached instance may no longer be
+	 * in sync with the changes made to one of it's activities.
+	 */
+	private void invalidateTask(Task task) {
+		if (task != null) {
+			GlobalTaskId id = new GlobalTaskId(task.getRepositoryUrl(), task.getTaskId());
+			taskCache.invalidate(id);
+			linkCache.invalidate(id);
+		}
+	}
+
+	/**
+	 * Persists changes made to the given activity and updates the daily totals
+	 * accordingly.
+	 * 
+	 * @param activity the modified activity
+	 * @return the activity
+	 */
+	public Activity updateActivity(Activity activity) {
+		LOGGER.debug("Updating activity [{}]", activity);
+		return executeInTransaction(em -> {
+			Task task = resolveTask(em, activity);
+			em.merge(activity);
+			if (task != null) {
+				updateDailyTotals(em, task, Collections.singleton(activity), Collections.emptySet());
+			}
+			recordChange(em, DatabaseChange.of(ChangeType.UPDATED, activity, task));
+			invalidateTask(task);
+			return activity;
+		});
+	}
+
+	/**
+	 * Removes the given activity from it's task and from the database. The daily
+	 * totals are updated accordingly.
+	 * 
+	 * @param activity the activity to remove
+	 */
+	public void removeActivity(Activity activity) {
+		LOGGER.debug("Removing activity [{}]", activity);
+		executeInTransaction(em -> {
+			Set<LocalDate> dates = new TreeSet<>();
+			addDates(dates, activity.getPersistedStart(), activity.getPersistedEnd());
+			addDates(dates, activity.getStart(), activity.getEnd());
+			Set<String> labels = new HashSet<>();
+			activity.getLabels().forEach(l -> labels.add(l.getId()));
+			// update the detached instances held by the caller
+			Task detached = activity.getTrackedTask();
+			if (detached != null) {
+				detached.removeActivity(activity);
+			}
+			Activity managed = em.find(Activity.class, activity.getId());
+			if (managed == null) {
+				return activity;
+			}
+			Task task = resolveTask(em, managed);
+			// labels are shared between activities, so they must not be cascaded
+			managed.getLabels().forEach(l -> labels.add(l.getId()));
+			managed.getLabels().clear();
+			if (task != null) {
+				task.getActivities().remove(managed);
+				if (task.getCurrentActivity().filter(managed::equals).isPresent()) {
+					task.endActivity();
+				}
+			}
+			em.remove(managed);
+			if (task != null) {
+				recalculateDailyTotals(em, task, dates, labels);
+			}
+			recordChange(em, DatabaseChange.of(ChangeType.REMOVED, activity, task));
+			invalidateTask(task);
+			invalidateTask(detached);
+			return activity;
+		});
+	}
+
+	/**
+	 * Adds the label to the activity if not already present, otherwise the label
+	 * is removed. The label totals are updated accordingly.
+	 * 
+	 * @param activity the activity to label
+	 * @param label    the label to toggle
+	 */
+	public void toggleLabel(Activity activity, ActivityLabel label) {
+		executeInTransaction(em -> {
+			Task task = resolveTask(em, activity);
+			activity.toggleLabel(label);
+			em.merge(activity);
+			if (task != null) {
+				updateDailyTotals(em, task, Collections.singleton(activity), Collections.singleton(label.getId()));
+			}
+			recordChange(em, DatabaseChange.of(ChangeType.UPDATED, activity, task));
+			invalidateTask(task);
+			return activity;
+		});
+	}
+
+	/**
+	 * Returns the task owning the given activity, looking it up in the database if
+	 * the relation has not been established.
+	 */
+	private Task resolveTask(EntityManager em, Activity activity) {
+		if (activity.getTrackedTask() != null || activity.getId() == null) {
+			return activity.getTrackedTask();
+		}
+		return em.createNamedQuery("Task.findByActivity", Task.class)
+				.setParameter("id", activity.getId())
+				.getResultStream()
+				.findFirst()
+				.orElse(null);
+	}
+
+	/**
+	 * Recalculates the daily totals affected by changes to the given activities.
+	 * Both the dates the activities used to span and the dates they span now are
+	 * recalculated, along with the totals for labels of these activities and the
+	 * additional labels specified.
+	 */
+	private void updateDailyTotals(EntityManager em, Task task, Collection<Activity> activities,
+			Set<String> labels) {
+		if (activities.isEmpty() && labels.isEmpty()) {
+			return;
+		}
+		// determine the affected dates before the changes are flushed
+		Set<LocalDate> dates = new TreeSet<>();
+		Set<String> allLabels = new HashSet<>(labels);
+		for (Activity activity : activities) {
+			addDates(dates, activity.getPersistedStart(), activity.getPersistedEnd());
+			addDates(dates, activity.getStart(), activity.getEnd());
+			activity.getLabels().forEach(l -> allLabels.add(l.getId()));
+		}
+		recalculateDailyTotals(em, task, dates, allLabels);
+		activities.forEach(Activity::markPersisted);
+	}
+
+	/**
+	 * Recalculates the totals for the given task and labels at the given dates.
+	 * Totals that amount to nothing are removed. The existing totals and the
+	 * labelled activities are read with one query each, spanning all the dates.
+	 */
+	private void recalculateDailyTotals(EntityManager em, Task task, Set<LocalDate> dates, Set<String> labels) {
+		if (dates.isEmpty()) {
+			return;
+		}
+		LocalDate first = Collections.min(dates);
+		LocalDate last = Collections.max(dates).plusDays(1);
+		String project = task.getProject() == null ? null : task.getProject().getName();
+		Map<LocalDate, TaskDailyTotal> taskTotals = em
+				.createNamedQuery("TaskDailyTotal.findByTaskAndPeriod", TaskDailyTotal.class)
+				.setParameter("repositoryUrl", task.getRepositoryUrl())
+				.setParameter("taskId", task.getTaskId())
+				.setParameter("start", first)
+				.setParameter("end", last)
+				.getResultStream()
+				.collect(Collectors.toMap(TaskDailyTotal::getWorkDate, Function.identity()));
+		for (LocalDate date : dates) {
+			long from = Activity.toSeconds(date);
+			long seconds = 0;
+			for (Activity activity : task.getActivities()) {
+				if (activity.getEnd() != null) {
+					seconds += activity.secondsOverlapping(from, from + Activity.SECONDS_PER_DAY);
+				}
+			}
+			TaskDailyTotal total = taskTotals.get(date);
+			if (seconds == 0) {
+				if (total != null) {
+					em.remove(total);
+				}
+				continue;
+			}
+			if (total == null) {
+				total = new TaskDailyTotal(task, date);
+				em.persist(total);
+			}
+			total.setProject(project);
+			total.setSeconds(seconds);
+		}
+		if (labels.isEmpty()) {
+			return;
+		}
+		Map<LabelDailyTotalId, Long> labelSeconds = new HashMap<>();
+		em.createNamedQuery("Activity.findEndedByLabelsAndPeriod", Object[].class)
+				.setParameter("labels", labels)
+				.setParameter("start", first.atStartOfDay())
+				.setParameter("end", last.atStartOfDay())
+				.getResultStream()
+				.forEach(row -> {
+					Activity activity = (Activity) row[0];
+					for (LocalDate date : dates) {
+						long from = Activity.toSeconds(date);
+						long seconds = activity.secondsOverlapping(from, from + Activity.SECONDS_PER_DAY);
+						if (seconds > 0) {
+							labelSeconds.merge(new LabelDailyTotalId((String) row[1], date), seconds, Long::sum);
+						}
+					}
+				});
+		Map<LabelDailyTotalId, LabelDailyTotal> labelTotals = em
+				.createNamedQuery("LabelDailyTotal.findByLabelsAndPeriod", LabelDailyTotal.class)
+				.setParameter("labels", labels)
+				.setParameter("start", first)
+				.setParameter("end", last)
+				.getResultStream()
+				.collect(Collectors.toMap(d -> new LabelDailyTotalId(d.getLabelId(), d.getWorkDate()),
+						Function.identity()));
+		for (String label : labels) {
+			for (LocalDate date : dates) {
+				LabelDailyTotalId id = new LabelDailyTotalId(label, date);
+				long seconds = labelSeconds.getOrDefault(id, 0L);
+				LabelDailyTotal total = labelTotals.get(id);
+				if (seconds == 0) {
+					if (total != null) {
+						em.remove(total);
+					}
+					continue;
+				}
+				if (total == null) {
+					total = new LabelDailyTotal(label, date);
+					em.persist(total);
+				}
+				total.setSeconds(seconds);
+			}
+		}
+	}
+
+	/**
+	 * Adds all dates spanned by the given period, unless the period has not ended.
+	 */
+	private static void addDates(Set<LocalDate> dates, LocalDateTime start, LocalDateTime end) {
+		if (start == null || end == null) {
+			return;
+		}
+		for (LocalDate date = start.toLocalDate(); !date.isAfter(end.toLocalDate()); date = date.plusDays(1)) {
+			dates.add(date);
+		}
+	}
+
+	/**
+	 * Returns the time spent per task, project and label for each date in the given
+	 * period. Totals for activities that have ended are read from the daily rollup,
+	 * while activities that are still running are added when looked up.
+	 * 
+	 * @param startDate the first day of the period
+	 * @param endDate   the first day after the period
+	 * @return the daily totals
+	 */
+	public DailyTotals getDailyTotals(LocalDate startDate, LocalDate endDate) {
+		LOGGER.debug("Loading daily totals from [{}] until [{}]", startDate, endDate);
+		return executeInTransaction(em -> {
+			DailyTotals totals = new DailyTotals(startDate, endDate);
+			em.createNamedQuery("TaskDailyTotal.findByPeriod", TaskDailyTotal.class)
+					.setParameter("start", startDate)
+					.setParameter("end", endDate)
+					.getResultStream()
+					.forEach(d -> totals.addTask(new GlobalTaskId(d.getRepositoryUrl(), d.getTaskId()),
+							d.getProject(), d.getWorkDate(), d.getSeconds()));
+			em.createNamedQuery("LabelDailyTotal.findByPeriod", LabelDailyTotal.class)
+					.setParameter("start", startDate)
+					.setParameter("end", endDate)
+					.getResultStream()
+					.forEach(d -> totals.addLabel(d.getLabelId(), d.getWorkDate(), d.getSeconds()));
+			em.createNamedQuery("Task.findRunningActivities", Object[].class)
+					.setParameter("end", endDate.atStartOfDay())
+					.getResultStream()
+					.forEach(r -> totals.addRunning((Task) r[0], (Activity) r[1]));
+			return totals;
+		});
+	}
+
+	/**
+	 * Discards and recalculates all daily totals from the recorded activities.
+	 */
+	public void rebuildDailyTotals() {
+		executeInTransaction(em -> {
+			rebuildDailyTotals(em);
+			return null;
+		});
+	}
+
+	/**
+	 * Recalculates all daily totals as part of the current transaction. Other
+	 * instances writing to the database wait until the transaction has completed.
+	 * Tasks are loaded in batches, so that only the totals are held in memory.
+	 */
+	private void rebuildDailyTotals(EntityManager em) {
+		LOGGER.info("Rebuilding daily totals");
+		em.createNamedQuery("DataVersion.lock").executeUpdate();
+		Map<TaskDailyTotalId, TaskDailyTotal> tasks = new HashMap<>();
+		Map<LabelDailyTotalId, LabelDailyTotal> labels = new HashMap<>();
+		for (int first = 0;; first += REBUILD_BATCH_SIZE) {
+			List<Task> batch = em.createNamedQuery("Task.findAllOrdered", Task.class)
+					.setFirstResult(first)
+					.setMaxResults(REBUILD_BATCH_SIZE)
+					.setHint(QueryHints.BATCH_TYPE, BatchFetchType.IN)
+					.setHint(QueryHints.BATCH, "t.activities") //$NON-NLS-1$
+					.setHint(QueryHints.BATCH, "t.activities.labels") //$NON-NLS-1$
+					.getResultList();
+			for (Task task : batch) {
+				String project = task.getProject() == null ? null : task.getProject().getName();
+				for (Activity activity : task.getActivities()) {
+					Set<LocalDate> dates = new TreeSet<>();
+					addDates(dates, activity.getStart(), activity.getEnd());
+					for (LocalDate date : dates) {
+						long from = Activity.toSeconds(date);
+						long seconds = activity.secondsOverlapping(from, from + Activity.SECONDS_PER_DAY);
+						if (seconds == 0) {
+							continue;
+						}
+						TaskDailyTotal total = tasks.computeIfAbsent(new TaskDailyTotalId(task, date),
+								id -> new TaskDailyTotal(task, date));
+						total.setProject(project);
+						total.setSeconds(total.getSeconds() + seconds);
+						for (ActivityLabel label : activity.getLabels()) {
+							LabelDailyTotal labelTotal = labels.computeIfAbsent(
+									new LabelDailyTotalId(label.getId(), date),
+									id -> new LabelDailyTotal(label.getId(), date));
+							labelTotal.setSeconds(labelTotal.getSeconds() + seconds);
+						}
+					}
+					activity.markPersisted();
+				}
+			}
+			// nothing has been modified, so the loaded tasks can simply be let go
+			em.clear();
+			if (batch.size() < REBUILD_BATCH_SIZE) {
+				break;
+			}
+		}
+		// update existing records in place so that the persistence context stays
+		// consistent, then remove those that are no longer valid
+		for (TaskDailyTotal existing : em.createNamedQuery("TaskDailyTotal.findAll", TaskDailyTotal.class)
+				.getResultList()) {
+			TaskDailyTotal total = tasks.remove(new TaskDailyTotalId(existing.getRepositoryUrl(),
+					existing.getTaskId(), existing.getWorkDate()));
+			if (total == null) {
+				em.remove(existing);
+			} else {
+				existing.setProject(total.getProject());
+				existing.setSeconds(total.getSeconds());
+			}
+		}
+		for (LabelDailyTotal existing : em.createNamedQuery("LabelDailyTotal.findAll", LabelDailyTotal.class)
+				.getResultList()) {
+			LabelDailyTotal total = labels
+					.remove(new LabelDailyTotalId(existing.getLabelId(), existing.getWorkDate()));
+			if (total == null) {
+				em.remove(existing);
+			} else {
+				existing.setSeconds(total.getSeconds());
+			}
+		}
+		tasks.values().forEach(em::persist);
+		labels.values().forEach(em::persist);
+	}
+
+	/**
+	 * Rebuilds the daily totals if activities have been recorded before the
+	 * rollup was introduced. The totals are counted while holding the lock taken
+	 * when rebuilding, so that instances starting at the same time on a shared
+	 * database do not both rebuild them.
+	 */
+	private void initializeDailyTotals() {
+		try {
+			executeInTransaction(em -> {
+				em.createNamedQuery("DataVersion.lock").executeUpdate();
+				long totals = em.createNamedQuery("TaskDailyTotal.count", Long.class).getSingleResult();
+				if (totals == 0
+						&& em.createNamedQuery("Activity.countEnded", Long.class).getSingleResult() > 0) {
+					rebuildDailyTotals(em);
+				}
+				return null;
+			});
+		} catch (RuntimeException e) {
+			if (!hasSQLState(e, DUPLICATE_KEY, LOCK_TIMEOUT)) {
+				throw e;
+			}
+			LOGGER.info("The daily totals have been rebuilt by another instance");
+		}
+	}
+
+	/**
+	 * Returns whether the exception was caused by an SQL error having one of the
+	 * given states.
+	 */
+	private static boolean hasSQLState(Throwable e, String... states) {
+		for (Throwable t = e; t != null; t = t.getCause()) {
+			if (t instanceof SQLException && Arrays.asList(states).contains(((SQLException) t).getSQLState())) {
+				return true;
+			}
+		}
+		return false;
 	}
 
 	public Task endTaskActivity(ITask mylynTask, LocalDateTime endTime, boolean reactivate) {
@@ -285,112 +1223,252 @@ public class TimekeeperService {
 		if (reactivate) {
 			task.startActivity();
 		}
-		persistTask(task);
+		enqueue(task);
 		return task;
 
 	}
 
 	/**
-	 * Exports Timekeeper related data to two separate CSV files. One for
-	 * {@link Task}, another for {@link Activity} instances and yet another for the
-	 * relations between these two.
-	 * 
-	 * TODO: Compress into zip
-	 * 
-	 * @param path the path to the directory
-	 * @throws IOException
+	 * Exports all Timekeeper data to a single zip archive with one CSV file per
+	 * table. Rows are streamed into the archive, so the export does not need to
+	 * hold the content of the database in memory.
+	 *
+	 * @param file the archive file to create
+	 * @return the number of tasks and activities exported
+	 * @throws IOException if the archive could not be written
+	 * @see #exportTo(Path, IProgressMonitor)
 	 */
-	public int exportTo(Path path) throws IOException {
-		if (!path.toFile().exists()) {
-			Files.createDirectory(path);
+	public int exportTo(Path file) throws IOException {
+		return exportTo(file, null);
+	}
+
+	/**
+	 * Exports all Timekeeper data to a single zip archive with one CSV file per
+	 * table. Rows are streamed into the archive, so the export does not need to
+	 * hold the content of the database in memory. Changes waiting to be written
+	 * are included.
+	 *
+	 * @param file    the archive file to create
+	 * @param monitor the progress monitor, may be <code>null</code>
+	 * @return the number of tasks and activities exported
+	 * @throws IOException if the archive could not be written
+	 */
+	public int exportTo(Path file, IProgressMonitor monitor) throws IOException {
+		flush();
+		try (Connection connection = openConnection()) {
+			DataArchive archive = new DataArchive(connection);
+			archive.write(file, monitor);
+			return archive.getRecordCount();
+		} catch (SQLException e) {
+			throw new IOException("Could not export the Timekeeper database", e);
 		}
-		Path tasks = path.resolve("trackedtask.csv");
-		Path activities = path.resolve("activity.csv");
-		Path relations = path.resolve("trackedtask_activity.csv");
+	}
 
-		return executeInTransaction(em -> {
-			int tasksExported = em.createNativeQuery("CALL CSVWRITE('" + tasks + "', 'SELECT * FROM TRACKEDTASK');")
-					.executeUpdate();
-			int activitiesExported = em
-					.createNativeQuery("CALL CSVWRITE('" + activities + "', 'SELECT * FROM ACTIVITY');")
-					.executeUpdate();
-			// relations are not automatically created, so we do this the easy way
-			em.createNativeQuery("CALL CSVWRITE('" + relations + "', 'SELECT * FROM TRACKEDTASK_ACTIVITY');")
-					.executeUpdate();
-			return tasksExported + activitiesExported;
+	/**
+	 * Exports the activities changed since the given watermark to a zip archive,
+	 * along with the tasks, projects and relations these depend on. Activities
+	 * removed since the watermark are also listed, so that importing the archive
+	 * brings another database up to date with the changes. If the change log no
+	 * longer covers the watermark, all data is exported.
+	 *
+	 * @param file      the archive file to create
+	 * @param watermark the watermark of the previously exported archive
+	 * @param monitor   the progress monitor, may be <code>null</code>
+	 * @return the number of tasks and activities exported
+	 * @throws IOException if the archive could not be written
+	 * @see #getWatermark(Path)
+	 */
+	public int exportChanges(Path file, long watermark, IProgressMonitor monitor) throws IOException {
+		flush();
+		try (Connection connection = openConnection()) {
+			DataArchive archive = new DataArchive(connection);
+			archive.writeChanges(file, watermark, monitor);
+			return archive.getRecordCount();
+		} catch (SQLException e) {
+			throw new IOException("Could not export the Timekeeper database", e);
+		}
+	}
 
-		});
+	/**
+	 * Exports the activities overlapping the given period to a zip archive, along
+	 * with the tasks, projects and relations these depend on.
+	 *
+	 * @param file    the archive file to create
+	 * @param from    the first day of the period
+	 * @param to      the day after the last day of the period
+	 * @param monitor the progress monitor, may be <code>null</code>
+	 * @return the number of tasks and activities exported
+	 * @throws IOException if the archive could not be written
+	 */
+	public int exportTo(Path file, LocalDate from, LocalDate to, IProgressMonitor monitor) throws IOException {
+		flush();
+		try (Connection connection = openConnection()) {
+			DataArchive archive = new DataArchive(connection);
+			archive.writePeriod(file, from, to, monitor);
+			return archive.getRecordCount();
+		} catch (SQLException e) {
+			throw new IOException("Could not export the Timekeeper database", e);
+		}
 	}
 
 	/**
-	 * Import and merge records from the specified location.
-	 * 
-	 * @param path root location of the
-	 * @return
-	 * @throws IOException
+	 * Returns the watermark recorded in the manifest of an exported archive.
+	 * Passing this to {@link #exportChanges(Path, long, IProgressMonitor)}
+	 * exports the changes made after the archive was created.
+	 *
+	 * @param file the archive file
+	 * @return the watermark, or -1 if not known
+	 * @throws IOException if the archive could not be read
+	 */
+	public long getWatermark(Path file) throws IOException {
+		DataArchive archive = new DataArchive(null);
+		archive.readManifest(file);
+		return archive.getWatermark();
+	}
+
+	/**
+	 * Imports and merges the content of an archive created by
+	 * {@link #exportTo(Path)}.
+	 *
+	 * @param file the archive file
+	 * @return the number of tasks and activities merged or created
+	 * @throws IOException if the archive could not be imported
+	 * @see #importFrom(Path, IProgressMonitor)
 	 */
-	public int importFrom(Path path) throws IOException {
-		Path tasks = path.resolve("trackedtask.csv");
-		Path activities = path.resolve("activity.csv");
-		Path relations = path.resolve("trackedtask_activity.csv");
-		if (!tasks.toFile().exists()) {
-			throw new IOException("'trackedtask.csv' does not exist in the specified location.");
+	public int importFrom(Path file) throws IOException {
+		return importFrom(file, null);
+	}
+
+	/**
+	 * Imports and merges the content of an archive created by
+	 * {@link #exportTo(Path)} or one of the delta exports. The rows are merged in
+	 * batches that are committed separately, so that the database is not locked
+	 * for the duration of the import. Rows that have been merged are kept if the
+	 * import fails or is cancelled. Cached entities are discarded when done, so
+	 * that these are loaded with the imported content when next requested. When
+	 * importing a delta, only the daily totals of the affected tasks and dates
+	 * are recalculated.
+	 *
+	 * @param file    the archive file
+	 * @param monitor the progress monitor, may be <code>null</code>
+	 * @return the number of tasks and activities merged or created
+	 * @throws IOException if the archive could not be imported
+	 */
+	public int importFrom(Path file, IProgressMonitor monitor) throws IOException {
+		if (!Files.isRegularFile(file)) {
+			throw new IOException("'" + file + "' does not exist.");
 		}
-		if (!activities.toFile().exists()) {
-			throw new IOException("'activity.csv' does not exist in the specified location.");
+		flush();
+		try (Connection connection = openConnection()) {
+			DataArchive archive = new DataArchive(connection);
+			try {
+				archive.read(file, monitor);
+			} finally {
+				importCompleted(archive);
+			}
+			return archive.getRecordCount();
+		} catch (SQLException e) {
+			throw new IOException("Could not import into the Timekeeper database", e);
 		}
-		if (!relations.toFile().exists()) {
-			throw new IOException("'trackedtask_activity.csv' does not exist in the specified location.");
+	}
+
+	/**
+	 * Lets other instances and listeners know what may have changed, and
+	 * recalculates what is derived from the imported rows.
+	 */
+	private void importCompleted(DataArchive archive) {
+		if (!archive.isDelta()) {
+			executeInTransaction(em -> {
+				recordChange(em, DatabaseChange.all());
+				return null;
+			});
+			invalidateCaches();
+			// the imported activities are not reflected in the daily totals
+			rebuildDailyTotals();
+			return;
 		}
-		return executeInTransaction(em -> {
-			em.createNativeQuery("SET REFERENTIAL_INTEGRITY FALSE;").executeUpdate();
-			int tasksImported = em.createNativeQuery("MERGE INTO TRACKEDTASK (SELECT * FROM CSVREAD('" + tasks + "'));")
-					.executeUpdate();
-			int activitiesImported = em
-					.createNativeQuery("MERGE INTO ACTIVITY (SELECT * FROM CSVREAD('" + activities + "'));")
-					.executeUpdate();
-			em.createNativeQuery("MERGE INTO TRACKEDTASK_ACTIVITY (SELECT * FROM CSVREAD('" + relations + "'));")
-					.executeUpdate();
-			em.createNativeQuery("SET REFERENTIAL_INTEGRITY TRUE;").executeUpdate();
-			// update all instances with potentially new content
-			TypedQuery<Task> createQuery = em.createNamedQuery("Task.findAll", Task.class);
-			List<Task> resultList = createQuery.getResultList();
-			for (Task trackedTask : resultList) {
-				em.refresh(trackedTask);
+		if (archive.getRowCount() == 0) {
+			return;
+		}
+		invalidateCaches();
+		Set<GlobalTaskId> tasks = archive.getAffectedTasks();
+		// recorded per entity, so that the next delta can be determined from the log
+		List<DatabaseChange> changes = new ArrayList<>();
+		tasks.forEach(id -> changes.add(
+				new DatabaseChange(DatabaseChange.EntityType.TASK, ChangeType.UPDATED, id.getTaskId(), id, false)));
+		archive.getAffectedProjects().forEach(name -> changes.add(
+				new DatabaseChange(DatabaseChange.EntityType.PROJECT, ChangeType.UPDATED, name, null, false)));
+		archive.getAffectedLabels().forEach(id -> changes.add(
+				new DatabaseChange(DatabaseChange.EntityType.LABEL, ChangeType.UPDATED, id, null, false)));
+		if (changes.isEmpty()) {
+			changes.add(DatabaseChange.all());
+		}
+		executeInTransaction(em -> {
+			recordChange(em, changes.toArray(new DatabaseChange[0]));
+			Set<String> labels = em.createNamedQuery("ActivityLabel.findAll", ActivityLabel.class)
+					.getResultStream()
+					.map(ActivityLabel::getId)
+					.collect(Collectors.toSet());
+			for (GlobalTaskId id : tasks) {
+				Task task = em.find(Task.class, id);
+				if (task != null) {
+					recalculateDailyTotals(em, task, archive.getAffectedDates(), labels);
+					// the label totals span all tasks
+					labels = Collections.emptySet();
+				}
 			}
-			return tasksImported + activitiesImported;
-
+			return null;
 		});
 	}
 
+	/**
+	 * Opens a plain connection to the database, for work that does not involve
+	 * entities.
+	 */
+	private Connection openConnection() throws SQLException {
+		Properties info = new Properties();
+		info.put("user", "sa"); //$NON-NLS-1$ //$NON-NLS-2$
+		info.put("password", ""); //$NON-NLS-1$ //$NON-NLS-2$
+		return new Driver().connect(jdbcUrl, info);
+	}
+
 	private void connectToDatabase(String jdbcUrl, boolean startInThread) {
 		Runnable runnable = () -> {
 			LOGGER.info("Connecting to Timekeeper database");
 			Map<String, Object> props = new HashMap<String, Object>();
-			try {
+			// the connection is held until the entity manager factory has logged in, so
+			// that an in-memory database is not dropped in between
+			try (Connection connection = openConnection()) {
 				LOGGER.info("Using database at '{}'", jdbcUrl);
-
-				// baseline the database
-				// Flyway flyway = Flyway.configure()
-				// .dataSource(jdbc_url, "sa", "")
-				// .baselineOnMigrate(false)
-				// .locations("classpath:/db/").load();
-				// flyway.migrate();
+				// bring the schema up to date, EclipseLink will not touch it
+				try (Connection lock = openConnection()) {
+					new SchemaMigrator().migrate(connection, lock);
+				}
 				// https://www.eclipse.org/forums/index.php?t=msg&goto=541155&
 				props.put(PersistenceUnitProperties.CLASSLOADER, TimekeeperService.class.getClassLoader());
 				props.put(PersistenceUnitProperties.JDBC_URL, jdbcUrl);
 				props.put(PersistenceUnitProperties.JDBC_DRIVER, "org.h2.Driver");
 				props.put(PersistenceUnitProperties.JDBC_USER, "sa");
 				props.put(PersistenceUnitProperties.JDBC_PASSWORD, "");
-				props.put(PersistenceUnitProperties.LOGGING_LEVEL, "fine"); // fine / fine
-				// we want Flyway to create the database, it gives us better control over
-				// migrating?
-				// props.put(PersistenceUnitProperties.DDL_GENERATION, "create-tables");
-				// props.put(PersistenceUnitProperties.JAVASE_DB_INTERACTION, "true");
+				// detailed logging is expensive, so only enable it when asked for
+				props.put(PersistenceUnitProperties.LOGGING_LEVEL,
+						System.getProperty(PROP_LOGGING_LEVEL, DEFAULT_LOGGING_LEVEL));
+				// pending changes are written in one go, so let the driver batch them
+				props.put(PersistenceUnitProperties.BATCH_WRITING, "JDBC");
+				props.put(PersistenceUnitProperties.DDL_GENERATION, PersistenceUnitProperties.NONE);
 				createEntityManager(props);
+				if (initialized()) {
+					initializeDailyTotals();
+					pruneChangeLog();
+					// establish the data version before looking for changes
+					validateCaches(true);
+					changeFeed.start();
+				}
 				LOGGER.info("Database connection established");
 			} catch (Exception e) {
 				throw new RuntimeException("Could not connect to Timekeeper database at " + jdbcUrl, e);
+			} finally {
+				connected.countDown();
 			}
 
 		};
@@ -403,21 +1481,58 @@ public class TimekeeperService {
 	}
 
 	/**
-	 * Return all tracked tasks, those that are associated with a Mylyn task will
-	 * have the proper assignment.
+	 * Return all tracked tasks that have activities during the week starting at
+	 * the given date. Those that are associated with a Mylyn task will have the
+	 * proper assignment.
 	 * 
+	 * @param startDate the first day of the week
 	 * @return a stream of tasks
 	 */
 	public Stream<Task> findTasksForWeek(LocalDate startDate) {
-		LOGGER.debug("Loading all tasks from staring date [{}]", startDate);
-		return executeInTransaction(em -> createNamedQuery("Task.findAll", Task.class).getResultStream()
-//				// TODO: Move filtering to database
-				.filter(tt -> hasData(tt, startDate)));
+		return findTasks(startDate, startDate.plusDays(7));
+	}
+
+	/**
+	 * Returns all tracked tasks having at least one activity overlapping the given
+	 * period. Activities that are still running are considered to last until
+	 * further notice. The activities of the tasks are fetched along with the
+	 * tasks.
+	 * 
+	 * @param startDate the first day of the period
+	 * @param endDate   the first day after the period
+	 * @return a stream of tasks
+	 */
+	public Stream<Task> findTasks(LocalDate startDate, LocalDate endDate) {
+		LOGGER.debug("Loading tasks from [{}] until [{}]", startDate, endDate);
+		return executeInTransaction(em -> em.createNamedQuery("Task.findByPeriod", Task.class)
+				.setHint(QueryHints.LEFT_FETCH, "t.activities") //$NON-NLS-1$
+				.setParameter("start", startDate.atStartOfDay())
+				.setParameter("end", endDate.atStartOfDay())
+				.getResultList())
+				.stream();
+	}
+
+	/**
+	 * Returns all activities overlapping the given period, ordered by their start
+	 * time. Activities that are still running are considered to last until
+	 * further notice.
+	 * 
+	 * @param startDate the first day of the period
+	 * @param endDate   the first day after the period
+	 * @return a stream of activities
+	 */
+	public Stream<Activity> findActivities(LocalDate startDate, LocalDate endDate) {
+		LOGGER.debug("Loading activities from [{}] until [{}]", startDate, endDate);
+		return executeInTransaction(em -> em.createNamedQuery("Activity.findByPeriod", Activity.class)
+				.setParameter("start", startDate.atStartOfDay())
+				.setParameter("end", endDate.atStartOfDay())
+				.getResultList())
+				.stream();
 	}
 
 	public Stream<Task> findAllTasks() {
 		LOGGER.debug("Loading all tasks.");
-		return executeInTransaction(em -> createNamedQuery("Task.findAll", Task.class).getResultStream());
+		return findAll("Task.findAll", Task.class).stream();
 	}
 
 	/**
@@ -429,19 +1544,31 @@ public class TimekeeperService {
 	 * @return
 	 */
 	public Project createAndSaveProject(String name, String type) {
-		ProjectType projectType = findEntityByPk(type, ProjectType.class);
+		validateCaches(false);
+		ProjectType projectType = projectTypeCache.get(type);
+		if (projectType == null) {
+			projectType = findEntityByPk(type, ProjectType.class);
+		}
 		if (projectType == null) {
 			projectType = new ProjectType(type);
 			saveEntityInTransaction(projectType);
 		}
+		projectTypeCache.put(type, projectType);
 		Project project = new Project(projectType, name);
-		saveEntityInTransaction(project);
+		saveEntityInTransaction(project, DatabaseChange.of(ChangeType.CREATED, project));
+		projectCache.put(name, project);
 		return project;
 
 	}
 
 	public Project getProject(String title) {
-		return findEntityByPk(title, Project.class);
+		validateCaches(false);
+		Project project = projectCache.get(title);
+		if (project == null) {
+			project = findEntityByPk(title, Project.class);
+			projectCache.put(title, project);
+		}
+		return project;
 	}
 
 	/**
@@ -450,15 +1577,30 @@ public class TimekeeperService {
 	 * @return a stream of labels
 	 */
 	public Stream<ActivityLabel> getLabels() {
-		return createNamedQuery("ActivityLabel.findAll", ActivityLabel.class).getResultStream();
+		validateCaches(false);
+		List<ActivityLabel> labels = labelCache.get(ALL_LABELS);
+		if (labels == null) {
+			labels = Collections.unmodifiableList(findAll("ActivityLabel.findAll", ActivityLabel.class));
+			labelCache.put(ALL_LABELS, labels);
+		}
+		return labels.stream();
 	}
 
 	public void setLabel(ActivityLabel label) {
-		saveEntityInTransaction(label);
+		saveEntityInTransaction(label, DatabaseChange.of(ChangeType.UPDATED, label));
+		labelCache.invalidateAll();
 	}
 
 	public void removeLabel(ActivityLabel label) {
-		deleteEntityInTransaction(label);
+		executeInTransaction(em -> {
+			em.createNamedQuery("LabelDailyTotal.findByLabel", LabelDailyTotal.class)
+					.setParameter("label", label.getId())
+					.getResultStream()
+					.forEach(em::remove);
+			deleteEntityInTransaction(label, DatabaseChange.of(ChangeType.REMOVED, label));
+			return label;
+		});
+		labelCache.invalidateAll();
 	}
 
 	/**
@@ -470,8 +1612,9 @@ public class TimekeeperService {
 		LOGGER.debug("Ending activity for mylyn task [{}]", task);
 		Task ttask = getTask(task);
 		if (ttask != null) {
-			Activity activity = ttask.endActivity();
-			saveEntityInTransaction(activity);
+			if (ttask.endActivity() != null) {
+				enqueue(ttask);
+			}
 			LOGGER.debug("Dectivating task '{}'", task);
 		}
 	}
@@ -487,8 +1630,8 @@ public class TimekeeperService {
 
 		Task ttask = Optional.ofNullable(getTask(task)).orElseGet(() -> createTask(task));
 		if (ttask != null) {
-			Activity activity = ttask.startActivity();
-			saveEntityInTransaction(activity);
+			ttask.startActivity();
+			enqueue(ttask);
 			LOGGER.debug("Activating task '{}'", task);
 //			notifyListeners();
 		}
@@ -518,21 +1661,9 @@ public class TimekeeperService {
 		return templates;
 	}
 
-	private static boolean hasData/* this week */(Task task, LocalDate startDate) {
-		// this should only be NULL if the database has not started yet. See
-		// databaseStateChanged()
-		if (task == null) {
-			return false;
-		}
-		LocalDate endDate = startDate.plusDays(7);
-		Stream<Activity> filter = task.getActivities().stream()
-				.filter(a -> a.getDuration(startDate, endDate) != Duration.ZERO);
-		boolean filtered = filter.count() > 0;
-		return filtered;
-	}
-
 	public Task cleanUpTask(Task task, ITask mylynTask, BiFunction<Calendar, Calendar, Long> elapsedTimeProvider) {
-		task.getCurrentActivity().ifPresent(activity -> {
+		Optional<Activity> current = task.getCurrentActivity();
+		current.ifPresent(activity -> {
 
 			if (mylynTask != null && !mylynTask.isActive()) {
 				// try to figure out when it was last active
@@ -555,6 +1686,9 @@ public class TimekeeperService {
 				}
 			}
 		});
+		if (current.isPresent() && !task.getCurrentActivity().isPresent()) {
+			persistTask(task);
+		}
 		return task;
 	}
 
@@ -0,0 +1,275 @@
+/*******************************************************************************
+ * Copyright © 2026 Torkild U. Resheim
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Torkild U. Resheim - initial API and implementation
+ *******************************************************************************/
+package net.resheim.eclipse.timekeeper.db;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.resheim.eclipse.timekeeper.db.model.GlobalTaskId;
+import net.resheim.eclipse.timekeeper.db.model.Task;
+
+/**
+ * Collects modified tasks so that they can be written to the database in one
+ * transaction. Changes to the same task within the flush window are coalesced,
+ * so that a burst of task activations and deactivations results in a single
+ * commit. A flush is scheduled when the first change is added, and is
+ * performed after the delay specified by the {@link #PROP_FLUSH_DELAY} system
+ * property.
+ *
+ * @author Torkild U. Resheim
+ */
+public class WriteBehindQueue {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(WriteBehindQueue.class);
+
+	/** System property used to specify the flush window in milliseconds */
+	public static final String PROP_FLUSH_DELAY = "net.resheim.eclipse.timekeeper.db.flush.delay"; //$NON-NLS-1$
+
+	/** The default flush window in milliseconds */
+	public static final long DEFAULT_FLUSH_DELAY = 500;
+
+	private final Runnable flusher;
+
+	private final long delay;
+
+	private final ScheduledExecutorService executor;
+
+	private final Map<GlobalTaskId, Task> pending = new LinkedHashMap<>();
+
+	private ScheduledFuture<?> scheduled;
+
+	private boolean closed;
+
+	private final AtomicLong flushCount = new AtomicLong();
+
+	private final AtomicLong totalBatchSize = new AtomicLong();
+
+	private final AtomicLong lastBatchSize = new AtomicLong();
+
+	private final AtomicLong maxBatchSize = new AtomicLong();
+
+	private final AtomicLong totalLatency = new AtomicLong();
+
+	private final AtomicLong lastLatency = new AtomicLong();
+
+	private final AtomicLong maxLatency = new AtomicLong();
+
+	/**
+	 * Creates a new queue with the flush window specified by the
+	 * {@link #PROP_FLUSH_DELAY} system property, or {@link #DEFAULT_FLUSH_DELAY}
+	 * if not specified.
+	 *
+	 * @param flusher the function writing pending changes to the database
+	 */
+	public WriteBehindQueue(Runnable flusher) {
+		this(flusher, Long.getLong(PROP_FLUSH_DELAY, DEFAULT_FLUSH_DELAY));
+	}
+
+	/**
+	 * Creates a new queue with the given flush window.
+	 *
+	 * @param flusher the function writing pending changes to the database
+	 * @param delay   the flush window in milliseconds
+	 */
+	public WriteBehindQueue(Runnable flusher, long delay) {
+		this.flusher = flusher;
+		this.delay = Math.max(0, delay);
+		this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread thread = new Thread(r, "Timekeeper write-behind"); //$NON-NLS-1$
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Adds the task to the queue, replacing any instance of the same task that is
+	 * already pending, and schedules a flush unless one is already scheduled.
+	 *
+	 * @param task the modified task
+	 */
+	public synchronized void add(Task task) {
+		pending.put(new GlobalTaskId(task.getRepositoryUrl(), task.getTaskId()), task);
+		if (closed) {
+			// there is no scheduler to do the work so do it right away
+			flusher.run();
+		} else if (scheduled == null) {
+			scheduled = executor.schedule(this::flush, delay, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * Returns the pending instance of the task with the given identifier.
+	 *
+	 * @param id the task identifier
+	 * @return the pending task or <code>null</code>
+	 */
+	public synchronized Task get(GlobalTaskId id) {
+		return pending.get(id);
+	}
+
+	/**
+	 * @return <code>true</code> if there are changes that have not been written
+	 */
+	public synchronized boolean hasPending() {
+		return !pending.isEmpty();
+	}
+
+	/**
+	 * Removes all pending tasks and returns them in the order they were first
+	 * added, each mapped to a {@link Task#snapshot() snapshot} of the task. The
+	 * tasks may be modified by other threads while they are being written, so
+	 * only the snapshots must be written.
+	 *
+	 * @return the pending tasks mapped to their snapshots
+	 */
+	public synchronized Map<Task, Task> drain() {
+		Map<Task, Task> batch = new LinkedHashMap<>();
+		for (Task task : pending.values()) {
+			batch.put(task, task.snapshot());
+		}
+		pending.clear();
+		if (scheduled != null) {
+			scheduled.cancel(false);
+			scheduled = null;
+		}
+		return batch;
+	}
+
+	/**
+	 * Puts back tasks that could not be written. Instances that have been added
+	 * in the meantime are kept, as these are more recent.
+	 *
+	 * @param batch the tasks to put back
+	 */
+	public synchronized void requeue(Collection<Task> batch) {
+		for (Task task : batch) {
+			pending.putIfAbsent(new GlobalTaskId(task.getRepositoryUrl(), task.getTaskId()), task);
+		}
+		if (!closed && scheduled == null && !pending.isEmpty()) {
+			scheduled = executor.schedule(this::flush, delay, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	private void flush() {
+		try {
+			flusher.run();
+		} catch (RuntimeException e) {
+			LOGGER.error("Could not write pending changes", e);
+		}
+	}
+
+	/**
+	 * Records the size and duration of a completed flush.
+	 *
+	 * @param size  the number of tasks written
+	 * @param nanos the time spent in nanoseconds
+	 */
+	void recordFlush(int size, long nanos) {
+		flushCount.incrementAndGet();
+		totalBatchSize.addAndGet(size);
+		lastBatchSize.set(size);
+		maxBatchSize.accumulateAndGet(size, Math::max);
+		totalLatency.addAndGet(nanos);
+		lastLatency.set(nanos);
+		maxLatency.accumulateAndGet(nanos, Math::max);
+	}
+
+	/**
+	 * Stops the scheduler and writes all pending changes. Changes added after
+	 * this point are written immediately.
+	 */
+	public void close() {
+		synchronized (this) {
+			closed = true;
+		}
+		executor.shutdownNow();
+		flusher.run();
+	}
+
+	/**
+	 * @return the flush window in milliseconds
+	 */
+	public long getDelay() {
+		return delay;
+	}
+
+	/**
+	 * @return the number of tasks waiting to be written
+	 */
+	public synchronized int getPendingCount() {
+		return pending.size();
+	}
+
+	/**
+	 * @return the number of flushes performed
+	 */
+	public long getFlushCount() {
+		return flushCount.get();
+	}
+
+	/**
+	 * @return the total number of tasks written
+	 */
+	public long getTotalBatchSize() {
+		return totalBatchSize.get();
+	}
+
+	/**
+	 * @return the number of tasks written by the last flush
+	 */
+	public long getLastBatchSize() {
+		return lastBatchSize.get();
+	}
+
+	/**
+	 * @return the largest number of tasks written by a single flush
+	 */
+	public long getMaxBatchSize() {
+		return maxBatchSize.get();
+	}
+
+	/**
+	 * @return the accumulated time spent flushing in milliseconds
+	 */
+	public long getTotalFlushLatency() {
+		return totalLatency.get() / 1_000_000;
+	}
+
+	/**
+	 * @return the time spent by the last flush in milliseconds
+	 */
+	public long getLastFlushLatency() {
+		return lastLatency.get() / 1_000_000;
+	}
+
+	/**
+	 * @return the longest time spent by a single flush in milliseconds
+	 */
+	public long getMaxFlushLatency() {
+		return maxLatency.get() / 1_000_000;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("WriteBehindQueue [pending=%d, flushes=%d, batch=%d, max batch=%d, latency=%dms]",
+				getPendingCount(), getFlushCount(), getLastBatchSize(), getMaxBatchSize(), getLastFlushLatency());
+	}
+
+}
@@ -14,24 +14,28 @@ import java.io.Serializable;
 import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.LocalTime;
+import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.UUID;
 
 import javax.persistence.CascadeType;
 import javax.persistence.Column;
 import javax.persistence.Convert;
 import javax.persistence.Entity;
 import javax.persistence.FetchType;
-import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.NamedQuery;
 import javax.persistence.OneToMany;
+import javax.persistence.PostLoad;
 import javax.persistence.Table;
-
-import org.eclipse.persistence.annotations.UuidGenerator;
+import javax.persistence.Transient;
 
 import net.resheim.eclipse.timekeeper.db.converters.LocalDateTimeAttributeConverter;
 
@@ -46,16 +50,49 @@ import net.resheim.eclipse.timekeeper.db.converters.LocalDateTimeAttributeConver
  * @author Torkild U. Resheim
  */
 @Entity
-@Table(name = "ACTIVITY")
-@UuidGenerator(name = "uuid")
+@Table(name = "ACTIVITY", indexes = @Index(name = "IDX_ACTIVITY_PERIOD", columnList = "START_TIME, END_TIME"))
+@NamedQuery(name = "Activity.findByPeriod", query = "SELECT a FROM Activity a "
+		+ "WHERE a.start < :end AND (a.end IS NULL OR a.end > :start) ORDER BY a.start")
+@NamedQuery(name = "Activity.findEndedByLabelsAndPeriod", query = "SELECT a, l.id FROM Activity a JOIN a.labels l "
+		+ "WHERE l.id IN :labels AND a.end IS NOT NULL AND a.start < :end AND a.end > :start")
+@NamedQuery(name = "Activity.countEnded", query = "SELECT COUNT(a) FROM Activity a WHERE a.end IS NOT NULL")
 public class Activity implements Comparable<Activity>, Serializable {
 
 	private static final long serialVersionUID = 7770745026684660897L;
 
+	/** The number of seconds in a day */
+	public static final long SECONDS_PER_DAY = 86_400;
+
+	/**
+	 * The start and end time as seconds, along with the instances these were
+	 * calculated from. A new instance is created when either has been replaced,
+	 * hence it can be shared between threads.
+	 */
+	private static final class Seconds {
+
+		final LocalDateTime start;
+
+		final LocalDateTime end;
+
+		final long startSeconds;
+
+		final long endSeconds;
+
+		Seconds(LocalDateTime start, LocalDateTime end) {
+			this.start = start;
+			this.end = end;
+			this.startSeconds = start == null ? 0 : toSeconds(start);
+			this.endSeconds = end == null ? 0 : toSeconds(end);
+		}
+	}
+
+	/**
+	 * The identifier is assigned when the instance is created so that it remains
+	 * the same when a detached activity is merged.
+	 */
 	@Id
-	@GeneratedValue(generator = "uuid")
 	@Column(name = "ID")
-	private String id;
+	private String id = UUID.randomUUID().toString();
 
 	/** The time the activity was started */
 	@Column(name = "START_TIME")
@@ -72,7 +109,7 @@ public class Activity implements Comparable<Activity>, Serializable {
 	private boolean manual = false;
 
 	/** The task the activity is associated with */
-	@ManyToOne(cascade = CascadeType.ALL)
+	@ManyToOne(cascade = { CascadeType.PERSIST, CascadeType.MERGE, CascadeType.REFRESH })
 	@JoinColumn(name = "TASK_ID", referencedColumnName = "TASK_ID")
 	@JoinColumn(name = "REPOSITORY_URL", referencedColumnName = "REPOSITORY_URL")
 	private Task task;
@@ -83,12 +120,24 @@ public class Activity implements Comparable<Activity>, Serializable {
 	private Project project;
 
 	@OneToMany(cascade = CascadeType.ALL, fetch = FetchType.LAZY)
-	private List<ActivityLabel> labels;
+	private List<ActivityLabel> labels = new ArrayList<>();
 
 	/** A short summary of the activity */
 	@Column(name = "SUMMARY")
 	private String summary;
 
+	/** The start time as last accounted for in the daily totals */
+	@Transient
+	private transient LocalDateTime persistedStart;
+
+	/** The end time as last accounted for in the daily totals */
+	@Transient
+	private transient LocalDateTime persistedEnd;
+
+	/** The period in seconds, see {@link #secondsOverlapping(long, long, long)} */
+	@Transient
+	private transient Seconds seconds;
+
 	public Activity() {
 	}
 
@@ -130,30 +179,74 @@ public class Activity implements Comparable<Activity>, Serializable {
 	 * @return the duration of work between the two days
 	 */
 	public Duration getDuration(LocalDate start, LocalDate end) {
-		LocalDateTime min = LocalDateTime.of(start, LocalTime.MIN);
-		LocalDateTime max = LocalDateTime.of(end, LocalTime.MIN);
+		return Duration.ofSeconds(secondsOverlapping(toSeconds(start), toSeconds(end)));
+	}
 
-		LocalDateTime s = getStart();
-		LocalDateTime e = getEnd();
+	/**
+	 * Returns the number of seconds of the activity within the given period. An
+	 * activity that has not ended is considered to last until now.
+	 * 
+	 * @param from the start of the period, see {@link #toSeconds(LocalDate)}
+	 * @param to   the end of the period
+	 * @return the number of seconds, never negative
+	 * @see #secondsOverlapping(long, long, long)
+	 */
+	public long secondsOverlapping(long from, long to) {
+		return secondsOverlapping(from, to, end == null ? now() : 0);
+	}
 
-		// end time has not been specified so the task must be currently
-		// active, using current time as the end date.
-		if (e == null) {
-			e = LocalDateTime.now();
+	/**
+	 * Returns the number of seconds of the activity within the given period. This
+	 * does not allocate once the start and end time has been converted, and is
+	 * preferred when calculating many periods, as the current time is only
+	 * obtained once by the caller.
+	 * 
+	 * @param from the start of the period, see {@link #toSeconds(LocalDate)}
+	 * @param to   the end of the period
+	 * @param now  the current time, used as the end of an activity that has not
+	 *             ended, see {@link #now()}
+	 * @return the number of seconds, never negative
+	 */
+	public long secondsOverlapping(long from, long to, long now) {
+		Seconds s = seconds;
+		if (s == null || s.start != start || s.end != end) {
+			s = new Seconds(start, end);
+			seconds = s;
 		}
+		long e = s.end == null ? now : s.endSeconds;
+		long overlap = Math.min(e, to) - Math.max(s.startSeconds, from);
+		return overlap > 0 ? overlap : 0;
+	}
 
-		if (s.isAfter(max) || e.isBefore(min)) {
-			return Duration.ZERO;
-		}
+	/**
+	 * Returns the given local time as the number of seconds since
+	 * 1970-01-01T00:00 in the same time zone, so that a day always amounts to
+	 * {@link #SECONDS_PER_DAY}.
+	 * 
+	 * @param time the local time
+	 * @return the number of seconds
+	 */
+	public static long toSeconds(LocalDateTime time) {
+		return time.toEpochSecond(ZoneOffset.UTC);
+	}
 
-		Duration d = Duration.between(s, e);
-		if (s.isBefore(min)) {
-			d = d.minus(Duration.between(s, min));
-		}
-		if (e.isAfter(max)) {
-			d = d.minus(Duration.between(max, e));
-		}
-		return d;
+	/**
+	 * Returns the start of the given date as the number of seconds since
+	 * 1970-01-01T00:00 in the same time zone.
+	 * 
+	 * @param date the date
+	 * @return the number of seconds
+	 * @see #toSeconds(LocalDateTime)
+	 */
+	public static long toSeconds(LocalDate date) {
+		return date.toEpochDay() * SECONDS_PER_DAY;
+	}
+
+	/**
+	 * @return the current local time as seconds, see {@link #toSeconds(LocalDateTime)}
+	 */
+	public static long now() {
+		return toSeconds(LocalDateTime.now());
 	}
 
 	/**
@@ -166,6 +259,7 @@ public class Activity implements Comparable<Activity>, Serializable {
 	public void setDuration(Duration duration) {
 		end = start.plus(duration);
 		manual = true;
+		periodChanged();
 	}
 
 	public LocalDateTime getEnd() {
@@ -178,10 +272,19 @@ public class Activity implements Comparable<Activity>, Serializable {
 
 	public void setEnd(LocalDateTime end) {
 		this.end = end;
+		periodChanged();
 	}
 
 	public void setStart(LocalDateTime start) {
 		this.start = start;
+		periodChanged();
+	}
+
+	/** Lets the task know that it's index of activities must be updated */
+	private void periodChanged() {
+		if (task != null) {
+			task.activityChanged();
+		}
 	}
 
 	public boolean isEdited() {
@@ -192,6 +295,86 @@ public class Activity implements Comparable<Activity>, Serializable {
 		return task;
 	}
 
+	void setTrackedTask(Task task) {
+		this.task = task;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	/**
+	 * Returns the start time as it was when the activity was loaded from the
+	 * database or last accounted for in the daily totals.
+	 * 
+	 * @return the persisted start time or <code>null</code>
+	 */
+	public LocalDateTime getPersistedStart() {
+		return persistedStart;
+	}
+
+	/**
+	 * Returns the end time as it was when the activity was loaded from the
+	 * database or last accounted for in the daily totals.
+	 * 
+	 * @return the persisted end time or <code>null</code>
+	 */
+	public LocalDateTime getPersistedEnd() {
+		return persistedEnd;
+	}
+
+	/**
+	 * Returns whether or not the start or end time has been changed since the
+	 * activity was loaded or last accounted for in the daily totals.
+	 * 
+	 * @return <code>true</code> if the period has been modified
+	 */
+	public boolean isPeriodModified() {
+		return !Objects.equals(start, persistedStart) || !Objects.equals(end, persistedEnd);
+	}
+
+	/**
+	 * Records the current period as the persisted state. This is done when the
+	 * activity is loaded and when the daily totals have been updated.
+	 */
+	@PostLoad
+	public void markPersisted() {
+		persistedStart = start;
+		persistedEnd = end;
+	}
+
+	/**
+	 * Records the given period as the persisted state. This is used when a copy
+	 * of the activity has been written, as this activity may have been modified
+	 * in the meantime.
+	 * 
+	 * @param start the start time that was written
+	 * @param end   the end time that was written
+	 */
+	public void markPersisted(LocalDateTime start, LocalDateTime end) {
+		persistedStart = start;
+		persistedEnd = end;
+	}
+
+	/**
+	 * Returns a copy of this activity belonging to the given task, including the
+	 * persisted state. The labels are shared with this activity.
+	 */
+	Activity copy(Task owner) {
+		Activity copy = new Activity();
+		copy.id = id;
+		copy.start = start;
+		copy.end = end;
+		copy.manual = manual;
+		copy.task = owner;
+		copy.project = project;
+		copy.labels = new ArrayList<>(labels);
+		copy.summary = summary;
+		copy.persistedStart = persistedStart;
+		copy.persistedEnd = persistedEnd;
+		return copy;
+	}
+
 	public String getSummary() {
 		return summary;
 	}
@@ -266,9 +449,8 @@ public class Activity implements Comparable<Activity>, Serializable {
 		if (hasLabel.isEmpty()) {
 			labels.add(label);
 		} else {
-			labels.remove(label);
+			labels.remove(hasLabel.get());
 		}
-		
 	}
 
 }
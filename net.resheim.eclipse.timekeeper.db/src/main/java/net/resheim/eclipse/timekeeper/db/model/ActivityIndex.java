@@ -0,0 +1,142 @@
+/*******************************************************************************
+ * Copyright © 2026 Torkild U. Resheim
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Torkild U. Resheim - initial API and implementation
+ *******************************************************************************/
+package net.resheim.eclipse.timekeeper.db.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The activities of a task sorted by their start time, along with the largest
+ * end time of each activity and all activities starting before it. This allows
+ * the activities overlapping a period to be found using binary search rather
+ * than by going through all activities. Activities that have not ended are
+ * considered to last forever, their actual duration is determined when
+ * queried.
+ * <p>
+ * The index is immutable and is replaced when the activities of the task have
+ * been modified, see {@link Task#getActivities(long, long)}.
+ * </p>
+ *
+ * @author Torkild U. Resheim
+ */
+final class ActivityIndex {
+
+	/** The list of activities the index was created from */
+	final List<Activity> source;
+
+	/** The number of activities in the list when the index was created */
+	final int size;
+
+	private final Activity[] activities;
+
+	private final long[] starts;
+
+	private final long[] ends;
+
+	/** The largest end time of the activity at the same index and those before */
+	private final long[] maxEnds;
+
+	ActivityIndex(List<Activity> source) {
+		this.source = source;
+		this.size = source.size();
+		activities = source.toArray(new Activity[size]);
+		// a stable sort, keeping the order of activities starting at the same time
+		Arrays.sort(activities, Comparator.comparingLong(ActivityIndex::startOf));
+		starts = new long[size];
+		ends = new long[size];
+		maxEnds = new long[size];
+		long max = Long.MIN_VALUE;
+		for (int i = 0; i < size; i++) {
+			starts[i] = startOf(activities[i]);
+			ends[i] = endOf(activities[i]);
+			max = Math.max(max, ends[i]);
+			maxEnds[i] = max;
+		}
+	}
+
+	private static long startOf(Activity activity) {
+		return activity.getStart() == null ? Long.MIN_VALUE : Activity.toSeconds(activity.getStart());
+	}
+
+	private static long endOf(Activity activity) {
+		return activity.getEnd() == null ? Long.MAX_VALUE : Activity.toSeconds(activity.getEnd());
+	}
+
+	/**
+	 * Returns whether or not the index still reflects the given list, assuming
+	 * that changes to the activities themselves have been reported.
+	 */
+	boolean isValid(List<Activity> list) {
+		return list == source && list.size() == size;
+	}
+
+	/**
+	 * Returns the activities that may overlap the given period ordered by their
+	 * start time.
+	 *
+	 * @param from the start of the period, see {@link Activity#toSeconds(java.time.LocalDate)}
+	 * @param to   the end of the period
+	 * @return the activities overlapping the period
+	 */
+	List<Activity> overlapping(long from, long to) {
+		int lo = first(maxEnds, from);
+		int hi = first(starts, to);
+		if (lo >= hi) {
+			return Collections.emptyList();
+		}
+		List<Activity> result = new ArrayList<>(hi - lo);
+		for (int i = lo; i < hi; i++) {
+			if (ends[i] > from) {
+				result.add(activities[i]);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the number of seconds of the activities within the given period.
+	 *
+	 * @see Activity#secondsOverlapping(long, long, long)
+	 */
+	long secondsOverlapping(long from, long to, long now) {
+		int lo = first(maxEnds, from);
+		int hi = first(starts, to);
+		long seconds = 0;
+		for (int i = lo; i < hi; i++) {
+			if (ends[i] > from) {
+				seconds += activities[i].secondsOverlapping(from, to, now);
+			}
+		}
+		return seconds;
+	}
+
+	/**
+	 * Returns the index of the first value that is larger than or equal to the
+	 * given value, in an array sorted in ascending order.
+	 */
+	private int first(long[] values, long value) {
+		int lo = 0;
+		int hi = size;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (values[mid] < value) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+
+}
@@ -11,10 +11,10 @@
 package net.resheim.eclipse.timekeeper.db.model;
 
 import java.io.Serializable;
+import java.util.UUID;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
-import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
 import javax.persistence.NamedQuery;
 import javax.persistence.Table;
@@ -31,10 +31,10 @@ public class ActivityLabel implements Serializable {
 	
 	private static final long serialVersionUID = -3021226114768805330L;
 
+	/** Assigned on creation, see {@link Activity} */
 	@Id
-	@GeneratedValue(generator = "uuid")
 	@Column(name = "ID")
-	private String id;
+	private String id = UUID.randomUUID().toString();
 	
 	@Column(name = "NAME")
 	private String name;
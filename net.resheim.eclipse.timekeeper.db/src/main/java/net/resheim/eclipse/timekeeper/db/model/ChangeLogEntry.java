@@ -0,0 +1,128 @@
+/*******************************************************************************
+ * Copyright © 2026 Torkild U. Resheim
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Torkild U. Resheim - initial API and implementation
+ *******************************************************************************/
+package net.resheim.eclipse.timekeeper.db.model;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import javax.persistence.Column;
+import javax.persistence.Convert;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.NamedQuery;
+import javax.persistence.Table;
+
+import net.resheim.eclipse.timekeeper.db.converters.LocalDateTimeAttributeConverter;
+
+/**
+ * Records that an entity has been modified by a transaction. The entries of a
+ * transaction share the {@link DataVersion} it was committed with, so that
+ * instances sharing the database can read the changes made by others in the
+ * order they were committed.
+ *
+ * @author Torkild U. Resheim
+ */
+@Entity
+@Table(name = "CHANGE_LOG")
+@NamedQuery(name = "ChangeLogEntry.findSince", query = "SELECT c FROM ChangeLogEntry c "
+		+ "WHERE c.version > :version AND c.origin <> :origin ORDER BY c.version")
+@NamedQuery(name = "ChangeLogEntry.deleteBefore", query = "DELETE FROM ChangeLogEntry c WHERE c.changedOn < :time")
+public class ChangeLogEntry implements Serializable {
+
+	private static final long serialVersionUID = 5412630912338563001L;
+
+	@Id
+	@Column(name = "ID")
+	private String id = UUID.randomUUID().toString();
+
+	/** The data version of the transaction making the change */
+	@Column(name = "VERSION")
+	private long version;
+
+	/** Identifies the instance making the change */
+	@Column(name = "ORIGIN")
+	private String origin;
+
+	@Column(name = "CHANGED_ON")
+	@Convert(converter = LocalDateTimeAttributeConverter.class)
+	private LocalDateTime changedOn;
+
+	@Column(name = "ENTITY_TYPE")
+	private String entityType;
+
+	@Column(name = "CHANGE_TYPE")
+	private String changeType;
+
+	@Column(name = "ENTITY_ID")
+	private String entityId;
+
+	/** The repository of the task the entity belongs to, if any */
+	@Column(name = "REPOSITORY_URL")
+	private String repositoryUrl;
+
+	/** The identifier of the task the entity belongs to, if any */
+	@Column(name = "TASK_ID")
+	private String taskId;
+
+	protected ChangeLogEntry() {
+	}
+
+	public ChangeLogEntry(long version, String origin, String entityType, String changeType, String entityId,
+			GlobalTaskId task) {
+		this.version = version;
+		this.origin = origin;
+		this.changedOn = LocalDateTime.now();
+		this.entityType = entityType;
+		this.changeType = changeType;
+		this.entityId = entityId;
+		if (task != null) {
+			this.repositoryUrl = task.getRepositoryUrl();
+			this.taskId = task.getTaskId();
+		}
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public long getVersion() {
+		return version;
+	}
+
+	public String getOrigin() {
+		return origin;
+	}
+
+	public LocalDateTime getChangedOn() {
+		return changedOn;
+	}
+
+	public String getEntityType() {
+		return entityType;
+	}
+
+	public String getChangeType() {
+		return changeType;
+	}
+
+	public String getEntityId() {
+		return entityId;
+	}
+
+	/**
+	 * @return the task the entity belongs to, or <code>null</code>
+	 */
+	public GlobalTaskId getTask() {
+		return repositoryUrl == null || taskId == null ? null : new GlobalTaskId(repositoryUrl, taskId);
+	}
+
+}
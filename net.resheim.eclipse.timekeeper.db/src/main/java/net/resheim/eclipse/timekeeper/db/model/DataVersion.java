@@ -0,0 +1,56 @@
+/*******************************************************************************
+ * Copyright © 2026 Torkild U. Resheim
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Torkild U. Resheim - initial API and implementation
+ *******************************************************************************/
+package net.resheim.eclipse.timekeeper.db.model;
+
+import java.io.Serializable;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.NamedQuery;
+import javax.persistence.Table;
+
+/**
+ * A counter that is incremented by every transaction modifying the data. As
+ * the database may be shared by several instances, each instance compares the
+ * counter with the value it has last seen in order to determine whether its
+ * cached entities are stale. There is only one instance of this entity.
+ *
+ * @author Torkild U. Resheim
+ */
+@Entity
+@Table(name = "DATA_VERSION")
+@NamedQuery(name = "DataVersion.increment", query = "UPDATE DataVersion d SET d.version = d.version + 1")
+@NamedQuery(name = "DataVersion.lock", query = "UPDATE DataVersion d SET d.version = d.version")
+@NamedQuery(name = "DataVersion.get", query = "SELECT d.version FROM DataVersion d")
+public class DataVersion implements Serializable {
+
+	private static final long serialVersionUID = -6305521874580462474L;
+
+	@Id
+	@Column(name = "ID")
+	private int id;
+
+	@Column(name = "VERSION")
+	private long version;
+
+	protected DataVersion() {
+	}
+
+	public int getId() {
+		return id;
+	}
+
+	public long getVersion() {
+		return version;
+	}
+
+}
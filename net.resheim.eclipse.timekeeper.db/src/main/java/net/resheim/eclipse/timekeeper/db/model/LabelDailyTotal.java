@@ -0,0 +1,79 @@
+/*******************************************************************************
+ * Copyright © 2026 Torkild U. Resheim
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Torkild U. Resheim - initial API and implementation
+ *******************************************************************************/
+package net.resheim.eclipse.timekeeper.db.model;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.IdClass;
+import javax.persistence.NamedQuery;
+import javax.persistence.Table;
+
+/**
+ * The accumulated number of seconds spent on activities having a given
+ * {@link ActivityLabel} at a given date. Only activities that have ended are
+ * included.
+ * 
+ * @author Torkild U. Resheim
+ * @see TaskDailyTotal
+ */
+@Entity
+@Table(name = "LABEL_DAILY_TOTAL")
+@IdClass(value = LabelDailyTotalId.class)
+@NamedQuery(name = "LabelDailyTotal.findByPeriod", query = "SELECT d FROM LabelDailyTotal d "
+		+ "WHERE d.workDate >= :start AND d.workDate < :end")
+@NamedQuery(name = "LabelDailyTotal.findByLabelsAndPeriod", query = "SELECT d FROM LabelDailyTotal d "
+		+ "WHERE d.labelId IN :labels AND d.workDate >= :start AND d.workDate < :end")
+@NamedQuery(name = "LabelDailyTotal.findByLabel", query = "SELECT d FROM LabelDailyTotal d WHERE d.labelId = :label")
+@NamedQuery(name = "LabelDailyTotal.findAll", query = "SELECT d FROM LabelDailyTotal d")
+public class LabelDailyTotal implements Serializable {
+
+	private static final long serialVersionUID = 4387712530712434427L;
+
+	@Id
+	@Column(name = "LABEL_ID")
+	private String labelId;
+
+	@Id
+	@Column(name = "WORK_DATE")
+	private LocalDate workDate;
+
+	@Column(name = "SECONDS")
+	private long seconds;
+
+	protected LabelDailyTotal() {
+	}
+
+	public LabelDailyTotal(String labelId, LocalDate workDate) {
+		this.labelId = labelId;
+		this.workDate = workDate;
+	}
+
+	public String getLabelId() {
+		return labelId;
+	}
+
+	public LocalDate getWorkDate() {
+		return workDate;
+	}
+
+	public long getSeconds() {
+		return seconds;
+	}
+
+	public void setSeconds(long seconds) {
+		this.seconds = seconds;
+	}
+
+}
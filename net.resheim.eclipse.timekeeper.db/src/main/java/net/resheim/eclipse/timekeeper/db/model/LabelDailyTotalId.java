@@ -0,0 +1,52 @@
+/*******************************************************************************
+ * Copyright © 2026 Torkild U. Resheim
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Torkild U. Resheim - initial API and implementation
+ *******************************************************************************/
+package net.resheim.eclipse.timekeeper.db.model;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * Primary key of {@link LabelDailyTotal}.
+ * 
+ * @author Torkild U. Resheim
+ */
+public class LabelDailyTotalId implements Serializable {
+
+	private static final long serialVersionUID = -6424153373962262226L;
+
+	private String labelId;
+
+	private LocalDate workDate;
+
+	public LabelDailyTotalId() {
+	}
+
+	public LabelDailyTotalId(String labelId, LocalDate workDate) {
+		this.labelId = labelId;
+		this.workDate = workDate;
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(labelId, workDate);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj instanceof LabelDailyTotalId) {
+			LabelDailyTotalId other = (LabelDailyTotalId) obj;
+			return Objects.equals(labelId, other.labelId) && Objects.equals(workDate, other.workDate);
+		}
+		return false;
+	}
+
+}
@@ -12,6 +12,7 @@ package net.resheim.eclipse.timekeeper.db.model;
 
 import java.io.Serializable;
 import java.util.HashSet;
+import java.util.Objects;
 import java.util.Set;
 
 import javax.persistence.CascadeType;
@@ -154,4 +155,25 @@ public class Project implements Comparable<Project>, Serializable {
 		this.projectType = projectType;
 	}
 
+	@Override
+	public int hashCode() {
+		return Objects.hash(name);
+	}
+
+	/**
+	 * Projects are equal if they have the same name, as instances are detached
+	 * and may have been loaded in different sessions.
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		Project other = (Project) obj;
+		return Objects.equals(name, other.name);
+	}
+
 }
@@ -15,7 +15,9 @@ import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.locks.Lock;
@@ -50,6 +52,12 @@ import org.eclipse.mylyn.tasks.core.ITask;
 @Table(name = "TASK")
 @IdClass(value = GlobalTaskId.class)
 @NamedQuery(name = "Task.findAll", query = "SELECT t FROM Task t")
+@NamedQuery(name = "Task.findAllOrdered", query = "SELECT t FROM Task t ORDER BY t.repositoryUrl, t.taskId")
+@NamedQuery(name = "Task.findByActivity", query = "SELECT t FROM Task t JOIN t.activities a WHERE a.id = :id")
+@NamedQuery(name = "Task.findRunningActivities", query = "SELECT t, a FROM Task t JOIN t.activities a "
+		+ "WHERE a.end IS NULL AND a.start < :end")
+@NamedQuery(name = "Task.findByPeriod", query = "SELECT DISTINCT t FROM Task t JOIN t.activities a "
+		+ "WHERE a.start < :end AND (a.end IS NULL OR a.end > :start)")
 public class Task implements Serializable {
 
 	private static final long serialVersionUID = -2455754936217658613L;
@@ -90,6 +98,10 @@ public class Task implements Serializable {
 	@Transient
 	private transient TaskLinkStatus taskLinkStatus = TaskLinkStatus.UNDETERMINED;
 
+	/** The activities sorted by time, <code>null</code> until first needed */
+	@Transient
+	private transient volatile ActivityIndex index;
+
 	
 	
 	public Task() {
@@ -115,7 +127,133 @@ public class Task implements Serializable {
 //	}
 
 	public void addActivity(Activity activity) {
-		activities.add(activity);
+		lock.lock();
+		try {
+			activity.setTrackedTask(this);
+			activities.add(activity);
+			activityChanged();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Removes the activity from this task, ending it first if it is the current
+	 * activity.
+	 * 
+	 * @param activity the activity to remove
+	 */
+	public void removeActivity(Activity activity) {
+		lock.lock();
+		try {
+			activities.remove(activity);
+			if (activity.equals(currentActivity)) {
+				endActivity();
+			}
+			activityChanged();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns a copy of this task and it's activities for writing to the
+	 * database. The copy is taken while holding the lock used when modifying the
+	 * task, so that it is consistent even if the task is being modified by
+	 * another thread. Projects and labels are shared with this task.
+	 * 
+	 * @return a copy of the task
+	 * @see #markPersisted(Task)
+	 */
+	public Task snapshot() {
+		lock.lock();
+		try {
+			Task copy = new Task(taskId, repositoryUrl);
+			copy.taskProject = taskProject;
+			copy.taskUrl = taskUrl;
+			copy.taskSummary = taskSummary;
+			for (Activity activity : activities) {
+				Activity a = activity.copy(copy);
+				copy.activities.add(a);
+				if (activity == currentActivity) {
+					copy.currentActivity = a;
+				}
+			}
+			return copy;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Records the periods of the activities in the given snapshot as the
+	 * persisted periods of the corresponding activities of this task. Activities
+	 * that have been modified after the snapshot was taken are still considered
+	 * modified, and will be accounted for when written again.
+	 * 
+	 * @param snapshot a snapshot of this task that has been written
+	 * @see #snapshot()
+	 */
+	public void markPersisted(Task snapshot) {
+		lock.lock();
+		try {
+			Map<String, Activity> written = new HashMap<>();
+			snapshot.activities.forEach(a -> written.put(a.getId(), a));
+			for (Activity activity : activities) {
+				Activity a = written.get(activity.getId());
+				if (a != null) {
+					activity.markPersisted(a.getStart(), a.getEnd());
+				}
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Discards the index of activities as the period of an activity or the list
+	 * of activities has been modified. The index is created again when next
+	 * needed. As the index is created while holding the lock, an index being
+	 * created concurrently with the modification is discarded once stored.
+	 */
+	void activityChanged() {
+		lock.lock();
+		try {
+			index = null;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private ActivityIndex getIndex() {
+		ActivityIndex i = index;
+		if (i == null || !i.isValid(activities)) {
+			lock.lock();
+			try {
+				i = index;
+				if (i == null || !i.isValid(activities)) {
+					i = new ActivityIndex(activities);
+					index = i;
+				}
+			} finally {
+				lock.unlock();
+			}
+		}
+		return i;
+	}
+
+	/**
+	 * Returns the activities overlapping the given period, ordered by their start
+	 * time. Activities that have not ended are included if they were started
+	 * before the end of the period. The activities are found using an index that
+	 * is maintained as activities are added or modified.
+	 * 
+	 * @param from the start of the period, see {@link Activity#toSeconds(LocalDate)}
+	 * @param to   the end of the period
+	 * @return the activities overlapping the period
+	 */
+	public List<Activity> getActivities(long from, long to) {
+		return getIndex().overlapping(from, to);
 	}
 
 	/**
@@ -144,11 +282,14 @@ public class Task implements Serializable {
 	 */
 	public Activity endActivity(LocalDateTime time) {
 		Activity returnActivity = null;
-		if (currentActivity != null) {
-			lock.lock();
-			currentActivity.setEnd(LocalDateTime.now());
-			returnActivity = currentActivity;
-			currentActivity = null;
+		lock.lock();
+		try {
+			if (currentActivity != null) {
+				currentActivity.setEnd(time);
+				returnActivity = currentActivity;
+				currentActivity = null;
+			}
+		} finally {
 			lock.unlock();
 		}
 		return returnActivity;
@@ -182,9 +323,23 @@ public class Task implements Serializable {
 	 * @return the total duration of work on the date
 	 */
 	public Duration getDuration(LocalDate date) {
-		Duration total = Duration.ZERO;
-		// sum up the duration
-		return getActivities().stream().map(a -> a.getDuration(date)).reduce(total, (t, u) -> t.plus(u));
+		long from = Activity.toSeconds(date);
+		return Duration.ofSeconds(getSeconds(from, from + Activity.SECONDS_PER_DAY, Activity.now()));
+	}
+
+	/**
+	 * Returns the number of seconds of work on this task within the given
+	 * period.
+	 * 
+	 * @param from the start of the period, see {@link Activity#toSeconds(LocalDate)}
+	 * @param to   the end of the period
+	 * @param now  the current time, used as the end of activities that have not
+	 *             ended
+	 * @return the number of seconds
+	 * @see Activity#secondsOverlapping(long, long, long)
+	 */
+	public long getSeconds(long from, long to, long now) {
+		return getIndex().secondsOverlapping(from, to, now);
 	}
 
 	public String getTaskUrl() {
@@ -247,14 +402,16 @@ public class Task implements Serializable {
 	 * @see #getCurrentActivity()
 	 */
 	public Activity startActivity() {
-		if (currentActivity == null) {
-			lock.lock();
-			currentActivity = new Activity(this, LocalDateTime.now());
-			addActivity(currentActivity);
-			lock.unlock();
+		lock.lock();
+		try {
+			if (currentActivity == null) {
+				currentActivity = new Activity(this, LocalDateTime.now());
+				addActivity(currentActivity);
+			}
 			return currentActivity;
+		} finally {
+			lock.unlock();
 		}
-		return currentActivity;
 	}
 
 	/**
@@ -0,0 +1,100 @@
+/*******************************************************************************
+ * Copyright © 2026 Torkild U. Resheim
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Torkild U. Resheim - initial API and implementation
+ *******************************************************************************/
+package net.resheim.eclipse.timekeeper.db.model;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.IdClass;
+import javax.persistence.NamedQuery;
+import javax.persistence.Table;
+
+/**
+ * The accumulated number of seconds spent on a {@link Task} at a given date.
+ * Only activities that have ended are included. These records are maintained by
+ * the service whenever activities are changed, so that reports and views do not
+ * have to visit every activity in order to present totals.
+ * 
+ * @author Torkild U. Resheim
+ */
+@Entity
+@Table(name = "TASK_DAILY_TOTAL")
+@IdClass(value = TaskDailyTotalId.class)
+@NamedQuery(name = "TaskDailyTotal.findByPeriod", query = "SELECT d FROM TaskDailyTotal d "
+		+ "WHERE d.workDate >= :start AND d.workDate < :end")
+@NamedQuery(name = "TaskDailyTotal.findByTaskAndPeriod", query = "SELECT d FROM TaskDailyTotal d "
+		+ "WHERE d.repositoryUrl = :repositoryUrl AND d.taskId = :taskId AND d.workDate >= :start AND d.workDate < :end")
+@NamedQuery(name = "TaskDailyTotal.count", query = "SELECT COUNT(d) FROM TaskDailyTotal d")
+@NamedQuery(name = "TaskDailyTotal.findAll", query = "SELECT d FROM TaskDailyTotal d")
+public class TaskDailyTotal implements Serializable {
+
+	private static final long serialVersionUID = -2061829151385349566L;
+
+	@Id
+	@Column(name = "REPOSITORY_URL")
+	private String repositoryUrl;
+
+	@Id
+	@Column(name = "TASK_ID")
+	private String taskId;
+
+	@Id
+	@Column(name = "WORK_DATE")
+	private LocalDate workDate;
+
+	/** Name of the project the task belonged to */
+	@Column(name = "PROJECT")
+	private String project;
+
+	@Column(name = "SECONDS")
+	private long seconds;
+
+	protected TaskDailyTotal() {
+	}
+
+	public TaskDailyTotal(Task task, LocalDate workDate) {
+		this.repositoryUrl = task.getRepositoryUrl();
+		this.taskId = task.getTaskId();
+		this.workDate = workDate;
+	}
+
+	public String getRepositoryUrl() {
+		return repositoryUrl;
+	}
+
+	public String getTaskId() {
+		return taskId;
+	}
+
+	public LocalDate getWorkDate() {
+		return workDate;
+	}
+
+	public String getProject() {
+		return project;
+	}
+
+	public void setProject(String project) {
+		this.project = project;
+	}
+
+	public long getSeconds() {
+		return seconds;
+	}
+
+	public void setSeconds(long seconds) {
+		this.seconds = seconds;
+	}
+
+}
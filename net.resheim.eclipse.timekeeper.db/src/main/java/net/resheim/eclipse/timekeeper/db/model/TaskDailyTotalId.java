@@ -0,0 +1,60 @@
+/*******************************************************************************
+ * Copyright © 2026 Torkild U. Resheim
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Torkild U. Resheim - initial API and implementation
+ *******************************************************************************/
+package net.resheim.eclipse.timekeeper.db.model;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * Primary key of {@link TaskDailyTotal}.
+ * 
+ * @author Torkild U. Resheim
+ */
+public class TaskDailyTotalId implements Serializable {
+
+	private static final long serialVersionUID = 3585063962962187478L;
+
+	private String repositoryUrl;
+
+	private String taskId;
+
+	private LocalDate workDate;
+
+	public TaskDailyTotalId() {
+	}
+
+	public TaskDailyTotalId(Task task, LocalDate workDate) {
+		this(task.getRepositoryUrl(), task.getTaskId(), workDate);
+	}
+
+	public TaskDailyTotalId(String repositoryUrl, String taskId, LocalDate workDate) {
+		this.repositoryUrl = repositoryUrl;
+		this.taskId = taskId;
+		this.workDate = workDate;
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(repositoryUrl, taskId, workDate);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj instanceof TaskDailyTotalId) {
+			TaskDailyTotalId other = (TaskDailyTotalId) obj;
+			return Objects.equals(repositoryUrl, other.repositoryUrl) && Objects.equals(taskId, other.taskId)
+					&& Objects.equals(workDate, other.workDate);
+		}
+		return false;
+	}
+
+}
@@ -12,11 +12,24 @@
 
 package net.resheim.eclipse.timekeeper.db.report;
 
+import java.io.BufferedWriter;
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
-import java.util.Set;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import net.resheim.eclipse.timekeeper.db.model.Project;
-import net.resheim.eclipse.timekeeper.db.model.Task;
+import net.resheim.eclipse.timekeeper.db.report.model.DailyTotals;
 
 /**
  * This type contains common features for the various exporters.
@@ -25,48 +38,130 @@ import net.resheim.eclipse.timekeeper.db.model.Task;
  */
 public abstract class AbstractExporter {
 
+	private static final Logger LOGGER = LoggerFactory.getLogger(AbstractExporter.class);
+
 	/**
 	 * Calculates the total amount of seconds accumulated on the project for the
 	 * specified date.
 	 *
-	 * @param tasks
-	 *            a list of tasks to get the amount for
+	 * @param totals
+	 *            the daily totals to get the amount from
 	 * @param date
 	 *            the date to calculate for
 	 * @param project
 	 *            the project to calculate for
 	 * @return the total amount of seconds accumulated
 	 */
-	protected long getSum(Set<Task> tasks, LocalDate date, Project project) {
-		return tasks
-				.stream()
-				.filter(t -> project.equals(t.getProject()))
-				.mapToLong(t -> t.getDuration(date).getSeconds())
-				.sum();
+	protected long getSum(DailyTotals totals, LocalDate date, Project project) {
+		return totals.getSeconds(project, date);
 	}
 
 	/**
 	 * Calculates the total amount of seconds accumulated on specified date.
 	 *
-	 * @param tasks
-	 *            a list of tasks to get the sum for
+	 * @param totals
+	 *            the daily totals to get the sum from
 	 * @param date
 	 *            the date to calculate for
 	 * @return the total amount of seconds accumulated
 	 */
-	protected long getSum(Set<Task> tasks, LocalDate date) {
-		return tasks
-				.stream()
-				.mapToLong(t -> t.getDuration(date).getSeconds())
-				.sum();
+	protected long getSum(DailyTotals totals, LocalDate date) {
+		return totals.getSeconds(date);
 	}
 
 	/**
-	 * Returns the exported data as a string.
+	 * Returns the exported data as a string. Prefer
+	 * {@link #export(LocalDate, Writer, IProgressMonitor)} when the result is
+	 * written somewhere, as the entire report is held in memory.
 	 *
 	 * @param firstDateOfWeek
-	 * @return the workweek formatted as a string
+	 * @return the workweek formatted as a string, or <code>null</code> if the
+	 *         export failed
+	 */
+	public String getData(LocalDate firstDateOfWeek) {
+		StringWriter out = new StringWriter();
+		try {
+			export(firstDateOfWeek, out, null);
+			return out.toString();
+		} catch (IOException e) {
+			LOGGER.error("Could not export data", e);
+		}
+		return null;
+	}
+
+	/**
+	 * Writes the exported data to the given writer as it is produced, so that the
+	 * report is never held in memory as a whole. The writer is flushed, but not
+	 * closed.
+	 *
+	 * @param firstDateOfWeek the first date of the week to export
+	 * @param out             the writer
+	 * @param monitor         the progress monitor, may be <code>null</code>
+	 * @throws IOException                if the data could not be exported
+	 * @throws OperationCanceledException if the monitor was cancelled
+	 */
+	public abstract void export(LocalDate firstDateOfWeek, Writer out, IProgressMonitor monitor)
+			throws IOException;
+
+	/**
+	 * Writes the exported data to the given stream using UTF-8 encoding. The
+	 * stream is flushed, but not closed.
+	 *
+	 * @param firstDateOfWeek the first date of the week to export
+	 * @param out             the output stream
+	 * @param monitor         the progress monitor, may be <code>null</code>
+	 * @throws IOException                if the data could not be exported
+	 * @throws OperationCanceledException if the monitor was cancelled
+	 * @see #export(LocalDate, Writer, IProgressMonitor)
 	 */
-	public abstract String getData(LocalDate firstDateOfWeek);
+	public void export(LocalDate firstDateOfWeek, OutputStream out, IProgressMonitor monitor) throws IOException {
+		Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+		export(firstDateOfWeek, writer, monitor);
+		writer.flush();
+	}
+
+	/**
+	 * A writer that fails as soon as the monitor has been cancelled, so that
+	 * rendering stops at the next chunk of output.
+	 */
+	protected static class CancellableWriter extends FilterWriter {
+
+		private final IProgressMonitor monitor;
+
+		public CancellableWriter(Writer out, IProgressMonitor monitor) {
+			super(out);
+			this.monitor = monitor;
+		}
+
+		private void checkCanceled() throws InterruptedIOException {
+			if (monitor != null && monitor.isCanceled()) {
+				throw new InterruptedIOException("The export was cancelled");
+			}
+		}
+
+		@Override
+		public void write(int c) throws IOException {
+			checkCanceled();
+			super.write(c);
+		}
+
+		@Override
+		public void write(char[] cbuf, int off, int len) throws IOException {
+			checkCanceled();
+			super.write(cbuf, off, len);
+		}
+
+		@Override
+		public void write(String str, int off, int len) throws IOException {
+			checkCanceled();
+			super.write(str, off, len);
+		}
+
+		@Override
+		public void close() throws IOException {
+			// the writer belongs to the caller
+			flush();
+		}
+	}
 
 }
@@ -22,6 +22,7 @@ import freemarker.template.TemplateMethodModelEx;
 import freemarker.template.TemplateModelException;
 import net.resheim.eclipse.timekeeper.db.model.Activity;
 import net.resheim.eclipse.timekeeper.db.model.Task;
+import net.resheim.eclipse.timekeeper.db.report.model.DailyTotals;
 
 /**
  * FreeMarker template model for formatting {@link Duration} instances. 
@@ -29,7 +30,24 @@ import net.resheim.eclipse.timekeeper.db.model.Task;
  * @author Torkild Ulvøy Resheim
  */
 public class FormatDurationMethodModel implements TemplateMethodModelEx {
-	
+
+	/** Pre-calculated totals, may be <code>null</code> */
+	private final DailyTotals totals;
+
+	public FormatDurationMethodModel() {
+		this(null);
+	}
+
+	/**
+	 * Creates a new method model that looks up task durations in the given
+	 * totals when the date is covered.
+	 * 
+	 * @param totals the daily totals or <code>null</code>
+	 */
+	public FormatDurationMethodModel(DailyTotals totals) {
+		this.totals = totals;
+	}
+
 	public Object exec(@SuppressWarnings("rawtypes") List args) throws TemplateModelException {
 		if (args.size() == 1) {
 			Duration duration = (Duration) ((StringModel) args.get(0)).getWrappedObject();
@@ -42,14 +60,20 @@ public class FormatDurationMethodModel implements TemplateMethodModelEx {
 			throw new TemplateModelException("Wrong number of arguments, was expecting (LocalDate, ITask)");
 		}
 		LocalDate day = (LocalDate) ((StringModel) args.get(0)).getWrappedObject();
+		long from = Activity.toSeconds(day);
+		long to = from + Activity.SECONDS_PER_DAY;
 		long seconds = 0;
 		if ((((StringModel) args.get(1)).getWrappedObject()) instanceof Task) {
 			Task task = (Task) ((StringModel) args.get(1)).getWrappedObject();
-			seconds = task.getDuration(day).getSeconds();
+			if (totals != null && totals.contains(day)) {
+				seconds = totals.getSeconds(task, day);
+			} else {
+				seconds = task.getSeconds(from, to, Activity.now());
+			}
 		}
 		if ((((StringModel) args.get(1)).getWrappedObject()) instanceof Activity) {
 			Activity task = (Activity) ((StringModel) args.get(1)).getWrappedObject();
-			seconds = task.getDuration(day).getSeconds();
+			seconds = task.secondsOverlapping(from, to);
 		}
 		if (seconds > 60) {
 			return DurationFormatUtils.formatDuration(seconds * 1000, "H:mm", true);
@@ -11,7 +11,6 @@
  *******************************************************************************/
 package net.resheim.eclipse.timekeeper.db.report;
 
-import java.time.Duration;
 import java.time.LocalDate;
 import java.util.List;
 
@@ -28,9 +27,8 @@ import net.resheim.eclipse.timekeeper.db.model.Task;
  */
 public class GetActivitiesMethodModel implements TemplateMethodModelEx {
 
-	private boolean hasData(Activity activity, LocalDate date) {
-		LocalDate endDate = date.plusDays(1);
-		return activity.getDuration(date, endDate) != Duration.ZERO;
+	private boolean hasData(Activity activity, long from, long now) {
+		return activity.secondsOverlapping(from, from + Activity.SECONDS_PER_DAY, now) > 0;
 	}
 
 	public Object exec(@SuppressWarnings("rawtypes") List args) throws TemplateModelException {
@@ -39,9 +37,11 @@ public class GetActivitiesMethodModel implements TemplateMethodModelEx {
 		}
 		LocalDate date = (LocalDate) ((StringModel) args.get(0)).getWrappedObject();
 		Task task = (Task) ((StringModel) args.get(1)).getWrappedObject();
-		return task.getActivities()
+		long from = Activity.toSeconds(date);
+		long now = Activity.now();
+		return task.getActivities(from, from + Activity.SECONDS_PER_DAY)
 				.stream()
-				.filter(a -> hasData(a, date))
+				.filter(a -> hasData(a, from, now))
 				.toArray();
 	}
 }
\ No newline at end of file
@@ -13,20 +13,29 @@
 package net.resheim.eclipse.timekeeper.db.report;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.StringWriter;
+import java.io.Writer;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
-import freemarker.cache.StringTemplateLoader;
-import freemarker.template.Configuration;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.SubMonitor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import freemarker.template.Template;
 import freemarker.template.TemplateException;
 import net.resheim.eclipse.timekeeper.db.TimekeeperPlugin;
+import net.resheim.eclipse.timekeeper.db.TimekeeperService;
 import net.resheim.eclipse.timekeeper.db.model.Task;
+import net.resheim.eclipse.timekeeper.db.report.model.DailyTotals;
 import net.resheim.eclipse.timekeeper.db.report.model.WorkWeek;
 
 /**
@@ -37,51 +46,129 @@ import net.resheim.eclipse.timekeeper.db.report.model.WorkWeek;
  */
 public class TemplateExporter extends AbstractExporter {
 
-	static Configuration configuration;
+	private static final Logger LOGGER = LoggerFactory.getLogger(TemplateExporter.class);
 
 	private final ReportTemplate reportTemplate;
 
+	private final TimekeeperService service;
+
 	public TemplateExporter(ReportTemplate template) {
-		// TODO: Clean up this mess
-		configuration = new Configuration(Configuration.VERSION_2_3_26);
-		StringTemplateLoader templateLoader = new StringTemplateLoader();
-		configuration.setTemplateLoader(templateLoader);
-		templateLoader.putTemplate(template.getName(), template.getCode());		
+		this(template, null);
+	}
+
+	/**
+	 * Creates an exporter reading data from the given service rather than from
+	 * the service of the running plug-in.
+	 *
+	 * @param template the report template
+	 * @param service  the service to read data from, or <code>null</code> to use
+	 *                 the service of the plug-in
+	 */
+	public TemplateExporter(ReportTemplate template, TimekeeperService service) {
 		this.reportTemplate = template;
+		this.service = service;
+	}
+
+	private TimekeeperService getService() {
+		return service == null ? TimekeeperPlugin.getDefault().getTimekeeperService() : service;
 	}
 
 	@Override
-	public String getData(LocalDate firstDateOfWeek) {
+	public void export(LocalDate firstDateOfWeek, Writer out, IProgressMonitor monitor) throws IOException {
+		SubMonitor progress = SubMonitor.convert(monitor, 2);
+		// compiled once and shared between exports
+		Template template = TemplateRegistry.getDefault().getTemplate(reportTemplate);
+
+		TimekeeperService service = getService();
+		LocalDate[] dates = WorkWeek.getWeekDates(firstDateOfWeek);
+		LocalDate start = dates[0];
+		LocalDate end = dates[dates.length - 1].plusDays(1);
+		Set<Task> filtered = service.findTasks(start, end)
+				.collect(Collectors.toSet());
+		// totals are read from the daily rollup rather than from each activity
+		DailyTotals totals = service.getDailyTotals(start, end);
+		progress.split(1);
+
+		// create the objects we're reporting on
+		List<WorkWeek> weeks = new ArrayList<>();
+		weeks.add(new WorkWeek(firstDateOfWeek, filtered, totals));
+		process(template, weeks, totals, out, progress.split(1));
+	}
+
+	/**
+	 * Writes a report covering the given period to the writer, with one work week
+	 * for each week overlapping the period. Tasks, activities and totals are read
+	 * from the database once for the entire period and shared between the weeks.
+	 * The writer is flushed, but not closed.
+	 *
+	 * @param startDate the first day of the period
+	 * @param endDate   the first day after the period
+	 * @param out       the writer
+	 * @param monitor   the progress monitor, may be <code>null</code>
+	 * @throws IOException                if the data could not be exported
+	 * @throws OperationCanceledException if the monitor was cancelled
+	 */
+	public void export(LocalDate startDate, LocalDate endDate, Writer out, IProgressMonitor monitor)
+			throws IOException {
+		SubMonitor progress = SubMonitor.convert(monitor, 2);
+		Template template = TemplateRegistry.getDefault().getTemplate(reportTemplate);
+
+		TimekeeperService service = getService();
+		List<Task> tasks = service.findTasks(startDate, endDate)
+				.collect(Collectors.toList());
+		DailyTotals totals = service.getDailyTotals(startDate, endDate);
+		progress.split(1);
+
+		process(template, WorkWeek.of(startDate, endDate, tasks, totals), totals, out, progress.split(1));
+	}
+
+	/**
+	 * Returns a report covering the given period as a string.
+	 *
+	 * @param startDate the first day of the period
+	 * @param endDate   the first day after the period
+	 * @return the formatted report, or <code>null</code> if the export failed
+	 * @see #export(LocalDate, LocalDate, Writer, IProgressMonitor)
+	 */
+	public String getData(LocalDate startDate, LocalDate endDate) {
+		StringWriter out = new StringWriter();
 		try {
-			Template template = configuration.getTemplate(reportTemplate.getName());
-			StringWriter out = new StringWriter();
-
-			Set<Task>filtered = TimekeeperPlugin.getDefault().getTimekeeperService()
-					.findTasksForWeek(firstDateOfWeek)
-					.collect(Collectors.toSet());
-
-			// create the objects we're reporting on
-			List<WorkWeek> weeks = new ArrayList<>();
-			weeks.add(new WorkWeek(firstDateOfWeek, filtered));
-			// add the various models that we need for formatting and data extraction
-			HashMap<String, Object> contents = new HashMap<>();
-			// utility for formatting DateTime instances
-			contents.put("formatDateTime", new FormatDateTimeMethodModel());
-			// utility for formatting duration
-			contents.put("formatDuration", new FormatDurationMethodModel());
-			//
-			contents.put("getActivities", new GetActivitiesMethodModel());
-			// add the actual data
-			contents.put("weeks", weeks);
-			// and do the processing
-			template.process(contents, out);
+			export(startDate, endDate, out, null);
 			return out.toString();
-
-		} catch (IOException | TemplateException e) {
-			e.printStackTrace();
+		} catch (IOException e) {
+			LOGGER.error("Could not export data", e);
 		}
-		// ignore
 		return null;
 	}
 
+	private void process(Template template, List<WorkWeek> weeks, DailyTotals totals, Writer out,
+			IProgressMonitor monitor) throws IOException {
+		// add the various models that we need for formatting and data extraction
+		HashMap<String, Object> contents = new HashMap<>();
+		// utility for formatting DateTime instances
+		contents.put("formatDateTime", new FormatDateTimeMethodModel());
+		// utility for formatting duration
+		contents.put("formatDuration", new FormatDurationMethodModel(totals));
+		//
+		contents.put("getActivities", new GetActivitiesMethodModel());
+		// add the actual data
+		contents.put("weeks", weeks);
+		// and do the processing, writing the output as it is produced
+		process(template, contents, out, monitor);
+	}
+
+	/**
+	 * Processes the template, stopping as soon as the monitor is cancelled.
+	 */
+	void process(Template template, Map<String, Object> contents, Writer out, IProgressMonitor monitor)
+			throws IOException {
+		try (Writer writer = new CancellableWriter(out, monitor)) {
+			template.process(contents, writer);
+		} catch (InterruptedIOException e) {
+			throw new OperationCanceledException();
+		} catch (TemplateException e) {
+			throw new IOException("Could not process report template '" + reportTemplate.getName() + "'", e);
+		}
+	}
+
 }
@@ -0,0 +1,129 @@
+/*******************************************************************************
+ * Copyright © 2026 Torkild U. Resheim
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Torkild U. Resheim - initial API and implementation
+ *******************************************************************************/
+package net.resheim.eclipse.timekeeper.db.report;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import freemarker.template.Configuration;
+import freemarker.template.DefaultObjectWrapperBuilder;
+import freemarker.template.Template;
+import freemarker.template.TemplateExceptionHandler;
+
+/**
+ * Compiles report templates using a single, shared FreeMarker configuration.
+ * Each template is compiled once and kept until the code of the template
+ * changes or the registry is invalidated, typically when the templates have
+ * been modified in the preferences. The configuration is never modified after
+ * it has been created, and compiled templates may be processed concurrently,
+ * so the registry can be used from any thread.
+ *
+ * @author Torkild U. Resheim
+ */
+public class TemplateRegistry {
+
+	private static final TemplateRegistry INSTANCE = new TemplateRegistry();
+
+	/** A compiled template and the code it was compiled from */
+	private static class Compiled {
+
+		final String code;
+
+		final Template template;
+
+		Compiled(String code, Template template) {
+			this.code = code;
+			this.template = template;
+		}
+	}
+
+	private final Configuration configuration;
+
+	/** Compiled templates keyed by template name */
+	private final Map<String, Compiled> templates = new ConcurrentHashMap<>();
+
+	private final AtomicLong compileCount = new AtomicLong();
+
+	TemplateRegistry() {
+		configuration = new Configuration(Configuration.VERSION_2_3_27);
+		configuration.setObjectWrapper(new DefaultObjectWrapperBuilder(Configuration.VERSION_2_3_27).build());
+		configuration.setDefaultEncoding("UTF-8"); //$NON-NLS-1$
+		configuration.setTemplateExceptionHandler(TemplateExceptionHandler.RETHROW_HANDLER);
+		configuration.setLogTemplateExceptions(false);
+		// templates are compiled from the preferences, never looked up by name
+		configuration.setLocalizedLookup(false);
+	}
+
+	/**
+	 * @return the shared registry
+	 */
+	public static TemplateRegistry getDefault() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Returns the compiled form of the given report template, compiling it if
+	 * this has not been done already or the code has changed since.
+	 *
+	 * @param reportTemplate the report template
+	 * @return the compiled template
+	 * @throws IOException if the template could not be parsed
+	 */
+	public Template getTemplate(ReportTemplate reportTemplate) throws IOException {
+		String name = reportTemplate.getName();
+		String code = reportTemplate.getCode();
+		Compiled compiled = templates.get(name);
+		if (compiled != null && Objects.equals(compiled.code, code)) {
+			return compiled.template;
+		}
+		// another thread may compile the same template, either result will do
+		compiled = new Compiled(code, new Template(name, new StringReader(code == null ? "" : code), configuration)); //$NON-NLS-1$
+		compileCount.incrementAndGet();
+		templates.put(name, compiled);
+		return compiled.template;
+	}
+
+	/**
+	 * Discards the compiled form of the named template.
+	 *
+	 * @param name the template name
+	 */
+	public void invalidate(String name) {
+		templates.remove(name);
+	}
+
+	/**
+	 * Discards all compiled templates, these are compiled again when next
+	 * requested.
+	 */
+	public void invalidate() {
+		templates.clear();
+	}
+
+	/**
+	 * @return the shared FreeMarker configuration
+	 */
+	public Configuration getConfiguration() {
+		return configuration;
+	}
+
+	/**
+	 * @return the number of times a template has been compiled
+	 */
+	public long getCompileCount() {
+		return compileCount.get();
+	}
+
+}
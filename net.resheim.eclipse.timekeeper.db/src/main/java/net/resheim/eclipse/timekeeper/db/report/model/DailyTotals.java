@@ -0,0 +1,288 @@
+/*******************************************************************************
+ * Copyright © 2026 Torkild U. Resheim
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Torkild U. Resheim - initial API and implementation
+ *******************************************************************************/
+package net.resheim.eclipse.timekeeper.db.report.model;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.resheim.eclipse.timekeeper.db.model.Activity;
+import net.resheim.eclipse.timekeeper.db.model.ActivityLabel;
+import net.resheim.eclipse.timekeeper.db.model.GlobalTaskId;
+import net.resheim.eclipse.timekeeper.db.model.Project;
+import net.resheim.eclipse.timekeeper.db.model.Task;
+
+/**
+ * Number of seconds spent per task, project and label for each date in a
+ * period. Totals of ended activities are typically read from the rollup tables
+ * maintained by the service, while activities that are still running are
+ * accounted for at the time of the lookup. Each lookup is a simple array access
+ * regardless of the number of activities involved.
+ *
+ * @author Torkild U. Resheim
+ */
+public class DailyTotals {
+
+	/** An activity that has not ended, so that the total is increasing */
+	private static class Running {
+
+		final GlobalTaskId taskId;
+
+		final String project;
+
+		final Activity activity;
+
+		Running(Task task, Activity activity) {
+			this.taskId = new GlobalTaskId(task.getRepositoryUrl(), task.getTaskId());
+			this.project = task.getProject() == null ? null : task.getProject().getName();
+			this.activity = activity;
+		}
+
+		long getSeconds(LocalDate date) {
+			long from = Activity.toSeconds(date);
+			return activity.secondsOverlapping(from, from + Activity.SECONDS_PER_DAY);
+		}
+
+		boolean hasLabel(String labelId) {
+			return activity.getLabels() != null
+					&& activity.getLabels().stream().anyMatch(l -> labelId.equals(l.getId()));
+		}
+	}
+
+	private final LocalDate startDate;
+
+	private final LocalDate endDate;
+
+	private final long[] dates;
+
+	private final Map<GlobalTaskId, long[]> tasks = new HashMap<>();
+
+	private final Map<String, long[]> projects = new HashMap<>();
+
+	private final Map<String, long[]> labels = new HashMap<>();
+
+	private final List<Running> running = new ArrayList<>();
+
+	/**
+	 * Creates a new, empty set of totals for the given period.
+	 *
+	 * @param startDate the first date of the period
+	 * @param endDate   the first date after the period
+	 */
+	public DailyTotals(LocalDate startDate, LocalDate endDate) {
+		this.startDate = startDate;
+		this.endDate = endDate;
+		this.dates = new long[(int) ChronoUnit.DAYS.between(startDate, endDate)];
+	}
+
+	/**
+	 * Calculates totals for the given period by going through all activities of
+	 * the given tasks. This is used when the rollup tables are not available.
+	 *
+	 * @param tasks     the tasks to calculate totals for
+	 * @param startDate the first date of the period
+	 * @param endDate   the first date after the period
+	 * @return the totals
+	 */
+	public static DailyTotals of(Collection<Task> tasks, LocalDate startDate, LocalDate endDate) {
+		DailyTotals totals = new DailyTotals(startDate, endDate);
+		for (Task task : tasks) {
+			GlobalTaskId id = new GlobalTaskId(task.getRepositoryUrl(), task.getTaskId());
+			String project = task.getProject() == null ? null : task.getProject().getName();
+			for (Activity activity : task.getActivities(Activity.toSeconds(startDate), Activity.toSeconds(endDate))) {
+				if (activity.getEnd() == null) {
+					totals.addRunning(task, activity);
+					continue;
+				}
+				LocalDateTime start = activity.getStart();
+				LocalDateTime end = activity.getEnd();
+				if (!start.isBefore(endDate.atStartOfDay()) || !end.isAfter(startDate.atStartOfDay())) {
+					continue;
+				}
+				// only visit the dates the activity is spanning
+				LocalDate date = start.toLocalDate().isBefore(startDate) ? startDate : start.toLocalDate();
+				for (; date.isBefore(endDate) && !date.isAfter(end.toLocalDate()); date = date.plusDays(1)) {
+					long from = Activity.toSeconds(date);
+					long seconds = activity.secondsOverlapping(from, from + Activity.SECONDS_PER_DAY);
+					totals.addTask(id, project, date, seconds);
+					for (ActivityLabel label : activity.getLabels()) {
+						totals.addLabel(label.getId(), date, seconds);
+					}
+				}
+			}
+		}
+		return totals;
+	}
+
+	private int indexOf(LocalDate date) {
+		if (date.isBefore(startDate) || !date.isBefore(endDate)) {
+			return -1;
+		}
+		return (int) ChronoUnit.DAYS.between(startDate, date);
+	}
+
+	/**
+	 * Adds the number of seconds spent on the given task at the given date.
+	 *
+	 * @param taskId  the identifier of the task
+	 * @param project name of the project the task belongs to, may be
+	 *                <code>null</code>
+	 * @param date    the date
+	 * @param seconds the number of seconds
+	 */
+	public void addTask(GlobalTaskId taskId, String project, LocalDate date, long seconds) {
+		int i = indexOf(date);
+		if (i < 0) {
+			return;
+		}
+		tasks.computeIfAbsent(taskId, k -> new long[dates.length])[i] += seconds;
+		if (project != null) {
+			projects.computeIfAbsent(project, k -> new long[dates.length])[i] += seconds;
+		}
+		dates[i] += seconds;
+	}
+
+	/**
+	 * Adds the number of seconds spent on activities with the given label at the
+	 * given date.
+	 *
+	 * @param labelId the identifier of the label
+	 * @param date    the date
+	 * @param seconds the number of seconds
+	 */
+	public void addLabel(String labelId, LocalDate date, long seconds) {
+		int i = indexOf(date);
+		if (i >= 0) {
+			labels.computeIfAbsent(labelId, k -> new long[dates.length])[i] += seconds;
+		}
+	}
+
+	/**
+	 * Adds an activity that has not yet ended. The time spent on this activity is
+	 * calculated when looked up.
+	 *
+	 * @param task     the task owning the activity
+	 * @param activity the running activity
+	 */
+	public void addRunning(Task task, Activity activity) {
+		running.add(new Running(task, activity));
+	}
+
+	/**
+	 * Returns whether or not the given date is within the period.
+	 *
+	 * @param date the date to test
+	 * @return <code>true</code> if the date is within the period
+	 */
+	public boolean contains(LocalDate date) {
+		return indexOf(date) >= 0;
+	}
+
+	/**
+	 * Returns the total number of seconds spent at the given date.
+	 *
+	 * @param date the date
+	 * @return the number of seconds
+	 */
+	public long getSeconds(LocalDate date) {
+		int i = indexOf(date);
+		if (i < 0) {
+			return 0;
+		}
+		long seconds = dates[i];
+		for (Running r : running) {
+			seconds += r.getSeconds(date);
+		}
+		return seconds;
+	}
+
+	/**
+	 * Returns the number of seconds spent on the given task at the given date.
+	 *
+	 * @param task the task
+	 * @param date the date
+	 * @return the number of seconds
+	 */
+	public long getSeconds(Task task, LocalDate date) {
+		int i = indexOf(date);
+		if (i < 0) {
+			return 0;
+		}
+		GlobalTaskId id = new GlobalTaskId(task.getRepositoryUrl(), task.getTaskId());
+		long[] values = tasks.get(id);
+		long seconds = values == null ? 0 : values[i];
+		for (Running r : running) {
+			if (r.taskId.equals(id)) {
+				seconds += r.getSeconds(date);
+			}
+		}
+		return seconds;
+	}
+
+	/**
+	 * Returns the number of seconds spent on the given project at the given date.
+	 *
+	 * @param project the project
+	 * @param date    the date
+	 * @return the number of seconds
+	 */
+	public long getSeconds(Project project, LocalDate date) {
+		int i = indexOf(date);
+		if (i < 0) {
+			return 0;
+		}
+		long[] values = projects.get(project.getName());
+		long seconds = values == null ? 0 : values[i];
+		for (Running r : running) {
+			if (project.getName().equals(r.project)) {
+				seconds += r.getSeconds(date);
+			}
+		}
+		return seconds;
+	}
+
+	/**
+	 * Returns the number of seconds spent on activities with the given label at
+	 * the given date.
+	 *
+	 * @param label the label
+	 * @param date  the date
+	 * @return the number of seconds
+	 */
+	public long getSeconds(ActivityLabel label, LocalDate date) {
+		int i = indexOf(date);
+		if (i < 0) {
+			return 0;
+		}
+		long[] values = labels.get(label.getId());
+		long seconds = values == null ? 0 : values[i];
+		for (Running r : running) {
+			if (r.hasLabel(label.getId())) {
+				seconds += r.getSeconds(date);
+			}
+		}
+		return seconds;
+	}
+
+	public LocalDate getStartDate() {
+		return startDate;
+	}
+
+	public LocalDate getEndDate() {
+		return endDate;
+	}
+
+}
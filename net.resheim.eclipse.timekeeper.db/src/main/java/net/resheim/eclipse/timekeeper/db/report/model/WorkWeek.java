@@ -12,37 +12,70 @@ package net.resheim.eclipse.timekeeper.db.report.model;
 
 import java.time.Duration;
 import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
 import java.time.temporal.WeekFields;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
 
+import net.resheim.eclipse.timekeeper.db.model.GlobalTaskId;
 import net.resheim.eclipse.timekeeper.db.model.Project;
 import net.resheim.eclipse.timekeeper.db.model.Task;
 
 /**
  * Work week representation for use in reporting. It has utility methods that
  * makes it easier to obtain data using templates.
+ * <p>
+ * The time spent per task, project and day is aggregated once when the week
+ * is created, so that the sums used by templates are simple lookups no matter
+ * how often they are called. Hence activities that are still running are
+ * accounted for at the time of creation.
+ * </p>
  * 
  * @author Torkild Ulvøy Resheim
  */
 public class WorkWeek {
 
 	/** All the days of this week */
-	private LocalDate[] dates;
+	private final LocalDate[] dates;
 	
 	/** Date of the first day of this week */
-	private LocalDate firstDayOfWeek;
+	private final LocalDate firstDayOfWeek;
 
 	/** All tasks that have been active this week */
-	protected Set<Task> tasks = Collections.emptySet();
-	
+	protected final Set<Task> tasks;
+
+	/** Time spent per task, project and date */
+	private final DailyTotals totals;
+
 	/**
-	 * Creates a new {@link WorkWeek} instance
+	 * Seconds spent per task at each date of the week, followed by the sum of the
+	 * week
+	 */
+	private final Map<GlobalTaskId, long[]> taskSeconds = new HashMap<>();
+
+	/**
+	 * Seconds spent per project name at each date of the week, followed by the
+	 * sum of the week
+	 */
+	private final Map<String, long[]> projectSeconds = new HashMap<>();
+
+	/** Seconds spent at each date of the week, followed by the sum of the week */
+	private final long[] daySeconds;
+
+	/** Tasks grouped by project */
+	private final Map<Project, List<Task>> projects;
+
+	/**
+	 * Creates a new {@link WorkWeek} instance. The totals are calculated from the
+	 * activities of the given tasks.
 	 * 
 	 * @param firstDayOfWeek
 	 *            date of the first day of the week
@@ -50,10 +83,113 @@ public class WorkWeek {
 	 *            a list of tasks being active this week
 	 */
 	public WorkWeek(LocalDate firstDayOfWeek, Set<Task> tasks) {
-		super();
+		this(firstDayOfWeek, tasks, null);
+	}
+
+	/**
+	 * Creates a new {@link WorkWeek} instance using pre-calculated totals.
+	 * 
+	 * @param firstDayOfWeek
+	 *            date of the first day of the week
+	 * @param tasks
+	 *            a list of tasks being active this week
+	 * @param totals
+	 *            totals covering at least the dates of the week, or
+	 *            <code>null</code> to calculate from the tasks
+	 */
+	public WorkWeek(LocalDate firstDayOfWeek, Set<Task> tasks, DailyTotals totals) {
+		this(firstDayOfWeek, getWeekDates(firstDayOfWeek), tasks, totals);
+	}
+
+	/**
+	 * Creates a {@link WorkWeek} covering only the given dates of the week.
+	 */
+	private WorkWeek(LocalDate firstDayOfWeek, LocalDate[] dates, Set<Task> tasks, DailyTotals totals) {
 		this.firstDayOfWeek = firstDayOfWeek;
+		this.dates = dates;
 		this.tasks = tasks;
-		update();
+		this.totals = totals != null ? totals
+				: DailyTotals.of(tasks, dates[0], dates[dates.length - 1].plusDays(1));
+		this.daySeconds = new long[dates.length + 1];
+		for (int i = 0; i < dates.length; i++) {
+			daySeconds[i] = this.totals.getSeconds(dates[i]);
+			daySeconds[dates.length] += daySeconds[i];
+		}
+		for (Task task : tasks) {
+			long[] seconds = taskSeconds.computeIfAbsent(new GlobalTaskId(task.getRepositoryUrl(), task.getTaskId()),
+					id -> new long[dates.length + 1]);
+			for (int i = 0; i < dates.length; i++) {
+				seconds[i] = this.totals.getSeconds(task, dates[i]);
+			}
+			seconds[dates.length] = sum(seconds);
+			Project project = task.getProject();
+			if (project != null && !projectSeconds.containsKey(project.getName())) {
+				seconds = new long[dates.length + 1];
+				for (int i = 0; i < dates.length; i++) {
+					seconds[i] = this.totals.getSeconds(project, dates[i]);
+				}
+				seconds[dates.length] = sum(seconds);
+				projectSeconds.put(project.getName(), seconds);
+			}
+		}
+		Map<Project, List<Task>> grouped = new HashMap<>();
+		for (Task task : tasks) {
+			grouped.computeIfAbsent(task.getProject(), p -> new ArrayList<>()).add(task);
+		}
+		grouped.replaceAll((p, l) -> Collections.unmodifiableList(l));
+		this.projects = Collections.unmodifiableMap(grouped);
+	}
+
+	/** Sums the values of each day, leaving out the last slot holding the sum */
+	private static long sum(long[] seconds) {
+		long sum = 0;
+		for (int i = 0; i < seconds.length - 1; i++) {
+			sum += seconds[i];
+		}
+		return sum;
+	}
+
+	/**
+	 * Returns the index of the given date within the week, or -1 if the date is
+	 * not covered.
+	 */
+	private int indexOf(LocalDate date) {
+		long i = ChronoUnit.DAYS.between(dates[0], date);
+		return i >= 0 && i < dates.length ? (int) i : -1;
+	}
+
+	/**
+	 * Creates one {@link WorkWeek} for each week overlapping the given period.
+	 * Dates of the first and last week that are outside of the period are left
+	 * out, so that the weeks add up to the period. All weeks share the same task
+	 * instances and totals, each week holding the tasks that time was spent on
+	 * during the part of the week that is covered.
+	 *
+	 * @param startDate
+	 *            the first day of the period
+	 * @param endDate
+	 *            the first day after the period
+	 * @param tasks
+	 *            the tasks being active in the period
+	 * @param totals
+	 *            totals covering at least the period
+	 * @return the weeks of the period in chronological order
+	 */
+	public static List<WorkWeek> of(LocalDate startDate, LocalDate endDate, Collection<Task> tasks,
+			DailyTotals totals) {
+		List<WorkWeek> weeks = new ArrayList<>();
+		LocalDate first = getWeekDates(startDate)[0];
+		while (first.isBefore(endDate)) {
+			LocalDate[] dates = Arrays.stream(getWeekDates(first))
+					.filter(d -> !d.isBefore(startDate) && d.isBefore(endDate))
+					.toArray(LocalDate[]::new);
+			Set<Task> active = tasks.stream()
+					.filter(t -> Arrays.stream(dates).anyMatch(d -> totals.getSeconds(t, d) > 0))
+					.collect(Collectors.toSet());
+			weeks.add(new WorkWeek(first, dates, active, totals));
+			first = first.plusDays(7);
+		}
+		return weeks;
 	}
 
 	/**
@@ -75,39 +211,60 @@ public class WorkWeek {
 	}
 
 	/**
-	 * Returns a list of all projects names.
+	 * Returns the time spent per task, project and date.
+	 * 
+	 * @return the daily totals
+	 */
+	public DailyTotals getTotals() {
+		return totals;
+	}
+
+	/**
+	 * Returns the tasks of the week grouped by project. The map is created once
+	 * and cannot be modified.
 	 */
 	public Map<Project, List<Task>> getProjects() {
-		return tasks
-				.stream()
-				.collect(Collectors.groupingBy(Task::getProject));
+		return projects;
 	}
 	
 	/**
 	 * Returns the total amount of hours spent on the given project for the entire week.
 	 */
 	public Duration getSum() {
-		Duration total = Duration.ZERO;
-		for (LocalDate date : dates) {
-			Optional<Duration> d = tasks.stream()
-				.map(t -> t.getDuration(date))
-				.reduce(Duration::plus);	
-			if (d.isPresent()) {
-				total = total.plus(d.get());
-			}
-		}
-		return total;
+		return Duration.ofSeconds(daySeconds[dates.length]);
 	}
 
 	/**
 	 * Returns the total amount of hours spent at the given task.
 	 */
 	public Duration getSum(Task task) {
-		Duration total = Duration.ZERO;
-		for (LocalDate date : dates) {
-			total = total.plus(task.getDuration(date));								
+		long[] seconds = taskSeconds.get(new GlobalTaskId(task.getRepositoryUrl(), task.getTaskId()));
+		if (seconds == null) {
+			// not one of the tasks of this week
+			long sum = 0;
+			for (LocalDate date : dates) {
+				sum += totals.getSeconds(task, date);
+			}
+			return Duration.ofSeconds(sum);
+		}
+		return Duration.ofSeconds(seconds[dates.length]);
+	}
+
+	/**
+	 * Returns the total amount of hours spent at the given task and date.
+	 * 
+	 * @param task
+	 *            the task
+	 * @param date
+	 *            the date to calculate the total for
+	 */
+	public Duration getSum(Task task, LocalDate date) {
+		int i = indexOf(date);
+		long[] seconds = taskSeconds.get(new GlobalTaskId(task.getRepositoryUrl(), task.getTaskId()));
+		if (i < 0 || seconds == null) {
+			return Duration.ofSeconds(totals.getSeconds(task, date));
 		}
-		return total;
+		return Duration.ofSeconds(seconds[i]);
 	}
 
 	/**
@@ -117,14 +274,11 @@ public class WorkWeek {
 	 *            the date to calculate the total for
 	 */
 	public Duration getSum(LocalDate date) {
-		Optional<Duration> d = tasks.stream()
-			.map(t -> t.getDuration(date))
-			.reduce(Duration::plus);
-		if (d.isPresent()) {
-			return d.get();
-		} else {
-			return Duration.ZERO;
+		int i = indexOf(date);
+		if (i < 0) {
+			return Duration.ofSeconds(totals.getSeconds(date));
 		}
+		return Duration.ofSeconds(daySeconds[i]);
 	}
 
 	/**
@@ -135,37 +289,49 @@ public class WorkWeek {
 	 *            the project name and identifier
 	 */
 	public Duration getSum(Project project) {
-		Duration total = Duration.ZERO;
-		for (LocalDate date : dates) {
-			total = total.plus(tasks.stream()
-					.filter(t -> project.equals(t.getProject()))
-					.map(t -> t.getDuration(date))
-					.reduce(Duration::plus).orElse(Duration.ZERO));			
+		long[] seconds = projectSeconds.get(project.getName());
+		if (seconds == null) {
+			long sum = 0;
+			for (LocalDate date : dates) {
+				sum += totals.getSeconds(project, date);
+			}
+			return Duration.ofSeconds(sum);
 		}
-		return total;
+		return Duration.ofSeconds(seconds[dates.length]);
 	}
 
 	/**
 	 * Returns the total amount of hours spent on the given project at the given date.
 	 */
 	public Duration getSum(Project project, LocalDate date) {
-		return tasks.stream()
-			.filter(t -> project.equals(t.getProject()))
-			.map(t -> t.getDuration(date))
-			.reduce(Duration::plus).orElse(Duration.ZERO);
+		int i = indexOf(date);
+		long[] seconds = projectSeconds.get(project.getName());
+		if (i < 0 || seconds == null) {
+			return Duration.ofSeconds(totals.getSeconds(project, date));
+		}
+		return Duration.ofSeconds(seconds[i]);
 	}
 
-	private void update() {
-		dates = new LocalDate[7];
+	/**
+	 * Returns the dates of the week containing the given date, starting with the
+	 * first day of the week according to the current locale.
+	 * 
+	 * @param date
+	 *            a date within the week
+	 * @return the dates of the week
+	 */
+	public static LocalDate[] getWeekDates(LocalDate date) {
+		LocalDate[] dates = new LocalDate[7];
 		WeekFields weekFields = WeekFields.of(Locale.getDefault());
 		// Current day in the week
-		long day = firstDayOfWeek.get(weekFields.dayOfWeek());
+		long day = date.get(weekFields.dayOfWeek());
 		// First date of the week
-		LocalDate first = firstDayOfWeek.minusDays(day - 1l);
+		LocalDate first = date.minusDays(day - 1l);
 		for (int i = 0; i < 7; i++) {
 			dates[i] = first;
 			first = first.plusDays(1);
 		}
+		return dates;
 	}
 
 }
@@ -12,9 +12,26 @@ package net.resheim.eclipse.timekeeper.db;
 
 import static org.junit.jupiter.api.Assertions.fail;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
 import java.time.Duration;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 import javax.persistence.EntityManager;
 import javax.persistence.EntityTransaction;
@@ -22,15 +39,20 @@ import javax.persistence.Query;
 
 import org.eclipse.mylyn.internal.tasks.core.LocalTask;
 import org.eclipse.mylyn.tasks.core.ITask;
+import org.eclipse.persistence.indirection.IndirectCollection;
+import org.h2.Driver;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInstance;
 import org.junit.jupiter.api.TestInstance.Lifecycle;
+import org.junit.jupiter.api.io.TempDir;
 
 import net.resheim.eclipse.timekeeper.db.model.Activity;
+import net.resheim.eclipse.timekeeper.db.model.GlobalTaskId;
 import net.resheim.eclipse.timekeeper.db.model.Task;
+import net.resheim.eclipse.timekeeper.db.report.model.DailyTotals;
 
 @SuppressWarnings("restriction")
 @TestInstance(Lifecycle.PER_CLASS)
@@ -145,7 +167,8 @@ public class SharedStorageTest {
 
 	@AfterEach
 	public void after() {
-		// empty all tables
+		// write pending changes before emptying all tables
+		service.flush();
 		EntityManager entityManager = service.getEntityManagerFactory().createEntityManager();
 		EntityTransaction transaction = entityManager.getTransaction();
 		if (transaction.isActive()) {
@@ -163,6 +186,10 @@ public class SharedStorageTest {
 		query.executeUpdate();
 		query = entityManager.createQuery("DELETE FROM Project");
 		query.executeUpdate();
+		query = entityManager.createQuery("DELETE FROM TaskDailyTotal");
+		query.executeUpdate();
+		query = entityManager.createQuery("DELETE FROM LabelDailyTotal");
+		query.executeUpdate();
 		createQuery = entityManager.createNativeQuery("SET REFERENTIAL_INTEGRITY TRUE");
 		createQuery.executeUpdate();
 		entityManager.flush();
@@ -171,6 +198,21 @@ public class SharedStorageTest {
 		service.closePersistence();
 	}
 
+	/**
+	 * Opens a separate connection to the test database, as would another instance
+	 * sharing it.
+	 */
+	private static Connection openConnection() throws SQLException {
+		return openConnection("jdbc:h2:mem:test_mem");
+	}
+
+	private static Connection openConnection(String url) throws SQLException {
+		Properties info = new Properties();
+		info.put("user", "sa");
+		info.put("password", "");
+		return new Driver().connect(url, info);
+	}
+
 	@Test
 	public void testSimpleTaskPersistence() {
 		Task ttask = service.createTask(mylynTask); // new Task(mylynTask);
@@ -239,4 +281,529 @@ public class SharedStorageTest {
 			fail("Could not find task");
 	}
 
+	/**
+	 * Verifies the seconds of an activity within a period, including changes of
+	 * the start and end time and activities that have not ended.
+	 */
+	@Test
+	public void testActivity_secondsOverlapping() {
+		LocalDate date = LocalDate.of(2016, 3, 14);
+		long from = Activity.toSeconds(date);
+		long to = from + Activity.SECONDS_PER_DAY;
+		Assertions.assertEquals(Activity.toSeconds(date.atStartOfDay()), from);
+
+		Activity activity = new Activity();
+		activity.setStart(date.atTime(22, 30));
+		activity.setEnd(date.atTime(23, 45));
+		Assertions.assertEquals(4500, activity.secondsOverlapping(from, to));
+		Assertions.assertEquals(0, activity.secondsOverlapping(to, to + Activity.SECONDS_PER_DAY));
+		// the cached seconds follow the end time
+		activity.setEnd(date.plusDays(1).atTime(1, 0));
+		Assertions.assertEquals(5400, activity.secondsOverlapping(from, to));
+		Assertions.assertEquals(3600, activity.secondsOverlapping(to, to + Activity.SECONDS_PER_DAY));
+		Assertions.assertEquals(Duration.ofMinutes(150), activity.getDuration(date, date.plusDays(2)));
+		// an activity that has not ended lasts until now
+		activity.setEnd(null);
+		long now = from + 23 * 3600;
+		Assertions.assertEquals(1800, activity.secondsOverlapping(from, to, now));
+		Assertions.assertEquals(0, activity.secondsOverlapping(from, to, from));
+	}
+
+	/**
+	 * Verifies that activities overlapping a period are found using the index of
+	 * the task, also after activities have been added, modified and removed.
+	 */
+	@Test
+	public void testTask_getActivitiesInPeriod() {
+		Task task = new Task("index", "test");
+		LocalDateTime monday = LocalDateTime.of(2016, 3, 14, 8, 0);
+		// added in reverse order, one activity per day
+		for (int i = 6; i >= 0; i--) {
+			Activity activity = new Activity();
+			task.addActivity(activity);
+			activity.setStart(monday.plusDays(i));
+			activity.setEnd(monday.plusDays(i).plusHours(1));
+		}
+		long from = Activity.toSeconds(monday.toLocalDate());
+		long day = Activity.SECONDS_PER_DAY;
+		List<Activity> wednesday = task.getActivities(from + 2 * day, from + 3 * day);
+		Assertions.assertEquals(1, wednesday.size());
+		Assertions.assertEquals(monday.plusDays(2), wednesday.get(0).getStart());
+		Assertions.assertEquals(7, task.getActivities(from, from + 7 * day).size());
+		Assertions.assertEquals(0, task.getActivities(from + 7 * day, from + 8 * day).size());
+		// an activity lasting until the next week is found by both weeks
+		wednesday.get(0).setEnd(monday.plusDays(8));
+		Assertions.assertEquals(1, task.getActivities(from + 7 * day, from + 8 * day).size());
+		Assertions.assertEquals(Duration.ofHours(24), task.getDuration(monday.toLocalDate().plusDays(7)));
+		// activities that have not ended last until now
+		Activity running = task.startActivity();
+		long now = Activity.now();
+		Assertions.assertTrue(task.getActivities(now - 1, now + 1).contains(running));
+		// removed activities are no longer found
+		task.getActivities().remove(running);
+		Assertions.assertFalse(task.getActivities(now - 1, now + 1).contains(running));
+	}
+
+	/**
+	 * Verifies that only tasks with activities overlapping the requested week are
+	 * returned, including tasks with an activity that is still running.
+	 */
+	@Test
+	public void testFindTasksForWeek() {
+		Task task = service.createTask(mylynTask);
+		Activity a1 = new Activity();
+		task.addActivity(a1);
+		a1.setStart(LocalDateTime.of(2016, 3, 13, 22, 0));
+		a1.setEnd(LocalDateTime.of(2016, 3, 14, 2, 0));
+		service.persistTask(task);
+
+		LocalTask openMylynTask = new LocalTask("2", "Open task");
+		openMylynTask.setRepositoryUrl("test");
+		Task open = service.createTask(openMylynTask);
+		Activity a2 = new Activity();
+		open.addActivity(a2);
+		a2.setStart(LocalDateTime.of(2016, 3, 20, 12, 0));
+		service.persistTask(open);
+
+		LocalDate week = LocalDate.of(2016, 3, 14);
+		Assertions.assertEquals(Set.of(task, open), service.findTasksForWeek(week).collect(Collectors.toSet()));
+		Assertions.assertEquals(Set.of(task), service.findTasksForWeek(week.minusDays(7)).collect(Collectors.toSet()));
+		Assertions.assertEquals(Set.of(open), service.findTasksForWeek(week.plusDays(7)).collect(Collectors.toSet()));
+		Assertions.assertEquals(2, service.findActivities(week, week.plusDays(7)).count());
+		// the activities are not loaded when first accessed by the caller
+		service.findTasksForWeek(week).forEach(t -> Assertions.assertTrue(isLoaded(t.getActivities())));
+	}
+
+	private static boolean isLoaded(List<?> list) {
+		return !(list instanceof IndirectCollection) || ((IndirectCollection) list).isInstantiated();
+	}
+
+	/**
+	 * Verifies that the daily totals are kept up to date when activities are
+	 * added, modified and removed, and that running activities are included.
+	 */
+	@Test
+	public void testDailyTotals() {
+		Task task = service.createTask(mylynTask);
+		Activity a1 = new Activity();
+		task.addActivity(a1);
+		a1.setStart(LocalDateTime.of(2016, 3, 14, 22, 0));
+		a1.setEnd(LocalDateTime.of(2016, 3, 15, 2, 0));
+		Activity a2 = new Activity();
+		task.addActivity(a2);
+		a2.setStart(LocalDateTime.of(2016, 3, 15, 8, 0));
+		a2.setEnd(LocalDateTime.of(2016, 3, 15, 9, 30));
+		service.persistTask(task);
+
+		LocalDate monday = LocalDate.of(2016, 3, 14);
+		DailyTotals totals = service.getDailyTotals(monday, monday.plusDays(7));
+		Assertions.assertEquals(Duration.ofHours(2).getSeconds(), totals.getSeconds(task, monday));
+		Assertions.assertEquals(Duration.ofMinutes(210).getSeconds(), totals.getSeconds(task, monday.plusDays(1)));
+		Assertions.assertEquals(Duration.ofMinutes(210).getSeconds(), totals.getSeconds(task.getProject(), monday.plusDays(1)));
+		Assertions.assertEquals(Duration.ofMinutes(210).getSeconds(), totals.getSeconds(monday.plusDays(1)));
+		Assertions.assertEquals(0, totals.getSeconds(task, monday.plusDays(2)));
+
+		// move the first activity so that it no longer spans midnight
+		a1.setStart(LocalDateTime.of(2016, 3, 14, 20, 0));
+		a1.setEnd(LocalDateTime.of(2016, 3, 14, 23, 0));
+		service.updateActivity(a1);
+		totals = service.getDailyTotals(monday, monday.plusDays(7));
+		Assertions.assertEquals(Duration.ofHours(3).getSeconds(), totals.getSeconds(task, monday));
+		Assertions.assertEquals(Duration.ofMinutes(90).getSeconds(), totals.getSeconds(task, monday.plusDays(1)));
+
+		service.removeActivity(a2);
+		totals = service.getDailyTotals(monday, monday.plusDays(7));
+		Assertions.assertEquals(0, totals.getSeconds(task, monday.plusDays(1)));
+
+		// a running activity is accounted for when looked up
+		Activity a3 = new Activity();
+		task.addActivity(a3);
+		a3.setStart(LocalDateTime.of(2016, 3, 16, 10, 0));
+		service.persistTask(task);
+		totals = service.getDailyTotals(monday, monday.plusDays(7));
+		Assertions.assertEquals(Duration.ofHours(14).getSeconds(), totals.getSeconds(task, monday.plusDays(2)));
+
+		// rebuilding should yield the same result
+		service.rebuildDailyTotals();
+		Assertions.assertEquals(Duration.ofHours(3).getSeconds(),
+				service.getDailyTotals(monday, monday.plusDays(7)).getSeconds(task, monday));
+	}
+
+	/**
+	 * Verifies that sessions are returned to the pool and that entities are
+	 * detached once the transaction has completed.
+	 */
+	@Test
+	public void testSessionPool() {
+		Task task = service.createTask(mylynTask);
+		Activity activity = new Activity();
+		task.addActivity(activity);
+		activity.setStart(LocalDateTime.of(2016, 3, 14, 8, 0));
+		activity.setEnd(LocalDateTime.of(2016, 3, 14, 9, 0));
+		service.persistTask(task);
+
+		SessionPool pool = service.getSessionPool();
+		Assertions.assertEquals(0, pool.getActiveCount());
+		Assertions.assertTrue(pool.getIdleCount() <= pool.getMaxSize());
+		Assertions.assertTrue(pool.getMaxContextSize() > 0);
+
+		// a detached instance is modified and merged
+		Task loaded = service.getTask(mylynTask);
+		Assertions.assertNotSame(task, loaded);
+		Activity detached = loaded.getActivities().get(0);
+		detached.setSummary("Modified");
+		service.updateActivity(detached);
+		Assertions.assertEquals("Modified", service.getTask(mylynTask).getActivities().get(0).getSummary());
+		Assertions.assertEquals(0, pool.getActiveCount());
+	}
+
+	/**
+	 * Verifies that transactions and named queries are timed, and that the
+	 * metrics can be reset.
+	 */
+	@Test
+	public void testMetrics() {
+		ServiceMetrics metrics = service.getMetrics();
+		metrics.reset();
+		Task task = service.createTask(mylynTask);
+		service.persistTask(task);
+		service.findTasksForWeek(LocalDate.now());
+		Assertions.assertTrue(metrics.getTransactions().getCount() >= 2);
+		Assertions.assertEquals(0, metrics.getTransactions().getFailureCount());
+		Assertions.assertTrue(metrics.getQueries().stream()
+				.anyMatch(q -> q.getName().equals("Task.findByPeriod") && q.getCount() == 1));
+		Assertions.assertTrue(metrics.getTransactions().getMaxTime() >= metrics.getTransactions().getMeanTime());
+		metrics.reset();
+		Assertions.assertEquals(0, metrics.getTransactions().getCount());
+		Assertions.assertTrue(metrics.getQueries().isEmpty());
+	}
+
+	/**
+	 * Verifies that changes to the same task are coalesced and written in one
+	 * flush, and that pending changes are visible before they are written.
+	 */
+	@Test
+	public void testWriteBehind() {
+		WriteBehindQueue queue = service.getWriteBehindQueue();
+		service.flush();
+		long flushes = queue.getFlushCount();
+
+		service.startMylynTask(mylynTask);
+		service.endMylynTask(mylynTask);
+		service.startMylynTask(mylynTask);
+		Assertions.assertEquals(1, queue.getPendingCount());
+		Task pending = service.getTask(mylynTask);
+		Assertions.assertEquals(2, pending.getActivities().size());
+		Assertions.assertTrue(pending.getCurrentActivity().isPresent());
+
+		// queries will see the pending changes
+		Assertions.assertEquals(1, service.findTasksForWeek(LocalDate.now().minusDays(6)).count());
+		Assertions.assertEquals(0, queue.getPendingCount());
+		Assertions.assertEquals(flushes + 1, queue.getFlushCount());
+		Assertions.assertEquals(1, queue.getLastBatchSize());
+
+		service.endMylynTask(mylynTask);
+		Assertions.assertEquals(1, service.flush());
+		Task task = service.getTask(mylynTask);
+		Assertions.assertNotSame(pending, task);
+		Assertions.assertEquals(2, task.getActivities().size());
+		Assertions.assertFalse(task.getCurrentActivity().isPresent());
+	}
+
+	/**
+	 * Verifies that an activity ended while a snapshot of it's task is being
+	 * written is still considered modified, so that the time is accounted for in
+	 * the daily totals when the task is written again.
+	 */
+	@Test
+	public void testWriteBehindSnapshot() {
+		Task task = service.createTask(mylynTask);
+		Activity activity = new Activity();
+		task.addActivity(activity);
+		activity.setStart(LocalDateTime.of(2016, 3, 14, 8, 0));
+		Task snapshot = task.snapshot();
+		Assertions.assertNotSame(activity, snapshot.getActivities().get(0));
+
+		activity.setEnd(LocalDateTime.of(2016, 3, 14, 9, 0));
+		task.markPersisted(snapshot);
+		Assertions.assertTrue(activity.isPeriodModified());
+		Assertions.assertNull(activity.getPersistedEnd());
+
+		service.persistTask(task);
+		Assertions.assertFalse(activity.isPeriodModified());
+		LocalDate monday = LocalDate.of(2016, 3, 14);
+		Assertions.assertEquals(Duration.ofHours(1).getSeconds(),
+				service.getDailyTotals(monday, monday.plusDays(1)).getSeconds(task, monday));
+	}
+
+	/**
+	 * Verifies that the asynchronous service executes calls on a separate thread
+	 * and delivers the results.
+	 */
+	@Test
+	public void testAsyncService() throws Exception {
+		AsyncTimekeeperService async = new AsyncTimekeeperService(service);
+		Task task = service.createTask(mylynTask);
+		Activity activity = new Activity();
+		task.addActivity(activity);
+		activity.setStart(LocalDateTime.of(2016, 3, 14, 8, 0));
+		activity.setEnd(LocalDateTime.of(2016, 3, 14, 9, 0));
+		async.persistTask(task).get(10, TimeUnit.SECONDS);
+
+		Assertions.assertNotSame(Thread.currentThread(), async.submit(Thread::currentThread).get());
+		List<Task> tasks = async.findTasksForWeek(LocalDate.of(2016, 3, 14)).get(10, TimeUnit.SECONDS);
+		Assertions.assertEquals(1, tasks.size());
+		DailyTotals totals = async.getDailyTotals(LocalDate.of(2016, 3, 14), LocalDate.of(2016, 3, 21))
+				.get(10, TimeUnit.SECONDS);
+		Assertions.assertEquals(3600, totals.getSeconds(LocalDate.of(2016, 3, 14)));
+		async.shutdown();
+	}
+
+	@Test
+	public void testEntityCache() throws Exception {
+		Task task = service.createTask(mylynTask);
+		service.persistTask(task);
+		EntityCache<?, ?> cache = service.getTaskCache();
+		long hits = cache.getHitCount();
+		Assertions.assertSame(task, service.getTask(mylynTask));
+		Assertions.assertEquals(hits + 1, cache.getHitCount());
+
+		// simulate a change made by another instance sharing the database
+		try (Connection connection = openConnection();
+				Statement statement = connection.createStatement()) {
+			statement.executeUpdate("UPDATE DATA_VERSION SET VERSION = VERSION + 1");
+		}
+		service.validateCaches(true);
+		Assertions.assertEquals(0, cache.getSize());
+		Task reloaded = service.getTask(mylynTask);
+		Assertions.assertNotSame(task, reloaded);
+		Assertions.assertEquals(task, reloaded);
+
+		EntityCache<String, String> expiring = new EntityCache<>("test", 2, 0);
+		expiring.put("a", "a");
+		Assertions.assertNull(expiring.get("a"));
+		EntityCache<String, String> small = new EntityCache<>("test", 2, 60_000);
+		small.put("a", "a");
+		small.put("b", "b");
+		small.get("a");
+		small.put("c", "c");
+		Assertions.assertNull(small.get("b"));
+		Assertions.assertEquals("a", small.get("a"));
+		Assertions.assertEquals(1, small.getEvictionCount());
+	}
+
+	@Test
+	public void testLinkCache() {
+		Task task = service.createTask(mylynTask);
+		service.persistTask(task);
+		EntityCache<?, ?> links = service.getLinkCache();
+		// synchronizes the task with the Mylyn task and links the two
+		Assertions.assertSame(task, service.getTask(mylynTask));
+		long hits = links.getHitCount();
+		Assertions.assertSame(task, service.getTask(mylynTask));
+		Assertions.assertEquals(hits + 1, links.getHitCount());
+		// the Mylyn task has been modified
+		service.invalidateLink(mylynTask);
+		Assertions.assertSame(task, service.getTask(mylynTask));
+		Assertions.assertEquals(hits + 1, links.getHitCount());
+	}
+
+	@Test
+	public void testChangeFeed() throws Exception {
+		Task task = service.createTask(mylynTask);
+		service.persistTask(task);
+		List<DatabaseChange> received = new ArrayList<>();
+		service.setChangeHandler(received::addAll);
+		// our own changes are not reported
+		Assertions.assertTrue(service.getChangeFeed().poll().isEmpty());
+
+		// simulate a change made by another instance sharing the database
+		try (Connection connection = openConnection();
+				Statement statement = connection.createStatement()) {
+			statement.executeUpdate("UPDATE DATA_VERSION SET VERSION = VERSION + 1");
+			statement.executeUpdate("INSERT INTO CHANGE_LOG (ID, VERSION, ORIGIN, ENTITY_TYPE, CHANGE_TYPE, "
+					+ "ENTITY_ID, REPOSITORY_URL, TASK_ID) SELECT 'x', VERSION, 'other', 'TASK', 'UPDATED', '1', '"
+					+ task.getRepositoryUrl() + "', '1' FROM DATA_VERSION");
+		}
+		// the change may also have been picked up by the scheduled poll
+		service.getChangeFeed().poll();
+		Assertions.assertEquals(1, received.size());
+		DatabaseChange change = received.get(0);
+		Assertions.assertTrue(change.isRemote());
+		Assertions.assertEquals(DatabaseChange.EntityType.TASK, change.getEntityType());
+		Assertions.assertEquals(new GlobalTaskId(task.getRepositoryUrl(), "1"), change.getTaskId());
+		// the cached instance has been discarded
+		Assertions.assertNotSame(task, service.getTask(mylynTask));
+		Assertions.assertTrue(service.getChangeFeed().poll().isEmpty());
+		service.setChangeHandler(null);
+	}
+
+	@Test
+	public void testLocalChanges() {
+		List<DatabaseChange> received = Collections.synchronizedList(new ArrayList<>());
+		service.setChangeHandler(received::addAll);
+		Task task = service.createTask(mylynTask);
+		Activity activity = task.startActivity();
+		GlobalTaskId id = new GlobalTaskId(task.getRepositoryUrl(), "1");
+		// changes are published when committed
+		service.persistTask(task);
+		Assertions.assertTrue(received.contains(new DatabaseChange(DatabaseChange.EntityType.TASK,
+				DatabaseChange.ChangeType.CREATED, "1", id, false)));
+		Assertions.assertTrue(received.contains(new DatabaseChange(DatabaseChange.EntityType.ACTIVITY,
+				DatabaseChange.ChangeType.STARTED, activity.getId(), id, false)));
+		received.clear();
+
+		task.endActivity();
+		service.persistTask(task);
+		Assertions.assertEquals(1, received.size());
+		Assertions.assertEquals(new DatabaseChange(DatabaseChange.EntityType.ACTIVITY,
+				DatabaseChange.ChangeType.ENDED, activity.getId(), id, false), received.get(0));
+		service.setChangeHandler(null);
+	}
+
+	@Test
+	public void testExportImport(@TempDir Path folder) throws Exception {
+		Task task = service.createTask(mylynTask);
+		for (int i = 0; i < 2; i++) {
+			Activity activity = new Activity();
+			task.addActivity(activity);
+			activity.setStart(LocalDateTime.of(2016, 3, 14 + i, 8, 0));
+			activity.setEnd(LocalDateTime.of(2016, 3, 14 + i, 9, 0));
+		}
+		Activity running = task.startActivity();
+		service.persistTask(task);
+		Path archive = folder.resolve("timekeeper.zip");
+		Assertions.assertEquals(4, service.exportTo(archive));
+
+		// lose the activities, the task is kept
+		try (Connection connection = openConnection();
+				Statement statement = connection.createStatement()) {
+			statement.executeUpdate("UPDATE TASK SET CURRENTACTIVITY_ID = NULL");
+			statement.executeUpdate("DELETE FROM TASK_ACTIVITY");
+			statement.executeUpdate("DELETE FROM ACTIVITY");
+		}
+		// imported with the foreign keys enforced
+		Assertions.assertEquals(4, service.importFrom(archive));
+		Task imported = service.getTask(mylynTask);
+		Assertions.assertNotSame(task, imported);
+		Assertions.assertEquals(3, imported.getActivities().size());
+		Assertions.assertEquals(running.getId(), imported.getCurrentActivity().map(Activity::getId).orElse(null));
+		DailyTotals totals = service.getDailyTotals(LocalDate.of(2016, 3, 14), LocalDate.of(2016, 3, 21));
+		Assertions.assertEquals(3600, totals.getSeconds(LocalDate.of(2016, 3, 15)));
+		Assertions.assertThrows(IOException.class, () -> service.importFrom(folder.resolve("missing.zip")));
+	}
+
+	@Test
+	public void testDeltaExportImport(@TempDir Path folder) throws Exception {
+		Task task = service.createTask(mylynTask);
+		Activity first = new Activity();
+		task.addActivity(first);
+		first.setStart(LocalDateTime.of(2016, 3, 14, 8, 0));
+		first.setEnd(LocalDateTime.of(2016, 3, 14, 9, 0));
+		service.persistTask(task);
+		Path full = folder.resolve("full.zip");
+		service.exportTo(full);
+		long watermark = service.getWatermark(full);
+
+		Activity second = new Activity();
+		task.addActivity(second);
+		second.setStart(LocalDateTime.of(2016, 3, 15, 8, 0));
+		second.setEnd(LocalDateTime.of(2016, 3, 15, 9, 0));
+		service.persistTask(task);
+		Path delta = folder.resolve("delta.zip");
+		// only the task and the new activity
+		Assertions.assertEquals(2, service.exportChanges(delta, watermark, null));
+		Assertions.assertTrue(service.getWatermark(delta) > watermark);
+
+		// lose the new activity and all totals
+		try (Connection connection = openConnection();
+				Statement statement = connection.createStatement()) {
+			statement.executeUpdate("DELETE FROM TASK_ACTIVITY WHERE ACTIVITIES_ID = '" + second.getId() + "'");
+			statement.executeUpdate("DELETE FROM ACTIVITY WHERE ID = '" + second.getId() + "'");
+			statement.executeUpdate("DELETE FROM TASK_DAILY_TOTAL");
+		}
+		Assertions.assertEquals(2, service.importFrom(delta));
+		Assertions.assertEquals(2, service.getTask(mylynTask).getActivities().size());
+		// only the totals of dates affected by the delta are recalculated
+		DailyTotals totals = service.getDailyTotals(LocalDate.of(2016, 3, 14), LocalDate.of(2016, 3, 21));
+		Assertions.assertEquals(3600, totals.getSeconds(LocalDate.of(2016, 3, 15)));
+		Assertions.assertEquals(0, totals.getSeconds(LocalDate.of(2016, 3, 14)));
+	}
+
+	/**
+	 * Verifies that importing a delta holding only a modified task discards the
+	 * cached task and records the change.
+	 */
+	@Test
+	public void testDeltaImportOfTask(@TempDir Path folder) throws Exception {
+		Task task = service.createTask(mylynTask);
+		task.setTaskUrl("http://example.com/1");
+		service.persistTask(task);
+		Path full = folder.resolve("full.zip");
+		service.exportTo(full);
+
+		task.setTaskUrl("http://example.com/2");
+		service.persistTask(task);
+		Path delta = folder.resolve("delta.zip");
+		Assertions.assertEquals(1, service.exportChanges(delta, service.getWatermark(full), null));
+
+		List<DatabaseChange> received = Collections.synchronizedList(new ArrayList<>());
+		service.setChangeHandler(received::addAll);
+		GlobalTaskId id = new GlobalTaskId(task.getRepositoryUrl(), task.getTaskId());
+		Assertions.assertEquals(1, service.importFrom(delta));
+		Assertions.assertTrue(received.contains(new DatabaseChange(DatabaseChange.EntityType.TASK,
+				DatabaseChange.ChangeType.UPDATED, task.getTaskId(), id, false)));
+		Task imported = service.getTask(id);
+		Assertions.assertNotSame(task, imported);
+		Assertions.assertEquals("http://example.com/2", imported.getTaskUrl());
+		service.setChangeHandler(null);
+	}
+
+	@Test
+	public void testSchemaMigration() throws Exception {
+		try (Connection connection = openConnection(); Connection lock = openConnection()) {
+			// the service has already brought the schema up to date
+			SchemaMigrator migrator = new SchemaMigrator();
+			Assertions.assertEquals(0, migrator.migrate(connection, lock));
+			Assertions.assertEquals(6, migrator.getCurrentVersion());
+			try (Statement statement = connection.createStatement();
+					ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM " + SchemaMigrator.HISTORY_TABLE)) {
+				rs.next();
+				Assertions.assertEquals(SchemaMigrator.SCRIPTS.length, rs.getInt(1));
+			}
+		}
+		Assertions.assertEquals(2, SchemaMigrator.split("-- comment\nCREATE TABLE A (\n ID INT);\nDROP TABLE A;").size());
+	}
+
+	/**
+	 * Verifies that instances starting at the same time on a database that has
+	 * not been migrated both succeed.
+	 */
+	@Test
+	public void testConcurrentSchemaMigration() throws Exception {
+		String url = "jdbc:h2:mem:test_migration";
+		// keeps the in-memory database alive
+		try (Connection keeper = openConnection(url)) {
+			ExecutorService executor = Executors.newFixedThreadPool(2);
+			try {
+				Callable<Integer> migration = () -> {
+					try (Connection connection = openConnection(url); Connection lock = openConnection(url)) {
+						return new SchemaMigrator().migrate(connection, lock);
+					}
+				};
+				Future<Integer> first = executor.submit(migration);
+				Future<Integer> second = executor.submit(migration);
+				int applied = first.get(30, TimeUnit.SECONDS) + second.get(30, TimeUnit.SECONDS);
+				Assertions.assertEquals(SchemaMigrator.SCRIPTS.length, applied);
+			} finally {
+				executor.shutdown();
+			}
+			try (Statement statement = keeper.createStatement();
+					ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM " + SchemaMigrator.HISTORY_TABLE)) {
+				rs.next();
+				Assertions.assertEquals(SchemaMigrator.SCRIPTS.length, rs.getInt(1));
+			}
+		}
+	}
+
 }
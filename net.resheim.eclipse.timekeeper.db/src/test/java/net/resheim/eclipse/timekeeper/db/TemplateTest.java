@@ -10,16 +10,22 @@
  *******************************************************************************/
 package net.resheim.eclipse.timekeeper.db;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.OutputStreamWriter;
+import java.io.StringWriter;
 import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -31,13 +37,18 @@ import javax.persistence.EntityManager;
 import javax.persistence.EntityTransaction;
 import javax.persistence.Query;
 
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.mylyn.internal.tasks.core.AbstractTask;
 import org.eclipse.mylyn.internal.tasks.core.LocalTask;
 import org.eclipse.mylyn.internal.tasks.core.TaskCategory;
 import org.eclipse.mylyn.internal.tasks.core.TaskList;
 import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInstance;
 import org.junit.jupiter.api.TestInstance.Lifecycle;
 import org.junit.jupiter.params.ParameterizedTest;
@@ -51,10 +62,15 @@ import freemarker.template.Template;
 import freemarker.template.TemplateException;
 import freemarker.template.TemplateNotFoundException;
 import net.resheim.eclipse.timekeeper.db.model.Activity;
+import net.resheim.eclipse.timekeeper.db.model.Project;
 import net.resheim.eclipse.timekeeper.db.model.Task;
+import net.resheim.eclipse.timekeeper.db.report.AbstractExporter;
 import net.resheim.eclipse.timekeeper.db.report.FormatDateTimeMethodModel;
 import net.resheim.eclipse.timekeeper.db.report.FormatDurationMethodModel;
 import net.resheim.eclipse.timekeeper.db.report.GetActivitiesMethodModel;
+import net.resheim.eclipse.timekeeper.db.report.ReportTemplate;
+import net.resheim.eclipse.timekeeper.db.report.TemplateRegistry;
+import net.resheim.eclipse.timekeeper.db.report.model.DailyTotals;
 import net.resheim.eclipse.timekeeper.db.report.model.WorkWeek;
 
 /**
@@ -88,7 +104,8 @@ public class TemplateTest {
 
 	@AfterEach
 	public void after() {
-		// empty all tables
+		// write pending changes before emptying all tables
+		service.flush();
 
 		EntityManager entityManager = service.getEntityManagerFactory().createEntityManager();
 		EntityTransaction transaction = entityManager.getTransaction();
@@ -144,6 +161,107 @@ public class TemplateTest {
 		template.process(contents, out);
 	}
 
+	@Test
+	public void testTemplateRegistry() throws IOException {
+		TemplateRegistry registry = TemplateRegistry.getDefault();
+		ReportTemplate reportTemplate = new ReportTemplate("registry-test", ReportTemplate.Type.TEXT, "${weeks?size}");
+		long compiled = registry.getCompileCount();
+		Template template = registry.getTemplate(reportTemplate);
+		Assertions.assertSame(template, registry.getTemplate(reportTemplate));
+		Assertions.assertEquals(compiled + 1, registry.getCompileCount());
+		// modified code is compiled again
+		reportTemplate.setCode("${weeks?size}!");
+		Template modified = registry.getTemplate(reportTemplate);
+		Assertions.assertNotSame(template, modified);
+		Assertions.assertSame(registry.getConfiguration(), modified.getConfiguration());
+		registry.invalidate();
+		Assertions.assertNotSame(modified, registry.getTemplate(reportTemplate));
+		Assertions.assertEquals(compiled + 3, registry.getCompileCount());
+	}
+
+	@Test
+	public void testStreamingExport() throws IOException {
+		ReportTemplate reportTemplate = new ReportTemplate("streaming-test", ReportTemplate.Type.TEXT,
+				"<#list 1..count as i>line ${i?c}\n</#list>");
+		// renders the template through the cancellable writer of the exporter
+		AbstractExporter exporter = new AbstractExporter() {
+			@Override
+			public void export(LocalDate firstDateOfWeek, Writer out, IProgressMonitor monitor) throws IOException {
+				Template template = TemplateRegistry.getDefault().getTemplate(reportTemplate);
+				try (Writer writer = new CancellableWriter(out, monitor)) {
+					template.process(Collections.singletonMap("count", 1000), writer);
+				} catch (InterruptedIOException e) {
+					throw new OperationCanceledException();
+				} catch (TemplateException e) {
+					throw new IOException(e);
+				}
+			}
+		};
+		String data = exporter.getData(LocalDate.now());
+		Assertions.assertTrue(data.startsWith("line 1\n"));
+		Assertions.assertTrue(data.endsWith("line 1000\n"));
+		// the stream is written using UTF-8 and left open
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		exporter.export(LocalDate.now(), bytes, new NullProgressMonitor());
+		Assertions.assertEquals(data, new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+		// rendering stops when cancelled
+		NullProgressMonitor monitor = new NullProgressMonitor();
+		monitor.setCanceled(true);
+		Assertions.assertThrows(OperationCanceledException.class,
+				() -> exporter.export(LocalDate.now(), new StringWriter(), monitor));
+	}
+
+	@Test
+	public void testPeriodWeeks() {
+		Set<Task> tasks = createTestTasks();
+		LocalDate start = LocalDate.of(1969, 3, 1);
+		LocalDate end = LocalDate.of(1969, 4, 1);
+		DailyTotals totals = DailyTotals.of(tasks, start, end);
+		List<WorkWeek> weeks = WorkWeek.of(start, end, tasks, totals);
+		// the weeks cover every date of the month exactly once
+		List<LocalDate> dates = new ArrayList<>();
+		weeks.forEach(w -> dates.addAll(Arrays.asList(w.getDates())));
+		Assertions.assertEquals(31, dates.size());
+		Assertions.assertEquals(start, dates.get(0));
+		Assertions.assertEquals(end.minusDays(1), dates.get(30));
+		long seconds = weeks.stream().mapToLong(w -> w.getSum().getSeconds()).sum();
+		Assertions.assertEquals(dates.stream().mapToLong(totals::getSeconds).sum(), seconds);
+		Assertions.assertTrue(seconds > 0);
+		// each week only holds the tasks worked on, sharing the same instances
+		for (WorkWeek week : weeks) {
+			week.getProjects().values().forEach(l -> l.forEach(t -> {
+				Assertions.assertTrue(tasks.contains(t));
+				Assertions.assertTrue(week.getSum(t).getSeconds() > 0);
+			}));
+		}
+	}
+
+	@Test
+	public void testWeekAggregates() {
+		Set<Task> tasks = createTestTasks();
+		WorkWeek week = new WorkWeek(LocalDate.of(1969, 3, 10), tasks);
+		// the aggregates must match the time calculated from the activities
+		long sum = 0;
+		for (LocalDate date : week.getDates()) {
+			long day = 0;
+			for (Task task : tasks) {
+				Assertions.assertEquals(task.getDuration(date), week.getSum(task, date));
+				day += task.getDuration(date).getSeconds();
+			}
+			Assertions.assertEquals(day, week.getSum(date).getSeconds());
+			sum += day;
+		}
+		Assertions.assertEquals(sum, week.getSum().getSeconds());
+		for (List<Task> projectTasks : week.getProjects().values()) {
+			Project project = projectTasks.get(0).getProject();
+			long projectSum = projectTasks.stream().mapToLong(t -> week.getSum(t).getSeconds()).sum();
+			Assertions.assertEquals(projectSum, week.getSum(project).getSeconds());
+		}
+		// the grouping is created once and cannot be modified
+		Assertions.assertSame(week.getProjects(), week.getProjects());
+		Assertions.assertThrows(UnsupportedOperationException.class, () -> week.getProjects().clear());
+	}
+
 	static Stream<String> listTemplates() throws IOException {
 		return Files.list(Paths.get("templates")).map(f -> f.getFileName().toString());
 	}
@@ -15,10 +15,13 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.util.zip.ZipFile;
 
 import org.eclipse.core.runtime.Platform;
 import org.eclipse.mylyn.internal.tasks.core.TaskList;
@@ -225,22 +228,31 @@ public class IntegrationTest {
 	public void testExport() {
 		try {
 			File newFolder = folder.newFolder();
-			Path path = newFolder.toPath();
+			Path path = newFolder.toPath().resolve("timekeeper.zip");
 			TimekeeperPlugin.getDefault().getTimekeeperService().exportTo(path);
-			// probably don't have to verify that the content is correct as this is actually
-			// done by H2
-			Assert.assertEquals("\"TASK_ID\",\"REPOSITORY_URL\",\"TICK\",\"CURRENTACTIVITY_ID\"",
-					Files.readAllLines(path.resolve("trackedtask.csv")).get(0));
-			Assert.assertEquals(
-					"\"ID\",\"END_TIME\",\"ADJUSTED\",\"START_TIME\",\"SUMMARY\",\"TASK_ID\",\"REPOSITORY_URL\"",
-					Files.readAllLines(path.resolve("activity.csv")).get(0));
-			Assert.assertEquals("\"TASK_ID\",\"REPOSITORY_URL\",\"ACTIVITIES_ID\"",
-					Files.readAllLines(path.resolve("trackedtask_activity.csv")).get(0));
+			// probably don't have to verify that the content is correct as this is
+			// read back by H2
+			try (ZipFile zip = new ZipFile(path.toFile())) {
+				Assert.assertEquals("\"REPOSITORY_URL\",\"TASK_ID\",\"TASK_PROJECT\",\"TASK_URL\",\"TASK_SUMMARY\",\"CURRENTACTIVITY_ID\"",
+						firstLine(zip, "task.csv"));
+				Assert.assertEquals(
+						"\"ID\",\"START_TIME\",\"END_TIME\",\"ADJUSTED\",\"TASK_ID\",\"REPOSITORY_URL\",\"PROJECT\",\"SUMMARY\"",
+						firstLine(zip, "activity.csv"));
+				Assert.assertEquals("\"TASK_REPOSITORY_URL\",\"TASK_TASK_ID\",\"ACTIVITIES_ID\"",
+						firstLine(zip, "task_activity.csv"));
+			}
 		} catch (IOException e) {
 			throw new RuntimeException(e);
 		}
 	}	
 
+	private static String firstLine(ZipFile zip, String name) throws IOException {
+		try (BufferedReader reader = new BufferedReader(
+				new InputStreamReader(zip.getInputStream(zip.getEntry(name)), StandardCharsets.UTF_8))) {
+			return reader.readLine();
+		}
+	}
+
 	public static void waitUntilShellIsClosed(SWTBot bot, SWTBotShell shell) {
 		bot.waitUntil(new DefaultCondition() {
 			@Override
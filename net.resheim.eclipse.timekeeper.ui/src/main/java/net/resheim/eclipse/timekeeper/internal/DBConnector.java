@@ -14,33 +14,76 @@ package net.resheim.eclipse.timekeeper.internal;
 import java.time.LocalDate;
 import java.util.Calendar;
 import java.util.Collections;
-import java.util.Optional;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.BiFunction;
-import java.util.stream.Stream;
+import java.util.stream.Collectors;
 
 import org.eclipse.mylyn.tasks.core.ITask;
 import org.eclipse.mylyn.tasks.core.TaskRepository;
-import org.eclipse.mylyn.tasks.ui.TasksUi;
 
+import net.resheim.eclipse.timekeeper.db.AsyncTimekeeperService;
 import net.resheim.eclipse.timekeeper.db.TimekeeperPlugin;
-import net.resheim.eclipse.timekeeper.db.TimekeeperService;
+import net.resheim.eclipse.timekeeper.db.model.ActivityLabel;
+import net.resheim.eclipse.timekeeper.db.model.GlobalTaskId;
 import net.resheim.eclipse.timekeeper.db.model.Task;
 import net.resheim.eclipse.timekeeper.db.model.TaskLinkStatus;
+import net.resheim.eclipse.timekeeper.db.report.model.DailyTotals;
+import net.resheim.eclipse.timekeeper.ui.TaskIndex;
 
+/**
+ * Provides access to the database for the user interface. All calls are
+ * executed on the database thread and results are delivered asynchronously, so
+ * that the display thread is never blocked.
+ */
 public class DBConnector {
 
-	private TimekeeperService getDBService() {
-		return TimekeeperPlugin.getDefault().getTimekeeperService();
+	/** The activity labels as of the last time these were loaded */
+	private volatile List<ActivityLabel> labels = Collections.emptyList();
+
+	private AsyncTimekeeperService getDBService() {
+		return TimekeeperPlugin.getDefault().getAsyncTimekeeperService();
+	}
+
+	public CompletableFuture<List<Task>> findTasksForWeek(LocalDate startDate) {
+		return getDBService().findTasksForWeek(startDate)
+				.thenApply(tasks -> tasks.stream().map(this::linkWithMylynTask).collect(Collectors.toList()));
 	}
 
-	public Stream<Task> findTasksForWeek(LocalDate startDate) {
-		return getDBService().findTasksForWeek(startDate).map(this::linkWithMylynTask);
+	public CompletableFuture<DailyTotals> getDailyTotals(LocalDate startDate, LocalDate endDate) {
+		return getDBService().getDailyTotals(startDate, endDate);
 	}
 
-	public Task getTask(ITask task) {
-		Task ttask = getDBService().getTask(task);
-		return linkWithMylynTask(ttask);
+	public CompletableFuture<Task> getTask(ITask task) {
+		return getDBService().getTask(task).thenApply(t -> t == null ? null : linkWithMylynTask(t));
+	}
 
+	public CompletableFuture<Task> getTask(GlobalTaskId id) {
+		return getDBService().getTask(id).thenApply(t -> t == null ? null : linkWithMylynTask(t));
+	}
+
+	/**
+	 * Returns the activity labels as of the last time these were loaded. This
+	 * method will not access the database, so that it can be used when building
+	 * menus.
+	 *
+	 * @return the activity labels
+	 * @see #refreshLabels()
+	 */
+	public List<ActivityLabel> getLabels() {
+		return labels;
+	}
+
+	/**
+	 * Loads the activity labels from the database.
+	 *
+	 * @return the activity labels
+	 */
+	public CompletableFuture<List<ActivityLabel>> refreshLabels() {
+		return getDBService().getLabels().thenApply(l -> {
+			labels = Collections.unmodifiableList(l);
+			return labels;
+		});
 	}
 
 	/**
@@ -53,12 +96,9 @@ public class DBConnector {
 	 * @return the modified tracked task
 	 */
 	private Task linkWithMylynTask(Task tt) {
-		Optional<TaskRepository> tr = Optional.ofNullable(TasksUi.getRepositoryManager())
-				.map(m -> m.getAllRepositories()).orElse(Collections.emptyList()).stream()
-				.filter(r -> r.getRepositoryUrl().equals(tt.getRepositoryUrl())).findFirst();
-
-		if (tr.isPresent()) {
-			// tt.linkWithMylynTask(TasksUi.getRepositoryModel().getTask(tr.get(),
+		TaskRepository tr = TaskIndex.getDefault().getRepository(tt.getRepositoryUrl());
+		if (tr != null) {
+			// tt.linkWithMylynTask(TasksUi.getRepositoryModel().getTask(tr,
 			// tt.getTaskId()));
 			tt.setTaskLinkStatus(TaskLinkStatus.LINKED);
 		} else {
@@ -67,11 +107,12 @@ public class DBConnector {
 		return tt;
 	}
 
-	public Task cleanUpTask(Task task, ITask mylyTask, BiFunction<Calendar, Calendar, Long> elapsedTimeProvider) {
+	public CompletableFuture<Task> cleanUpTask(Task task, ITask mylyTask,
+			BiFunction<Calendar, Calendar, Long> elapsedTimeProvider) {
 		return getDBService().cleanUpTask(task, mylyTask, elapsedTimeProvider);
 	}
 
-	public Stream<Task> findAllTasks() {
+	public CompletableFuture<List<Task>> findAllTasks() {
 		return getDBService().findAllTasks();
 	}
 
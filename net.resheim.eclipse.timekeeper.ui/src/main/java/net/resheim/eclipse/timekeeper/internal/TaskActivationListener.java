@@ -28,12 +28,12 @@ public class TaskActivationListener implements ITaskActivationListener {
 
 	@Override
 	public void preTaskActivated(ITask task) {
-		TimekeeperPlugin.getDefault().getTimekeeperService().startMylynTask(task);
+		TimekeeperPlugin.getDefault().getAsyncTimekeeperService().startMylynTask(task);
 	}
 
 	@Override
 	public void preTaskDeactivated(ITask task) {
-		TimekeeperPlugin.getDefault().getTimekeeperService().endMylynTask(task);
+		TimekeeperPlugin.getDefault().getAsyncTimekeeperService().endMylynTask(task);
 	}
 
 	@Override
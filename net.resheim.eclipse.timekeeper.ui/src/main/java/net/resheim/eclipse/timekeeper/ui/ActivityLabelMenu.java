@@ -23,8 +23,8 @@ import org.eclipse.ui.menus.CommandContributionItemParameter;
 import org.eclipse.ui.menus.IWorkbenchContribution;
 import org.eclipse.ui.services.IServiceLocator;
 
-import net.resheim.eclipse.timekeeper.db.TimekeeperPlugin;
 import net.resheim.eclipse.timekeeper.db.model.ActivityLabel;
+import net.resheim.eclipse.timekeeper.internal.DBConnector;
 
 /**
  * This menu presents all available labels for an activity with image and text.
@@ -47,8 +47,12 @@ public class ActivityLabelMenu extends CompoundContributionItem implements IWork
 
 	@Override
 	protected IContributionItem[] getContributionItems() {
-		return TimekeeperPlugin.getDefault().getTimekeeperService().getLabels().map(label -> addToMenu(label))
+		DBConnector connector = TimekeeperUiPlugin.getDefault().getDbConnector();
+		// use the labels already loaded and have these refreshed for the next time
+		IContributionItem[] items = connector.getLabels().stream().map(label -> addToMenu(label))
 				.toArray(IContributionItem[]::new);
+		connector.refreshLabels();
+		return items;
 	}
 
 	private IContributionItem addToMenu(ActivityLabel label) {
@@ -0,0 +1,212 @@
+/*******************************************************************************
+ * Copyright © 2026 Torkild U. Resheim
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Torkild U. Resheim - initial API and implementation
+ *******************************************************************************/
+package net.resheim.eclipse.timekeeper.ui;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.mylyn.internal.tasks.core.ITaskListChangeListener;
+import org.eclipse.mylyn.internal.tasks.core.TaskContainerDelta;
+import org.eclipse.mylyn.internal.tasks.ui.TasksUiPlugin;
+import org.eclipse.mylyn.tasks.core.IRepositoryListener;
+import org.eclipse.mylyn.tasks.core.ITask;
+import org.eclipse.mylyn.tasks.core.TaskRepository;
+import org.eclipse.mylyn.tasks.ui.TasksUi;
+
+import net.resheim.eclipse.timekeeper.db.model.GlobalTaskId;
+import net.resheim.eclipse.timekeeper.db.model.Task;
+
+/**
+ * Resolves Mylyn tasks and task repositories from the identifiers stored in
+ * the database. Both are looked up once and kept until Mylyn reports that
+ * repositories or tasks have been added or removed, so that resolving a task
+ * when painting the week view is a simple map lookup. The listeners are
+ * installed when the index is first used.
+ *
+ * @author Torkild U. Resheim
+ */
+@SuppressWarnings("restriction")
+public class TaskIndex {
+
+	private static final TaskIndex INSTANCE = new TaskIndex();
+
+	/** Repositories keyed by URL, <code>null</code> until first used */
+	private volatile Map<String, TaskRepository> repositories;
+
+	/** Resolved tasks, including those that could not be found */
+	private final Map<GlobalTaskId, Optional<ITask>> tasks = new ConcurrentHashMap<>();
+
+	private final AtomicLong hitCount = new AtomicLong();
+
+	private final AtomicLong missCount = new AtomicLong();
+
+	private boolean listening;
+
+	private final IRepositoryListener repositoryListener = new IRepositoryListener() {
+
+		@Override
+		public void repositoryAdded(TaskRepository repository) {
+			invalidate();
+		}
+
+		@Override
+		public void repositoryRemoved(TaskRepository repository) {
+			invalidate();
+		}
+
+		@Override
+		public void repositorySettingsChanged(TaskRepository repository) {
+			invalidate();
+		}
+
+		@Override
+		public void repositoryUrlChanged(TaskRepository repository, String oldUrl) {
+			invalidate();
+		}
+	};
+
+	private final ITaskListChangeListener taskListListener = new ITaskListChangeListener() {
+
+		@Override
+		public void containersChanged(Set<TaskContainerDelta> deltas) {
+			for (TaskContainerDelta delta : deltas) {
+				switch (delta.getKind()) {
+				case ROOT:
+					tasks.clear();
+					return;
+				case ADDED:
+				case REMOVED:
+				case DELETED:
+					if (delta.getElement() instanceof ITask) {
+						ITask task = (ITask) delta.getElement();
+						tasks.remove(new GlobalTaskId(task.getRepositoryUrl(), task.getTaskId()));
+					}
+					break;
+				default:
+					// the task instance is still the same
+					break;
+				}
+			}
+		}
+	};
+
+	private TaskIndex() {
+	}
+
+	/**
+	 * @return the shared index
+	 */
+	public static TaskIndex getDefault() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Returns the Mylyn task with the same identifier as the given task.
+	 *
+	 * @param task the time tracked task
+	 * @return the Mylyn task or <code>null</code>
+	 */
+	public ITask getTask(Task task) {
+		return getTask(new GlobalTaskId(task.getRepositoryUrl(), task.getTaskId()));
+	}
+
+	/**
+	 * Returns the Mylyn task with the given identifier.
+	 *
+	 * @param id the task identifier
+	 * @return the Mylyn task or <code>null</code>
+	 */
+	public ITask getTask(GlobalTaskId id) {
+		Optional<ITask> task = tasks.get(id);
+		if (task != null) {
+			hitCount.incrementAndGet();
+			return task.orElse(null);
+		}
+		missCount.incrementAndGet();
+		task = Optional.ofNullable(getRepository(id.getRepositoryUrl()))
+				.map(r -> TasksUi.getRepositoryModel().getTask(r, id.getTaskId()));
+		tasks.put(id, task);
+		return task.orElse(null);
+	}
+
+	/**
+	 * Returns the task repository with the given URL.
+	 *
+	 * @param repositoryUrl the repository URL
+	 * @return the repository or <code>null</code> if not found, or if the Mylyn
+	 *         repository manager is not available
+	 */
+	public TaskRepository getRepository(String repositoryUrl) {
+		Map<String, TaskRepository> map = repositories;
+		if (map == null) {
+			map = loadRepositories();
+		}
+		return map.get(repositoryUrl);
+	}
+
+	private synchronized Map<String, TaskRepository> loadRepositories() {
+		if (TasksUi.getRepositoryManager() == null) {
+			// not yet available, so look again next time
+			return Collections.emptyMap();
+		}
+		if (!listening) {
+			TasksUi.getRepositoryManager().addListener(repositoryListener);
+			TasksUiPlugin.getTaskList().addChangeListener(taskListListener);
+			listening = true;
+		}
+		Map<String, TaskRepository> map = new ConcurrentHashMap<>();
+		for (TaskRepository repository : TasksUi.getRepositoryManager().getAllRepositories()) {
+			map.putIfAbsent(repository.getRepositoryUrl(), repository);
+		}
+		repositories = map;
+		return map;
+	}
+
+	/**
+	 * Discards all repositories and tasks, these are looked up again when next
+	 * requested.
+	 */
+	public void invalidate() {
+		repositories = null;
+		tasks.clear();
+	}
+
+	/**
+	 * Removes the listeners and discards the content of the index.
+	 */
+	public synchronized void dispose() {
+		if (listening) {
+			TasksUi.getRepositoryManager().removeListener(repositoryListener);
+			TasksUiPlugin.getTaskList().removeChangeListener(taskListListener);
+			listening = false;
+		}
+		invalidate();
+	}
+
+	/**
+	 * @return the number of lookups that were answered by the index
+	 */
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	/**
+	 * @return the number of lookups that required Mylyn to be queried
+	 */
+	public long getMissCount() {
+		return missCount.get();
+	}
+
+}
@@ -11,11 +11,7 @@
 
 package net.resheim.eclipse.timekeeper.ui;
 
-import java.util.Optional;
-
 import org.eclipse.mylyn.tasks.core.ITask;
-import org.eclipse.mylyn.tasks.core.TaskRepository;
-import org.eclipse.mylyn.tasks.ui.TasksUi;
 
 import net.resheim.eclipse.timekeeper.db.model.Task;
 
@@ -30,14 +26,8 @@ public class TaskUtils {
 	 * @return a Mylyn task or <code>null</code>
 	 */
 	public static ITask resolveMylynTask(Task task) {
-		// get the repository then find the task. Seems like the Mylyn API is
-		// a bit limited in this area as I could not find something more usable
-		Optional<TaskRepository> tr = TasksUi.getRepositoryManager().getAllRepositories().stream()
-				.filter(r -> r.getRepositoryUrl().equals(task.getRepositoryUrl())).findFirst();
-		if (tr.isPresent()) {
-			return TasksUi.getRepositoryModel().getTask(tr.get(), task.getTaskId());
-		}
-		return null;
+		// the Mylyn API has no direct lookup, so resolved tasks are indexed
+		return TaskIndex.getDefault().getTask(task);
 	}
 
 	/**
@@ -49,14 +39,8 @@ public class TaskUtils {
 	 * @return a Mylyn task or <code>null</code>
 	 */
 	public static ITask getMylynTask(Task task) {
-		// get the repository then find the task. Seems like the Mylyn API is
-		// a bit limited in this area as I could not find something more usable
-		Optional<TaskRepository> tr = TasksUi.getRepositoryManager().getAllRepositories().stream()
-				.filter(r -> r.getRepositoryUrl().equals(task.getRepositoryUrl())).findFirst();
-		if (tr.isPresent()) {
-			return TasksUi.getRepositoryModel().getTask(tr.get(), task.getTaskId());
-		}
-		return null;
+		// the Mylyn API has no direct lookup, so resolved tasks are indexed
+		return TaskIndex.getDefault().getTask(task);
 	}
 
 }
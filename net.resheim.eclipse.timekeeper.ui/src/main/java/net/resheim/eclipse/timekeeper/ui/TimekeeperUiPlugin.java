@@ -22,6 +22,8 @@ import java.util.Locale;
 import java.util.Optional;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.BiFunction;
 
 import org.apache.commons.lang3.time.DurationFormatUtils;
@@ -31,6 +33,9 @@ import org.eclipse.jface.resource.ImageDescriptor;
 import org.eclipse.jface.resource.ImageRegistry;
 import org.eclipse.jface.util.IPropertyChangeListener;
 import org.eclipse.jface.util.PropertyChangeEvent;
+import org.eclipse.mylyn.internal.tasks.core.ITaskListChangeListener;
+import org.eclipse.mylyn.internal.tasks.core.TaskContainerDelta;
+import org.eclipse.mylyn.internal.tasks.ui.TasksUiPlugin;
 import org.eclipse.mylyn.tasks.core.ITask;
 import org.eclipse.mylyn.tasks.ui.TasksUi;
 import org.eclipse.swt.SWT;
@@ -44,6 +49,7 @@ import org.eclipse.ui.plugin.AbstractUIPlugin;
 import org.osgi.framework.BundleContext;
 
 import net.resheim.eclipse.timekeeper.db.TimekeeperPlugin;
+import net.resheim.eclipse.timekeeper.db.TimekeeperService;
 import net.resheim.eclipse.timekeeper.db.model.Activity;
 import net.resheim.eclipse.timekeeper.db.model.Task;
 import net.resheim.eclipse.timekeeper.internal.DBConnector;
@@ -110,6 +116,25 @@ public class TimekeeperUiPlugin extends AbstractUIPlugin implements IPropertyCha
 	/** The last time any activity was detected. */
 	protected LocalDateTime lastActiveTime;
 
+	/** The task the start of the current activity was looked up for */
+	private volatile ITask activeSinceTask;
+
+	/** Start of the current activity as of the last lookup */
+	private volatile LocalDateTime activeSince;
+
+	/** Whether or not the start of the current activity is being looked up */
+	private final AtomicBoolean activeSinceLookup = new AtomicBoolean();
+
+	/** Has modified Mylyn tasks synchronized with their Timekeeper task again */
+	private final ITaskListChangeListener taskListListener = deltas -> {
+		TimekeeperService service = TimekeeperPlugin.getDefault().getTimekeeperService();
+		for (TaskContainerDelta delta : deltas) {
+			if (service != null && delta.getElement() instanceof ITask) {
+				service.invalidateLink((ITask) delta.getElement());
+			}
+		}
+	};
+
 	/**
 	 * The number of milliseconds before user is considered idle. Controlled by
 	 * a preference setting.
@@ -218,7 +243,7 @@ public class TimekeeperUiPlugin extends AbstractUIPlugin implements IPropertyCha
 													DateTimeFormatter.ofPattern("EEE e, HH:mm:ss", Locale.US))));
 						}
 					}
-					TimekeeperPlugin.getDefault().getTimekeeperService().endTaskActivity(task, lastActiveTime,
+					TimekeeperPlugin.getDefault().getAsyncTimekeeperService().endTaskActivity(task, lastActiveTime,
 							reactivate);
 				}
 			}
@@ -241,22 +266,28 @@ public class TimekeeperUiPlugin extends AbstractUIPlugin implements IPropertyCha
 
 	/**
 	 * Returns the current active time, or <code>null</code> if a task has not
-	 * been started yet.
+	 * been started yet. As this method is called from the display thread, the
+	 * value from the previous lookup is returned while a new lookup is made in
+	 * the background.
 	 *
 	 * @return the active time or <code>null</code>
 	 */
 	public LocalDateTime getActiveSince() {
 		ITask task = TasksUi.getTaskActivityManager().getActiveTask();
-		if (task != null) {
-			Task trackedTask = TimekeeperUiPlugin.getDefault().getDbConnector().getTask(task);
-			if (trackedTask != null) {
-				Optional<Activity> currentActivity = trackedTask.getCurrentActivity();
-				if (currentActivity.isPresent()) {
-					return currentActivity.get().getStart();
-				}
-			}
+		if (task == null) {
+			return null;
 		}
-		return null;
+		if (activeSinceLookup.compareAndSet(false, true)) {
+			dbConnector.getTask(task).whenComplete((trackedTask, e) -> {
+				activeSince = Optional.ofNullable(trackedTask)
+						.flatMap(Task::getCurrentActivity)
+						.map(Activity::getStart)
+						.orElse(null);
+				activeSinceTask = task;
+				activeSinceLookup.set(false);
+			});
+		}
+		return task.equals(activeSinceTask) ? activeSince : null;
 	}
 
 	/**
@@ -359,13 +390,17 @@ public class TimekeeperUiPlugin extends AbstractUIPlugin implements IPropertyCha
 		afkInterval = getPreferenceStore().getLong(PreferenceConstants.MINUTES_AWAY) * 60_000l;
 		afkDeactivate = getPreferenceStore().getBoolean(PreferenceConstants.DEACTIVATE_WHEN_AWAY);
 		getPreferenceStore().addPropertyChangeListener(this);
+		TasksUiPlugin.getTaskList().addChangeListener(taskListListener);
 		installTaxameter();
+		dbConnector.refreshLabels();
 	}
 
 	@Override
 	public void stop(BundleContext context) throws Exception {
 		plugin = null;
 		getPreferenceStore().removePropertyChangeListener(this);
+		TasksUiPlugin.getTaskList().removeChangeListener(taskListListener);
+		TaskIndex.getDefault().dispose();
 		super.stop(context);
 	}
 
@@ -382,12 +417,12 @@ public class TimekeeperUiPlugin extends AbstractUIPlugin implements IPropertyCha
 		}
 	}
 
-	public static Task getActiveTrackedTask() {
+	public static CompletableFuture<Task> getActiveTrackedTask() {
 		ITask task = TasksUi.getTaskActivityManager().getActiveTask();
 		if (task != null) {
 			return TimekeeperUiPlugin.getDefault().getDbConnector().getTask(task);
 		} else {
-			return null;
+			return CompletableFuture.completedFuture(null);
 		}
 	}
 
@@ -407,13 +442,13 @@ public class TimekeeperUiPlugin extends AbstractUIPlugin implements IPropertyCha
 
 		}
 		dbConnector.findAllTasks()
-		.forEach(task -> {
+		.thenAccept(tasks -> tasks.forEach(task -> {
 			ITask mylynTask = TaskUtils.getMylynTask(task);
 			BiFunction<Calendar, Calendar, Long> elapsedTimeProvider = (s, e) ->
 			TasksUi.getTaskActivityManager().getElapsedTime(mylynTask, s, e);
 			dbConnector.cleanUpTask(task, mylynTask, elapsedTimeProvider);
 
-		});
+		}));
 	}
 
 }
@@ -53,15 +53,20 @@ public class DefaultTemplateToClipboardHandler extends AbstractHandler {
 			LocalDate firstDayOfWeek = ((WorkWeekView) activePart).getFirstDayOfWeek();
 			ReportTemplate template = templates.get(defaultTemplate);
 			TemplateExporter export = new TemplateExporter(template);
-			String result = export.getData(firstDayOfWeek);
-			if (result != null) {
-				Clipboard clipboard = new Clipboard(Display.getCurrent());
-				ByteArrayTransfer targetTransfer = getTransfer(template);
-				Transfer[] transfers = new Transfer[] { targetTransfer };
-				Object[] data = new Object[] { result };
-				clipboard.setContents(data, transfers);
-				clipboard.dispose();
-			}
+			Display display = Display.getCurrent();
+			// the report is assembled on the database thread
+			TimekeeperPlugin.getDefault().getAsyncTimekeeperService()
+					.submit(() -> export.getData(firstDayOfWeek))
+					.thenAccept(result -> display.asyncExec(() -> {
+						if (result != null) {
+							Clipboard clipboard = new Clipboard(display);
+							ByteArrayTransfer targetTransfer = getTransfer(template);
+							Transfer[] transfers = new Transfer[] { targetTransfer };
+							Object[] data = new Object[] { result };
+							clipboard.setContents(data, transfers);
+							clipboard.dispose();
+						}
+					}));
 		}
 		return null;
 	}
@@ -11,10 +11,14 @@
 
 package net.resheim.eclipse.timekeeper.ui.commands;
 
-import java.io.BufferedWriter;
-import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.Map;
@@ -23,6 +27,13 @@ import org.eclipse.core.commands.AbstractHandler;
 import org.eclipse.core.commands.ExecutionEvent;
 import org.eclipse.core.commands.ExecutionException;
 import org.eclipse.core.commands.IHandler;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.ICoreRunnable;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.dnd.ByteArrayTransfer;
 import org.eclipse.swt.dnd.Clipboard;
@@ -38,6 +49,7 @@ import org.eclipse.ui.handlers.HandlerUtil;
 import net.resheim.eclipse.timekeeper.db.TimekeeperPlugin;
 import net.resheim.eclipse.timekeeper.db.report.ReportTemplate;
 import net.resheim.eclipse.timekeeper.db.report.TemplateExporter;
+import net.resheim.eclipse.timekeeper.ui.TimekeeperUiPlugin;
 import net.resheim.eclipse.timekeeper.ui.views.WorkWeekView;
 
 public class TemplateExportHandler extends AbstractHandler implements IHandler {
@@ -46,8 +58,27 @@ public class TemplateExportHandler extends AbstractHandler implements IHandler {
 	/** Whether or not to write the result to a file */
 	public static final String COMMAND_PARAMETER_FILE = "net.resheim.eclipse.timekeeper.ui.templateExportCommand_file";
 
+	/** The period to export, one of {@link #PERIOD_WEEK} (the default), {@link #PERIOD_MONTH} or {@link #PERIOD_QUARTER} */
+	public static final String COMMAND_PARAMETER_PERIOD = "net.resheim.eclipse.timekeeper.ui.templateExportCommand_period";
+
+	public static final String PERIOD_WEEK = "week";
+
+	public static final String PERIOD_MONTH = "month";
+
+	public static final String PERIOD_QUARTER = "quarter";
+
 	private static final DateTimeFormatter fileNameFormat = DateTimeFormatter.ofPattern("'Workweek_'w'-'YYYY");
 
+	private static final DateTimeFormatter monthFileNameFormat = DateTimeFormatter.ofPattern("'Month_'MM'-'uuuu");
+
+	private static final DateTimeFormatter quarterFileNameFormat = DateTimeFormatter.ofPattern("'Quarter_'Q'-'uuuu");
+
+	/** Writes the report, on the database thread or in a job */
+	@FunctionalInterface
+	private interface ReportWriter {
+		void write(Writer out, IProgressMonitor monitor) throws IOException;
+	}
+
 	@Override
 	public Object execute(ExecutionEvent event) throws ExecutionException {
 		@SuppressWarnings("unchecked")
@@ -58,39 +89,96 @@ public class TemplateExportHandler extends AbstractHandler implements IHandler {
 			LocalDate firstDayOfWeek = ((WorkWeekView) activePart).getFirstDayOfWeek();
 			ReportTemplate template = templates.get(parameters.get(COMMAND_PARAMETER_TEMPLATE_NAME));
 			TemplateExporter export = new TemplateExporter(template);
-			String result = export.getData(firstDayOfWeek);
-			if (result != null) {
-				// save to file or copy to clipboard
-				boolean save = Boolean.parseBoolean(parameters.getOrDefault(COMMAND_PARAMETER_FILE, "false"));
-				if (save) {
-					try {
-						FileDialog fd = new FileDialog(activePart.getSite().getShell(), SWT.SAVE);
-						fd.setFilterExtensions(new String[] { getFileExtension(template) });
-						fd.setFileName(fileNameFormat.format(firstDayOfWeek));
-						String filename = fd.open();
-						if (filename != null) {
-							try (BufferedWriter bw = new BufferedWriter(new FileWriter(new File(filename)))) {
-								bw.write(result);
-								bw.close();
+			// the month or quarter of the first day of the selected week is reported
+			// in one pass, using weeks covering the period
+			ReportWriter report;
+			String fileName;
+			switch (parameters.getOrDefault(COMMAND_PARAMETER_PERIOD, PERIOD_WEEK)) {
+			case PERIOD_MONTH: {
+				LocalDate start = firstDayOfWeek.withDayOfMonth(1);
+				report = (out, monitor) -> export.export(start, start.plusMonths(1), out, monitor);
+				fileName = monthFileNameFormat.format(start);
+				break;
+			}
+			case PERIOD_QUARTER: {
+				LocalDate start = firstDayOfWeek.withDayOfMonth(1)
+						.withMonth((firstDayOfWeek.getMonthValue() - 1) / 3 * 3 + 1);
+				report = (out, monitor) -> export.export(start, start.plusMonths(3), out, monitor);
+				fileName = quarterFileNameFormat.format(start);
+				break;
+			}
+			default:
+				report = (out, monitor) -> export.export(firstDayOfWeek, out, monitor);
+				fileName = fileNameFormat.format(firstDayOfWeek);
+				break;
+			}
+			// save to file or copy to clipboard
+			boolean save = Boolean.parseBoolean(parameters.getOrDefault(COMMAND_PARAMETER_FILE, "false"));
+			if (save) {
+				saveToFile(activePart, template, fileName, report);
+			} else {
+				Display display = Display.getCurrent();
+				// the report is assembled on the database thread
+				TimekeeperPlugin.getDefault().getAsyncTimekeeperService()
+						.submit(() -> {
+							StringWriter out = new StringWriter();
+							try {
+								report.write(out, null);
+							} catch (IOException e) {
+								throw new UncheckedIOException(e);
 							}
-						}
-					} catch (IOException e) {
-						e.printStackTrace();
-					}
-
-				} else {
-					Clipboard clipboard = new Clipboard(Display.getCurrent());
-					ByteArrayTransfer targetTransfer = getTransfer(template);
-					Transfer[] transfers = new Transfer[] { targetTransfer };
-					Object[] data = new Object[] { result };
-					clipboard.setContents(data, transfers);
-					clipboard.dispose();
-				}
+							return out.toString();
+						})
+						.thenAccept(result -> display.asyncExec(() -> {
+							if (result != null) {
+								Clipboard clipboard = new Clipboard(display);
+								ByteArrayTransfer targetTransfer = getTransfer(template);
+								Transfer[] transfers = new Transfer[] { targetTransfer };
+								Object[] data = new Object[] { result };
+								clipboard.setContents(data, transfers);
+								clipboard.dispose();
+							}
+						}));
 			}
 		}
 		return null;
 	}
 
+	/**
+	 * Asks for a file and writes the report to it in a job. The report is produced
+	 * on the job thread, so that other database operations are not held up by a
+	 * long export. The file is removed if the export fails or is cancelled.
+	 */
+	private void saveToFile(IWorkbenchPart activePart, ReportTemplate template, String fileName,
+			ReportWriter report) {
+		FileDialog fd = new FileDialog(activePart.getSite().getShell(), SWT.SAVE);
+		fd.setFilterExtensions(new String[] { getFileExtension(template) });
+		fd.setFileName(fileName);
+		String filename = fd.open();
+		if (filename == null) {
+			return;
+		}
+		Path location = Paths.get(filename);
+		Job job = Job.create("Export Timekeeper report", (ICoreRunnable) monitor -> {
+			try (Writer out = Files.newBufferedWriter(location, StandardCharsets.UTF_8)) {
+				report.write(out, monitor);
+			} catch (IOException | RuntimeException e) {
+				try {
+					Files.deleteIfExists(location);
+				} catch (IOException e1) {
+					// keep the original problem
+				}
+				if (e instanceof OperationCanceledException) {
+					throw (OperationCanceledException) e;
+				}
+				throw new CoreException(new Status(IStatus.ERROR, TimekeeperUiPlugin.PLUGIN_ID,
+						"Could not export report to " + filename, e));
+			}
+		});
+		job.setUser(true);
+		job.schedule();
+	}
+
 	/**
 	 * Figure out and return the appropriate transfer type. The default is
 	 * {@link TextTransfer}.
@@ -11,11 +11,14 @@
 
 package net.resheim.eclipse.timekeeper.ui.commands;
 
+import java.util.Optional;
+
 import org.eclipse.core.commands.AbstractHandler;
 import org.eclipse.core.commands.ExecutionEvent;
 import org.eclipse.core.commands.ExecutionException;
 import org.eclipse.jface.viewers.ISelection;
 import org.eclipse.jface.viewers.IStructuredSelection;
+import org.eclipse.swt.widgets.Display;
 import org.eclipse.ui.IViewPart;
 import org.eclipse.ui.IWorkbenchPage;
 import org.eclipse.ui.handlers.HandlerUtil;
@@ -24,6 +27,7 @@ import net.resheim.eclipse.timekeeper.db.TimekeeperPlugin;
 import net.resheim.eclipse.timekeeper.db.model.Activity;
 import net.resheim.eclipse.timekeeper.db.model.ActivityLabel;
 import net.resheim.eclipse.timekeeper.ui.ActivityLabelMenu;
+import net.resheim.eclipse.timekeeper.ui.TimekeeperUiPlugin;
 import net.resheim.eclipse.timekeeper.ui.views.WorkWeekView;
 
 /**
@@ -36,15 +40,21 @@ public class ToggleLabelCommand extends AbstractHandler {
 	@Override
 	public Object execute(ExecutionEvent event) throws ExecutionException {
 		String id = event.getParameter(ActivityLabelMenu.TOGGLE_LABEL_PARAMETER_ID);
-		ActivityLabel label = TimekeeperPlugin.getDefault().getTimekeeperService().getLabels()
-				.filter(l -> l.getId().equals(id)).findFirst().get();
+		// the menu was built from the same labels, so there is no need to look it up
+		Optional<ActivityLabel> label = TimekeeperUiPlugin.getDefault().getDbConnector().getLabels().stream()
+				.filter(l -> l.getId().equals(id)).findFirst();
 		ISelection selection = HandlerUtil.getCurrentSelection(event);
 		Object obj = ((IStructuredSelection) selection).getFirstElement();
-		if (obj instanceof Activity) {
-			((Activity) obj).toggleLabel(label);
+		if (obj instanceof Activity && label.isPresent()) {
 			IWorkbenchPage page = HandlerUtil.getActiveWorkbenchWindow(event).getActivePage();
 			IViewPart view = page.findView(WorkWeekView.VIEW_ID);
-			((WorkWeekView) view).refresh(obj);
+			Display display = Display.getCurrent();
+			TimekeeperPlugin.getDefault().getAsyncTimekeeperService().toggleLabel((Activity) obj, label.get())
+					.thenRun(() -> display.asyncExec(() -> {
+						if (view instanceof WorkWeekView) {
+							((WorkWeekView) view).refresh(obj);
+						}
+					}));
 		}
 		return null;
 	}
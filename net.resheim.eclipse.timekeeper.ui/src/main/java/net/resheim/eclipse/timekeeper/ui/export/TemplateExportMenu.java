@@ -38,17 +38,22 @@ public class TemplateExportMenu extends CompoundContributionItem implements IWor
 		Map<String, ReportTemplate> templates = TimekeeperPlugin.getDefault().getTimekeeperService().getTemplates();
 		IMenuManager copyMenu = new MenuManager("Copy as");
 		IMenuManager saveMenu = new MenuManager("Save as");
+		IMenuManager saveMonthMenu = new MenuManager("Save month as");
+		IMenuManager saveQuarterMenu = new MenuManager("Save quarter as");
 		for (String name : templates.keySet()) {
-			addToMenu(copyMenu, name, false);
-			addToMenu(saveMenu, name, true);
+			addToMenu(copyMenu, name, false, TemplateExportHandler.PERIOD_WEEK);
+			addToMenu(saveMenu, name, true, TemplateExportHandler.PERIOD_WEEK);
+			addToMenu(saveMonthMenu, name, true, TemplateExportHandler.PERIOD_MONTH);
+			addToMenu(saveQuarterMenu, name, true, TemplateExportHandler.PERIOD_QUARTER);
 		}
-		return new IContributionItem[] { copyMenu, saveMenu };
+		return new IContributionItem[] { copyMenu, saveMenu, saveMonthMenu, saveQuarterMenu };
 	}
 
-	private void addToMenu(IMenuManager menu, String name, boolean save) {
+	private void addToMenu(IMenuManager menu, String name, boolean save, String period) {
 		Map<String, String> parameters = new HashMap<>();
 		parameters.put(TemplateExportHandler.COMMAND_PARAMETER_TEMPLATE_NAME, name);
 		parameters.put(TemplateExportHandler.COMMAND_PARAMETER_FILE, Boolean.toString(save));
+		parameters.put(TemplateExportHandler.COMMAND_PARAMETER_PERIOD, period);
 		CommandContributionItemParameter contributionParameters = new CommandContributionItemParameter(serviceLocator,
 				null, COMMAND_ID, parameters, null, null, null, name, null, null, CommandContributionItem.STYLE_PUSH,
 				null, true);
@@ -31,8 +31,8 @@ import org.eclipse.swt.layout.GridData;
 import org.eclipse.swt.layout.GridLayout;
 import org.eclipse.swt.widgets.Button;
 import org.eclipse.swt.widgets.Composite;
-import org.eclipse.swt.widgets.DirectoryDialog;
 import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.FileDialog;
 import org.eclipse.swt.widgets.Group;
 import org.eclipse.swt.widgets.Shell;
 import org.eclipse.ui.IViewPart;
@@ -46,6 +46,11 @@ import net.resheim.eclipse.timekeeper.ui.views.WorkWeekView;
 
 public class DatabasePreferencePage extends FieldEditorPreferencePage implements IWorkbenchPreferencePage {
 
+	/** The data is exported to and imported from zip archives */
+	private static final String[] ARCHIVE_EXTENSIONS = { "*.zip" }; //$NON-NLS-1$
+
+	private static final String ARCHIVE_NAME = "timekeeper.zip"; //$NON-NLS-1$
+
 	public DatabasePreferencePage() {
 		super(FieldEditorPreferencePage.GRID);
 	}
@@ -80,22 +85,28 @@ public class DatabasePreferencePage extends FieldEditorPreferencePage implements
 
 			@Override
 			public void widgetSelected(SelectionEvent e) {
-				DirectoryDialog dialog = new DirectoryDialog(getFieldEditorParent().getShell(), SWT.SAVE);
+				FileDialog dialog = new FileDialog(getFieldEditorParent().getShell(), SWT.SAVE);
 				dialog.setText(Messages.DatabasePreferences_ChooseExportFolder);
+				dialog.setFilterExtensions(ARCHIVE_EXTENSIONS);
+				dialog.setFileName(ARCHIVE_NAME);
+				dialog.setOverwrite(true);
 				String open = dialog.open();
 				if (open!=null){
 					Path location = Paths.get(open);
 					Shell shell = g.getShell();
 					Job job = Job.create("Export Timekeeper database", (ICoreRunnable) monitor -> {
 						try {
-							int count = TimekeeperPlugin.getDefault().getTimekeeperService().exportTo(location);
+							int count = TimekeeperPlugin.getDefault().getTimekeeperService().exportTo(location,
+									monitor);
 							shell.getDisplay().asyncExec(() -> {
 								MessageDialog.openInformation(shell, Messages.DatabasePreferences_DataExported,
 										String.format(Messages.DatabasePreferences_ExportMessage, count));
 							});
 						} catch (IOException e1) {
-							MessageDialog.openError(shell, Messages.DatabasePreferences_ExportError,
-									e1.getMessage());
+							shell.getDisplay().asyncExec(() -> {
+								MessageDialog.openError(shell, Messages.DatabasePreferences_ExportError,
+										e1.getMessage());
+							});
 						}
 					});
 					job.schedule();
@@ -127,8 +138,9 @@ public class DatabasePreferencePage extends FieldEditorPreferencePage implements
 
 			@Override
 			public void widgetSelected(SelectionEvent e) {
-				DirectoryDialog dialog = new DirectoryDialog(getFieldEditorParent().getShell(), SWT.OPEN);
+				FileDialog dialog = new FileDialog(getFieldEditorParent().getShell(), SWT.OPEN);
 				dialog.setText(Messages.DatabasePreferences_ChooseImportFolder);
+				dialog.setFilterExtensions(ARCHIVE_EXTENSIONS);
 				String open = dialog.open();
 				if (open != null) {
 					Path location = Paths.get(open);
@@ -137,7 +149,7 @@ public class DatabasePreferencePage extends FieldEditorPreferencePage implements
 							.findView(WorkWeekView.VIEW_ID);
 					Job job = Job.create("Import Timekeeper database", (ICoreRunnable) monitor -> {
 						try {
-							int i = TimekeeperPlugin.getDefault().getTimekeeperService().importFrom(location);
+							int i = TimekeeperPlugin.getDefault().getTimekeeperService().importFrom(location, monitor);
 							shell.getDisplay().asyncExec(() -> {
 								// the view may not be open
 								if (showView != null) {
@@ -53,6 +53,7 @@ import org.eclipse.ui.IWorkbenchPreferencePage;
 import net.resheim.eclipse.timekeeper.db.TimekeeperPlugin;
 import net.resheim.eclipse.timekeeper.db.model.ActivityLabel;
 import net.resheim.eclipse.timekeeper.ui.ActivityLabelPainter;
+import net.resheim.eclipse.timekeeper.ui.TimekeeperUiPlugin;
 
 // TODO: Implement buttons for adding and removing labels
 public class LabelPreferencePage extends PreferencePage implements IWorkbenchPreferencePage {
@@ -245,7 +246,9 @@ public class LabelPreferencePage extends PreferencePage implements IWorkbenchPre
 
 	@Override
 	public boolean performOk() {
-		updateDatabase();
+		// store the labels on the database thread and update the labels used for menus
+		TimekeeperPlugin.getDefault().getAsyncTimekeeperService().run(this::updateDatabase)
+				.thenCompose(v -> TimekeeperUiPlugin.getDefault().getDbConnector().refreshLabels());
 		return true;
 	}
 
@@ -22,4 +22,7 @@ public class PreferenceConstants {
 
 	public static final String DEACTIVATE_WHEN_AWAY = "deactivate_when_away";
 
+	/** Whether the week view only creates the rows that are visible */
+	public static final String VIRTUAL_TREE = "virtual_tree";
+
 }
@@ -20,6 +20,7 @@ public class PreferenceInitializer extends AbstractPreferenceInitializer {
 		store.setDefault(PreferenceConstants.MINUTES_IDLE, 5);
 		store.setDefault(PreferenceConstants.MINUTES_AWAY, 30);
 		store.setDefault(PreferenceConstants.DEACTIVATE_WHEN_AWAY, true);
+		store.setDefault(PreferenceConstants.VIRTUAL_TREE, false);
 		while (!TimekeeperPlugin.getDefault().isReady()) {
 			try {
 				Thread.sleep(100);
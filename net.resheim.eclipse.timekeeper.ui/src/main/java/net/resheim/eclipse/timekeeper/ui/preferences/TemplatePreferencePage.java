@@ -61,6 +61,7 @@ import org.eclipse.ui.preferences.ScopedPreferenceStore;
 import net.resheim.eclipse.timekeeper.db.TimekeeperPlugin;
 import net.resheim.eclipse.timekeeper.db.report.ReportTemplate;
 import net.resheim.eclipse.timekeeper.db.report.ReportTemplate.Type;
+import net.resheim.eclipse.timekeeper.db.report.TemplateRegistry;
 
 /**
  * This preference page allows for setting up various report templates.
@@ -320,6 +321,8 @@ public class TemplatePreferencePage extends PreferencePage implements IWorkbench
 			oos.writeObject(saveTemplates);
 			String encoded = Base64.getEncoder().encodeToString(out.toByteArray());
 			store.setValue(TimekeeperPlugin.PREF_REPORT_TEMPLATES, encoded);
+			// templates may have been modified, renamed or removed
+			TemplateRegistry.getDefault().invalidate();
 		} catch (IOException e) {
 			e.printStackTrace();
 			return false;
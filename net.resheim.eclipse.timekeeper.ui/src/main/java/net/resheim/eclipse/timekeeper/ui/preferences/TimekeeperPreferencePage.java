@@ -35,6 +35,9 @@ public class TimekeeperPreferencePage extends FieldEditorPreferencePage implemen
 				"Number of minutes before user is considered &away", getFieldEditorParent()));
 		addField(new BooleanFieldEditor(PreferenceConstants.DEACTIVATE_WHEN_AWAY,
 				"Automatically &deactivate task when away", getFieldEditorParent()));
+		addField(new BooleanFieldEditor(PreferenceConstants.VIRTUAL_TREE,
+				"Only create &visible rows in the week view (applies when the view is opened)",
+				getFieldEditorParent()));
 
 	}
 
@@ -16,6 +16,7 @@ import org.eclipse.jface.viewers.EditingSupport;
 import org.eclipse.jface.viewers.TextCellEditor;
 import org.eclipse.jface.viewers.TreeViewer;
 
+import net.resheim.eclipse.timekeeper.db.TimekeeperPlugin;
 import net.resheim.eclipse.timekeeper.db.model.Activity;
 
 /**
@@ -54,6 +55,7 @@ class ActivitySummaryEditingSupport extends EditingSupport {
 	protected void setValue(Object element, Object value) {
 		if (element instanceof Activity) {
 			((Activity) element).setSummary(value.toString());
+			TimekeeperPlugin.getDefault().getAsyncTimekeeperService().updateActivity((Activity) element);
 			getViewer().update(element, null);
 		}
 	}
@@ -0,0 +1,191 @@
+/*******************************************************************************
+ * Copyright © 2026 Torkild U. Resheim
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Torkild U. Resheim - initial API and implementation
+ *******************************************************************************/
+
+package net.resheim.eclipse.timekeeper.ui.views;
+
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jface.action.Action;
+import org.eclipse.jface.action.IToolBarManager;
+import org.eclipse.jface.viewers.ArrayContentProvider;
+import org.eclipse.jface.viewers.ColumnLabelProvider;
+import org.eclipse.jface.viewers.TableViewer;
+import org.eclipse.jface.viewers.TableViewerColumn;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Table;
+import org.eclipse.ui.ISharedImages;
+import org.eclipse.ui.PlatformUI;
+import org.eclipse.ui.part.ViewPart;
+
+import net.resheim.eclipse.timekeeper.db.TimekeeperMetrics;
+import net.resheim.eclipse.timekeeper.db.TimekeeperPlugin;
+import net.resheim.eclipse.timekeeper.ui.TaskIndex;
+
+/**
+ * Presents the statistics collected by the Timekeeper database layer, see
+ * {@link TimekeeperMetrics}. The same statistics are available over JMX.
+ *
+ * @author Torkild U. Resheim
+ */
+public class DatabaseMetricsView extends ViewPart {
+
+	public static final String VIEW_ID = "net.resheim.eclipse.timekeeper.ui.views.databaseMetrics";
+
+	/** Update the statistics every five seconds */
+	private static final int UPDATE_INTERVAL = 5_000;
+
+	private static final class Metric {
+
+		private final String name;
+
+		private final Object value;
+
+		private Metric(String name, Object value) {
+			this.name = name;
+			this.value = value;
+		}
+
+	}
+
+	private TableViewer viewer;
+
+	private Action refreshAction;
+
+	private Action resetAction;
+
+	@Override
+	public void createPartControl(Composite parent) {
+		viewer = new TableViewer(parent, SWT.SINGLE | SWT.H_SCROLL | SWT.V_SCROLL | SWT.FULL_SELECTION);
+		Table table = viewer.getTable();
+		table.setHeaderVisible(true);
+		table.setLinesVisible(true);
+		viewer.setContentProvider(ArrayContentProvider.getInstance());
+
+		TableViewerColumn nameColumn = new TableViewerColumn(viewer, SWT.LEFT);
+		nameColumn.getColumn().setText("Metric");
+		nameColumn.getColumn().setWidth(300);
+		nameColumn.setLabelProvider(new ColumnLabelProvider() {
+			@Override
+			public String getText(Object element) {
+				return ((Metric) element).name;
+			}
+		});
+
+		TableViewerColumn valueColumn = new TableViewerColumn(viewer, SWT.RIGHT);
+		valueColumn.getColumn().setText("Value");
+		valueColumn.getColumn().setWidth(120);
+		valueColumn.setLabelProvider(new ColumnLabelProvider() {
+			@Override
+			public String getText(Object element) {
+				Object value = ((Metric) element).value;
+				return value instanceof Double ? MessageFormat.format("{0,number,percent}", value) : String.valueOf(value);
+			}
+		});
+
+		makeActions();
+		IToolBarManager manager = getViewSite().getActionBars().getToolBarManager();
+		manager.add(resetAction);
+		manager.add(refreshAction);
+		refresh();
+		installUpdater();
+	}
+
+	private void makeActions() {
+		refreshAction = new Action("Refresh") {
+			@Override
+			public void run() {
+				refresh();
+			}
+		};
+		refreshAction.setToolTipText("Refresh the database metrics");
+		refreshAction.setImageDescriptor(PlatformUI.getWorkbench().getSharedImages()
+				.getImageDescriptor(ISharedImages.IMG_TOOL_REDO));
+
+		resetAction = new Action("Reset") {
+			@Override
+			public void run() {
+				TimekeeperPlugin.getDefault().getTimekeeperService().getMetrics().reset();
+				refresh();
+			}
+		};
+		resetAction.setToolTipText("Discard the recorded transaction and query times");
+		resetAction.setImageDescriptor(PlatformUI.getWorkbench().getSharedImages()
+				.getImageDescriptor(ISharedImages.IMG_ELCL_REMOVEALL));
+	}
+
+	private void installUpdater() {
+		final Display display = viewer.getControl().getDisplay();
+		Runnable handler = new Runnable() {
+			public void run() {
+				if (!viewer.getControl().isDisposed() && !PlatformUI.getWorkbench().isClosing()) {
+					refresh();
+					display.timerExec(UPDATE_INTERVAL, this);
+				}
+			}
+		};
+		display.timerExec(UPDATE_INTERVAL, handler);
+	}
+
+	private void refresh() {
+		if (viewer.getControl().isDisposed()) {
+			return;
+		}
+		viewer.setInput(collect().toArray());
+	}
+
+	private static List<Metric> collect() {
+		List<Metric> list = new ArrayList<>();
+		TimekeeperMetrics metrics = new TimekeeperMetrics(TimekeeperPlugin.getDefault().getTimekeeperService());
+		list.add(new Metric("Transactions", metrics.getTransactionCount()));
+		list.add(new Metric("Rollbacks", metrics.getRollbackCount()));
+		list.add(new Metric("Mean transaction time (µs)", metrics.getMeanTransactionTime()));
+		list.add(new Metric("Max transaction time (µs)", metrics.getMaxTransactionTime()));
+		Map<String, Long> means = metrics.getMeanQueryTimes();
+		Map<String, Long> maxima = metrics.getMaxQueryTimes();
+		metrics.getQueryCounts().forEach((query, count) -> {
+			list.add(new Metric(MessageFormat.format("{0} executions", query), count));
+			list.add(new Metric(MessageFormat.format("{0} mean time (µs)", query), means.get(query)));
+			list.add(new Metric(MessageFormat.format("{0} max time (µs)", query), maxima.get(query)));
+		});
+		metrics.getPersistenceCounters().forEach((counter, value) -> list.add(new Metric(counter, value)));
+		Map<String, Integer> sizes = metrics.getCacheSizes();
+		metrics.getCacheHitRatios().forEach((cache, ratio) -> {
+			list.add(new Metric(MessageFormat.format("{0} cache size", cache), sizes.get(cache)));
+			list.add(new Metric(MessageFormat.format("{0} cache hit ratio", cache), ratio));
+		});
+		TaskIndex index = TaskIndex.getDefault();
+		list.add(new Metric("Task index hits", index.getHitCount()));
+		list.add(new Metric("Task index misses", index.getMissCount()));
+		list.add(new Metric("Active sessions", metrics.getActiveSessionCount()));
+		list.add(new Metric("Session leases", metrics.getSessionLeaseCount()));
+		list.add(new Metric("Max session wait time (ms)", metrics.getMaxSessionWaitTime()));
+		list.add(new Metric("Last persistence context size", metrics.getLastPersistenceContextSize()));
+		list.add(new Metric("Max persistence context size", metrics.getMaxPersistenceContextSize()));
+		list.add(new Metric("Pending writes", metrics.getPendingWriteCount()));
+		list.add(new Metric("Flushes", metrics.getFlushCount()));
+		list.add(new Metric("Max flush latency (ms)", metrics.getMaxFlushLatency()));
+		list.add(new Metric("Change feed polls", metrics.getChangeFeedPollCount()));
+		list.add(new Metric("Change feed changes", metrics.getChangeFeedChangeCount()));
+		list.add(new Metric("Template compilations", metrics.getTemplateCompileCount()));
+		return list;
+	}
+
+	@Override
+	public void setFocus() {
+		viewer.getControl().setFocus();
+	}
+
+}
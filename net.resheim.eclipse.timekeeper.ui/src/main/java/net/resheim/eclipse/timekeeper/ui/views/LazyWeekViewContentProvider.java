@@ -0,0 +1,92 @@
+/*******************************************************************************
+ * Copyright © 2026 Torkild U. Resheim
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Torkild U. Resheim - initial API and implementation
+ *******************************************************************************/
+package net.resheim.eclipse.timekeeper.ui.views;
+
+import org.eclipse.jface.viewers.ILazyTreeContentProvider;
+import org.eclipse.jface.viewers.TreeViewer;
+import org.eclipse.jface.viewers.Viewer;
+
+import net.resheim.eclipse.timekeeper.db.model.Activity;
+import net.resheim.eclipse.timekeeper.db.model.Task;
+
+/**
+ * Presents the content of a {@link WeekViewContentProvider} in a tree created
+ * with the <code>SWT.VIRTUAL</code> style, so that rows and their labels are
+ * only created when they become visible. The rows are taken from the sorted
+ * row models cached by the week view content provider, hence a viewer
+ * comparator must not be used.
+ *
+ * @author Torkild U. Resheim
+ */
+class LazyWeekViewContentProvider implements ILazyTreeContentProvider {
+
+	private final WeekViewContentProvider delegate;
+
+	private TreeViewer viewer;
+
+	public LazyWeekViewContentProvider(WeekViewContentProvider delegate) {
+		this.delegate = delegate;
+	}
+
+	@Override
+	public void inputChanged(Viewer v, Object oldInput, Object newInput) {
+		viewer = (TreeViewer) v;
+		delegate.inputChanged(v, oldInput, newInput);
+	}
+
+	@Override
+	public void dispose() {
+		delegate.dispose();
+	}
+
+	@Override
+	public void updateElement(Object parent, int index) {
+		Object[] children = getChildren(parent);
+		if (index >= children.length) {
+			return;
+		}
+		Object element = children[index];
+		viewer.replace(parent, index, element);
+		int count = getChildren(element).length;
+		viewer.setChildCount(element, count);
+		// rows are expanded by default, as with the non-virtual tree
+		if (count > 0) {
+			viewer.setExpandedState(element, true);
+		}
+	}
+
+	@Override
+	public void updateChildCount(Object element, int currentChildCount) {
+		int count = getChildren(element).length;
+		if (count != currentChildCount) {
+			viewer.setChildCount(element, count);
+		}
+	}
+
+	@Override
+	public Object getParent(Object element) {
+		if (element instanceof Activity) {
+			return ((Activity) element).getTrackedTask();
+		}
+		if (element instanceof Task) {
+			return ((Task) element).getProject();
+		}
+		return viewer == null ? null : viewer.getInput();
+	}
+
+	private Object[] getChildren(Object element) {
+		if (viewer != null && element == viewer.getInput()) {
+			return delegate.getElements(element);
+		}
+		return delegate.getChildren(element);
+	}
+
+}
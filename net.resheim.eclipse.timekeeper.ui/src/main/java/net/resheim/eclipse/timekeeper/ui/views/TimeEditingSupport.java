@@ -22,12 +22,10 @@ import org.eclipse.jface.viewers.CellEditor;
 import org.eclipse.jface.viewers.EditingSupport;
 import org.eclipse.jface.viewers.TextCellEditor;
 import org.eclipse.jface.viewers.TreeViewer;
-import org.eclipse.mylyn.tasks.core.ITask;
 
 import net.resheim.eclipse.timekeeper.db.TimekeeperPlugin;
 import net.resheim.eclipse.timekeeper.db.model.Activity;
 import net.resheim.eclipse.timekeeper.db.model.Task;
-import net.resheim.eclipse.timekeeper.ui.TaskUtils;
 
 /**
  * Allows editing of the period an activity lasts if it starts or ends on the
@@ -47,12 +45,14 @@ class TimeEditingSupport extends EditingSupport {
 	private static final String TIME_POINT = "([0-9]|0[0-9]|1[0-9]|2[0-3]):([0-5][0-9])";
 
 	private final int weekday;
+	private final WeekViewContentProvider contentProvider;
 	private int width_i;
 	private int width_0;
 
 	public TimeEditingSupport(TreeViewer viewer, WeekViewContentProvider contentProvider, int weekday) {
 		super(viewer);
 		this.weekday = weekday;
+		this.contentProvider = contentProvider;
 	}
 
 	@Override
@@ -110,7 +110,6 @@ class TimeEditingSupport extends EditingSupport {
 		if (element instanceof Activity) {
 			if (value instanceof String) {
 				Task trackedTask = ((Activity) element).getTrackedTask();
-				ITask task = TaskUtils.resolveMylynTask(trackedTask);
 				LocalDateTime start = ((Activity) element).getStart();
 				// has time point or range been specified...
 				Matcher range = Pattern.compile(TIME_RANGE).matcher((String) value);
@@ -129,14 +128,14 @@ class TimeEditingSupport extends EditingSupport {
 							|| !trackedTask.getCurrentActivity().equals(Optional.of(element))) {
 						setEndTime(element, start, range);
 					}
-					update(element, task);
+					update(element, trackedTask);
 
 				} else if (point.matches()) {
 					Assert.isNotNull(start);
 					start = start.withHour(Integer.parseInt(point.group(1)));
 					start = start.withMinute(Integer.parseInt(point.group(2)));
 					((Activity) element).setStart(start);
-					update(element, task);
+					update(element, trackedTask);
 				}
 			}
 		}
@@ -157,13 +156,19 @@ class TimeEditingSupport extends EditingSupport {
 		((Activity) element).setEnd(end);
 	}
 
-	private void update(Object element, ITask task) {
+	private void update(Object element, Task task) {
 		Assert.isNotNull(element);
 		Assert.isNotNull(task);
 		getViewer().update(element, null);
-		getViewer().update(task, null);
-		getViewer().update(TimekeeperPlugin.getDefault().getTimekeeperService().getMylynProjectName(task), null);
-		getViewer().update(WeekViewContentProvider.WEEKLY_SUMMARY, null);
+		// store the change and have the daily totals updated accordingly
+		TimekeeperPlugin.getDefault().getAsyncTimekeeperService().updateActivity((Activity) element)
+				.thenCompose(a -> contentProvider.updateTotals())
+				.thenRun(() -> contentProvider.asyncExec(() -> {
+					getViewer().update(element, null);
+					getViewer().update(task, null);
+					getViewer().update(task.getProject(), null);
+					getViewer().update(WeekViewContentProvider.WEEKLY_SUMMARY, null);
+				}));
 		// restore column sizes
 		((TreeViewer) getViewer()).getTree().getColumn(weekday + 1).setWidth(width_i);
 		((TreeViewer) getViewer()).getTree().getColumn(0).setWidth(width_0);
@@ -0,0 +1,268 @@
+/*******************************************************************************
+ * Copyright © 2026 Torkild U. Resheim
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Torkild U. Resheim - initial API and implementation
+ *******************************************************************************/
+package net.resheim.eclipse.timekeeper.ui.views;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang3.time.DurationFormatUtils;
+
+import net.resheim.eclipse.timekeeper.db.model.Activity;
+import net.resheim.eclipse.timekeeper.db.model.GlobalTaskId;
+import net.resheim.eclipse.timekeeper.db.model.Project;
+import net.resheim.eclipse.timekeeper.db.model.Task;
+import net.resheim.eclipse.timekeeper.db.report.model.DailyTotals;
+
+/**
+ * The number of seconds spent per row of the week view and day of the week.
+ * The matrix is calculated once when the content of the week has been loaded,
+ * so that painting a cell is a simple lookup. Activities that are still
+ * running are accounted for at the time the matrix is created, and the
+ * affected cells are patched by {@link #tick(CellListener)}.
+ * <p>
+ * The matrix is created on any thread, but must only be accessed and patched
+ * on the display thread once published.
+ * </p>
+ *
+ * @author Torkild U. Resheim
+ */
+public class WeekMatrix {
+
+	private static final int DAYS = 7;
+
+	/**
+	 * Notified about cells that will be painted differently after a
+	 * {@link WeekMatrix#tick(CellListener)}.
+	 */
+	@FunctionalInterface
+	public interface CellListener {
+
+		/**
+		 * @param element the row element
+		 * @param weekday the day of the week, starting from 0
+		 * @param text    the new formatted duration
+		 */
+		void cellChanged(Object element, int weekday, String text);
+	}
+
+	/** An activity that has not ended, and the time accounted for so far */
+	private static class Running {
+
+		final Activity activity;
+
+		final Task task;
+
+		final long[] seconds = new long[DAYS];
+
+		Running(Activity activity, Task task) {
+			this.activity = activity;
+			this.task = task;
+		}
+	}
+
+	private final LocalDate firstDayOfWeek;
+
+	/** Seconds per day keyed by row, see {@link #keyOf(Object)} */
+	private final Map<Object, long[]> cells = new HashMap<>();
+
+	/** Formatted cell values, created when first painted */
+	private final Map<Object, String[]> texts = new HashMap<>();
+
+	private final List<Running> running = new ArrayList<>();
+
+	private WeekMatrix(LocalDate firstDayOfWeek) {
+		this.firstDayOfWeek = firstDayOfWeek;
+	}
+
+	/**
+	 * Creates the matrix for the given tasks. Totals of tasks, projects and the
+	 * week as a whole are read from the daily totals, while the time spent on
+	 * each activity is calculated.
+	 *
+	 * @param firstDayOfWeek the first day of the week
+	 * @param tasks          the tasks shown in the week
+	 * @param totals         the daily totals of the week, may be
+	 *                       <code>null</code>
+	 * @return the matrix
+	 */
+	public static WeekMatrix of(LocalDate firstDayOfWeek, Collection<Task> tasks, DailyTotals totals) {
+		WeekMatrix matrix = new WeekMatrix(firstDayOfWeek);
+		long from = Activity.toSeconds(firstDayOfWeek);
+		long now = Activity.now();
+		long[] week = matrix.row(WeekViewContentProvider.WEEKLY_SUMMARY);
+		for (int i = 0; i < DAYS; i++) {
+			LocalDate date = firstDayOfWeek.plusDays(i);
+			week[i] = totals == null ? 0 : totals.getSeconds(date);
+		}
+		for (Task task : tasks) {
+			long[] taskRow = matrix.row(task);
+			long[] projectRow = task.getProject() == null ? null : matrix.cells.get(keyOf(task.getProject()));
+			if (projectRow == null && task.getProject() != null) {
+				projectRow = matrix.row(task.getProject());
+				for (int i = 0; i < DAYS; i++) {
+					projectRow[i] = totals == null ? 0
+							: totals.getSeconds(task.getProject(), firstDayOfWeek.plusDays(i));
+				}
+			}
+			for (int i = 0; i < DAYS; i++) {
+				taskRow[i] = totals == null ? 0 : totals.getSeconds(task, firstDayOfWeek.plusDays(i));
+			}
+			for (Activity activity : task.getActivities(from, from + DAYS * Activity.SECONDS_PER_DAY)) {
+				Running r = activity.getEnd() == null ? new Running(activity, task) : null;
+				long[] activityRow = matrix.row(activity);
+				for (int i = 0; i < DAYS; i++) {
+					long day = from + i * Activity.SECONDS_PER_DAY;
+					activityRow[i] = activity.secondsOverlapping(day, day + Activity.SECONDS_PER_DAY, now);
+					if (r != null) {
+						r.seconds[i] = activityRow[i];
+					}
+				}
+				if (r != null) {
+					matrix.running.add(r);
+				}
+			}
+		}
+		return matrix;
+	}
+
+	/**
+	 * Returns the key used for the given row. Keys are stable identifiers rather
+	 * than the elements themselves, as these are mutable and may be replaced by
+	 * instances loaded later.
+	 */
+	private static Object keyOf(Object element) {
+		if (element instanceof Activity) {
+			return ((Activity) element).getId();
+		}
+		if (element instanceof Task) {
+			Task task = (Task) element;
+			return new GlobalTaskId(task.getRepositoryUrl(), task.getTaskId());
+		}
+		if (element instanceof Project) {
+			return ((Project) element).getName();
+		}
+		return element;
+	}
+
+	private long[] row(Object element) {
+		return cells.computeIfAbsent(keyOf(element), k -> new long[DAYS]);
+	}
+
+	/**
+	 * @return the first day of the week
+	 */
+	public LocalDate getFirstDayOfWeek() {
+		return firstDayOfWeek;
+	}
+
+	/**
+	 * Returns the number of seconds spent on the given row at the given day.
+	 *
+	 * @param element the row element
+	 * @param weekday the day of the week, starting from 0
+	 * @return the number of seconds
+	 */
+	public long getSeconds(Object element, int weekday) {
+		long[] values = cells.get(keyOf(element));
+		return values == null ? 0 : values[weekday];
+	}
+
+	/**
+	 * Returns the formatted number of hours and minutes spent on the given row at
+	 * the given day, or an empty string if no time was spent.
+	 *
+	 * @param element the row element
+	 * @param weekday the day of the week, starting from 0
+	 * @return the formatted duration
+	 */
+	public String getText(Object element, int weekday) {
+		Object key = keyOf(element);
+		long[] values = cells.get(key);
+		if (values == null) {
+			return "";
+		}
+		String[] text = texts.computeIfAbsent(key, k -> new String[DAYS]);
+		if (text[weekday] == null) {
+			text[weekday] = format(values[weekday]);
+		}
+		return text[weekday];
+	}
+
+	/**
+	 * Formats the number of seconds as hours and minutes.
+	 *
+	 * @param seconds the number of seconds
+	 * @return the formatted duration or an empty string
+	 */
+	public static String format(long seconds) {
+		if (seconds > 0) {
+			return DurationFormatUtils.formatDuration(seconds * 1000, "H:mm", true);
+		}
+		return "";
+	}
+
+	/**
+	 * Brings the cells of running activities up to date, along with the cells of
+	 * their task, project and the weekly summary. As only hours and minutes are
+	 * shown, the listener is typically notified once per minute although this
+	 * is called more often.
+	 *
+	 * @param listener notified about each cell with a new formatted duration
+	 */
+	public void tick(CellListener listener) {
+		long from = Activity.toSeconds(firstDayOfWeek);
+		long now = Activity.now();
+		for (Running r : running) {
+			for (int i = 0; i < DAYS; i++) {
+				long day = from + i * Activity.SECONDS_PER_DAY;
+				long seconds = r.activity.secondsOverlapping(day, day + Activity.SECONDS_PER_DAY, now);
+				long delta = seconds - r.seconds[i];
+				if (delta == 0) {
+					continue;
+				}
+				r.seconds[i] = seconds;
+				add(r.activity, i, delta, listener);
+				add(r.task, i, delta, listener);
+				if (r.task.getProject() != null) {
+					add(r.task.getProject(), i, delta, listener);
+				}
+				add(WeekViewContentProvider.WEEKLY_SUMMARY, i, delta, listener);
+			}
+		}
+	}
+
+	private void add(Object element, int weekday, long delta, CellListener listener) {
+		Object key = keyOf(element);
+		long[] values = row(element);
+		String before = format(values[weekday]);
+		values[weekday] += delta;
+		String after = format(values[weekday]);
+		String[] text = texts.get(key);
+		if (text != null) {
+			text[weekday] = after;
+		}
+		if (!before.equals(after)) {
+			listener.cellChanged(element, weekday, after);
+		}
+	}
+
+	/**
+	 * @return <code>true</code> if any activity in the matrix is running
+	 */
+	public boolean isRunning() {
+		return !running.isEmpty();
+	}
+
+}
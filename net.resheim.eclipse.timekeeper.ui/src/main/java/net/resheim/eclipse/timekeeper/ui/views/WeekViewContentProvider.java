@@ -11,28 +11,41 @@
 
 package net.resheim.eclipse.timekeeper.ui.views;
 
-import java.time.Duration;
 import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 import org.eclipse.jface.viewers.AbstractTreeViewer;
+import org.eclipse.jface.viewers.ColumnViewer;
 import org.eclipse.jface.viewers.ITreeContentProvider;
+import org.eclipse.jface.viewers.StructuredViewer;
 import org.eclipse.jface.viewers.TreeViewer;
 import org.eclipse.jface.viewers.Viewer;
 import org.eclipse.mylyn.internal.tasks.ui.TasksUiPlugin;
 import org.eclipse.mylyn.tasks.core.ITask;
+import org.eclipse.swt.SWT;
 
+import net.resheim.eclipse.timekeeper.db.DatabaseChange;
 import net.resheim.eclipse.timekeeper.db.DatabaseChangeListener;
 import net.resheim.eclipse.timekeeper.db.TimekeeperPlugin;
 import net.resheim.eclipse.timekeeper.db.model.Activity;
 import net.resheim.eclipse.timekeeper.db.model.Project;
 import net.resheim.eclipse.timekeeper.db.model.Task;
+import net.resheim.eclipse.timekeeper.db.report.model.DailyTotals;
+import net.resheim.eclipse.timekeeper.internal.DBConnector;
 import net.resheim.eclipse.timekeeper.ui.TimekeeperUiPlugin;
 
 @SuppressWarnings("restriction")
@@ -40,16 +53,74 @@ public abstract class WeekViewContentProvider implements ITreeContentProvider, D
 
 	public static final WeeklySummary WEEKLY_SUMMARY = new WeeklySummary();
 
-	private LocalDate firstDayOfWeek;
+	private volatile LocalDate firstDayOfWeek;
 
-	protected Set<Task> filtered = Collections.emptySet();
+	/** The week the current content was loaded for */
+	private volatile LocalDate loadedWeek;
+
+	protected volatile Set<Task> filtered = Collections.emptySet();
+
+	/** Time spent per task, project and date in the week */
+	protected volatile DailyTotals totals;
+
+	/** Time spent per row and day of the week, as shown in the cells */
+	private volatile WeekMatrix matrix;
 
 	private Viewer viewer;
 
+	/** Key of the top level rows in {@link #rows} */
+	private static final Object ROOT = new Object();
+
+	/**
+	 * Sorted child rows per element, built when first requested and discarded
+	 * when the content changes. This is accessed on the display thread only.
+	 */
+	private final Map<Object, Object[]> rows = new HashMap<>();
+
+	/** Orders projects and tasks by name and identifier, activities by time */
+	private static final Comparator<Object> ROW_ORDER = (e1, e2) -> {
+		if (e1 instanceof Project && e2 instanceof Project) {
+			return ((Project) e1).getName().compareTo(((Project) e2).getName());
+		}
+		if (e1 instanceof Task && e2 instanceof Task) {
+			String s1 = ((Task) e1).getTaskId();
+			String s2 = ((Task) e2).getTaskId();
+			try {
+				return Integer.compare(Integer.parseInt(s1), Integer.parseInt(s2));
+			} catch (NumberFormatException e) {
+				return s1.compareTo(s2);
+			}
+		}
+		if (e1 instanceof Activity && e2 instanceof Activity) {
+			return ((Activity) e1).compareTo((Activity) e2);
+		}
+		return 0;
+	};
+
 	public Set<Task> getFiltered() {
 		return filtered;
 	}
 
+	/**
+	 * Returns the time spent per task, project and date in the week, or
+	 * <code>null</code> if the content has not been loaded yet.
+	 *
+	 * @return the daily totals
+	 */
+	public DailyTotals getTotals() {
+		return totals;
+	}
+
+	/**
+	 * Returns the time spent per row and day of the week, or <code>null</code> if
+	 * the content has not been loaded yet.
+	 *
+	 * @return the week matrix
+	 */
+	public WeekMatrix getMatrix() {
+		return matrix;
+	}
+
 	@Override
 	public void dispose() {
 		TimekeeperPlugin.getDefault().removeListener(this);
@@ -62,6 +133,16 @@ public abstract class WeekViewContentProvider implements ITreeContentProvider, D
 
 	@Override
 	public Object[] getChildren(Object parentElement) {
+		return rows.computeIfAbsent(parentElement, this::createChildren);
+	}
+
+	private Object[] createChildren(Object parentElement) {
+		Object[] children = createUnsortedChildren(parentElement);
+		Arrays.sort(children, ROW_ORDER);
+		return children;
+	}
+
+	private Object[] createUnsortedChildren(Object parentElement) {
 		if (parentElement instanceof Project) {
 			Project p = (Project) parentElement;
 			return filtered
@@ -70,7 +151,8 @@ public abstract class WeekViewContentProvider implements ITreeContentProvider, D
 					.toArray(size -> new Task[size]);
 		}
 		if (parentElement instanceof Task) {
-			return ((Task) parentElement).getActivities()
+			long from = Activity.toSeconds(getFirstDayOfWeek());
+			return ((Task) parentElement).getActivities(from, from + 7 * Activity.SECONDS_PER_DAY)
 					.stream()
 					.filter(this::hasData)
 					.toArray();
@@ -79,10 +161,19 @@ public abstract class WeekViewContentProvider implements ITreeContentProvider, D
 	}
 
 	public Object[] getElements(Object parent) {
+		// do not show content for another week while loading
+		if (!getFirstDayOfWeek().equals(loadedWeek)) {
+			return new Object[0];
+		}
+		return rows.computeIfAbsent(ROOT, r -> createElements());
+	}
+
+	private Object[] createElements() {
 		Object[] projects = filtered
 				.stream()
 				.map(Task::getProject)
 				.filter(distinctByKey(Project::getName))
+				.sorted(ROW_ORDER)
 				.toArray();
 		if (projects.length == 0) {
 			return new Object[0];
@@ -118,14 +209,83 @@ public abstract class WeekViewContentProvider implements ITreeContentProvider, D
 	}
 
 	private boolean hasData(Activity activity) {
-		LocalDate endDate = firstDayOfWeek.plusDays(7);
-		return activity.getDuration(firstDayOfWeek, endDate) != Duration.ZERO;
+		long from = Activity.toSeconds(firstDayOfWeek);
+		return activity.secondsOverlapping(from, from + 7 * Activity.SECONDS_PER_DAY) > 0;
 	}
 
-	protected void filter() {
-		filtered = TimekeeperUiPlugin.getDefault().getDbConnector()
-				.findTasksForWeek(getFirstDayOfWeek())
-				.collect(Collectors.toSet());
+	/**
+	 * Loads the tasks and daily totals for the week in the background. The
+	 * content is replaced when both have been loaded, unless another week has
+	 * been selected in the meantime.
+	 *
+	 * @return a future completing when the content has been loaded
+	 */
+	protected CompletableFuture<Void> filter() {
+		LocalDate week = getFirstDayOfWeek();
+		DBConnector connector = TimekeeperUiPlugin.getDefault().getDbConnector();
+		return connector.findTasksForWeek(week)
+				.thenCombine(connector.getDailyTotals(week, week.plusDays(7)), (tasks, dailyTotals) -> {
+					if (week.equals(getFirstDayOfWeek())) {
+						filtered = new HashSet<>(tasks);
+						totals = dailyTotals;
+						matrix = WeekMatrix.of(week, filtered, dailyTotals);
+						loadedWeek = week;
+					}
+					return null;
+				});
+	}
+
+	/**
+	 * Reloads the daily totals for the week in the background, typically after an
+	 * activity has been modified.
+	 *
+	 * @return a future completing when the totals have been loaded
+	 */
+	public CompletableFuture<Void> updateTotals() {
+		LocalDate week = getFirstDayOfWeek();
+		return TimekeeperUiPlugin.getDefault().getDbConnector()
+				.getDailyTotals(week, week.plusDays(7))
+				.thenAccept(dailyTotals -> {
+					if (week.equals(getFirstDayOfWeek())) {
+						totals = dailyTotals;
+						matrix = WeekMatrix.of(week, filtered, dailyTotals);
+					}
+				});
+	}
+
+	/**
+	 * Loads the content in the background and refreshes the viewer on the display
+	 * thread when done.
+	 */
+	public void reload() {
+		filter().thenRun(() -> asyncExec(this::contentLoaded));
+	}
+
+	/**
+	 * Called on the display thread when new content has been loaded.
+	 */
+	protected void contentLoaded() {
+		rows.clear();
+		viewer.refresh();
+		// a virtual tree expands rows as they are created
+		if (viewer instanceof TreeViewer && (viewer.getControl().getStyle() & SWT.VIRTUAL) == 0) {
+			((AbstractTreeViewer) viewer).expandAll();
+		}
+	}
+
+	/**
+	 * Executes the runnable on the display thread, unless the viewer has been
+	 * disposed.
+	 */
+	protected void asyncExec(Runnable runnable) {
+		if (viewer == null || viewer.getControl().isDisposed()) {
+			return;
+		}
+		viewer.getControl().getDisplay().asyncExec(() -> {
+			if (!viewer.getControl().isDisposed()) {
+				runnable.run();
+			}
+		});
 	}
 
 	public LocalDate getFirstDayOfWeek() {
@@ -134,6 +294,7 @@ public abstract class WeekViewContentProvider implements ITreeContentProvider, D
 
 	public void setFirstDayOfWeek(LocalDate firstDayOfWeek) {
 		this.firstDayOfWeek = firstDayOfWeek;
+		rows.clear();
 	}
 
 	LocalDate getDate(int weekday) {
@@ -142,22 +303,96 @@ public abstract class WeekViewContentProvider implements ITreeContentProvider, D
 
 	@Override
 	public void databaseStateChanged() {
-		filter();
-		if (viewer != null) {
-			viewer.getControl().getDisplay().asyncExec(new Runnable() {
-				@Override
-				public void run() {
-					ITask activeTask = TasksUiPlugin.getTaskActivityManager().getActiveTask();
-					if (activeTask != null) {
-						filtered.add(TimekeeperUiPlugin.getDefault().getDbConnector().getTask(activeTask));
-					}
-					viewer.refresh();
-					if (viewer instanceof TreeViewer) {
-						((AbstractTreeViewer) viewer).expandAll();
+		if (viewer == null) {
+			return;
+		}
+		ITask activeTask = TasksUiPlugin.getTaskActivityManager().getActiveTask();
+		CompletableFuture<Task> active = activeTask == null ? CompletableFuture.completedFuture(null)
+				: TimekeeperUiPlugin.getDefault().getDbConnector().getTask(activeTask);
+		filter().thenCombine(active, (v, task) -> task).thenAccept(task -> asyncExec(() -> {
+			if (task != null && filtered.add(task)) {
+				matrix = WeekMatrix.of(getFirstDayOfWeek(), filtered, totals);
+			}
+			contentLoaded();
+		}));
+	}
+
+	/**
+	 * Updates only the tasks affected by the changes, unless entities not
+	 * belonging to a task have been modified, in which case all content is
+	 * reloaded.
+	 */
+	@Override
+	public void databaseChanged(List<DatabaseChange> changes) {
+		if (viewer == null) {
+			return;
+		}
+		if (changes.stream().anyMatch(c -> c.getTaskId() == null)) {
+			databaseStateChanged();
+			return;
+		}
+		LocalDate week = getFirstDayOfWeek();
+		DBConnector connector = TimekeeperUiPlugin.getDefault().getDbConnector();
+		List<CompletableFuture<Task>> loading = changes.stream()
+				.map(DatabaseChange::getTaskId)
+				.distinct()
+				.map(connector::getTask)
+				.collect(Collectors.toList());
+		CompletableFuture.allOf(loading.toArray(new CompletableFuture[0]))
+				.thenCombine(updateTotals(), (v, w) -> loading.stream()
+						.map(CompletableFuture::join)
+						.filter(Objects::nonNull)
+						.collect(Collectors.toList()))
+				.thenAccept(tasks -> asyncExec(() -> {
+					if (week.equals(getFirstDayOfWeek()) && week.equals(loadedWeek)) {
+						tasksChanged(tasks);
 					}
-				}
-			});
+				}));
+	}
+
+	/**
+	 * Replaces the content with the modified tasks. The viewer is refreshed if
+	 * tasks have been added or removed, otherwise only the modified tasks are
+	 * updated.
+	 */
+	private void tasksChanged(List<Task> tasks) {
+		Set<Task> content = new HashSet<>(filtered);
+		boolean structureChanged = false;
+		for (Task task : tasks) {
+			boolean shown = content.remove(task);
+			boolean visible = task.getActivities().stream().anyMatch(a -> a.getEnd() == null || hasData(a));
+			if (visible) {
+				content.add(task);
+			}
+			structureChanged |= shown != visible;
+		}
+		filtered = content;
+		matrix = WeekMatrix.of(getFirstDayOfWeek(), content, totals);
+		rows.clear();
+		if (structureChanged) {
+			contentLoaded();
+		} else {
+			contentUpdated(tasks);
+		}
+	}
+
+	/**
+	 * Called on the display thread when tasks already shown have been modified.
+	 *
+	 * @param tasks the modified tasks
+	 */
+	protected void contentUpdated(Collection<Task> tasks) {
+		StructuredViewer structuredViewer = (StructuredViewer) viewer;
+		if (structuredViewer instanceof ColumnViewer && ((ColumnViewer) structuredViewer).isCellEditorActive()) {
+			// do not refresh with an editor active, that would deactivate the
+			// editor and lose focus
+			return;
+		}
+		for (Task task : tasks) {
+			structuredViewer.refresh(task);
+			structuredViewer.update(task.getProject(), null);
 		}
+		structuredViewer.update(WEEKLY_SUMMARY, null);
 	}
 
 }
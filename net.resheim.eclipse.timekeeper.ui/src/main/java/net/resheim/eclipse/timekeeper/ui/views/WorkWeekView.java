@@ -19,11 +19,15 @@ import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
 import java.time.temporal.WeekFields;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 import org.apache.commons.lang3.time.DurationFormatUtils;
 import org.eclipse.jface.action.Action;
@@ -39,6 +43,7 @@ import org.eclipse.jface.viewers.AbstractTreeViewer;
 import org.eclipse.jface.viewers.ColumnViewerToolTipSupport;
 import org.eclipse.jface.viewers.DoubleClickEvent;
 import org.eclipse.jface.viewers.IDoubleClickListener;
+import org.eclipse.jface.viewers.IElementComparer;
 import org.eclipse.jface.viewers.ISelection;
 import org.eclipse.jface.viewers.IStructuredSelection;
 import org.eclipse.jface.viewers.TreeColumnViewerLabelProvider;
@@ -47,7 +52,6 @@ import org.eclipse.jface.viewers.TreeViewerColumn;
 import org.eclipse.jface.viewers.Viewer;
 import org.eclipse.jface.viewers.ViewerComparator;
 import org.eclipse.jface.window.ToolTip;
-import org.eclipse.mylyn.internal.tasks.core.AbstractTask;
 import org.eclipse.mylyn.internal.tasks.core.ITaskListChangeListener;
 import org.eclipse.mylyn.internal.tasks.core.TaskContainerDelta;
 import org.eclipse.mylyn.internal.tasks.ui.ITasksUiPreferenceConstants;
@@ -75,6 +79,7 @@ import org.eclipse.swt.widgets.Menu;
 import org.eclipse.swt.widgets.Tree;
 import org.eclipse.swt.widgets.TreeColumn;
 import org.eclipse.swt.widgets.TreeItem;
+import org.eclipse.swt.widgets.Widget;
 import org.eclipse.ui.IActionBars;
 import org.eclipse.ui.ISharedImages;
 import org.eclipse.ui.PlatformUI;
@@ -84,11 +89,11 @@ import org.eclipse.ui.part.ViewPart;
 import net.resheim.eclipse.timekeeper.db.TimekeeperPlugin;
 import net.resheim.eclipse.timekeeper.db.model.Activity;
 import net.resheim.eclipse.timekeeper.db.model.ActivityLabel;
-import net.resheim.eclipse.timekeeper.db.model.Project;
 import net.resheim.eclipse.timekeeper.db.model.Task;
 import net.resheim.eclipse.timekeeper.ui.ActivityLabelPainter;
 import net.resheim.eclipse.timekeeper.ui.TaskUtils;
 import net.resheim.eclipse.timekeeper.ui.TimekeeperUiPlugin;
+import net.resheim.eclipse.timekeeper.ui.preferences.PreferenceConstants;
 
 @SuppressWarnings("restriction")
 public class WorkWeekView extends ViewPart {
@@ -127,6 +132,50 @@ public class WorkWeekView extends ViewPart {
 
 	}
 
+	/**
+	 * A tree viewer that can update the text of a single cell without running
+	 * the label providers of the entire row.
+	 */
+	private static final class WeekTreeViewer extends TreeViewer {
+
+		WeekTreeViewer(Composite parent, int style) {
+			super(parent, style);
+		}
+
+		/**
+		 * Sets the text of the given cell, if the row has been created.
+		 */
+		void setCellText(Object element, int column, String text) {
+			Widget item = findItem(element);
+			if (item instanceof TreeItem && !item.isDisposed()) {
+				((TreeItem) item).setText(column, text);
+			}
+		}
+	}
+
+	/**
+	 * Compares activities by identifier, as the start and end times that are
+	 * part of {@link Activity#equals(Object)} are modified when editing.
+	 */
+	private static final class ElementComparer implements IElementComparer {
+
+		@Override
+		public boolean equals(Object a, Object b) {
+			if (a instanceof Activity && b instanceof Activity) {
+				return Objects.equals(((Activity) a).getId(), ((Activity) b).getId());
+			}
+			return Objects.equals(a, b);
+		}
+
+		@Override
+		public int hashCode(Object element) {
+			if (element instanceof Activity) {
+				return Objects.hashCode(((Activity) element).getId());
+			}
+			return Objects.hashCode(element);
+		}
+	}
+
 	private final class TaskListener implements ITaskActivationListener, ITaskListChangeListener {
 
 		@Override
@@ -206,9 +255,7 @@ public class WorkWeekView extends ViewPart {
 			// do not refresh with an editor active, that would deactivate the
 			// editor and lose focus
 			if (!viewer.isCellEditorActive()) {
-				viewer.refresh(activeTask);
-				viewer.refresh(contentProvider.getParent(activeTask));
-				viewer.refresh(WeekViewContentProvider.WEEKLY_SUMMARY);
+				updateRunningCells();
 			}
 		} else if (getActiveTime() > 0) {
 			long activeTime = getActiveTime();
@@ -218,14 +265,33 @@ public class WorkWeekView extends ViewPart {
 			// do not refresh with an editor active, that would deactivate the
 			// editor and lose focus
 			if (!viewer.isCellEditorActive()) {
-				viewer.refresh(activeTask);
-				viewer.refresh(contentProvider.getParent(activeTask));
-				viewer.refresh(WeekViewContentProvider.WEEKLY_SUMMARY);
+				updateRunningCells();
 			}
 		}
 
 	}
 
+	/**
+	 * Advances the running activity and the totals it contributes to in the week
+	 * matrix, and sets the text of the cells that are shown differently. The
+	 * label providers are not involved, and as cells are shown with minute
+	 * resolution, nothing is redrawn most of the time.
+	 */
+	private void updateRunningCells() {
+		WeekMatrix matrix = contentProvider.getMatrix();
+		// cells of a hidden view are brought up to date when shown again
+		if (matrix == null || !matrix.isRunning() || !viewer.getControl().isVisible()) {
+			return;
+		}
+		TreeColumn[] columns = viewer.getTree().getColumns();
+		matrix.tick((element, weekday, text) -> {
+			viewer.setCellText(element, weekday + 1, text);
+			if (element == WeekViewContentProvider.WEEKLY_SUMMARY) {
+				columns[weekday + 1].setToolTipText(text);
+			}
+		});
+	}
+
 	private class ContentProvider extends WeekViewContentProvider {
 
 		@Override
@@ -236,17 +302,29 @@ public class WorkWeekView extends ViewPart {
 			}
 			updateWeekLabel();
 			updateColumHeaders();
-			filter();
 			v.refresh();
+			reload();
+		}
+
+		@Override
+		protected void contentLoaded() {
+			updateColumHeaders();
+			super.contentLoaded();
+		}
+
+		@Override
+		protected void contentUpdated(Collection<Task> tasks) {
+			updateColumHeaders();
+			super.contentUpdated(tasks);
 		}
 
 		private void updateColumHeaders() {
 			TreeColumn[] columns = viewer.getTree().getColumns();
 			String[] headings = TimekeeperUiPlugin.getDefault().getHeadings(getFirstDayOfWeek());
+			WeekMatrix matrix = getMatrix();
 			for (int i = 1; i < columns.length; i++) {
-				LocalDate date = getFirstDayOfWeek().plusDays((long) i - 1);
 				columns[i].setText(headings[i - 1]);
-				columns[i].setToolTipText(getFormattedPeriod(getSum(filtered, date)));
+				columns[i].setToolTipText(getFormattedPeriod(matrix == null ? 0 : matrix.getSeconds(WEEKLY_SUMMARY, i - 1)));
 			}
 		}
 
@@ -280,7 +358,7 @@ public class WorkWeekView extends ViewPart {
 
 	private TaskListener taskListener;
 
-	private TreeViewer viewer;
+	private WeekTreeViewer viewer;
 
 	private Label dateTimeLabel;
 
@@ -368,13 +446,23 @@ public class WorkWeekView extends ViewPart {
 		gdStatusLabel.verticalAlignment = SWT.BEGINNING;
 		statusLabel.setLayoutData(gdStatusLabel);
 
-		viewer = new TreeViewer(main, SWT.MULTI | SWT.H_SCROLL | SWT.V_SCROLL | SWT.FULL_SELECTION);
+		// a virtual tree will only create the rows that are visible
+		boolean virtual = TimekeeperUiPlugin.getDefault().getPreferenceStore()
+				.getBoolean(PreferenceConstants.VIRTUAL_TREE);
+		int style = SWT.MULTI | SWT.H_SCROLL | SWT.V_SCROLL | SWT.FULL_SELECTION;
+		viewer = new WeekTreeViewer(main, virtual ? style | SWT.VIRTUAL : style);
+		viewer.setComparer(new ElementComparer());
 
 		// Make the tree view provide selections
 		getSite().setSelectionProvider(viewer);
 		contentProvider = new ContentProvider();
 		TimekeeperPlugin.getDefault().addListener(contentProvider);
-		viewer.setContentProvider(contentProvider);
+		if (virtual) {
+			viewer.setUseHashlookup(true);
+			viewer.setContentProvider(new LazyWeekViewContentProvider(contentProvider));
+		} else {
+			viewer.setContentProvider(contentProvider);
+		}
 		GridData layoutData = GridDataFactory.fillDefaults().grab(true, true).span(3, 1).create();
 		viewer.getControl().setLayoutData(layoutData);
 
@@ -385,8 +473,11 @@ public class WorkWeekView extends ViewPart {
 		}
 
 		Tree tree = viewer.getTree();
-		viewer.setComparator(new ViewerComparatorExtension());
-		viewer.setAutoExpandLevel(AbstractTreeViewer.ALL_LEVELS);
+		// rows of a virtual tree are sorted and expanded by the content provider
+		if (!virtual) {
+			viewer.setComparator(new ViewerComparatorExtension());
+			viewer.setAutoExpandLevel(AbstractTreeViewer.ALL_LEVELS);
+		}
 		ColumnViewerToolTipSupport.enableFor(viewer, ToolTip.NO_RECREATE);
 		tree.setHeaderVisible(true);
 		tree.setLinesVisible(true);
@@ -482,26 +573,12 @@ public class WorkWeekView extends ViewPart {
 
 			@Override
 			public String getText(Object element) {
-				// Use modern formatting
-				long seconds = 0;
-				LocalDate date = contentProvider.getFirstDayOfWeek().plusDays(weekday);
-				if (element instanceof String) {
-					seconds = getSum(contentProvider.getFiltered(), date, (Project) element);
-				} else if (element instanceof ITask) {
-					AbstractTask task = (AbstractTask) element;
-					Task trackedTask = TimekeeperUiPlugin.getDefault().getDbConnector().getTask(task);
-					if (trackedTask != null) {
-						seconds = trackedTask.getDuration(contentProvider.getDate(weekday)).getSeconds();
-					}
-				} else if (element instanceof WeeklySummary) {
-					seconds = getSum(contentProvider.getFiltered(), date);
-				} else if (element instanceof Activity) {
-					seconds = ((Activity) element).getDuration(date).getSeconds();
-				}
-				if (seconds > 0) {
-					return DurationFormatUtils.formatDuration(seconds * 1000, "H:mm", true);
+				// cells are looked up rather than calculated on every paint
+				WeekMatrix matrix = contentProvider.getMatrix();
+				if (matrix == null) {
+					return "";
 				}
-				return "";
+				return matrix.getText(element, weekday);
 			}
 		});
 	}
@@ -561,49 +638,8 @@ public class WorkWeekView extends ViewPart {
 	}
 
 	private String getFormattedPeriod(long seconds) {
-		if (seconds > 0) {
-			return DurationFormatUtils.formatDuration(seconds * 1000, "H:mm", true);
-		}
 		// TODO: Fix dates with no entries "0:00"
-		return "";
-	}
-
-	/**
-	 * Calculates the total amount of seconds accumulated on specified date.
-	 *
-	 * @param date
-	 *            the date to calculate for
-	 * @return the total amount of seconds accumulated
-	 */
-	private long getSum(Set<Task> filtered, LocalDate date) {
-		// May not have been initialised when first called.
-		if (filtered == null) {
-			return 0;
-		}
-		return filtered
-				.stream()
-				//.filter(t -> TimekeeperPlugin.getDefault().getTask(t) != null)
-				.mapToLong(t -> t.getDuration(date).getSeconds())
-				.sum();
-	}
-
-	/**
-	 * Calculates the total amount of seconds accumulated on the project for the
-	 * specified date.
-	 *
-	 * @param date
-	 *            the date to calculate for
-	 * @param project
-	 *            the project to calculate for
-	 * @return the total amount of seconds accumulated
-	 */
-	private long getSum(Set<Task> filtered, LocalDate date, Project project) {
-		return filtered
-				.stream()
-				.filter(t -> t != null)
-				.filter(t -> project.equals(t.getProject()))
-				.mapToLong(t -> t.getDuration(date).getSeconds())
-				.sum();
+		return WeekMatrix.format(seconds);
 	}
 
 	private void hookContextMenu() {
@@ -722,7 +758,8 @@ public class WorkWeekView extends ViewPart {
 				if (obj instanceof Task) {
 					((Task) obj).endActivity();
 					((Task) obj).startActivity();
-					refreshAll();
+					TimekeeperPlugin.getDefault().getAsyncTimekeeperService().persistTask((Task) obj)
+							.thenRun(() -> viewer.getControl().getDisplay().asyncExec(WorkWeekView.this::refreshAll));
 				}
 			}
 		};
@@ -733,13 +770,15 @@ public class WorkWeekView extends ViewPart {
 			public void run() {
 				ISelection selection = viewer.getSelection();
 				Iterator<?> iterator = ((IStructuredSelection) selection).iterator();
+				List<CompletableFuture<Void>> removals = new ArrayList<>();
 				while (iterator.hasNext()) {
 					Object i = iterator.next();
 					if (i instanceof Activity) {
-						((Activity) i).getTrackedTask().getActivities().remove(i);
+						removals.add(TimekeeperPlugin.getDefault().getAsyncTimekeeperService().removeActivity((Activity) i));
 					}
 				}
-				viewer.refresh();
+				CompletableFuture.allOf(removals.toArray(new CompletableFuture<?>[0]))
+						.thenRun(() -> viewer.getControl().getDisplay().asyncExec(WorkWeekView.this::refreshAll));
 			}
 		};
 		deleteAction.setImageDescriptor(
@@ -762,13 +801,15 @@ public class WorkWeekView extends ViewPart {
 	 * Typically after importing a number of records.
 	 */
 	public void refreshAll() {
+		if (viewer.getControl().isDisposed()) {
+			return;
+		}
+		// the content is loaded in the background and expanded when done
 		viewer.getContentProvider().inputChanged(viewer, viewer.getInput(), null);
-		viewer.expandAll();
 	}
 
 	// XXX: Don't do expandAll() but be more targeted
 	public void refresh(Object element) {
-		viewer.getContentProvider().inputChanged(viewer, viewer.getInput(), null);
-		viewer.expandAll();
+		refreshAll();
 	}
 }
\ No newline at end of file